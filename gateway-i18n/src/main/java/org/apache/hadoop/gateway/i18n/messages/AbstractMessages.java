@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.i18n.messages;
+
+import java.text.MessageFormat;
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Base class for the {@link Messages} implementations generated by {@link MessagesProcessor}.
+ * Everything the reflective {@link MessagesInvoker} derives from annotations on each call is
+ * resolved once here or at compile time, and parsed formats are cached per locale.
+ */
+public abstract class AbstractMessages {
+
+  private static final ResourceBundle MISSING_BUNDLE = new ListResourceBundle() {
+    @Override
+    protected Object[][] getContents() {
+      return null;
+    }
+  };
+
+  protected final MessageLogger logger;
+
+  private final Class<?> clazz;
+  private final String bundleName;
+  private final String codes;
+  private final boolean callerLocation;
+  private final String[] names;
+  private final String[] patterns;
+  private final ConcurrentHashMap<Locale, ResourceBundle> bundles = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Locale, AtomicReferenceArray<MessageFormat>> formats = new ConcurrentHashMap<>();
+
+  /**
+   * @param clazz the {@link Messages} interface being implemented
+   * @param loggers the factory used to create the logger for the interface
+   * @param names the method names, used as keys into the message bundle
+   * @param patterns the default pattern for each method when the bundle doesn't provide one
+   */
+  protected AbstractMessages( Class<?> clazz, MessageLoggerFactory loggers, String[] names, String[] patterns ) {
+    Messages anno = clazz.getAnnotation( Messages.class );
+    this.clazz = clazz;
+    this.codes = MessagesInvoker.calcCodePattern( clazz, anno );
+    this.bundleName = MessagesInvoker.calcBundleName( clazz, anno );
+    this.logger = loggers.getLogger( MessagesInvoker.calcLoggerName( clazz, anno ) );
+    this.callerLocation = MessagesFactory.isCallerLocationEnabled();
+    this.names = names;
+    this.patterns = patterns;
+  }
+
+  protected final String code( int num ) {
+    return Message.DEFAULT_CODE == num ? null : MessageFormat.format( codes, num );
+  }
+
+  /**
+   * Formats and logs the message for the method at index. Must be called directly from the
+   * generated method so the caller, when captured, is the frame that invoked that method.
+   */
+  protected final String log( MessageLevel level, String code, int index, Object[] args, Throwable throwable ) {
+    String message = format( index, args );
+    StackTraceElement caller = callerLocation ? new Throwable().getStackTrace()[ 2 ] : null;
+    logger.log( caller, level, code, message, throwable );
+    return message;
+  }
+
+  private String format( int index, Object[] args ) {
+    Locale locale = Locale.getDefault();
+    AtomicReferenceArray<MessageFormat> cache = formats.get( locale );
+    if( cache == null ) {
+      cache = new AtomicReferenceArray<>( names.length );
+      AtomicReferenceArray<MessageFormat> existing = formats.putIfAbsent( locale, cache );
+      if( existing != null ) {
+        cache = existing;
+      }
+    }
+    MessageFormat format = cache.get( index );
+    if( format == null ) {
+      format = new MessageFormat( getPattern( locale, index ) );
+      cache.set( index, format );
+    }
+    // MessageFormat isn't thread safe but a clone is much cheaper than parsing the pattern again.
+    return ( (MessageFormat)format.clone() ).format( args );
+  }
+
+  private String getPattern( Locale locale, int index ) {
+    ResourceBundle bundle = findBundle( locale );
+    if( bundle != null && bundle.containsKey( names[ index ] ) ) {
+      return bundle.getString( names[ index ] );
+    }
+    return patterns[ index ];
+  }
+
+  private ResourceBundle findBundle( Locale locale ) {
+    ResourceBundle bundle = bundles.get( locale );
+    if( bundle == MISSING_BUNDLE ) {
+      bundle = null;
+    } else if( bundle == null ) {
+      try {
+        bundle = ResourceBundle.getBundle( bundleName, locale, clazz.getClassLoader() );
+        bundles.put( locale, bundle );
+      } catch( MissingResourceException e ) {
+        bundles.put( locale, MISSING_BUNDLE );
+      }
+    }
+    return bundle;
+  }
+
+  public String toString() {
+    return "Messages[" + bundleName + "]";
+  }
+
+}
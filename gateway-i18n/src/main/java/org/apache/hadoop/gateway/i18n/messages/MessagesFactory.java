@@ -21,6 +21,7 @@ import org.apache.hadoop.gateway.i18n.messages.loggers.jdk.JdkMessageLoggerFacto
 import org.apache.hadoop.gateway.i18n.messages.loggers.sout.SoutMessageLoggerFactory;
 import org.apache.hadoop.gateway.i18n.messages.loggers.sout.SoutMessageLoggerFactory;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Proxy;
 import java.util.Iterator;
 import java.util.Map;
@@ -32,6 +33,18 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class MessagesFactory {
 
+  /**
+   * Suffix appended to the binary name of a {@link Messages} interface to name the
+   * implementation generated for it by {@link MessagesProcessor}.
+   */
+  public static final String IMPL_SUFFIX = "$MessagesImpl";
+
+  /**
+   * System property that enables capturing the caller's location for every logged message.
+   * This requires a stack walk per message so it is off by default.
+   */
+  public static final String CALLER_LOCATION_PROPERTY = "gateway.i18n.messages.caller.location";
+
   private static MessageLoggerFactory loggers = getMessageLoggerFactory();
   private static Map<Class<?>, Object> proxies = new ConcurrentHashMap<Class<?>, Object>();
 
@@ -43,13 +56,39 @@ public class MessagesFactory {
       if( anno == null ) {
         throw new IllegalArgumentException( clazz.getName() + " missing @" + Messages.class.getCanonicalName() );
       }
-      MessagesInvoker invoker = new MessagesInvoker( clazz, loggers );
-      proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      proxy = createGenerated( clazz );
+      if( proxy == null ) {
+        MessagesInvoker invoker = new MessagesInvoker( clazz, loggers );
+        proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      }
       proxies.put( clazz, proxy );
     }
     return (T)proxy;
   }
 
+  public static boolean isCallerLocationEnabled() {
+    return Boolean.getBoolean( CALLER_LOCATION_PROPERTY );
+  }
+
+  // Interfaces compiled without MessagesProcessor on the classpath fall back to a proxy.
+  private static Object createGenerated( Class<?> clazz ) {
+    Class<?> impl;
+    try {
+      impl = Class.forName( clazz.getName() + IMPL_SUFFIX, true, clazz.getClassLoader() );
+    } catch( ClassNotFoundException e ) {
+      return null;
+    }
+    if( !clazz.isAssignableFrom( impl ) ) {
+      return null;
+    }
+    try {
+      Constructor<?> constructor = impl.getConstructor( MessageLoggerFactory.class );
+      return constructor.newInstance( loggers );
+    } catch( ReflectiveOperationException e ) {
+      throw new IllegalStateException( "Failed to create " + impl.getName(), e );
+    }
+  }
+
   private static MessageLoggerFactory getMessageLoggerFactory() {
     MessageLoggerFactory factory;
     ServiceLoader<MessageLoggerFactory> loader = ServiceLoader.load( MessageLoggerFactory.class );
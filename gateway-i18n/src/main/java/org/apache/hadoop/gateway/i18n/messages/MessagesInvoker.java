@@ -32,6 +32,7 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
   private String codes;
   private MessageLogger logger;
   private String bundle;
+  private boolean callerLocation;
 
   public MessagesInvoker( Class<?> clazz, MessageLoggerFactory loggers ) {
     super( clazz );
@@ -39,6 +40,7 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
     codes = calcCodePattern( clazz, anno );
     bundle = calcBundleName( clazz, anno );
     logger = getLogger( clazz, anno, loggers );
+    callerLocation = MessagesFactory.isCallerLocationEnabled();
   }
 
   @Override
@@ -53,8 +55,8 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
       // From looking at the JRE code it looks this is probably the case.
       // The second version ends up calling the first version after getting the current thread
       // and then checking that it is being called from the current thread.
-      //TODO: Should probably only do this if the logger is at debug or finer to make sure there isn't a performance impact during production usage.
-      StackTraceElement caller = new Throwable().getStackTrace()[2];
+      // Capturing the stack is still expensive so it is only done when enabled.
+      StackTraceElement caller = callerLocation ? new Throwable().getStackTrace()[2] : null;
       // StackTraceElement caller = Thread.currentThread().getStackTrace()[3];
       logger.log( caller, level, code, message, throwable );
     }
@@ -122,7 +124,7 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
     return level;
   }
 
-  private static String calcCodePattern( final Class<?> clazz, final Messages anno ) {
+  static String calcCodePattern( final Class<?> clazz, final Messages anno ) {
     String pattern = anno.codes();
     if( Messages.DEFAULT_CODES.equals( pattern ) ) {
       pattern = clazz.getCanonicalName().replace( '.', '/' );
@@ -130,7 +132,7 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
     return pattern;
   }
 
-  private static String calcBundleName( Class<?> clazz, Messages anno ) {
+  static String calcBundleName( Class<?> clazz, Messages anno ) {
     String bundle = null;
     if( anno != null ) {
       bundle = anno.bundle();
@@ -144,7 +146,7 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
     return bundle;
   }
 
-  private static final String calcLoggerName( final Class<?> clazz, final Messages anno ) {
+  static final String calcLoggerName( final Class<?> clazz, final Messages anno ) {
     String logger = null;
     if( anno != null ) {
       logger = anno.logger();
@@ -0,0 +1,239 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.i18n.messages;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates an implementation for each {@link Messages} interface so that {@link MessagesFactory}
+ * doesn't need to fall back to a reflective proxy. The generated class is named after the binary
+ * name of the interface plus {@link MessagesFactory#IMPL_SUFFIX}.
+ * <p>
+ * The processor is not registered as a service, a module enables it by listing it in the
+ * <code>annotationProcessors</code> of its maven-compiler-plugin configuration. Such a module also
+ * declares the maven-clean-plugin, whose <code>clean-generated-messages</code> execution from the
+ * parent pom removes the previously generated sources before they are compiled again.
+ */
+@SupportedAnnotationTypes( "org.apache.hadoop.gateway.i18n.messages.Messages" )
+public class MessagesProcessor extends AbstractProcessor {
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnv ) {
+    for( Element element : roundEnv.getElementsAnnotatedWith( Messages.class ) ) {
+      if( element.getKind() != ElementKind.INTERFACE ) {
+        error( element, "@" + Messages.class.getSimpleName() + " is only supported on interfaces" );
+        continue;
+      }
+      try {
+        generate( (TypeElement)element );
+      } catch( IOException e ) {
+        error( element, "Failed to generate messages implementation: " + e );
+      }
+    }
+    return false;
+  }
+
+  private void generate( TypeElement type ) throws IOException {
+    List<ExecutableElement> methods = new ArrayList<>();
+    for( ExecutableElement method : ElementFilter.methodsIn( processingEnv.getElementUtils().getAllMembers( type ) ) ) {
+      if( method.getModifiers().contains( Modifier.ABSTRACT ) ) {
+        methods.add( method );
+      }
+    }
+    for( ExecutableElement method : methods ) {
+      TypeMirror returnType = method.getReturnType();
+      if( returnType.getKind() != TypeKind.VOID && !isString( returnType ) ) {
+        error( method, "Message methods must return void or String" );
+        return;
+      }
+    }
+
+    String packageName = processingEnv.getElementUtils().getPackageOf( type ).getQualifiedName().toString();
+    String binaryName = processingEnv.getElementUtils().getBinaryName( type ).toString();
+    String className = ( packageName.isEmpty() ? binaryName : binaryName.substring( packageName.length() + 1 ) )
+        + MessagesFactory.IMPL_SUFFIX;
+    String typeName = type.getQualifiedName().toString();
+
+    StringBuilder src = new StringBuilder();
+    if( !packageName.isEmpty() ) {
+      src.append( "package " ).append( packageName ).append( ";\n\n" );
+    }
+    src.append( "// Generated by " ).append( MessagesProcessor.class.getName() ).append( " - do not edit.\n" );
+    src.append( "public final class " ).append( className )
+        .append( " extends " ).append( AbstractMessages.class.getName() )
+        .append( " implements " ).append( typeName ).append( " {\n\n" );
+
+    for( int i = 0; i < methods.size(); i++ ) {
+      src.append( "  private final String code" ).append( i ).append( ";\n" );
+    }
+    src.append( "\n  public " ).append( className ).append( "( " )
+        .append( MessageLoggerFactory.class.getName() ).append( " loggers ) {\n" );
+    src.append( "    super( " ).append( typeName ).append( ".class, loggers,\n        new String[]{" );
+    for( int i = 0; i < methods.size(); i++ ) {
+      src.append( i > 0 ? ", " : " " ).append( literal( methods.get( i ).getSimpleName().toString() ) );
+    }
+    src.append( " },\n        new String[]{" );
+    for( int i = 0; i < methods.size(); i++ ) {
+      src.append( i > 0 ? ", " : " " ).append( literal( getPattern( methods.get( i ) ) ) );
+    }
+    src.append( " } );\n" );
+    for( int i = 0; i < methods.size(); i++ ) {
+      Message anno = methods.get( i ).getAnnotation( Message.class );
+      int code = anno == null ? Message.DEFAULT_CODE : anno.code();
+      src.append( "    code" ).append( i ).append( " = code( " ).append( code ).append( " );\n" );
+    }
+    src.append( "  }\n" );
+
+    for( int i = 0; i < methods.size(); i++ ) {
+      generateMethod( src, methods.get( i ), i );
+    }
+    src.append( "\n}\n" );
+
+    String fileName = packageName.isEmpty() ? className : packageName + "." + className;
+    try( Writer writer = processingEnv.getFiler().createSourceFile( fileName, type ).openWriter() ) {
+      writer.write( src.toString() );
+    }
+  }
+
+  private void generateMethod( StringBuilder src, ExecutableElement method, int index ) {
+    boolean returnsText = method.getReturnType().getKind() != TypeKind.VOID;
+    Message anno = method.getAnnotation( Message.class );
+    String level = level( anno == null ? MessageLevel.INFO : anno.level() );
+    List<? extends VariableElement> params = method.getParameters();
+
+    src.append( "\n  @Override\n  public " ).append( returnsText ? "String" : "void" ).append( " " )
+        .append( method.getSimpleName() ).append( "(" );
+    for( int i = 0; i < params.size(); i++ ) {
+      src.append( i > 0 ? ", " : " " ).append( "final " ).append( params.get( i ).asType() ).append( " p" ).append( i );
+    }
+    src.append( params.isEmpty() ? ")" : " )" );
+    List<? extends TypeMirror> thrown = method.getThrownTypes();
+    for( int i = 0; i < thrown.size(); i++ ) {
+      src.append( i > 0 ? ", " : " throws " ).append( thrown.get( i ) );
+    }
+    src.append( " {\n" );
+
+    src.append( "    if( !logger.isLoggable( " ).append( level ).append( " ) ) {\n" );
+    src.append( returnsText ? "      return null;\n" : "      return;\n" );
+    src.append( "    }\n" );
+    src.append( "    Throwable throwable = null;\n" );
+    for( int i = 0; i < params.size(); i++ ) {
+      VariableElement param = params.get( i );
+      StackTrace trace = param.getAnnotation( StackTrace.class );
+      if( trace != null && !param.asType().getKind().isPrimitive() ) {
+        src.append( "    if( throwable == null && (Object)p" ).append( i ).append( " instanceof Throwable && logger.isLoggable( " )
+            .append( level( trace.level() ) ).append( " ) ) {\n" );
+        src.append( "      throwable = (Throwable)(Object)p" ).append( i ).append( ";\n" );
+        src.append( "    }\n" );
+      }
+    }
+    src.append( returnsText ? "    return log( " : "    log( " ).append( level ).append( ", code" ).append( index )
+        .append( ", " ).append( index ).append( ", " );
+    if( params.isEmpty() ) {
+      src.append( "null" );
+    } else {
+      src.append( "new Object[]{" );
+      for( int i = 0; i < params.size(); i++ ) {
+        src.append( i > 0 ? ", p" : " p" ).append( i );
+      }
+      src.append( " }" );
+    }
+    src.append( ", throwable );\n  }\n" );
+  }
+
+  // Mirrors ResourcesInvoker.getPattern for when the bundle doesn't have an entry for the method.
+  private static String getPattern( ExecutableElement method ) {
+    Message anno = method.getAnnotation( Message.class );
+    String pattern = anno == null ? null : anno.text();
+    if( pattern == null || Message.DEFAULT_TEXT.equals( pattern ) ) {
+      StringBuilder builder = new StringBuilder( method.getSimpleName() );
+      int params = method.getParameters().size();
+      if( params > 0 ) {
+        builder.append( "(" );
+        for( int i = 0; i < params; i++ ) {
+          if( i > 0 ) {
+            builder.append( "," );
+          }
+          builder.append( "\"{" ).append( i ).append( "}\"" );
+        }
+        builder.append( ")" );
+      }
+      pattern = builder.toString();
+    }
+    return pattern;
+  }
+
+  private boolean isString( TypeMirror type ) {
+    TypeElement string = processingEnv.getElementUtils().getTypeElement( String.class.getName() );
+    return processingEnv.getTypeUtils().isSameType( type, string.asType() );
+  }
+
+  private static String level( MessageLevel level ) {
+    return MessageLevel.class.getName() + "." + level.name();
+  }
+
+  private static String literal( String s ) {
+    StringBuilder builder = new StringBuilder( s.length() + 2 );
+    builder.append( '"' );
+    for( int i = 0; i < s.length(); i++ ) {
+      char c = s.charAt( i );
+      switch( c ) {
+        case '"': builder.append( "\\\"" ); break;
+        case '\\': builder.append( "\\\\" ); break;
+        case '\n': builder.append( "\\n" ); break;
+        case '\r': builder.append( "\\r" ); break;
+        case '\t': builder.append( "\\t" ); break;
+        default:
+          if( c < 0x20 || c > 0x7e ) {
+            builder.append( String.format( "\\u%04x", (int)c ) );
+          } else {
+            builder.append( c );
+          }
+      }
+    }
+    return builder.append( '"' ).toString();
+  }
+
+  private void error( Element element, String message ) {
+    processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR, message, element );
+  }
+
+}
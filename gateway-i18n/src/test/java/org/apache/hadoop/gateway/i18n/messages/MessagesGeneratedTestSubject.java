@@ -0,0 +1,37 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.i18n.messages;
+
+import static org.apache.hadoop.gateway.i18n.messages.MessageLevel.DEBUG;
+import static org.apache.hadoop.gateway.i18n.messages.MessageLevel.WARN;
+
+/**
+ *
+ */
+@Messages( logger="generated.logger.name", codes="GEN:{0}" )
+public interface MessagesGeneratedTestSubject {
+
+  @Message( level=WARN, code=7, text="str={0}, t={1}" )
+  String withEverything( String str, @StackTrace(level=DEBUG) Throwable t );
+
+  @Message( text="quote=\"{0}\" \u00e9" )
+  void withEscapes( long x );
+
+  void withoutAnnotations( int x, String y );
+
+}
@@ -27,6 +27,8 @@ import org.junit.experimental.categories.Category;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -37,7 +39,13 @@ public class MessagesTest {
 
   @Test
   public void testFirst() {
-    MessagesTestSubject log = MessagesFactory.get( MessagesTestSubject.class );
+    System.setProperty( MessagesFactory.CALLER_LOCATION_PROPERTY, "true" );
+    MessagesTestSubject log;
+    try {
+      log = MessagesFactory.get( MessagesTestSubject.class );
+    } finally {
+      System.clearProperty( MessagesFactory.CALLER_LOCATION_PROPERTY );
+    }
 
     log.withFullAnnotationAndParameter( 7 );
 
@@ -51,4 +59,32 @@ public class MessagesTest {
 
   }
 
+  @Test
+  public void testGenerated() {
+    MessagesGeneratedTestSubject log = MessagesFactory.get( MessagesGeneratedTestSubject.class );
+    assertThat( log.getClass().getName(), is( MessagesGeneratedTestSubject.class.getName() + MessagesFactory.IMPL_SUFFIX ) );
+
+    Exception e = new Exception();
+    assertThat( log.withEverything( "s", e ), is( "str=s, t=" + e ) );
+    log.withEscapes( 1234L );
+    log.withoutAnnotations( 1, "y" );
+
+    TestMessageLogger logger = (TestMessageLogger)TestMessageLoggerFactory.getFactory().getLogger( "generated.logger.name" );
+    assertThat( logger.records.size(), equalTo( 3 ) );
+
+    TestMessageRecord record = logger.records.get( 0 );
+    assertThat( record.getLevel(), is( MessageLevel.WARN ) );
+    assertThat( record.getId(), is( "GEN:7" ) );
+    assertThat( record.getThrowable(), sameInstance( (Throwable)e ) );
+    assertThat( record.getCaller(), nullValue() );
+
+    record = logger.records.get( 1 );
+    assertThat( record.getLevel(), is( MessageLevel.INFO ) );
+    assertThat( record.getId(), nullValue() );
+    assertThat( record.getMessage(), is( java.text.MessageFormat.format( "quote=\"{0}\" \u00e9", 1234L ) ) );
+
+    record = logger.records.get( 2 );
+    assertThat( record.getMessage(), is( "withoutAnnotations(\"1\",\"y\")" ) );
+  }
+
 }
@@ -24,6 +24,7 @@ import org.apache.hadoop.gateway.filter.AbstractGatewayFilter;
 import org.apache.hadoop.gateway.ha.dispatch.i18n.HaDispatchMessages;
 import org.apache.hadoop.gateway.ha.provider.HaProvider;
 import org.apache.hadoop.gateway.ha.provider.HaServiceConfig;
+import org.apache.hadoop.gateway.ha.provider.RequestTracker;
 import org.apache.hadoop.gateway.ha.provider.impl.HaServiceConfigConstants;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.http.HttpResponse;
@@ -87,7 +88,7 @@ public class DefaultHaDispatch extends DefaultDispatch {
   protected void executeRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse) throws IOException {
     HttpResponse inboundResponse = null;
     try {
-      inboundResponse = executeOutboundRequest(outboundRequest);
+      inboundResponse = executeTrackedRequest(outboundRequest);
       writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
     } catch ( IOException e ) {
       LOG.errorConnectingToServer(outboundRequest.getURI().toString(), e);
@@ -95,30 +96,60 @@ public class DefaultHaDispatch extends DefaultDispatch {
     }
   }
 
+  /**
+   * Executes the outbound request, reporting it to the HA provider, see {@link RequestTracker}.
+   */
+  protected HttpResponse executeTrackedRequest(HttpUriRequest outboundRequest) throws IOException {
+    return RequestTracker.execute(haProvider, getServiceRole(), outboundRequest, new RequestTracker.Execution() {
+      @Override
+      public HttpResponse execute(HttpUriRequest request) throws IOException {
+        return executeOutboundRequest(request);
+      }
+    });
+  }
 
-  private void failoverRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) throws IOException {
+  /**
+   * Fails the request over to the next URL of the service after the failover sleep. The request is
+   * suspended during the sleep if it supports async processing, see {@link FailoverScheduler}.
+   */
+  private void failoverRequest(final HttpUriRequest outboundRequest, final HttpServletRequest inboundRequest, final HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) throws IOException {
     LOG.failingOverRequest(outboundRequest.getURI().toString());
     AtomicInteger counter = (AtomicInteger) inboundRequest.getAttribute(FAILOVER_COUNTER_ATTRIBUTE);
     if ( counter == null ) {
       counter = new AtomicInteger(0);
     }
     inboundRequest.setAttribute(FAILOVER_COUNTER_ATTRIBUTE, counter);
-    if ( counter.incrementAndGet() <= maxFailoverAttempts ) {
-      haProvider.markFailedURL(getServiceRole(), outboundRequest.getURI().toString());
+    boolean withinAttempts = counter.incrementAndGet() <= maxFailoverAttempts;
+    if ( withinAttempts && haProvider.tryRetry(getServiceRole()) ) {
+      // No need to wait if a concurrent request has already failed over from this URL
+      long sleep = haProvider.markFailedURLIfActive(getServiceRole(), outboundRequest.getURI().toString()) ? failoverSleep : 0;
       //null out target url so that rewriters run again
       inboundRequest.setAttribute(AbstractGatewayFilter.TARGET_REQUEST_URL_ATTRIBUTE_NAME, null);
       URI uri = getDispatchUrl(inboundRequest);
       ((HttpRequestBase) outboundRequest).setURI(uri);
-      if ( failoverSleep > 0 ) {
+      FailoverScheduler.Attempt attempt = new FailoverScheduler.Attempt() {
+        @Override
+        public void execute() throws IOException {
+          executeRequest(outboundRequest, inboundRequest, outboundResponse);
+        }
+      };
+      if ( FailoverScheduler.schedule(inboundRequest, outboundResponse, sleep, getServiceRole(), attempt) ) {
+        return;
+      }
+      if ( sleep > 0 ) {
         try {
-          Thread.sleep(failoverSleep);
+          Thread.sleep(sleep);
         } catch ( InterruptedException e ) {
           LOG.failoverSleepFailed(getServiceRole(), e);
         }
       }
-      executeRequest(outboundRequest, inboundRequest, outboundResponse);
+      attempt.execute();
     } else {
-      LOG.maxFailoverAttemptsReached(maxFailoverAttempts, getServiceRole());
+      if ( withinAttempts ) {
+        LOG.retryBudgetExhausted(getServiceRole());
+      } else {
+        LOG.maxFailoverAttemptsReached(maxFailoverAttempts, getServiceRole());
+      }
       if ( inboundResponse != null ) {
         writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
       } else {
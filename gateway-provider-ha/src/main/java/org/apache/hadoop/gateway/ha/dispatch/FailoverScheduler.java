@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.dispatch;
+
+import org.apache.hadoop.gateway.audit.api.AuditContext;
+import org.apache.hadoop.gateway.audit.api.AuditServiceFactory;
+import org.apache.hadoop.gateway.audit.api.CorrelationContext;
+import org.apache.hadoop.gateway.audit.api.CorrelationServiceFactory;
+import org.apache.hadoop.gateway.ha.dispatch.i18n.HaDispatchMessages;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+
+import javax.security.auth.Subject;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.AccessController;
+import java.security.PrivilegedExceptionAction;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delays the failover and retry attempts of the HA dispatches without holding a container thread.
+ * When the inbound request supports async processing it is suspended and the attempt is resumed on
+ * a container thread once the sleep has passed, so a failover doesn't park the threads needed by
+ * other requests and topologies. The subject, audit and correlation contexts of the request are
+ * carried over to the resumed attempt.
+ */
+public class FailoverScheduler {
+
+  /**
+   * A failover or retry attempt.
+   */
+  public interface Attempt {
+    void execute() throws IOException;
+  }
+
+  private static final String SUSPENSION_ATTRIBUTE = "dispatch.ha.suspension";
+
+  private static final HaDispatchMessages LOG = MessagesFactory.get(HaDispatchMessages.class);
+
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "ha-dispatch-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private FailoverScheduler() {
+  }
+
+  /**
+   * Suspends the inbound request and executes the attempt after the delay.
+   *
+   * @return false, without doing anything, if the delay isn't positive or the inbound request can't be
+   * suspended, in which case the caller has to execute the attempt itself
+   */
+  public static boolean schedule(final HttpServletRequest inboundRequest, HttpServletResponse outboundResponse,
+                                 long delay, final String serviceRole, final Attempt attempt) {
+    if ( delay <= 0 || !inboundRequest.isAsyncSupported() ) {
+      return false;
+    }
+    final AsyncContext asyncContext = inboundRequest.isAsyncStarted()
+        ? inboundRequest.getAsyncContext() : inboundRequest.startAsync(inboundRequest, outboundResponse);
+    // The attempt itself is bounded by the socket timeout of the dispatch client.
+    asyncContext.setTimeout(0);
+    final Object suspension = new Object();
+    inboundRequest.setAttribute(SUSPENSION_ATTRIBUTE, suspension);
+    final Subject subject = Subject.getSubject(AccessController.getContext());
+    final AuditContext auditContext = AuditServiceFactory.getAuditService().getContext();
+    final CorrelationContext correlationContext = CorrelationServiceFactory.getCorrelationService().getContext();
+    final Runnable resume = new Runnable() {
+      @Override
+      public void run() {
+        AuditServiceFactory.getAuditService().attachContext(auditContext);
+        CorrelationServiceFactory.getCorrelationService().attachContext(correlationContext);
+        try {
+          if ( subject != null ) {
+            Subject.doAs(subject, new PrivilegedExceptionAction<Void>() {
+              @Override
+              public Void run() throws IOException {
+                attempt.execute();
+                return null;
+              }
+            });
+          } else {
+            attempt.execute();
+          }
+        } catch ( Exception e ) {
+          fail(asyncContext, serviceRole, e);
+        } finally {
+          // The attempt may have suspended the request again for another attempt.
+          if ( inboundRequest.getAttribute(SUSPENSION_ATTRIBUTE) == suspension ) {
+            inboundRequest.removeAttribute(SUSPENSION_ATTRIBUTE);
+            asyncContext.complete();
+          }
+          AuditServiceFactory.getAuditService().detachContext();
+          CorrelationServiceFactory.getCorrelationService().detachContext();
+        }
+      }
+    };
+    SCHEDULER.schedule(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          asyncContext.start(resume);
+        } catch ( RuntimeException e ) {
+          // The container is shutting down or the request has already been completed.
+          LOG.failedToResumeRequest(serviceRole, e);
+        }
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+    return true;
+  }
+
+  private static void fail(AsyncContext asyncContext, String serviceRole, Exception e) {
+    LOG.failedToResumeRequest(serviceRole, e);
+    HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+    if ( !response.isCommitted() ) {
+      try {
+        response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+      } catch ( IOException ioe ) {
+        LOG.failedToResumeRequest(serviceRole, ioe);
+      }
+    }
+  }
+}
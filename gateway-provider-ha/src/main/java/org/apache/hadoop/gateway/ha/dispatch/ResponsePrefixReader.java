@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.dispatch;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the start of a response body, for example to look for the exception a standby node
+ * responds with, without buffering the whole body. The bytes read are put back in front of the
+ * rest of the stream so the body can still be written to the client.
+ */
+public class ResponsePrefixReader {
+
+  public static final int DEFAULT_LIMIT = 8 * 1024;
+
+  private static final int COPY_BUFFER_SIZE = 4096;
+
+  private ResponsePrefixReader() {
+  }
+
+  /**
+   * Reads up to limit bytes of the response body and replaces the response entity with one that
+   * streams them followed by the rest of the body.
+   *
+   * @return The bytes read, decoded as ISO-8859-1 so that ASCII markers can be searched for even if
+   * the limit splits a multi-byte character
+   */
+  public static String read(HttpResponse response, int limit) throws IOException {
+    HttpEntity entity = response.getEntity();
+    if ( entity == null ) {
+      return "";
+    }
+    InputStream stream = entity.getContent();
+    if ( stream == null ) {
+      return "";
+    }
+    byte[] prefix = new byte[limit];
+    int length = 0;
+    int count;
+    while ( length < limit && (count = stream.read(prefix, length, limit - length)) != -1 ) {
+      length += count;
+    }
+    response.setEntity(new PrefixedEntity(entity, prefix, length, stream));
+    return new String(prefix, 0, length, StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Releases the rest of a body that was partly read by {@link #read} and keeps only the bytes that
+   * were read, for responses that won't be written to the client in full, like those of a standby node.
+   */
+  public static void discardRest(HttpResponse response) {
+    HttpEntity entity = response.getEntity();
+    if ( entity instanceof PrefixedEntity ) {
+      PrefixedEntity prefixed = (PrefixedEntity) entity;
+      try {
+        prefixed.rest.close();
+      } catch ( IOException e ) {
+        // The connection is discarded instead of being reused.
+      }
+      ByteArrayEntity replacement = new ByteArrayEntity(prefixed.prefix, 0, prefixed.length);
+      replacement.setContentType(prefixed.getContentType());
+      replacement.setContentEncoding(prefixed.getContentEncoding());
+      response.setEntity(replacement);
+    }
+  }
+
+  private static class PrefixedEntity extends HttpEntityWrapper {
+
+    private final byte[] prefix;
+    private final int length;
+    private final InputStream rest;
+
+    PrefixedEntity(HttpEntity entity, byte[] prefix, int length, InputStream rest) {
+      super(entity);
+      this.prefix = prefix;
+      this.length = length;
+      this.rest = rest;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+      return false;
+    }
+
+    @Override
+    public boolean isStreaming() {
+      return true;
+    }
+
+    @Override
+    public InputStream getContent() {
+      return new SequenceInputStream(new ByteArrayInputStream(prefix, 0, length), rest);
+    }
+
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+      try {
+        output.write(prefix, 0, length);
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int count;
+        while ( (count = rest.read(buffer)) != -1 ) {
+          output.write(buffer, 0, count);
+        }
+      } finally {
+        rest.close();
+      }
+    }
+  }
+}
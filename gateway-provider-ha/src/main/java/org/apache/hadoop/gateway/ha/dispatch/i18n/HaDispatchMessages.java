@@ -38,4 +38,10 @@ public interface HaDispatchMessages {
 
   @Message(level = MessageLevel.INFO, text = "Error occurred while trying to sleep for failover : {0} {1}")
   void failoverSleepFailed(String service, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.INFO, text = "Retry budget exhausted, not failing over or retrying request for service: {0}")
+  void retryBudgetExhausted(String service);
+
+  @Message(level = MessageLevel.ERROR, text = "Failed to resume suspended request for service: {0} {1}")
+  void failedToResumeRequest(String service, @StackTrace(level = MessageLevel.DEBUG) Exception e);
 }
@@ -64,4 +64,46 @@ public interface HaProvider {
     */
    public void markFailedURL(String serviceName, String url);
 
+   /**
+    * Marks the URL for the service as failed if it is still the active URL. Checking and marking is
+    * atomic, so when many concurrent requests fail on the same URL only the first one moves the active
+    * URL and the others can go straight to the URL it moved to. URL managers that balance requests
+    * over several active URLs always mark the URL as failed.
+    *
+    * @param serviceName the name of the service
+    * @param url         the URL that has failed in some way
+    * @return true if the URL was marked as failed, false if the active URL had already moved on from it
+    */
+   public boolean markFailedURLIfActive(String serviceName, String url);
+
+   /**
+    * Notifies the service's URL manager that a request is being sent to the URL, so that load
+    * balancing URL managers can account for it. Ignored by active/standby URL managers. The request
+    * also adds to the retry budget of the service, if it has one.
+    *
+    * @param serviceName the name of the service
+    * @param url         the outbound request URL
+    */
+   public void requestStarted(String serviceName, String url);
+
+   /**
+    * Notifies the service's URL manager that a request started with
+    * {@link #requestStarted(String, String)} has completed.
+    *
+    * @param serviceName  the name of the service
+    * @param url          the outbound request URL
+    * @param latencyNanos the time it took to get a response
+    * @param succeeded    whether a response was received
+    */
+   public void requestCompleted(String serviceName, String url, long latencyNanos, boolean succeeded);
+
+   /**
+    * Checks whether a failover or retry of a request to the service fits in its retry budget, see
+    * {@link HaServiceConfig#getRetryBudget()}, and if so charges it to the budget.
+    *
+    * @param serviceName the name of the service
+    * @return true if the request may be failed over or retried
+    */
+   public boolean tryRetry(String serviceName);
+
 }
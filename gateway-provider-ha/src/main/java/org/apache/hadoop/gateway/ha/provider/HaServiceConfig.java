@@ -50,4 +50,52 @@ public interface HaServiceConfig {
    public String getZookeeperNamespace();
 
    public void setZookeeperNamespace(String zookeeperNamespace);
+
+   /**
+    * @return the strategy used to spread requests across all URLs of a multi-active service,
+    *         or null if the service is active/standby
+    */
+   public String getLoadBalancingStrategy();
+
+   public void setLoadBalancingStrategy(String loadBalancingStrategy);
+
+   /**
+    * @return the path appended to each URL of the service to probe its health in the background,
+    *         or null if the service isn't health checked
+    */
+   public String getHealthCheckPath();
+
+   public void setHealthCheckPath(String healthCheckPath);
+
+   public int getHealthCheckInterval();
+
+   public void setHealthCheckInterval(int interval);
+
+   public int getHealthCheckTimeout();
+
+   public void setHealthCheckTimeout(int timeout);
+
+   public int getHealthCheckFailureThreshold();
+
+   public void setHealthCheckFailureThreshold(int threshold);
+
+   public int getHealthCheckMaxBackoff();
+
+   public void setHealthCheckMaxBackoff(int maxBackoff);
+
+   /**
+    * @return the HTTP status codes of a healthy probe response as comma separated codes or
+    *         ranges of codes, e.g. "200-299,401"
+    */
+   public String getHealthCheckStatusCodes();
+
+   public void setHealthCheckStatusCodes(String statusCodes);
+
+   /**
+    * @return The failovers and retries allowed as a percentage of the requests to the service,
+    * or a negative number if they are only bounded by the attempts per request
+    */
+   public int getRetryBudget();
+
+   public void setRetryBudget(int retryBudget);
 }
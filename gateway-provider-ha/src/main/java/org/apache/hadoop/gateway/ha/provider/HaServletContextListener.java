@@ -24,6 +24,7 @@ import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.registry.ServiceRegistry;
 
+import javax.servlet.FilterConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
@@ -32,6 +33,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
 
 public class HaServletContextListener implements ServletContextListener {
@@ -62,6 +65,10 @@ public class HaServletContextListener implements ServletContextListener {
 
    @Override
    public void contextDestroyed(ServletContextEvent event) {
+      HaProvider provider = getHaProvider(event.getServletContext());
+      if (provider instanceof DefaultHaProvider) {
+         ((DefaultHaProvider) provider).stop();
+      }
       event.getServletContext().removeAttribute(PROVIDER_ATTRIBUTE_NAME);
    }
 
@@ -73,7 +80,7 @@ public class HaServletContextListener implements ServletContextListener {
       GatewayServices services = (GatewayServices) servletContext.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
       String clusterName = (String) servletContext.getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE);
       ServiceRegistry serviceRegistry = services.getService(GatewayServices.SERVICE_REGISTRY_SERVICE);
-      HaProvider provider = new DefaultHaProvider(descriptor);
+      HaProvider provider = new DefaultHaProvider(descriptor, new HealthCheckConfig(servletContext));
       List<String> serviceNames = descriptor.getEnabledServiceNames();
       for (String serviceName : serviceNames) {
          provider.addHaService(serviceName, serviceRegistry.lookupServiceURLs(clusterName, serviceName));
@@ -113,4 +120,37 @@ public class HaServletContextListener implements ServletContextListener {
       return descriptor;
    }
 
+   /**
+    * Lets the health check client be created like the dispatch clients, from the services and
+    * configuration of the gateway. It has no init parameters, so the defaults of the dispatch apply.
+    */
+   private static class HealthCheckConfig implements FilterConfig {
+
+      private final ServletContext servletContext;
+
+      HealthCheckConfig(ServletContext servletContext) {
+         this.servletContext = servletContext;
+      }
+
+      @Override
+      public String getFilterName() {
+         return "ha-health-check";
+      }
+
+      @Override
+      public ServletContext getServletContext() {
+         return servletContext;
+      }
+
+      @Override
+      public String getInitParameter(String name) {
+         return null;
+      }
+
+      @Override
+      public Enumeration<String> getInitParameterNames() {
+         return Collections.emptyEnumeration();
+      }
+   }
+
 }
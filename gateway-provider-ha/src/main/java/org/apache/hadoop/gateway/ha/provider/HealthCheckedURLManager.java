@@ -0,0 +1,31 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.provider;
+
+/**
+ * A {@link URLManager} whose URLs can be ejected and readmitted by background health checks,
+ * so that requests stop being sent to a URL before a live request fails against it.
+ */
+public interface HealthCheckedURLManager extends URLManager {
+
+  /**
+   * @param url one of the URLs returned by {@link #getURLs()}
+   * @param healthy false to stop handing out the URL while others are available, true to use it again
+   */
+  public void setHealthy(String url, boolean healthy);
+}
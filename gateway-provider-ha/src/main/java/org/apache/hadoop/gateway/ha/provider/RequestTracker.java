@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.provider;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.io.IOException;
+
+/**
+ * Reports the outbound requests of the HA dispatches to the {@link HaProvider}, so that
+ * {@link RequestTrackingURLManager}s know about the requests in flight and their latency and
+ * the retry budget of the service is credited.
+ */
+public final class RequestTracker {
+
+  /**
+   * Sends the outbound request, typically through the dispatch's HTTP client.
+   */
+  public interface Execution {
+    public HttpResponse execute(HttpUriRequest outboundRequest) throws IOException;
+  }
+
+  private RequestTracker() {
+  }
+
+  /**
+   * Executes the outbound request, reporting it to the HA provider if there is one.
+   *
+   * @param haProvider      the HA provider of the topology, may be null
+   * @param serviceRole     the role of the service the request is sent to
+   * @param outboundRequest the request to the service
+   * @param execution       sends the request
+   * @return the response of the service
+   */
+  public static HttpResponse execute(HaProvider haProvider, String serviceRole, HttpUriRequest outboundRequest,
+      Execution execution) throws IOException {
+    if ( haProvider == null ) {
+      return execution.execute(outboundRequest);
+    }
+    String url = outboundRequest.getURI().toString();
+    haProvider.requestStarted(serviceRole, url);
+    long start = System.nanoTime();
+    HttpResponse inboundResponse = null;
+    try {
+      inboundResponse = execution.execute(outboundRequest);
+      return inboundResponse;
+    } finally {
+      haProvider.requestCompleted(serviceRole, url, System.nanoTime() - start, inboundResponse != null);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.provider;
+
+/**
+ * A {@link URLManager} that picks URLs based on the requests dispatched to them, such as a
+ * load balancer for a multi-active service. The dispatch reports every request it sends to
+ * one of the managed URLs.
+ */
+public interface RequestTrackingURLManager extends URLManager {
+
+  /**
+   * Called before a request is sent to the url.
+   *
+   * @param url the outbound request URL
+   */
+  public void requestStarted(String url);
+
+  /**
+   * Called once the response headers for a request started with {@link #requestStarted(String)}
+   * have been received, or the request has failed.
+   *
+   * @param url the outbound request URL
+   * @param latencyNanos the time it took to get a response
+   * @param succeeded whether a response was received
+   */
+  public void requestCompleted(String url, long latencyNanos, boolean succeeded);
+}
@@ -17,8 +17,10 @@
  */
 package org.apache.hadoop.gateway.ha.provider.impl;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SortedMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.commons.io.IOUtils;
@@ -34,9 +36,10 @@ import org.apache.http.impl.client.HttpClientBuilder;
 import com.google.common.collect.Lists;
 
 /**
- * Base implementation of URLManager intended for query of Zookeeper active hosts. In
- * the event of a failure via markFailed, Zookeeper is queried again for active
- * host information.
+ * Base implementation of URLManager intended for query of Zookeeper active hosts. The
+ * hosts are read from a watched, in-memory copy of the Zookeeper nodes and looked up
+ * again whenever those nodes change, so markFailed only moves the failed host to the
+ * back of the list.
  * 
  * When configuring the HAProvider in the topology, the zookeeperEnsemble attribute must be set to a
  * comma delimited list of the host and port number, i.e. host1:2181,host2:2181. 
@@ -50,6 +53,8 @@ public abstract class BaseZookeeperURLManager implements URLManager {
 
 	private String zooKeeperEnsemble;
 	private ConcurrentLinkedQueue<String> urls = new ConcurrentLinkedQueue<String>();
+	private ZookeeperChildrenCache watched;
+	private long watchedGeneration;
 
 	// -------------------------------------------------------------------------------------
 	// URLManager interface methods
@@ -77,8 +82,8 @@ public abstract class BaseZookeeperURLManager implements URLManager {
 
 	@Override
 	public synchronized String getActiveURL() {
-		// None available so refresh
-		if (urls.isEmpty()) {
+		// None available or Zookeeper changed so refresh
+		if (urls.isEmpty() || isWatchedChanged()) {
 			setURLs(lookupURLs());
 		}
 
@@ -100,8 +105,11 @@ public abstract class BaseZookeeperURLManager implements URLManager {
 		// Capture complete URL of active host
 		String topURL = getActiveURL();
 
-		// Refresh URLs from ZooKeeper
-		setURLs(lookupURLs());
+		// Only move the active host to the back, changes in Zookeeper are picked up by the watch.
+		// The dispatch passes the full request URL, so only its scheme, host and port are compared.
+		if (isSameEndpoint(topURL, url) && urls.size() > 1) {
+			urls.offer(urls.poll());
+		}
 
 		// Show failed URL and new URL
 		LOG.markedFailedUrl(topURL, getActiveURL());
@@ -138,6 +146,39 @@ public abstract class BaseZookeeperURLManager implements URLManager {
 	protected String getZookeeperEnsemble() {
 		return zooKeeperEnsemble;
 	}
+
+	/**
+	 * Read the children of a Zookeeper node from the shared, watched cache for the ensemble.
+	 * Changes to them trigger a new lookup the next time the active URL is asked for.
+	 * 
+	 * @param path Path of the parent node (required)
+	 * 
+	 * @return Data of the children by node name
+	 */
+	protected synchronized SortedMap<String, byte[]> getZookeeperChildren(String path) throws Exception {
+		watched = ZookeeperChildrenCache.get(zooKeeperEnsemble, path);
+		watchedGeneration = watched.getGeneration();
+		return watched.getChildren();
+	}
+
+	private static boolean isSameEndpoint(String activeURL, String url) {
+		if (activeURL == null || url == null) {
+			return false;
+		}
+		try {
+			URI active = URI.create(activeURL);
+			URI failed = URI.create(url);
+			return active.getPort() == failed.getPort()
+					&& active.getScheme() != null && active.getScheme().equalsIgnoreCase(failed.getScheme())
+					&& active.getHost() != null && active.getHost().equalsIgnoreCase(failed.getHost());
+		} catch (IllegalArgumentException e) {
+			return url.startsWith(activeURL);
+		}
+	}
+
+	private boolean isWatchedChanged() {
+		return watched != null && watched.getGeneration() != watchedGeneration;
+	}
 	
 	/**
 	 * Validate access to hosts using simple light weight ping style REST call.
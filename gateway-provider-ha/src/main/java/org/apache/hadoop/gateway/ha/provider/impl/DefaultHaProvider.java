@@ -17,14 +17,19 @@
  */
 package org.apache.hadoop.gateway.ha.provider.impl;
 
+import org.apache.hadoop.gateway.dispatch.DefaultHttpClientFactory;
 import org.apache.hadoop.gateway.ha.provider.HaDescriptor;
 import org.apache.hadoop.gateway.ha.provider.HaProvider;
 import org.apache.hadoop.gateway.ha.provider.HaServiceConfig;
+import org.apache.hadoop.gateway.ha.provider.HealthCheckedURLManager;
+import org.apache.hadoop.gateway.ha.provider.RequestTrackingURLManager;
 import org.apache.hadoop.gateway.ha.provider.URLManager;
 import org.apache.hadoop.gateway.ha.provider.URLManagerLoader;
 import org.apache.hadoop.gateway.ha.provider.impl.i18n.HaMessages;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 
+import javax.servlet.FilterConfig;
+import java.net.URI;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -36,6 +41,12 @@ public class DefaultHaProvider implements HaProvider {
 
   private ConcurrentHashMap<String, URLManager> haServices;
 
+  private FilterConfig healthCheckConfig;
+
+  private HaHealthChecker healthChecker;
+
+  private ConcurrentHashMap<String, RetryBudget> retryBudgets = new ConcurrentHashMap<>();
+
   public DefaultHaProvider(HaDescriptor descriptor) {
     if ( descriptor == null ) {
       throw new IllegalArgumentException("Descriptor can not be null");
@@ -44,6 +55,15 @@ public class DefaultHaProvider implements HaProvider {
     haServices = new ConcurrentHashMap<>();
   }
 
+  /**
+   * @param healthCheckConfig the configuration the health check client is created from by the
+   *                          {@link DefaultHttpClientFactory}, as for the dispatch of the services
+   */
+  public DefaultHaProvider(HaDescriptor descriptor, FilterConfig healthCheckConfig) {
+    this(descriptor);
+    this.healthCheckConfig = healthCheckConfig;
+  }
+
   @Override
   public HaDescriptor getHaDescriptor() {
     return descriptor;
@@ -55,6 +75,30 @@ public class DefaultHaProvider implements HaProvider {
     URLManager manager = URLManagerLoader.loadURLManager(haServiceConfig);
     manager.setURLs(urls);
     haServices.put(serviceName, manager);
+    if ( haServiceConfig != null && haServiceConfig.getRetryBudget() >= 0 ) {
+      retryBudgets.put(serviceName, new RetryBudget(haServiceConfig.getRetryBudget()));
+    } else {
+      retryBudgets.remove(serviceName);
+    }
+    if ( HaHealthChecker.isEnabled(haServiceConfig) && manager instanceof HealthCheckedURLManager ) {
+      synchronized ( this ) {
+        if ( healthChecker == null ) {
+          healthChecker = healthCheckConfig == null ? new HaHealthChecker()
+              : new HaHealthChecker(new DefaultHttpClientFactory().createHttpClient(healthCheckConfig));
+        }
+      }
+      healthChecker.register(serviceName, haServiceConfig, (HealthCheckedURLManager) manager);
+    }
+  }
+
+  /**
+   * Stops the background health checks, if any services have them enabled.
+   */
+  public synchronized void stop() {
+    if ( healthChecker != null ) {
+      healthChecker.stop();
+      healthChecker = null;
+    }
   }
 
   @Override
@@ -93,4 +137,65 @@ public class DefaultHaProvider implements HaProvider {
       LOG.noServiceFound(serviceName);
     }
   }
+
+  @Override
+  public boolean markFailedURLIfActive(String serviceName, String url) {
+    URLManager manager = haServices.get(serviceName);
+    if ( manager == null ) {
+      LOG.noServiceFound(serviceName);
+      return false;
+    }
+    if ( manager instanceof RequestTrackingURLManager ) {
+      manager.markFailed(url);
+      return true;
+    }
+    // The URL managers synchronize on themselves, this makes the check and the mark one step.
+    synchronized ( manager ) {
+      if ( !isSameHostPort(manager.getActiveURL(), url) ) {
+        return false;
+      }
+      manager.markFailed(url);
+      return true;
+    }
+  }
+
+  private static boolean isSameHostPort(String activeURL, String url) {
+    if ( activeURL == null || url == null ) {
+      return false;
+    }
+    try {
+      URI active = URI.create(activeURL);
+      URI failed = URI.create(url);
+      return active.getPort() == failed.getPort() && active.getHost() != null
+          && active.getHost().equalsIgnoreCase(failed.getHost());
+    } catch ( IllegalArgumentException e ) {
+      return url.startsWith(activeURL);
+    }
+  }
+
+  @Override
+  public void requestStarted(String serviceName, String url) {
+    RetryBudget budget = retryBudgets.get(serviceName);
+    if ( budget != null ) {
+      budget.deposit();
+    }
+    URLManager manager = haServices.get(serviceName);
+    if ( manager instanceof RequestTrackingURLManager ) {
+      ((RequestTrackingURLManager) manager).requestStarted(url);
+    }
+  }
+
+  @Override
+  public void requestCompleted(String serviceName, String url, long latencyNanos, boolean succeeded) {
+    URLManager manager = haServices.get(serviceName);
+    if ( manager instanceof RequestTrackingURLManager ) {
+      ((RequestTrackingURLManager) manager).requestCompleted(url, latencyNanos, succeeded);
+    }
+  }
+
+  @Override
+  public boolean tryRetry(String serviceName) {
+    RetryBudget budget = retryBudgets.get(serviceName);
+    return budget == null || budget.tryWithdraw();
+  }
 }
@@ -37,6 +37,22 @@ public class DefaultHaServiceConfig implements HaServiceConfig, HaServiceConfigC
 
   private String zookeeperNamespace;
 
+  private String loadBalancingStrategy;
+
+  private String healthCheckPath;
+
+  private int healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
+
+  private int healthCheckTimeout = DEFAULT_HEALTH_CHECK_TIMEOUT;
+
+  private int healthCheckFailureThreshold = DEFAULT_HEALTH_CHECK_FAILURE_THRESHOLD;
+
+  private int healthCheckMaxBackoff = DEFAULT_HEALTH_CHECK_MAX_BACKOFF;
+
+  private String healthCheckStatusCodes = DEFAULT_HEALTH_CHECK_STATUS_CODES;
+
+  private int retryBudget = DEFAULT_RETRY_BUDGET;
+
   public DefaultHaServiceConfig(String name) {
     this.name = name;
   }
@@ -121,4 +137,84 @@ public class DefaultHaServiceConfig implements HaServiceConfig, HaServiceConfigC
   public void setZookeeperNamespace(String zookeeperNamespace) {
     this.zookeeperNamespace = zookeeperNamespace;
   }
+
+  @Override
+  public String getLoadBalancingStrategy() {
+    return loadBalancingStrategy;
+  }
+
+  @Override
+  public void setLoadBalancingStrategy(String loadBalancingStrategy) {
+    this.loadBalancingStrategy = loadBalancingStrategy;
+  }
+
+  @Override
+  public String getHealthCheckPath() {
+    return healthCheckPath;
+  }
+
+  @Override
+  public void setHealthCheckPath(String healthCheckPath) {
+    this.healthCheckPath = healthCheckPath;
+  }
+
+  @Override
+  public int getHealthCheckInterval() {
+    return healthCheckInterval;
+  }
+
+  @Override
+  public void setHealthCheckInterval(int healthCheckInterval) {
+    this.healthCheckInterval = healthCheckInterval;
+  }
+
+  @Override
+  public int getHealthCheckTimeout() {
+    return healthCheckTimeout;
+  }
+
+  @Override
+  public void setHealthCheckTimeout(int healthCheckTimeout) {
+    this.healthCheckTimeout = healthCheckTimeout;
+  }
+
+  @Override
+  public int getHealthCheckFailureThreshold() {
+    return healthCheckFailureThreshold;
+  }
+
+  @Override
+  public void setHealthCheckFailureThreshold(int healthCheckFailureThreshold) {
+    this.healthCheckFailureThreshold = healthCheckFailureThreshold;
+  }
+
+  @Override
+  public int getHealthCheckMaxBackoff() {
+    return healthCheckMaxBackoff;
+  }
+
+  @Override
+  public void setHealthCheckMaxBackoff(int healthCheckMaxBackoff) {
+    this.healthCheckMaxBackoff = healthCheckMaxBackoff;
+  }
+
+  @Override
+  public String getHealthCheckStatusCodes() {
+    return healthCheckStatusCodes;
+  }
+
+  @Override
+  public void setHealthCheckStatusCodes(String healthCheckStatusCodes) {
+    this.healthCheckStatusCodes = healthCheckStatusCodes;
+  }
+
+  @Override
+  public int getRetryBudget() {
+    return retryBudget;
+  }
+
+  @Override
+  public void setRetryBudget(int retryBudget) {
+    this.retryBudget = retryBudget;
+  }
 }
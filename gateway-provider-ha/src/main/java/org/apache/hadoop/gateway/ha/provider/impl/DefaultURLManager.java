@@ -19,20 +19,24 @@ package org.apache.hadoop.gateway.ha.provider.impl;
 
 import com.google.common.collect.Lists;
 import org.apache.hadoop.gateway.ha.provider.HaServiceConfig;
-import org.apache.hadoop.gateway.ha.provider.URLManager;
+import org.apache.hadoop.gateway.ha.provider.HealthCheckedURLManager;
 import org.apache.hadoop.gateway.ha.provider.impl.i18n.HaMessages;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 
 import java.net.URI;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
-public class DefaultURLManager implements URLManager {
+public class DefaultURLManager implements HealthCheckedURLManager {
 
   private static final HaMessages LOG = MessagesFactory.get(HaMessages.class);
 
   private ConcurrentLinkedQueue<String> urls = new ConcurrentLinkedQueue<>();
 
+  private Set<String> unhealthy = new HashSet<>();
+
 
   @Override
   public boolean supportsConfig(HaServiceConfig config) {
@@ -74,6 +78,7 @@ public class DefaultURLManager implements URLManager {
     if (urls != null && !urls.isEmpty()) {
       this.urls.clear();
       this.urls.addAll(urls);
+      unhealthy.clear();
     }
   }
 
@@ -92,7 +97,27 @@ public class DefaultURLManager implements URLManager {
     if ( pushToBottom ) {
       String failed = urls.poll();
       urls.offer(failed);
+      skipUnhealthy();
       LOG.markedFailedUrl(failed, urls.peek());
     }
   }
+
+  @Override
+  public synchronized void setHealthy(String url, boolean healthy) {
+    if ( healthy ) {
+      unhealthy.remove(url);
+    } else if ( urls.contains(url) ) {
+      unhealthy.add(url);
+      skipUnhealthy();
+    }
+  }
+
+  /**
+   * Moves URLs that failed their health checks away from the top, unless none are healthy.
+   */
+  private void skipUnhealthy() {
+    for ( int i = urls.size(); i > 0 && !unhealthy.isEmpty() && unhealthy.contains(urls.peek()); i-- ) {
+      urls.offer(urls.poll());
+    }
+  }
 }
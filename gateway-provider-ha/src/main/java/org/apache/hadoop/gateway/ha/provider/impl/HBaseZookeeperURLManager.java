@@ -17,13 +17,10 @@
  */
 package org.apache.hadoop.gateway.ha.provider.impl;
 
-import org.apache.curator.framework.CuratorFramework;
-import org.apache.curator.framework.CuratorFrameworkFactory;
-import org.apache.curator.retry.ExponentialBackoffRetry;
-
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Implementation of URLManager intended for query of Zookeeper for active HBase RegionServer hosts.
@@ -31,8 +28,7 @@ import java.util.List;
  * The assumption is that the HBase REST Server will be installed on the same host.  For safety
  * reasons, the REST Server is pinged for access before inclusion in the list of returned hosts.
  * 
- * In the event of a failure via markFailed, Zookeeper is queried again for active
- * host information.
+ * The hosts are kept current by a watch on Zookeeper, see BaseZookeeperURLManager.
  * 
  * When configuring the HAProvider in the topology, the zookeeperEnsemble
  * attribute must be set to a comma delimited list of the host and port number,
@@ -86,16 +82,9 @@ public class HBaseZookeeperURLManager extends BaseZookeeperURLManager {
 	{
 		List<String> serverHosts = new ArrayList<>();
 		
-		CuratorFramework zooKeeperClient = CuratorFrameworkFactory.builder()
-				.connectString(getZookeeperEnsemble())
-				.retryPolicy(new ExponentialBackoffRetry(1000, 3))
-				.build();
-		
 		try {
-			zooKeeperClient.start();
-			
 			// Retrieve list of all region server hosts
-			List<String> serverNodes = zooKeeperClient.getChildren().forPath("/" + zookeeperNamespace + "/rs");
+			Set<String> serverNodes = getZookeeperChildren("/" + zookeeperNamespace + "/rs").keySet();
 			
 			for (String serverNode : serverNodes) {
 				String serverURL = constructURL(serverNode);
@@ -104,11 +93,6 @@ public class HBaseZookeeperURLManager extends BaseZookeeperURLManager {
 		} catch (Exception e) {
 			LOG.failedToGetZookeeperUrls(e);
 			throw new RuntimeException(e);
-		} finally {
-			// Close the client connection with ZooKeeper
-			if (zooKeeperClient != null) {
-				zooKeeperClient.close();
-			}
 		}
 		
 		return serverHosts;
@@ -17,9 +17,6 @@
  */
 package org.apache.hadoop.gateway.ha.provider.impl;
 
-import org.apache.curator.framework.CuratorFramework;
-import org.apache.curator.framework.CuratorFrameworkFactory;
-import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.hadoop.gateway.ha.provider.HaServiceConfig;
 import org.apache.hadoop.gateway.ha.provider.impl.i18n.HaMessages;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
@@ -29,9 +26,14 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.SortedMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * URLManager for HiveServer2 instances registered in Zookeeper. The instances are read from a
+ * watched, in-memory copy of the namespace, so failing over never waits on Zookeeper.
+ */
 public class HS2ZookeeperURLManager extends DefaultURLManager {
 
   private static final HaMessages LOG = MessagesFactory.get(HaMessages.class);
@@ -44,6 +46,10 @@ public class HS2ZookeeperURLManager extends DefaultURLManager {
 
   private HashSet<String> failedSet;
 
+  private ZookeeperChildrenCache watched;
+
+  private long watchedGeneration;
+
   public HS2ZookeeperURLManager() {
     failedSet = new LinkedHashSet<>();
   }
@@ -68,34 +74,34 @@ public class HS2ZookeeperURLManager extends DefaultURLManager {
     setURLs(lookupURLs());
   }
 
-  public List<String> lookupURLs() {
+  public synchronized List<String> lookupURLs() {
     List<String> serverHosts = new ArrayList<>();
-    CuratorFramework zooKeeperClient =
-        CuratorFrameworkFactory.builder().connectString(zooKeeperEnsemble)
-            .retryPolicy(new ExponentialBackoffRetry(1000, 3)).build();
     try {
-      zooKeeperClient.start();
-      List<String> serverNodes = zooKeeperClient.getChildren().forPath("/" + zooKeeperNamespace);
-      for ( String serverNode : serverNodes ) {
-        String serverInfo =
-            new String(
-                zooKeeperClient.getData().forPath("/" + zooKeeperNamespace + "/" + serverNode),
-                Charset.forName("UTF-8"));
+      watched = ZookeeperChildrenCache.get(zooKeeperEnsemble, "/" + zooKeeperNamespace);
+      watchedGeneration = watched.getGeneration();
+      SortedMap<String, byte[]> serverNodes = watched.getChildren();
+      for ( byte[] serverNode : serverNodes.values() ) {
+        String serverInfo = new String(serverNode, Charset.forName("UTF-8"));
         String serverURL = constructURL(serverInfo);
         serverHosts.add(serverURL);
       }
     } catch ( Exception e ) {
       LOG.failedToGetZookeeperUrls(e);
       throw new RuntimeException(e);
-    } finally {
-      // Close the client connection with ZooKeeper
-      if ( zooKeeperClient != null ) {
-        zooKeeperClient.close();
-      }
     }
     return serverHosts;
   }
 
+  @Override
+  public synchronized String getActiveURL() {
+    // Pick up instances that registered or went away since the last lookup
+    if ( watched != null && watched.getGeneration() != watchedGeneration ) {
+      failedSet.clear();
+      setURLs(lookupURLs());
+    }
+    return super.getActiveURL();
+  }
+
   private String constructURL(String serverInfo) {
     Matcher matcher = kvPattern.matcher(serverInfo);
     String scheme = "http";
@@ -46,4 +46,20 @@ public interface HaDescriptorConstants {
 
    public static final String ZOOKEEPER_NAMESPACE = "zookeeperNamespace";
 
+   public static final String LOAD_BALANCING_STRATEGY = "loadBalancingStrategy";
+
+   public static final String HEALTH_CHECK_PATH = "healthCheckPath";
+
+   public static final String HEALTH_CHECK_INTERVAL = "healthCheckInterval";
+
+   public static final String HEALTH_CHECK_TIMEOUT = "healthCheckTimeout";
+
+   public static final String HEALTH_CHECK_FAILURE_THRESHOLD = "healthCheckFailureThreshold";
+
+   public static final String HEALTH_CHECK_MAX_BACKOFF = "healthCheckMaxBackoff";
+
+   public static final String HEALTH_CHECK_STATUS_CODES = "healthCheckStatusCodes";
+
+   public static final String RETRY_BUDGET = "retryBudget";
+
 }
@@ -38,15 +38,61 @@ public abstract class HaDescriptorFactory implements HaServiceConfigConstants {
       String retrySleep = configMap.get(CONFIG_PARAM_RETRY_SLEEP);
       String zookeeperEnsemble = configMap.get(CONFIG_PARAM_ZOOKEEPER_ENSEMBLE);
       String zookeeperNamespace = configMap.get(CONFIG_PARAM_ZOOKEEPER_NAMESPACE);
-      return createServiceConfig(serviceName, enabledValue, maxFailoverAttempts,
+      String loadBalancingStrategy = configMap.get(CONFIG_PARAM_LOAD_BALANCING_STRATEGY);
+      HaServiceConfig serviceConfig = createServiceConfig(serviceName, enabledValue, maxFailoverAttempts,
           failoverSleep, maxRetryAttempts, retrySleep,
-          zookeeperEnsemble, zookeeperNamespace);
+          zookeeperEnsemble, zookeeperNamespace, loadBalancingStrategy);
+      configureHealthCheck(serviceConfig, configMap.get(CONFIG_PARAM_HEALTH_CHECK_PATH),
+          configMap.get(CONFIG_PARAM_HEALTH_CHECK_INTERVAL), configMap.get(CONFIG_PARAM_HEALTH_CHECK_TIMEOUT),
+          configMap.get(CONFIG_PARAM_HEALTH_CHECK_FAILURE_THRESHOLD), configMap.get(CONFIG_PARAM_HEALTH_CHECK_MAX_BACKOFF),
+          configMap.get(CONFIG_PARAM_HEALTH_CHECK_STATUS_CODES));
+      configureRetryBudget(serviceConfig, configMap.get(CONFIG_PARAM_RETRY_BUDGET));
+      return serviceConfig;
+   }
+
+   public static void configureRetryBudget(HaServiceConfig serviceConfig, String retryBudgetValue) {
+      if (retryBudgetValue != null && retryBudgetValue.trim().length() > 0) {
+         serviceConfig.setRetryBudget(Integer.parseInt(retryBudgetValue.trim()));
+      }
+   }
+
+   public static void configureHealthCheck(HaServiceConfig serviceConfig, String path, String intervalValue,
+                                           String timeoutValue, String failureThresholdValue, String maxBackoffValue,
+                                           String statusCodesValue) {
+      if (path != null && path.trim().length() > 0) {
+         serviceConfig.setHealthCheckPath(path.trim());
+      }
+      if (intervalValue != null && intervalValue.trim().length() > 0) {
+         serviceConfig.setHealthCheckInterval(Integer.parseInt(intervalValue.trim()));
+      }
+      if (timeoutValue != null && timeoutValue.trim().length() > 0) {
+         serviceConfig.setHealthCheckTimeout(Integer.parseInt(timeoutValue.trim()));
+      }
+      if (failureThresholdValue != null && failureThresholdValue.trim().length() > 0) {
+         serviceConfig.setHealthCheckFailureThreshold(Integer.parseInt(failureThresholdValue.trim()));
+      }
+      if (maxBackoffValue != null && maxBackoffValue.trim().length() > 0) {
+         serviceConfig.setHealthCheckMaxBackoff(Integer.parseInt(maxBackoffValue.trim()));
+      }
+      if (statusCodesValue != null && statusCodesValue.trim().length() > 0) {
+         HaHealthChecker.parseStatusCodes(statusCodesValue);
+         serviceConfig.setHealthCheckStatusCodes(statusCodesValue.trim());
+      }
    }
 
    public static HaServiceConfig createServiceConfig(String serviceName, String enabledValue,
                                                      String maxFailoverAttemptsValue, String failoverSleepValue,
                                                      String maxRetryAttemptsValue, String retrySleepValue,
                                                      String zookeeperEnsemble, String zookeeperNamespace) {
+      return createServiceConfig(serviceName, enabledValue, maxFailoverAttemptsValue, failoverSleepValue,
+          maxRetryAttemptsValue, retrySleepValue, zookeeperEnsemble, zookeeperNamespace, null);
+   }
+
+   public static HaServiceConfig createServiceConfig(String serviceName, String enabledValue,
+                                                     String maxFailoverAttemptsValue, String failoverSleepValue,
+                                                     String maxRetryAttemptsValue, String retrySleepValue,
+                                                     String zookeeperEnsemble, String zookeeperNamespace,
+                                                     String loadBalancingStrategy) {
       boolean enabled = DEFAULT_ENABLED;
       int maxFailoverAttempts = DEFAULT_MAX_FAILOVER_ATTEMPTS;
       int failoverSleep = DEFAULT_FAILOVER_SLEEP;
@@ -75,6 +121,9 @@ public abstract class HaDescriptorFactory implements HaServiceConfigConstants {
       serviceConfig.setRetrySleep(retrySleep);
       serviceConfig.setZookeeperEnsemble(zookeeperEnsemble);
       serviceConfig.setZookeeperNamespace(zookeeperNamespace);
+      if (loadBalancingStrategy != null && loadBalancingStrategy.trim().length() > 0) {
+         serviceConfig.setLoadBalancingStrategy(loadBalancingStrategy.trim());
+      }
       return serviceConfig;
    }
 
@@ -62,6 +62,20 @@ public class HaDescriptorManager implements HaDescriptorConstants {
                if (config.getZookeeperNamespace() != null) {
                  serviceElement.setAttribute(ZOOKEEPER_NAMESPACE, config.getZookeeperNamespace());
                }
+               if (config.getLoadBalancingStrategy() != null) {
+                 serviceElement.setAttribute(LOAD_BALANCING_STRATEGY, config.getLoadBalancingStrategy());
+               }
+               if (config.getHealthCheckPath() != null) {
+                 serviceElement.setAttribute(HEALTH_CHECK_PATH, config.getHealthCheckPath());
+                 serviceElement.setAttribute(HEALTH_CHECK_INTERVAL, Integer.toString(config.getHealthCheckInterval()));
+                 serviceElement.setAttribute(HEALTH_CHECK_TIMEOUT, Integer.toString(config.getHealthCheckTimeout()));
+                 serviceElement.setAttribute(HEALTH_CHECK_FAILURE_THRESHOLD, Integer.toString(config.getHealthCheckFailureThreshold()));
+                 serviceElement.setAttribute(HEALTH_CHECK_MAX_BACKOFF, Integer.toString(config.getHealthCheckMaxBackoff()));
+                 serviceElement.setAttribute(HEALTH_CHECK_STATUS_CODES, config.getHealthCheckStatusCodes());
+               }
+               if (config.getRetryBudget() >= 0) {
+                 serviceElement.setAttribute(RETRY_BUDGET, Integer.toString(config.getRetryBudget()));
+               }
                root.appendChild(serviceElement);
             }
          }
@@ -92,7 +106,16 @@ public class HaDescriptorManager implements HaDescriptorConstants {
                      element.getAttribute(MAX_RETRY_ATTEMPTS),
                      element.getAttribute(RETRY_SLEEP),
                      element.getAttribute(ZOOKEEPER_ENSEMBLE),
-                     element.getAttribute(ZOOKEEPER_NAMESPACE));
+                     element.getAttribute(ZOOKEEPER_NAMESPACE),
+                     element.getAttribute(LOAD_BALANCING_STRATEGY));
+               HaDescriptorFactory.configureHealthCheck(config,
+                     element.getAttribute(HEALTH_CHECK_PATH),
+                     element.getAttribute(HEALTH_CHECK_INTERVAL),
+                     element.getAttribute(HEALTH_CHECK_TIMEOUT),
+                     element.getAttribute(HEALTH_CHECK_FAILURE_THRESHOLD),
+                     element.getAttribute(HEALTH_CHECK_MAX_BACKOFF),
+                     element.getAttribute(HEALTH_CHECK_STATUS_CODES));
+               HaDescriptorFactory.configureRetryBudget(config, element.getAttribute(RETRY_BUDGET));
                descriptor.addServiceConfig(config);
             }
          }
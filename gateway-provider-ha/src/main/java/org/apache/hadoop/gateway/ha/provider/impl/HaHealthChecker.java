@@ -0,0 +1,269 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.provider.impl;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.gateway.ha.provider.HaServiceConfig;
+import org.apache.hadoop.gateway.ha.provider.HealthCheckedURLManager;
+import org.apache.hadoop.gateway.ha.provider.impl.i18n.HaMessages;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Probes every URL of the health checked services in the background and ejects a URL from its
+ * URL manager after a number of consecutive failed probes, so that user requests don't have to
+ * fail over from it. Ejected URLs are probed again with an exponential back-off and readmitted
+ * after the first successful probe.
+ * <p>
+ * Within the gateway the probes are sent with a client created by the dispatch
+ * {@link org.apache.hadoop.gateway.dispatch.HttpClientFactory}, so that they use the same TLS
+ * trust and Kerberos authentication as the requests dispatched to the services.
+ */
+public class HaHealthChecker {
+
+  private static final HaMessages LOG = MessagesFactory.get(HaMessages.class);
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private final ScheduledExecutorService executor;
+
+  private final HttpClient client;
+
+  /**
+   * Creates a checker with a plain client, for use outside of a gateway topology.
+   */
+  public HaHealthChecker() {
+    this(HttpClientBuilder.create().disableAutomaticRetries().build());
+  }
+
+  public HaHealthChecker(HttpClient client) {
+    this.client = client;
+    executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "ha-health-checker-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  public static boolean isEnabled(HaServiceConfig config) {
+    return config != null && config.getHealthCheckPath() != null && config.getHealthCheckInterval() > 0;
+  }
+
+  public void register(String serviceName, HaServiceConfig config, HealthCheckedURLManager manager) {
+    ServiceCheck check = new ServiceCheck(serviceName, config, manager);
+    LOG.startingHealthChecks(serviceName, config.getHealthCheckInterval());
+    executor.scheduleWithFixedDelay(check, 0, config.getHealthCheckInterval(), TimeUnit.MILLISECONDS);
+  }
+
+  public void stop() {
+    executor.shutdownNow();
+    if ( client instanceof Closeable ) {
+      IOUtils.closeQuietly((Closeable) client);
+    }
+  }
+
+  /**
+   * Parses status codes such as "200-299,401" into inclusive ranges.
+   *
+   * @throws IllegalArgumentException if the value isn't a list of codes or ranges of codes
+   */
+  static List<int[]> parseStatusCodes(String value) {
+    List<int[]> ranges = new ArrayList<>();
+    for ( String token : value.split(",") ) {
+      token = token.trim();
+      if ( token.isEmpty() ) {
+        continue;
+      }
+      int dash = token.indexOf('-');
+      try {
+        int low = Integer.parseInt((dash < 0 ? token : token.substring(0, dash)).trim());
+        int high = dash < 0 ? low : Integer.parseInt(token.substring(dash + 1).trim());
+        if ( low > high ) {
+          throw new IllegalArgumentException("Invalid health check status code range: " + token);
+        }
+        ranges.add(new int[]{low, high});
+      } catch ( NumberFormatException e ) {
+        throw new IllegalArgumentException("Invalid health check status codes: " + value, e);
+      }
+    }
+    if ( ranges.isEmpty() ) {
+      throw new IllegalArgumentException("Invalid health check status codes: " + value);
+    }
+    return ranges;
+  }
+
+  static boolean isAccepted(List<int[]> ranges, int status) {
+    for ( int[] range : ranges ) {
+      if ( status >= range[0] && status <= range[1] ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static String probeURL(String url, String path) {
+    if ( url.endsWith("/") && path.startsWith("/") ) {
+      return url + path.substring(1);
+    } else if ( !url.endsWith("/") && !path.startsWith("/") ) {
+      return url + "/" + path;
+    }
+    return url + path;
+  }
+
+  private class ServiceCheck implements Runnable {
+
+    private final String serviceName;
+
+    private final HaServiceConfig config;
+
+    private final HealthCheckedURLManager manager;
+
+    private final RequestConfig requestConfig;
+
+    private final List<int[]> statusCodes;
+
+    private Set<String> lastURLs = new HashSet<>();
+
+    private final Map<String, EndpointState> states = new ConcurrentHashMap<>();
+
+    ServiceCheck(String serviceName, HaServiceConfig config, HealthCheckedURLManager manager) {
+      this.serviceName = serviceName;
+      this.config = config;
+      this.manager = manager;
+      int timeout = config.getHealthCheckTimeout();
+      requestConfig = RequestConfig.custom()
+          .setConnectTimeout(timeout)
+          .setSocketTimeout(timeout)
+          .setConnectionRequestTimeout(timeout)
+          .build();
+      String codes = config.getHealthCheckStatusCodes();
+      statusCodes = parseStatusCodes(codes == null ? HaServiceConfigConstants.DEFAULT_HEALTH_CHECK_STATUS_CODES : codes);
+    }
+
+    @Override
+    public void run() {
+      try {
+        List<String> urls = manager.getURLs();
+        Set<String> current = new HashSet<>(urls);
+        if ( !current.equals(lastURLs) ) {
+          // Setting new URLs resets the manager's health state, so start over as well.
+          states.clear();
+          lastURLs = current;
+        }
+        for ( String url : urls ) {
+          EndpointState state = states.get(url);
+          if ( state == null ) {
+            state = new EndpointState();
+            states.put(url, state);
+          }
+          long now = System.nanoTime();
+          if ( state.nextProbe == 0 || now - state.nextProbe >= 0 ) {
+            String failure = probe(url);
+            update(url, state, failure, System.nanoTime());
+          }
+        }
+      } catch ( Exception e ) {
+        // Never let an exception cancel the scheduled checks.
+        LOG.failedToRunHealthChecks(serviceName, e);
+      }
+    }
+
+    /**
+     * @return null if the URL is healthy, otherwise the reason it isn't
+     */
+    private String probe(String url) {
+      HttpGet get = new HttpGet(probeURL(url, config.getHealthCheckPath()));
+      get.setConfig(requestConfig);
+      try {
+        HttpResponse response = client.execute(get);
+        try {
+          int status = response.getStatusLine().getStatusCode();
+          return isAccepted(statusCodes, status) ? null : "HTTP status " + status;
+        } finally {
+          EntityUtils.consumeQuietly(response.getEntity());
+        }
+      } catch ( Exception e ) {
+        return e.toString();
+      } finally {
+        get.releaseConnection();
+      }
+    }
+
+    private void update(String url, EndpointState state, String failure, long now) {
+      if ( failure == null ) {
+        state.failures = 0;
+        state.backoff = 0;
+        state.nextProbe = 0;
+        if ( !state.healthy ) {
+          state.healthy = true;
+          manager.setHealthy(url, true);
+          LOG.readmittedHealthyUrl(url, serviceName);
+        }
+        return;
+      }
+      LOG.healthCheckFailed(url, failure);
+      state.failures++;
+      if ( state.healthy ) {
+        if ( state.failures >= Math.max(1, config.getHealthCheckFailureThreshold()) ) {
+          state.healthy = false;
+          state.backoff = config.getHealthCheckInterval();
+          manager.setHealthy(url, false);
+          LOG.ejectedUnhealthyUrl(url, serviceName, state.failures);
+        }
+      } else {
+        state.backoff = Math.min(state.backoff * 2, Math.max(config.getHealthCheckMaxBackoff(), config.getHealthCheckInterval()));
+      }
+      if ( !state.healthy ) {
+        state.nextProbe = now + TimeUnit.MILLISECONDS.toNanos(state.backoff);
+      }
+    }
+  }
+
+  // Only accessed from the checker thread.
+  private static class EndpointState {
+
+    private boolean healthy = true;
+
+    private int failures;
+
+    private long backoff;
+
+    private long nextProbe;
+  }
+}
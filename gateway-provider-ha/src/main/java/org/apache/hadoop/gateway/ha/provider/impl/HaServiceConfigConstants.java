@@ -37,6 +37,28 @@ public interface HaServiceConfigConstants {
 
    public static final String CONFIG_PARAM_ZOOKEEPER_NAMESPACE = "zookeeperNamespace";
 
+   public static final String CONFIG_PARAM_LOAD_BALANCING_STRATEGY = "loadBalancingStrategy";
+
+   public static final String LOAD_BALANCING_ROUND_ROBIN = "round-robin";
+
+   public static final String LOAD_BALANCING_LEAST_OUTSTANDING = "least-outstanding";
+
+   public static final String LOAD_BALANCING_EWMA = "ewma";
+
+   public static final String CONFIG_PARAM_HEALTH_CHECK_PATH = "healthCheckPath";
+
+   public static final String CONFIG_PARAM_HEALTH_CHECK_INTERVAL = "healthCheckInterval";
+
+   public static final String CONFIG_PARAM_HEALTH_CHECK_TIMEOUT = "healthCheckTimeout";
+
+   public static final String CONFIG_PARAM_HEALTH_CHECK_FAILURE_THRESHOLD = "healthCheckFailureThreshold";
+
+   public static final String CONFIG_PARAM_HEALTH_CHECK_MAX_BACKOFF = "healthCheckMaxBackoff";
+
+   public static final String CONFIG_PARAM_HEALTH_CHECK_STATUS_CODES = "healthCheckStatusCodes";
+
+   public static final String CONFIG_PARAM_RETRY_BUDGET = "retryBudget";
+
    public static final int DEFAULT_MAX_FAILOVER_ATTEMPTS = 3;
 
    public static final int DEFAULT_FAILOVER_SLEEP = 1000;
@@ -47,4 +69,16 @@ public interface HaServiceConfigConstants {
 
    public static final boolean DEFAULT_ENABLED = true;
 
+   public static final int DEFAULT_HEALTH_CHECK_INTERVAL = 10000;
+
+   public static final int DEFAULT_HEALTH_CHECK_TIMEOUT = 2000;
+
+   public static final int DEFAULT_HEALTH_CHECK_FAILURE_THRESHOLD = 2;
+
+   public static final int DEFAULT_HEALTH_CHECK_MAX_BACKOFF = 300000;
+
+   public static final String DEFAULT_HEALTH_CHECK_STATUS_CODES = "200-399";
+
+   public static final int DEFAULT_RETRY_BUDGET = -1;
+
 }
@@ -21,14 +21,11 @@ import net.minidev.json.JSONObject;
 import net.minidev.json.parser.JSONParser;
 import net.minidev.json.parser.ParseException;
 
-import org.apache.curator.framework.CuratorFramework;
-import org.apache.curator.framework.CuratorFrameworkFactory;
-import org.apache.curator.retry.ExponentialBackoffRetry;
-
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.SortedMap;
 
 /**
  * Implementation of URLManager intended for query of Zookeeper for active Kafka hosts. 
@@ -36,8 +33,7 @@ import java.util.List;
  * The assumption is that the Confluent REST Proxy will be installed on the same host.  For safety
  * reasons, the REST Server is pinged for access before inclusion in the list of returned hosts.
  * 
- * In the event of a failure via markFailed, Zookeeper is queried again for active
- * host information.
+ * The hosts are kept current by a watch on Zookeeper, see BaseZookeeperURLManager.
  * 
  * When configuring the HAProvider in the topology, the zookeeperEnsemble
  * attribute must be set to a comma delimited list of the host and port number,
@@ -93,19 +89,12 @@ public class KafkaZookeeperURLManager extends BaseZookeeperURLManager {
 	{
 		List<String> serverHosts = new ArrayList<>();
 		
-		CuratorFramework zooKeeperClient = CuratorFrameworkFactory.builder()
-				.connectString(getZookeeperEnsemble())
-				.retryPolicy(new ExponentialBackoffRetry(1000, 3))
-				.build();
-		
 		try {
-			zooKeeperClient.start();
-
 			// Retrieve list of host URLs from ZooKeeper
-			List<String> brokers = zooKeeperClient.getChildren().forPath(BASE_PATH);
+			SortedMap<String, byte[]> brokers = getZookeeperChildren(BASE_PATH);
 
-			for (String broker : brokers) {
-				String serverInfo = new String(zooKeeperClient.getData().forPath(BASE_PATH + "/" + broker), Charset.forName("UTF-8"));
+			for (byte[] broker : brokers.values()) {
+				String serverInfo = new String(broker, Charset.forName("UTF-8"));
 				
 				String serverURL = constructURL(serverInfo);
 				serverHosts.add(serverURL);
@@ -113,11 +102,6 @@ public class KafkaZookeeperURLManager extends BaseZookeeperURLManager {
 		} catch (Exception e) {
 			LOG.failedToGetZookeeperUrls(e);
 			throw new RuntimeException(e);
-		} finally {
-			// Close the client connection with ZooKeeper
-			if (zooKeeperClient != null) {
-				zooKeeperClient.close();
-			}
 		}
 		
 		return serverHosts;
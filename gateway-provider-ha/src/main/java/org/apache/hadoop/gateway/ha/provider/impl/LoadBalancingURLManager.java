@@ -0,0 +1,343 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.provider.impl;
+
+import org.apache.hadoop.gateway.ha.provider.HaServiceConfig;
+import org.apache.hadoop.gateway.ha.provider.HealthCheckedURLManager;
+import org.apache.hadoop.gateway.ha.provider.RequestTrackingURLManager;
+import org.apache.hadoop.gateway.ha.provider.impl.i18n.HaMessages;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * URLManager for multi-active services that spreads requests across all of the configured URLs
+ * instead of sending everything to a single active URL. It is used when the service's HA config
+ * sets loadBalancingStrategy to one of:
+ * <ul>
+ *   <li>round-robin - each URL in turn</li>
+ *   <li>least-outstanding - the URL with the fewest requests in flight</li>
+ *   <li>ewma - the URL with the lowest moving average latency, weighted by requests in flight</li>
+ * </ul>
+ * A URL passed to {@link #markFailed(String)} is taken out of rotation for a while so that
+ * {@link org.apache.hadoop.gateway.ha.dispatch.DefaultHaDispatch} fails over to another URL.
+ * URLs ejected by health checks are skipped the same way. If every URL has failed they are all
+ * used again.
+ */
+public class LoadBalancingURLManager implements RequestTrackingURLManager, HealthCheckedURLManager, HaServiceConfigConstants {
+
+  private static final HaMessages LOG = MessagesFactory.get(HaMessages.class);
+
+  /**
+   * How long a URL that was marked as failed is left out of rotation.
+   */
+  static final long FAILED_URL_COOLDOWN = 30000;
+
+  /**
+   * Time over which older latency samples lose most of their weight in the moving average.
+   */
+  static final long LATENCY_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final AtomicInteger next = new AtomicInteger();
+
+  private volatile Strategy strategy = Strategy.ROUND_ROBIN;
+
+  private volatile Endpoints endpoints = new Endpoints(Collections.<Endpoint>emptyList());
+
+  @Override
+  public boolean supportsConfig(HaServiceConfig config) {
+    return Strategy.forName(config.getLoadBalancingStrategy()) != null;
+  }
+
+  @Override
+  public void setConfig(HaServiceConfig config) {
+    Strategy configured = Strategy.forName(config.getLoadBalancingStrategy());
+    if ( configured != null ) {
+      strategy = configured;
+      LOG.usingLoadBalancingStrategy(configured.getName(), config.getServiceName());
+    }
+  }
+
+  @Override
+  public String getActiveURL() {
+    List<Endpoint> list = endpoints.list;
+    if ( list.isEmpty() ) {
+      return null;
+    }
+    int start = (next.getAndIncrement() & Integer.MAX_VALUE) % list.size();
+    long now = System.nanoTime();
+    Endpoint endpoint = strategy.choose(list, start, now, false);
+    if ( endpoint == null ) {
+      endpoint = strategy.choose(list, start, now, true);
+    }
+    return endpoint.url;
+  }
+
+  /**
+   * Puts the URL back into rotation if it had been marked as failed.
+   */
+  @Override
+  public void setActiveURL(String url) {
+    Endpoint endpoint = endpoints.find(url);
+    if ( endpoint != null ) {
+      endpoint.retryAfter = 0;
+    }
+  }
+
+  @Override
+  public List<String> getURLs() {
+    List<String> urls = new ArrayList<>();
+    for ( Endpoint endpoint : endpoints.list ) {
+      urls.add(endpoint.url);
+    }
+    return urls;
+  }
+
+  @Override
+  public synchronized void setURLs(List<String> urls) {
+    if ( urls != null && !urls.isEmpty() ) {
+      Map<String, Endpoint> existing = new HashMap<>();
+      for ( Endpoint endpoint : endpoints.list ) {
+        existing.put(endpoint.url, endpoint);
+      }
+      List<Endpoint> list = new ArrayList<>(urls.size());
+      for ( String url : urls ) {
+        Endpoint endpoint = existing.get(url);
+        list.add(endpoint != null ? endpoint : new Endpoint(url));
+      }
+      endpoints = new Endpoints(list);
+    }
+  }
+
+  @Override
+  public void markFailed(String url) {
+    Endpoint endpoint = endpoints.find(url);
+    if ( endpoint != null ) {
+      endpoint.retryAfter = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FAILED_URL_COOLDOWN);
+      LOG.removedFailedUrlFromRotation(endpoint.url, FAILED_URL_COOLDOWN);
+    }
+  }
+
+  @Override
+  public void setHealthy(String url, boolean healthy) {
+    Endpoint endpoint = endpoints.find(url);
+    if ( endpoint != null ) {
+      endpoint.healthy = healthy;
+    }
+  }
+
+  @Override
+  public void requestStarted(String url) {
+    Endpoint endpoint = endpoints.find(url);
+    if ( endpoint != null ) {
+      endpoint.outstanding.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void requestCompleted(String url, long latencyNanos, boolean succeeded) {
+    Endpoint endpoint = endpoints.find(url);
+    if ( endpoint != null ) {
+      endpoint.completed(latencyNanos, succeeded, System.nanoTime());
+    }
+  }
+
+  public String getStrategy() {
+    return strategy.getName();
+  }
+
+  private static String hostPort(String url) {
+    try {
+      URI uri = URI.create(url);
+      if ( uri.getHost() != null ) {
+        return uri.getHost() + ":" + uri.getPort();
+      }
+    } catch ( IllegalArgumentException e ) {
+      // fall back to the url itself
+    }
+    return url;
+  }
+
+  /**
+   * The URLs are immutable once published, requests are matched to them by host and port the
+   * same way {@link DefaultURLManager#markFailed(String)} does.
+   */
+  private static final class Endpoints {
+
+    private final List<Endpoint> list;
+
+    private final Map<String, Endpoint> byHostPort;
+
+    Endpoints(List<Endpoint> list) {
+      this.list = Collections.unmodifiableList(list);
+      this.byHostPort = new HashMap<>();
+      for ( Endpoint endpoint : list ) {
+        if ( !byHostPort.containsKey(endpoint.hostPort) ) {
+          byHostPort.put(endpoint.hostPort, endpoint);
+        }
+      }
+    }
+
+    Endpoint find(String url) {
+      return url == null ? null : byHostPort.get(hostPort(url));
+    }
+  }
+
+  static final class Endpoint {
+
+    final String url;
+
+    final String hostPort;
+
+    final AtomicInteger outstanding = new AtomicInteger();
+
+    volatile long retryAfter;
+
+    volatile boolean healthy = true;
+
+    private volatile double latency;
+
+    private long lastSample;
+
+    Endpoint(String url) {
+      this.url = url;
+      this.hostPort = hostPort(url);
+    }
+
+    boolean isAvailable(long now) {
+      long until = retryAfter;
+      return healthy && ( until == 0 || now - until >= 0 );
+    }
+
+    void completed(long latencyNanos, boolean succeeded, long now) {
+      int current;
+      do {
+        current = outstanding.get();
+      } while ( current > 0 && !outstanding.compareAndSet(current, current - 1) );
+      if ( succeeded ) {
+        retryAfter = 0;
+        sample(latencyNanos, now);
+      }
+    }
+
+    // Time based decay so that a URL which hasn't been used for a while isn't judged by stale samples.
+    private synchronized void sample(long latencyNanos, long now) {
+      if ( lastSample == 0 ) {
+        latency = latencyNanos;
+      } else {
+        double weight = Math.exp(-(double) Math.max(0, now - lastSample) / LATENCY_DECAY_NANOS);
+        latency = latency * weight + latencyNanos * (1 - weight);
+      }
+      lastSample = now == 0 ? 1 : now;
+    }
+
+    double cost() {
+      return latency * (outstanding.get() + 1);
+    }
+  }
+
+  enum Strategy {
+
+    ROUND_ROBIN(LOAD_BALANCING_ROUND_ROBIN) {
+      @Override
+      Endpoint choose(List<Endpoint> endpoints, int start, long now, boolean includeFailed) {
+        int size = endpoints.size();
+        for ( int i = 0; i < size; i++ ) {
+          Endpoint endpoint = endpoints.get((start + i) % size);
+          if ( includeFailed || endpoint.isAvailable(now) ) {
+            return endpoint;
+          }
+        }
+        return null;
+      }
+    },
+
+    LEAST_OUTSTANDING(LOAD_BALANCING_LEAST_OUTSTANDING) {
+      @Override
+      Endpoint choose(List<Endpoint> endpoints, int start, long now, boolean includeFailed) {
+        Endpoint best = null;
+        int bestOutstanding = Integer.MAX_VALUE;
+        int size = endpoints.size();
+        for ( int i = 0; i < size; i++ ) {
+          Endpoint endpoint = endpoints.get((start + i) % size);
+          if ( includeFailed || endpoint.isAvailable(now) ) {
+            int outstanding = endpoint.outstanding.get();
+            if ( outstanding < bestOutstanding ) {
+              best = endpoint;
+              bestOutstanding = outstanding;
+            }
+          }
+        }
+        return best;
+      }
+    },
+
+    EWMA(LOAD_BALANCING_EWMA) {
+      @Override
+      Endpoint choose(List<Endpoint> endpoints, int start, long now, boolean includeFailed) {
+        Endpoint best = null;
+        double bestCost = Double.MAX_VALUE;
+        int size = endpoints.size();
+        for ( int i = 0; i < size; i++ ) {
+          Endpoint endpoint = endpoints.get((start + i) % size);
+          if ( includeFailed || endpoint.isAvailable(now) ) {
+            double cost = endpoint.cost();
+            if ( best == null || cost < bestCost ) {
+              best = endpoint;
+              bestCost = cost;
+            }
+          }
+        }
+        return best;
+      }
+    };
+
+    private final String name;
+
+    Strategy(String name) {
+      this.name = name;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    /**
+     * Scans the endpoints starting at start so that ties are broken in round robin order.
+     */
+    abstract Endpoint choose(List<Endpoint> endpoints, int start, long now, boolean includeFailed);
+
+    static Strategy forName(String name) {
+      if ( name != null ) {
+        for ( Strategy strategy : values() ) {
+          if ( strategy.name.equalsIgnoreCase(name.trim()) ) {
+            return strategy;
+          }
+        }
+      }
+      return null;
+    }
+  }
+}
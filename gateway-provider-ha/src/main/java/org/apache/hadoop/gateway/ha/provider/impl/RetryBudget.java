@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.provider.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the failovers and retries of a service to a percentage of the requests sent to it, so that
+ * an outage doesn't multiply the load on the remaining servers. Every request earns a fraction of a
+ * retry and every failover or retry spends a whole one. A small reserve that refills over time lets
+ * services with little traffic still fail over.
+ */
+public class RetryBudget {
+
+  static final int RESERVE_PER_SECOND = 10;
+
+  static final int MAX_BALANCE = 1000;
+
+  private final double ratio;
+
+  private final int reservePerSecond;
+
+  private double balance;
+
+  private long lastRefill;
+
+  public RetryBudget(int percent) {
+    this(percent, RESERVE_PER_SECOND);
+  }
+
+  RetryBudget(int percent, int reservePerSecond) {
+    this.ratio = percent / 100.0;
+    this.reservePerSecond = reservePerSecond;
+    this.balance = reservePerSecond;
+    this.lastRefill = System.nanoTime();
+  }
+
+  public synchronized void deposit() {
+    balance = Math.min(MAX_BALANCE, balance + ratio);
+  }
+
+  /**
+   * @return true and spends a retry if the budget allows one
+   */
+  public synchronized boolean tryWithdraw() {
+    refill(System.nanoTime());
+    if ( balance >= 1 ) {
+      balance -= 1;
+      return true;
+    }
+    return false;
+  }
+
+  private void refill(long now) {
+    long elapsed = now - lastRefill;
+    lastRefill = now;
+    if ( balance < reservePerSecond ) {
+      double refill = (double) elapsed / TimeUnit.SECONDS.toNanos(1) * reservePerSecond;
+      balance = Math.min(reservePerSecond, balance + refill);
+    }
+  }
+}
@@ -17,18 +17,14 @@
  */
 package org.apache.hadoop.gateway.ha.provider.impl;
 
-import org.apache.curator.framework.CuratorFramework;
-import org.apache.curator.framework.CuratorFrameworkFactory;
-import org.apache.curator.retry.ExponentialBackoffRetry;
-
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Implementation of URLManager intended for query of Zookeeper for active SOLR Cloud hosts. 
- * In the event of a failure via markFailed, Zookeeper is queried again for active
- * host information.
+ * The hosts are kept current by a watch on Zookeeper, see BaseZookeeperURLManager.
  * 
  * When configuring the HAProvider in the topology, the zookeeperEnsemble
  * attribute must be set to a comma delimited list of the host and port number,
@@ -73,14 +69,8 @@ public class SOLRZookeeperURLManager extends BaseZookeeperURLManager {
 	{
 		List<String> serverHosts = new ArrayList<>();
 		
-		CuratorFramework zooKeeperClient = CuratorFrameworkFactory.builder()
-				.connectString(getZookeeperEnsemble())
-				.retryPolicy(new ExponentialBackoffRetry(1000, 3))
-				.build();
-		
 		try {
-			zooKeeperClient.start();
-			List<String> serverNodes = zooKeeperClient.getChildren().forPath("/live_nodes");
+			Set<String> serverNodes = getZookeeperChildren("/live_nodes").keySet();
 			for (String serverNode : serverNodes) {
 				String serverURL = constructURL(serverNode);
 				serverHosts.add(serverURL);
@@ -88,11 +78,6 @@ public class SOLRZookeeperURLManager extends BaseZookeeperURLManager {
 		} catch (Exception e) {
 			LOG.failedToGetZookeeperUrls(e);
 			throw new RuntimeException(e);
-		} finally {
-			// Close the client connection with ZooKeeper
-			if (zooKeeperClient != null) {
-				zooKeeperClient.close();
-			}
 		}
 
 		return serverHosts;
@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.provider.impl;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.utils.ZKPaths;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watched, in-memory copy of the children of a ZooKeeper node, used by the ZooKeeper based URL managers
+ * so that looking up URLs doesn't need a ZooKeeper round trip, let alone a new session.
+ *
+ * One long lived Curator client is shared per ensemble, and one cache per ensemble and path. Both live
+ * as long as the gateway, and all their threads are daemon threads.
+ */
+class ZookeeperChildrenCache {
+
+  private static final ConcurrentMap<String, CuratorFramework> CLIENTS = new ConcurrentHashMap<>();
+
+  private static final ConcurrentMap<String, ZookeeperChildrenCache> CACHES = new ConcurrentHashMap<>();
+
+  private final PathChildrenCache cache;
+
+  private final AtomicLong generation = new AtomicLong();
+
+  private ZookeeperChildrenCache(CuratorFramework client, String path) {
+    cache = new PathChildrenCache(client, path, true);
+    cache.getListenable().addListener(new PathChildrenCacheListener() {
+      @Override
+      public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) {
+        switch ( event.getType() ) {
+          case CHILD_ADDED:
+          case CHILD_UPDATED:
+          case CHILD_REMOVED:
+          case INITIALIZED:
+            generation.incrementAndGet();
+            break;
+          default:
+            // Connection state changes don't change the children.
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns the cache of the children of the given path, creating it, and if needed the client for the
+   * ensemble, the first time it is asked for.
+   *
+   * @throws Exception if the initial children can't be read from ZooKeeper
+   */
+  static ZookeeperChildrenCache get(String ensemble, String path) throws Exception {
+    String key = ensemble + path;
+    ZookeeperChildrenCache children = CACHES.get(key);
+    if ( children == null ) {
+      synchronized ( CACHES ) {
+        children = CACHES.get(key);
+        if ( children == null ) {
+          children = new ZookeeperChildrenCache(getClient(ensemble), path);
+          try {
+            children.cache.start(PathChildrenCache.StartMode.BUILD_INITIAL_CACHE);
+          } catch ( Exception e ) {
+            children.cache.close();
+            throw e;
+          }
+          CACHES.put(key, children);
+        }
+      }
+    }
+    return children;
+  }
+
+  // Only called while holding the CACHES lock.
+  private static CuratorFramework getClient(String ensemble) {
+    CuratorFramework client = CLIENTS.get(ensemble);
+    if ( client == null ) {
+      client = CuratorFrameworkFactory.builder()
+          .connectString(ensemble)
+          .retryPolicy(new ExponentialBackoffRetry(1000, 3))
+          .build();
+      client.start();
+      CLIENTS.put(ensemble, client);
+    }
+    return client;
+  }
+
+  /**
+   * @return A number that changes whenever the children or their data change
+   */
+  long getGeneration() {
+    return generation.get();
+  }
+
+  /**
+   * @return The current children, by node name, with their data
+   */
+  SortedMap<String, byte[]> getChildren() {
+    SortedMap<String, byte[]> children = new TreeMap<>();
+    for ( ChildData child : cache.getCurrentData() ) {
+      byte[] data = child.getData();
+      children.put(ZKPaths.getNodeFromPath(child.getPath()), data != null ? data : new byte[0]);
+    }
+    return children;
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.hadoop.gateway.ha.provider.impl.i18n;
 import org.apache.hadoop.gateway.i18n.messages.Message;
 import org.apache.hadoop.gateway.i18n.messages.MessageLevel;
 import org.apache.hadoop.gateway.i18n.messages.Messages;
+import org.apache.hadoop.gateway.i18n.messages.StackTrace;
 
 @Messages(logger = "org.apache.hadoop.gateway")
 public interface HaMessages {
@@ -42,4 +43,25 @@ public interface HaMessages {
   @Message(level = MessageLevel.ERROR, text = "Failed to get Zookeeper URLs : {0}")
   void failedToGetZookeeperUrls(Exception e);
 
+  @Message(level = MessageLevel.INFO, text = "Using {0} load balancing for service: {1}")
+  void usingLoadBalancingStrategy(String strategy, String serviceName);
+
+  @Message(level = MessageLevel.DEBUG, text = "Removing failed URL {0} from rotation for {1} ms")
+  void removedFailedUrlFromRotation(String failedUrl, long cooldown);
+
+  @Message(level = MessageLevel.INFO, text = "Health checking service {0} every {1} ms")
+  void startingHealthChecks(String serviceName, int interval);
+
+  @Message(level = MessageLevel.WARN, text = "Ejecting URL {0} of service {1} after {2} failed health checks")
+  void ejectedUnhealthyUrl(String url, String serviceName, int failures);
+
+  @Message(level = MessageLevel.INFO, text = "Readmitting URL {0} of service {1} after a successful health check")
+  void readmittedHealthyUrl(String url, String serviceName);
+
+  @Message(level = MessageLevel.DEBUG, text = "Health check of {0} failed: {1}")
+  void healthCheckFailed(String url, String reason);
+
+  @Message(level = MessageLevel.ERROR, text = "Failed to run health checks for service {0}: {1}")
+  void failedToRunHealthChecks(String serviceName, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
 }
@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.dispatch;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FailoverSchedulerTest {
+
+  @Test
+  public void testNotSuspendedWithoutAsyncSupport() {
+    HttpServletRequest inboundRequest = EasyMock.createNiceMock(HttpServletRequest.class);
+    HttpServletResponse outboundResponse = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.replay(inboundRequest, outboundResponse);
+    FailoverScheduler.Attempt attempt = new FailoverScheduler.Attempt() {
+      @Override
+      public void execute() {
+        throw new AssertionError("Attempt must not be executed");
+      }
+    };
+    assertFalse(FailoverScheduler.schedule(inboundRequest, outboundResponse, 1000, "SERVICE", attempt));
+    EasyMock.verify(inboundRequest);
+  }
+
+  @Test
+  public void testResumedAfterDelayAndCompleted() throws Exception {
+    final Map<String, Object> attributes = new HashMap<>();
+    HttpServletResponse outboundResponse = EasyMock.createNiceMock(HttpServletResponse.class);
+    AsyncContext asyncContext = EasyMock.createNiceMock(AsyncContext.class);
+    HttpServletRequest inboundRequest = createAsyncRequest(attributes, asyncContext, outboundResponse);
+    asyncContext.start(EasyMock.anyObject(Runnable.class));
+    EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+      @Override
+      public Object answer() {
+        ((Runnable) EasyMock.getCurrentArguments()[0]).run();
+        return null;
+      }
+    });
+    final CountDownLatch completed = new CountDownLatch(1);
+    asyncContext.complete();
+    EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+      @Override
+      public Object answer() {
+        completed.countDown();
+        return null;
+      }
+    }).once();
+    EasyMock.replay(inboundRequest, outboundResponse, asyncContext);
+
+    final CountDownLatch executed = new CountDownLatch(1);
+    long start = System.nanoTime();
+    assertTrue(FailoverScheduler.schedule(inboundRequest, outboundResponse, 100, "SERVICE", new FailoverScheduler.Attempt() {
+      @Override
+      public void execute() throws IOException {
+        executed.countDown();
+      }
+    }));
+    assertTrue(executed.await(5, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    assertTrue(completed.await(5, TimeUnit.SECONDS));
+    assertTrue(attributes.isEmpty());
+    EasyMock.verify(asyncContext);
+  }
+
+  private static HttpServletRequest createAsyncRequest(final Map<String, Object> attributes, AsyncContext asyncContext,
+                                                       HttpServletResponse outboundResponse) {
+    final HttpServletRequest inboundRequest = EasyMock.createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(inboundRequest.isAsyncSupported()).andReturn(true).anyTimes();
+    EasyMock.expect(inboundRequest.startAsync(inboundRequest, outboundResponse)).andReturn(asyncContext).once();
+    inboundRequest.setAttribute(EasyMock.anyString(), EasyMock.anyObject());
+    EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+      @Override
+      public Object answer() {
+        attributes.put((String) EasyMock.getCurrentArguments()[0], EasyMock.getCurrentArguments()[1]);
+        return null;
+      }
+    }).anyTimes();
+    inboundRequest.removeAttribute(EasyMock.anyString());
+    EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+      @Override
+      public Object answer() {
+        attributes.remove(EasyMock.getCurrentArguments()[0]);
+        return null;
+      }
+    }).anyTimes();
+    EasyMock.expect(inboundRequest.getAttribute(EasyMock.anyString())).andAnswer(new IAnswer<Object>() {
+      @Override
+      public Object answer() {
+        return attributes.get(EasyMock.getCurrentArguments()[0]);
+      }
+    }).anyTimes();
+    return inboundRequest;
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.dispatch;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResponsePrefixReaderTest {
+
+  @Test
+  public void testPrefixIsPutBack() throws Exception {
+    StringBuilder body = new StringBuilder("{\"RemoteException\":{\"exception\":\"StandbyException\"}}");
+    while ( body.length() < 3 * ResponsePrefixReader.DEFAULT_LIMIT ) {
+      body.append("0123456789");
+    }
+    HttpResponse response = createResponse(body.toString());
+    String prefix = ResponsePrefixReader.read(response, ResponsePrefixReader.DEFAULT_LIMIT);
+    assertEquals(ResponsePrefixReader.DEFAULT_LIMIT, prefix.length());
+    assertTrue(prefix.contains("StandbyException"));
+    assertEquals(body.toString(), EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testShortBody() throws Exception {
+    HttpResponse response = createResponse("short");
+    assertEquals("short", ResponsePrefixReader.read(response, ResponsePrefixReader.DEFAULT_LIMIT));
+    assertEquals("short", EntityUtils.toString(response.getEntity()));
+  }
+
+  @Test
+  public void testDiscardRest() throws Exception {
+    HttpResponse response = createResponse("StandbyException and more");
+    assertEquals("Standby", ResponsePrefixReader.read(response, 7));
+    ResponsePrefixReader.discardRest(response);
+    assertEquals("Standby", EntityUtils.toString(response.getEntity()));
+    // The kept prefix can be read again.
+    assertEquals("Standby", ResponsePrefixReader.read(response, 7));
+  }
+
+  private static HttpResponse createResponse(String body) {
+    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 403, "Forbidden");
+    response.setEntity(new InputStreamEntity(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
+    return response;
+  }
+}
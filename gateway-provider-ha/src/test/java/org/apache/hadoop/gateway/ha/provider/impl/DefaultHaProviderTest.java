@@ -17,10 +17,20 @@
  */
 package org.apache.hadoop.gateway.ha.provider.impl;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 import org.apache.hadoop.gateway.ha.provider.HaDescriptor;
 import org.apache.hadoop.gateway.ha.provider.HaProvider;
+import org.apache.hadoop.gateway.ha.provider.HaServiceConfig;
+import org.easymock.EasyMock;
 import org.junit.Test;
 
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 import java.util.ArrayList;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -82,4 +92,70 @@ public class DefaultHaProviderTest {
       provider.setActiveURL(serviceName, url2);
       assertEquals(url2, provider.getActiveURL(serviceName));
    }
+
+   @Test
+   public void testMarkFailedUrlIfActive() {
+      HaDescriptor descriptor = new DefaultHaDescriptor();
+      HaProvider provider = new DefaultHaProvider(descriptor);
+      ArrayList<String> urls = new ArrayList<String>();
+      String url1 = "http://host1:50070/webhdfs";
+      urls.add(url1);
+      String url2 = "http://host2:50070/webhdfs";
+      urls.add(url2);
+      String serviceName = "foo";
+      provider.addHaService(serviceName, urls);
+      assertTrue(provider.markFailedURLIfActive(serviceName, url1 + "/v1/tmp?op=LISTSTATUS"));
+      assertEquals(url2, provider.getActiveURL(serviceName));
+      // A concurrent request that failed on the same URL doesn't move the active URL back.
+      assertFalse(provider.markFailedURLIfActive(serviceName, url1 + "/v1/user?op=LISTSTATUS"));
+      assertEquals(url2, provider.getActiveURL(serviceName));
+      assertFalse(provider.markFailedURLIfActive("bar", url1));
+   }
+
+   @Test
+   public void testHealthChecksUseDispatchClient() throws Exception {
+      ServletContext context = EasyMock.createNiceMock(ServletContext.class);
+      FilterConfig filterConfig = EasyMock.createMock(FilterConfig.class);
+      EasyMock.expect(filterConfig.getServletContext()).andReturn(context).atLeastOnce();
+      EasyMock.expect(filterConfig.getInitParameter(EasyMock.anyString())).andReturn(null).anyTimes();
+      EasyMock.replay(context, filterConfig);
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/health", new HttpHandler() {
+         @Override
+         public void handle(HttpExchange exchange) throws IOException {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+         }
+      });
+      server.start();
+
+      HaDescriptor descriptor = new DefaultHaDescriptor();
+      HaServiceConfig config = new DefaultHaServiceConfig("foo");
+      HaDescriptorFactory.configureHealthCheck(config, "/health", "50", "500", "1", "100", null);
+      descriptor.addServiceConfig(config);
+      DefaultHaProvider provider = new DefaultHaProvider(descriptor, filterConfig);
+      ArrayList<String> urls = new ArrayList<String>();
+      String url1 = "http://localhost:" + getFreePort();
+      urls.add(url1);
+      String url2 = "http://localhost:" + server.getAddress().getPort();
+      urls.add(url2);
+      try {
+         provider.addHaService("foo", urls);
+         EasyMock.verify(filterConfig);
+         long deadline = System.currentTimeMillis() + 10000;
+         while (url1.equals(provider.getActiveURL("foo")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+         }
+         assertEquals(url2, provider.getActiveURL("foo"));
+      } finally {
+         provider.stop();
+         server.stop(0);
+      }
+   }
+
+   private static int getFreePort() throws IOException {
+      try (ServerSocket socket = new ServerSocket(0)) {
+         return socket.getLocalPort();
+      }
+   }
 }
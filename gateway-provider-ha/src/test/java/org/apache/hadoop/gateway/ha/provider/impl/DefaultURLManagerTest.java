@@ -89,4 +89,43 @@ public class DefaultURLManagerTest {
       assertEquals(url3, manager.getActiveURL());
    }
 
+   @Test
+   public void testUnhealthyURLsAreSkipped() {
+      ArrayList<String> urls = new ArrayList<>();
+      String url1 = "http://host1";
+      urls.add(url1);
+      String url2 = "http://host2";
+      urls.add(url2);
+      String url3 = "http://host3";
+      urls.add(url3);
+      DefaultURLManager manager = new DefaultURLManager();
+      manager.setURLs(urls);
+      manager.setHealthy(url1, false);
+      assertEquals(url2, manager.getActiveURL());
+      manager.setHealthy(url3, false);
+      manager.markFailed(url2);
+      assertEquals(url2, manager.getActiveURL());
+      manager.setHealthy(url1, true);
+      manager.markFailed(url2);
+      assertEquals(url1, manager.getActiveURL());
+   }
+
+   @Test
+   public void testSettingURLsResetsHealth() {
+      ArrayList<String> urls = new ArrayList<>();
+      String url1 = "http://host1";
+      urls.add(url1);
+      String url2 = "http://host2";
+      urls.add(url2);
+      DefaultURLManager manager = new DefaultURLManager();
+      manager.setURLs(urls);
+      manager.setHealthy(url1, false);
+      assertEquals(url2, manager.getActiveURL());
+      manager.setURLs(urls);
+      assertEquals(url1, manager.getActiveURL());
+      manager.markFailed(url1);
+      manager.markFailed(url2);
+      assertEquals(url1, manager.getActiveURL());
+   }
+
 }
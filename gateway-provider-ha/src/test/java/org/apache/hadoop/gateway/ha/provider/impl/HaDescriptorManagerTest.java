@@ -51,6 +51,19 @@ public class HaDescriptorManagerTest {
       assertTrue(config.isEnabled());
    }
 
+   @Test
+   public void testLoadBalancingStrategy() throws IOException {
+      String xml = "<ha><service name='foo' enabled='true'/>" +
+            "<service name='bar' enabled='true' loadBalancingStrategy='ewma'/></ha>";
+      HaDescriptor descriptor = HaDescriptorManager.load(new ByteArrayInputStream(xml.getBytes()));
+      assertNull(descriptor.getServiceConfig("foo").getLoadBalancingStrategy());
+      assertEquals("ewma", descriptor.getServiceConfig("bar").getLoadBalancingStrategy());
+      StringWriter writer = new StringWriter();
+      HaDescriptorManager.store(descriptor, writer);
+      assertThat( the( writer.toString() ), hasXPath( "/ha/service[@name='foo' and not(@loadBalancingStrategy)]" ) );
+      assertThat( the( writer.toString() ), hasXPath( "/ha/service[@name='bar' and @loadBalancingStrategy='ewma']" ) );
+   }
+
    @Test
    public void testDescriptorDefaults() throws IOException {
       String xml = "<ha><service name='foo'/></ha>";
@@ -85,5 +98,25 @@ public class HaDescriptorManagerTest {
       assertThat( the( xml ), hasXPath( "/ha/service[@enabled='true' and @failoverSleep='5000' and @maxFailoverAttempts='3' and @maxRetryAttempts='5' and @name='bar' and @retrySleep='8000']" ) );
    }
 
+   @Test
+   public void testHealthCheckStatusCodes() throws IOException {
+      String xml = "<ha><service name='foo' healthCheckPath='/health' healthCheckStatusCodes='200-299, 401'/>" +
+            "<service name='bar' healthCheckPath='/health'/></ha>";
+      HaDescriptor descriptor = HaDescriptorManager.load(new ByteArrayInputStream(xml.getBytes()));
+      assertEquals("200-299, 401", descriptor.getServiceConfig("foo").getHealthCheckStatusCodes());
+      assertEquals(HaServiceConfigConstants.DEFAULT_HEALTH_CHECK_STATUS_CODES,
+            descriptor.getServiceConfig("bar").getHealthCheckStatusCodes());
+      StringWriter writer = new StringWriter();
+      HaDescriptorManager.store(descriptor, writer);
+      assertThat( the( writer.toString() ), hasXPath( "/ha/service[@name='foo' and @healthCheckStatusCodes='200-299, 401']" ) );
+      assertThat( the( writer.toString() ), hasXPath( "/ha/service[@name='bar' and @healthCheckStatusCodes='200-399']" ) );
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testInvalidHealthCheckStatusCodes() throws IOException {
+      String xml = "<ha><service name='foo' healthCheckPath='/health' healthCheckStatusCodes='2xx'/></ha>";
+      HaDescriptorManager.load(new ByteArrayInputStream(xml.getBytes()));
+   }
+
 
 }
@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.provider.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hadoop.gateway.ha.provider.HaServiceConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HaHealthCheckerTest {
+
+  private HttpServer server;
+
+  private final AtomicInteger status = new AtomicInteger(200);
+
+  private HaHealthChecker checker;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/health", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(status.get(), -1);
+        exchange.close();
+      }
+    });
+    server.start();
+    checker = new HaHealthChecker();
+  }
+
+  @After
+  public void tearDown() {
+    checker.stop();
+    server.stop(0);
+  }
+
+  @Test
+  public void testProbeURL() {
+    assertEquals("http://host:1/health", HaHealthChecker.probeURL("http://host:1", "health"));
+    assertEquals("http://host:1/health", HaHealthChecker.probeURL("http://host:1/", "/health"));
+    assertEquals("http://host:1/health", HaHealthChecker.probeURL("http://host:1", "/health"));
+    assertEquals("http://host:1/path/health", HaHealthChecker.probeURL("http://host:1/path/", "health"));
+  }
+
+  @Test
+  public void testUnhealthyURLIsEjectedAndReadmitted() throws Exception {
+    String healthy = "http://localhost:" + server.getAddress().getPort();
+    String unreachable = "http://localhost:" + getFreePort();
+    List<String> urls = new ArrayList<>();
+    urls.add(unreachable);
+    urls.add(healthy);
+    RecordingURLManager manager = new RecordingURLManager();
+    manager.setURLs(urls);
+    assertEquals(unreachable, manager.getActiveURL());
+
+    checker.register("SERVICE", createConfig(), manager);
+    waitForHealth(manager, unreachable, false);
+    assertEquals(healthy, manager.getActiveURL());
+    assertNull(manager.health.get(healthy));
+
+    status.set(503);
+    waitForHealth(manager, healthy, false);
+    status.set(200);
+    waitForHealth(manager, healthy, true);
+    assertEquals(Boolean.FALSE, manager.health.get(unreachable));
+  }
+
+  @Test
+  public void testAcceptedStatusCodes() throws Exception {
+    String url = "http://localhost:" + server.getAddress().getPort();
+    String other = "http://localhost:" + getFreePort();
+    List<String> urls = new ArrayList<>();
+    urls.add(url);
+    urls.add(other);
+    RecordingURLManager manager = new RecordingURLManager();
+    manager.setURLs(urls);
+
+    status.set(401);
+    checker.register("SERVICE", createConfig("200-299,401"), manager);
+    waitForHealth(manager, other, false);
+    assertNull(manager.health.get(url));
+
+    status.set(302);
+    waitForHealth(manager, url, false);
+  }
+
+  @Test
+  public void testParseStatusCodes() {
+    List<int[]> ranges = HaHealthChecker.parseStatusCodes(" 200-299, 401 ");
+    assertTrue(HaHealthChecker.isAccepted(ranges, 200));
+    assertTrue(HaHealthChecker.isAccepted(ranges, 299));
+    assertTrue(HaHealthChecker.isAccepted(ranges, 401));
+    assertFalse(HaHealthChecker.isAccepted(ranges, 302));
+    assertFalse(HaHealthChecker.isAccepted(ranges, 403));
+    for ( String invalid : new String[]{ "", "2xx", "299-200", "200-" } ) {
+      try {
+        HaHealthChecker.parseStatusCodes(invalid);
+        fail("Expected " + invalid + " to be rejected");
+      } catch ( IllegalArgumentException e ) {
+        // expected
+      }
+    }
+  }
+
+  private static HaServiceConfig createConfig() {
+    return createConfig(null);
+  }
+
+  private static HaServiceConfig createConfig(String statusCodes) {
+    HaServiceConfig config = HaDescriptorFactory.createServiceConfig("SERVICE", "true", "1", "1000", "1", "1000", null, null);
+    HaDescriptorFactory.configureHealthCheck(config, "/health", "50", "500", "2", "100", statusCodes);
+    return config;
+  }
+
+  private static void waitForHealth(RecordingURLManager manager, String url, boolean healthy) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while ( !Boolean.valueOf(healthy).equals(manager.health.get(url)) && System.currentTimeMillis() < deadline ) {
+      Thread.sleep(20);
+    }
+    assertEquals(healthy, manager.health.get(url));
+  }
+
+  private static int getFreePort() throws IOException {
+    try ( ServerSocket socket = new ServerSocket(0) ) {
+      return socket.getLocalPort();
+    }
+  }
+
+  private static class RecordingURLManager extends DefaultURLManager {
+
+    private final Map<String, Boolean> health = new ConcurrentHashMap<>();
+
+    @Override
+    public synchronized void setHealthy(String url, boolean healthy) {
+      health.put(url, healthy);
+      super.setHealthy(url, healthy);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.provider.impl;
+
+import org.apache.hadoop.gateway.ha.provider.HaServiceConfig;
+import org.apache.hadoop.gateway.ha.provider.URLManager;
+import org.apache.hadoop.gateway.ha.provider.URLManagerLoader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadBalancingURLManagerTest {
+
+  private static final List<String> URLS = Arrays.asList("http://host1:8080/api", "http://host2:8080/api", "http://host3:8080/api");
+
+  private static LoadBalancingURLManager createManager(String strategy) {
+    HaServiceConfig config = HaDescriptorFactory.createServiceConfig("SOLR", "enabled=true;loadBalancingStrategy=" + strategy);
+    URLManager manager = URLManagerLoader.loadURLManager(config);
+    assertTrue(manager instanceof LoadBalancingURLManager);
+    manager.setURLs(new ArrayList<>(URLS));
+    return (LoadBalancingURLManager) manager;
+  }
+
+  @Test
+  public void testActiveStandbyByDefault() {
+    HaServiceConfig config = HaDescriptorFactory.createServiceConfig("SOLR", "enabled=true");
+    assertFalse(URLManagerLoader.loadURLManager(config) instanceof LoadBalancingURLManager);
+    config = HaDescriptorFactory.createServiceConfig("SOLR", "enabled=true;loadBalancingStrategy=unknown");
+    assertFalse(URLManagerLoader.loadURLManager(config) instanceof LoadBalancingURLManager);
+  }
+
+  @Test
+  public void testRoundRobin() {
+    LoadBalancingURLManager manager = createManager("round-robin");
+    assertEquals("round-robin", manager.getStrategy());
+    assertTrue(manager.getURLs().containsAll(URLS));
+    Map<String, Integer> counts = new HashMap<>();
+    for ( int i = 0; i < 30; i++ ) {
+      String url = manager.getActiveURL();
+      Integer count = counts.get(url);
+      counts.put(url, count == null ? 1 : count + 1);
+    }
+    for ( String url : URLS ) {
+      assertEquals(Integer.valueOf(10), counts.get(url));
+    }
+  }
+
+  @Test
+  public void testFailedURLIsSkipped() {
+    LoadBalancingURLManager manager = createManager("round-robin");
+    manager.markFailed("http://host2:8080/api/v1/query?q=1");
+    for ( int i = 0; i < 10; i++ ) {
+      assertNotEquals("http://host2:8080/api", manager.getActiveURL());
+    }
+    manager.setActiveURL("http://host2:8080/api");
+    boolean used = false;
+    for ( int i = 0; i < 3; i++ ) {
+      used |= "http://host2:8080/api".equals(manager.getActiveURL());
+    }
+    assertTrue(used);
+
+    // When every URL has failed they are all used again.
+    for ( String url : URLS ) {
+      manager.markFailed(url);
+    }
+    assertTrue(URLS.contains(manager.getActiveURL()));
+  }
+
+  @Test
+  public void testLeastOutstanding() {
+    LoadBalancingURLManager manager = createManager("least-outstanding");
+    manager.requestStarted("http://host1:8080/api/a");
+    manager.requestStarted("http://host1:8080/api/b");
+    manager.requestStarted("http://host3:8080/api/c");
+    for ( int i = 0; i < 5; i++ ) {
+      assertEquals("http://host2:8080/api", manager.getActiveURL());
+    }
+    manager.requestStarted("http://host2:8080/api/d");
+    manager.requestStarted("http://host2:8080/api/e");
+    assertEquals("http://host3:8080/api", manager.getActiveURL());
+    manager.requestCompleted("http://host1:8080/api/a", 1000, true);
+    manager.requestCompleted("http://host1:8080/api/b", 1000, true);
+    assertEquals("http://host1:8080/api", manager.getActiveURL());
+  }
+
+  @Test
+  public void testEwma() {
+    LoadBalancingURLManager manager = createManager("ewma");
+    long fast = TimeUnit.MILLISECONDS.toNanos(5);
+    long slow = TimeUnit.MILLISECONDS.toNanos(500);
+    for ( String url : URLS ) {
+      manager.requestStarted(url);
+      manager.requestCompleted(url, url.contains("host2") ? fast : slow, true);
+    }
+    for ( int i = 0; i < 5; i++ ) {
+      assertEquals("http://host2:8080/api", manager.getActiveURL());
+    }
+    // A failed request isn't a latency sample.
+    manager.requestStarted("http://host1:8080/api");
+    manager.requestCompleted("http://host1:8080/api", 1, false);
+    assertEquals("http://host2:8080/api", manager.getActiveURL());
+  }
+
+}
@@ -0,0 +1,49 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.ha.provider.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryBudgetTest {
+
+  @Test
+  public void testDeposits() {
+    RetryBudget budget = new RetryBudget(50, 0);
+    assertFalse(budget.tryWithdraw());
+    // Two requests at 50% earn one retry.
+    budget.deposit();
+    assertFalse(budget.tryWithdraw());
+    budget.deposit();
+    assertTrue(budget.tryWithdraw());
+    assertFalse(budget.tryWithdraw());
+  }
+
+  @Test
+  public void testReserve() throws Exception {
+    RetryBudget budget = new RetryBudget(0, 20);
+    for ( int i = 0; i < 20; i++ ) {
+      assertTrue(budget.tryWithdraw());
+    }
+    // The reserve refills at 20 retries per second.
+    Thread.sleep(200);
+    assertTrue(budget.tryWithdraw());
+  }
+}
@@ -94,8 +94,33 @@ public class SOLRZookeeperURLManagerTest {
     }
     
     assertEquals(0,expected.size());
-    
-    // Unable to test markFailed because the SOLRZookeeperURLManager always does a refresh on Zookeeper contents.
+  }
+
+  @Test
+  public void testMarkFailedAndWatch() throws Exception {
+    List<String> urls = manager.getURLs();
+    assertEquals(urls.get(0), manager.getActiveURL());
+    // The dispatch reports the full outbound request URL, not the base URL of the host
+    manager.markFailed(urls.get(0) + "/collection1/select?q=*:*&wt=json");
+    assertEquals(urls.get(1), manager.getActiveURL());
+    // A late failure for the host that is no longer active leaves the active one alone
+    manager.markFailed(urls.get(0) + "/collection1/select?q=*:*&wt=json");
+    assertEquals(urls.get(1), manager.getActiveURL());
+
+    CuratorFramework zooKeeperClient =
+        CuratorFrameworkFactory.builder().connectString(cluster.getConnectString())
+            .retryPolicy(new ExponentialBackoffRetry(1000, 3)).build();
+    zooKeeperClient.start();
+    zooKeeperClient.create().forPath("/live_nodes/host4:8983_solr");
+    zooKeeperClient.close();
+
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!manager.getURLs().contains("http://host4:8983/solr") && System.currentTimeMillis() < deadline) {
+      manager.getActiveURL();
+      Thread.sleep(50);
+    }
+    assertEquals(4, manager.getURLs().size());
+    assertTrue(manager.getURLs().contains("http://host4:8983/solr"));
   }
 
   @Test
@@ -17,17 +17,22 @@
  */
 package org.apache.hadoop.gateway.filter.rewrite.api;
 
+import com.codahale.metrics.MetricRegistry;
+import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.filter.rewrite.ext.ScopedMatcher;
 import org.apache.hadoop.gateway.filter.rewrite.i18n.UrlRewriteMessages;
+import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteCache;
 import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteContextImpl;
 import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteFunctionProcessorFactory;
 import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteRuleProcessorHolder;
 import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteStepProcessorHolder;
-import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteStepStatus;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.metrics.MetricsService;
 import org.apache.hadoop.gateway.util.urltemplate.Matcher;
+import org.apache.hadoop.gateway.util.urltemplate.Params;
 import org.apache.hadoop.gateway.util.urltemplate.Resolver;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
@@ -49,6 +54,7 @@ public class UrlRewriteProcessor implements UrlRewriter {
   ScopedMatcher inbound = new ScopedMatcher();
   ScopedMatcher outbound = new ScopedMatcher();
   Map<String,UrlRewriteFunctionProcessor> functions = new HashMap<>();
+  UrlRewriteCache cache;
 
   public UrlRewriteProcessor() {
   }
@@ -59,6 +65,7 @@ public class UrlRewriteProcessor implements UrlRewriter {
     this.descriptor = descriptor;
     initializeFunctions( descriptor );
     initializeRules( descriptor );
+    initializeCache();
   }
 
   public UrlRewriteRulesDescriptor getConfig() {
@@ -106,7 +113,25 @@ public class UrlRewriteProcessor implements UrlRewriter {
     }
   }
 
+  private void initializeCache() {
+    GatewayConfig config = environment.getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE );
+    if( config != null && config.getUrlRewriteCacheSize() > 0 ) {
+      cache = new UrlRewriteCache( config.getUrlRewriteCacheSize() );
+      if( config.isMetricsEnabled() ) {
+        GatewayServices services = environment.getAttribute( GatewayServices.GATEWAY_SERVICES_ATTRIBUTE );
+        MetricsService metrics = services == null ? null : services.<MetricsService>getService( GatewayServices.METRICS_SERVICE );
+        if( metrics != null ) {
+          String topology = environment.getAttribute( GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE );
+          cache.registerMetrics( metrics, MetricRegistry.name( UrlRewriteCache.class, topology ) );
+        }
+      }
+    }
+  }
+
   public void destroy() {
+    if( cache != null ) {
+      cache.unregisterMetrics();
+    }
     for( UrlRewriteStepProcessorHolder rule : rules.values() ) {
       try {
         rule.destroy();
@@ -125,7 +150,6 @@ public class UrlRewriteProcessor implements UrlRewriter {
 
   @Override
   public Template rewrite( Resolver resolver, Template inputUri, Direction direction, String ruleName ) {
-    Template outputUri = inputUri;
     String serviceRole = null;
     if (resolver != null) {
       List<String> serviceRoles = resolver.resolve("service.role");
@@ -133,7 +157,25 @@ public class UrlRewriteProcessor implements UrlRewriter {
         serviceRole = serviceRoles.get(0);
       }
     }
-    UrlRewriteStepProcessorHolder stepHolder = null;
+    // Only outbound rewrites are cached, inbound URLs carry client query strings that rarely repeat.
+    if( cache == null || direction != OUT || resolver == null ) {
+      return rewrite( resolver, serviceRole, inputUri, direction, ruleName, null );
+    }
+    UrlRewriteCache.Key key = new UrlRewriteCache.Key( ruleName, serviceRole, inputUri );
+    Template outputUri = cache.get( key, resolver, inputUri );
+    if( outputUri == null ) {
+      UrlRewriteCache.Recorder recorder = new UrlRewriteCache.Recorder( resolver );
+      outputUri = rewrite( recorder, serviceRole, inputUri, direction, ruleName, recorder );
+      cache.put( key, recorder, inputUri, outputUri );
+    }
+    return outputUri;
+  }
+
+  private Template rewrite( Resolver resolver, String serviceRole, Template inputUri, Direction direction,
+      String ruleName, UrlRewriteCache.Recorder recorder ) {
+    Template outputUri = inputUri;
+    UrlRewriteRuleProcessorHolder stepHolder = null;
+    Params matchParams = null;
     String effectiveRuleName = null;
     if( ruleName == null || "*".equals( ruleName ) ) {
       ruleName = null; // Used for logging later.
@@ -148,6 +190,8 @@ public class UrlRewriteProcessor implements UrlRewriter {
       }
       if( match != null ) {
         stepHolder = match.getValue();
+        // The rule was selected by matching its template so don't match it again when processing the rule.
+        matchParams = match.getParams();
         effectiveRuleName = match.getValue().getRuleName();
       }
     } else if( !ruleName.isEmpty() ) {
@@ -155,11 +199,15 @@ public class UrlRewriteProcessor implements UrlRewriter {
       effectiveRuleName = ruleName;
     }
     if( stepHolder != null ) {
-      UrlRewriteContext context = new UrlRewriteContextImpl( environment, resolver, functions, direction, inputUri );
+      UrlRewriteContextImpl context = new UrlRewriteContextImpl( environment, resolver, functions, direction, inputUri );
       try {
-        UrlRewriteStepStatus stepStatus = stepHolder.process( context );
+        UrlRewriteStepStatus stepStatus = stepHolder.process( context, matchParams );
         if( UrlRewriteStepStatus.SUCCESS == stepStatus ) {
           outputUri = context.getCurrentUrl();
+          if( recorder != null ) {
+            recorder.setCacheable(
+                stepHolder.isCacheable() && UrlRewriteCache.isCacheableFunctions( context.getEvaluatedFunctions() ) );
+          }
           if( ruleName == null ) {
             LOG.rewroteUrlViaImplicitRule( inputUri, direction, effectiveRuleName, outputUri );
           } else {
@@ -175,6 +223,9 @@ public class UrlRewriteProcessor implements UrlRewriter {
       }
     } else {
       LOG.noRuleMatchingUrl( inputUri, direction );
+      if( recorder != null ) {
+        recorder.setCacheable( true );
+      }
     }
     return outputUri;
   }
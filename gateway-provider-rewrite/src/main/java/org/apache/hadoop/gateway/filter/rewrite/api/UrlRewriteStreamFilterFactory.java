@@ -58,6 +58,18 @@ public abstract class UrlRewriteStreamFilterFactory {
     return filteredStream;
   }
 
+  /**
+   * Returns true if the stream filter selected for the type and name would not modify the content.
+   */
+  public static boolean isPassThrough(
+      MimeType type,
+      String name,
+      UrlRewriteFilterContentDescriptor config ) {
+    Map<String,UrlRewriteStreamFilter> nameMap = getNameMap( type );
+    UrlRewriteStreamFilter filter = getFilter( nameMap, name );
+    return filter == null || filter.isPassThrough( config );
+  }
+
   private static Map<String,Map<String,UrlRewriteStreamFilter>> loadFactories() {
     Map<String,Map<String,UrlRewriteStreamFilter>> typeMap = new HashMap<>();
     ServiceLoader<UrlRewriteStreamFilter> filters = ServiceLoader.load( UrlRewriteStreamFilter.class );
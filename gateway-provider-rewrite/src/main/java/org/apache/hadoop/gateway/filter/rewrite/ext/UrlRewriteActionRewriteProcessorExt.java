@@ -21,15 +21,15 @@ import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteEnvironment;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteStepProcessor;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteStepStatus;
-import org.apache.hadoop.gateway.util.urltemplate.Expander;
+import org.apache.hadoop.gateway.util.urltemplate.ExpansionPlan;
 import org.apache.hadoop.gateway.util.urltemplate.Parser;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
 public class UrlRewriteActionRewriteProcessorExt
     implements UrlRewriteStepProcessor<UrlRewriteActionRewriteDescriptorExt> {
 
-  private Template template;
-  private Expander expander;
+  // The template is compiled once so that each rewrite is a single pass over the precomputed parts.
+  private ExpansionPlan plan;
 
   @Override
   public String getType() {
@@ -38,17 +38,18 @@ public class UrlRewriteActionRewriteProcessorExt
 
   @Override
   public void initialize( UrlRewriteEnvironment environment, UrlRewriteActionRewriteDescriptorExt descriptor ) throws Exception {
-    this.expander = new Expander();
+    Template template;
     if ( descriptor.parameter() != null ) {
-      this.template = Parser.parseTemplate( descriptor.parameter() );
+      template = Parser.parseTemplate( descriptor.parameter() );
     } else {
-      this.template = Parser.parseTemplate( "" );
+      template = Parser.parseTemplate( "" );
     }
+    this.plan = ExpansionPlan.compile( template );
   }
 
   @Override
   public UrlRewriteStepStatus process( UrlRewriteContext context ) throws Exception {
-    Template rewritten = expander.expandToTemplate( template, context.getParameters(), context.getEvaluator() );
+    Template rewritten = plan.expandToTemplate( context.getParameters(), context.getEvaluator() );
     context.setCurrentUrl( rewritten );
     return UrlRewriteStepStatus.SUCCESS;
   }
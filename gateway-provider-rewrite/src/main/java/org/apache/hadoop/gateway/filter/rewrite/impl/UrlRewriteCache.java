@@ -0,0 +1,250 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.filter.rewrite.impl;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.hadoop.gateway.filter.rewrite.api.FrontendFunctionDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.impl.html.HtmlImportFunctionDescriptor;
+import org.apache.hadoop.gateway.services.metrics.MetricsService;
+import org.apache.hadoop.gateway.util.BoundedCache;
+import org.apache.hadoop.gateway.util.urltemplate.Resolver;
+import org.apache.hadoop.gateway.util.urltemplate.Template;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A size bounded cache of the URL rewrite results of a topology keyed by rule, service role and input URL.
+ * The values a rewrite looks up through the request resolver (e.g. gateway.url or request.*) are recorded
+ * with the result and compared with those of the current request on every lookup, so a result is only reused
+ * for requests that resolve them identically. Rewrites that use steps or functions with other inputs, such as
+ * the current user or the active HA URL, are never cached. Entries are evicted in insertion order.
+ */
+public class UrlRewriteCache {
+
+  private static final Set<String> CACHEABLE_STEPS = new HashSet<>( Arrays.asList(
+      "rule", "match", "check", "control", "rewrite" ) );
+
+  // The hostmap function lives in its own module, its mappings are fixed for the life of a topology.
+  private static final Set<String> CACHEABLE_FUNCTIONS = new HashSet<>( Arrays.asList(
+      FrontendFunctionDescriptor.FUNCTION_NAME, HtmlImportFunctionDescriptor.FUNCTION_NAME, "hostmap" ) );
+
+  private final BoundedCache<Key,Entry> entries;
+  private final Counter hits = new Counter();
+  private final Counter misses = new Counter();
+  private final Counter evictions = new Counter();
+  private MetricsService metricsService;
+  private String metricsPrefix;
+
+  public UrlRewriteCache( int maxEntries ) {
+    this.entries = new BoundedCache<>( maxEntries );
+  }
+
+  public static boolean isCacheableStep( String type ) {
+    return type != null && CACHEABLE_STEPS.contains( type );
+  }
+
+  public static boolean isCacheableFunctions( List<String> functions ) {
+    for( String function : functions ) {
+      if( !CACHEABLE_FUNCTIONS.contains( function ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the cached output for the input, or null if there is none that is valid for the request.
+   * @param key the cache key built from the rewrite arguments
+   * @param resolver the request resolver
+   * @param input the URL being rewritten, returned when it was cached as not matching any rule
+   * @return the cached output or null
+   */
+  public Template get( Key key, Resolver resolver, Template input ) {
+    Entry entry = entries.get( key );
+    if( entry != null && entry.isValid( resolver ) ) {
+      hits.inc();
+      return entry.output == null ? input : entry.output;
+    }
+    misses.inc();
+    return null;
+  }
+
+  public void put( Key key, Recorder recorder, Template input, Template output ) {
+    if( !recorder.isCacheable() || output == null ) {
+      return;
+    }
+    Entry entry = new Entry( output == input ? null : output, recorder.getDependencies() );
+    evictions.inc( entries.put( key, entry ) );
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hits.getCount();
+  }
+
+  public long getMissCount() {
+    return misses.getCount();
+  }
+
+  public long getEvictionCount() {
+    return evictions.getCount();
+  }
+
+  public void registerMetrics( MetricsService metricsService, String prefix ) {
+    this.metricsService = metricsService;
+    this.metricsPrefix = prefix;
+    metricsService.register( MetricRegistry.name( prefix, "hits" ), hits );
+    metricsService.register( MetricRegistry.name( prefix, "misses" ), misses );
+    metricsService.register( MetricRegistry.name( prefix, "evictions" ), evictions );
+  }
+
+  public void unregisterMetrics() {
+    if( metricsService != null ) {
+      metricsService.remove( MetricRegistry.name( metricsPrefix, "hits" ), hits );
+      metricsService.remove( MetricRegistry.name( metricsPrefix, "misses" ), misses );
+      metricsService.remove( MetricRegistry.name( metricsPrefix, "evictions" ), evictions );
+      metricsService = null;
+    }
+  }
+
+  public static class Key {
+
+    private final String ruleName;
+    private final String serviceRole;
+    private final String input;
+    private final int hash;
+
+    public Key( String ruleName, String serviceRole, Template input ) {
+      this.ruleName = ruleName;
+      this.serviceRole = serviceRole;
+      this.input = input.toString();
+      int h = this.input.hashCode();
+      h = 31 * h + ( ruleName == null ? 0 : ruleName.hashCode() );
+      h = 31 * h + ( serviceRole == null ? 0 : serviceRole.hashCode() );
+      this.hash = h;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals( Object object ) {
+      if( this == object ) {
+        return true;
+      }
+      if( !( object instanceof Key ) ) {
+        return false;
+      }
+      Key that = (Key)object;
+      return hash == that.hash
+          && input.equals( that.input )
+          && equal( ruleName, that.ruleName )
+          && equal( serviceRole, that.serviceRole );
+    }
+
+  }
+
+  /**
+   * Wraps the request resolver while a rewrite is processed to record the values the result depends on.
+   */
+  public static class Recorder implements Resolver {
+
+    private final Resolver resolver;
+    private Map<String,List<String>> dependencies;
+    private boolean cacheable;
+    private boolean failed;
+
+    public Recorder( Resolver resolver ) {
+      this.resolver = resolver;
+    }
+
+    @Override
+    public List<String> resolve( String name ) {
+      List<String> values;
+      try {
+        values = resolver.resolve( name );
+      } catch( RuntimeException e ) {
+        failed = true;
+        throw e;
+      }
+      if( dependencies == null ) {
+        dependencies = new HashMap<>( 4 );
+      }
+      dependencies.put( name, values );
+      return values;
+    }
+
+    public void setCacheable( boolean cacheable ) {
+      this.cacheable = cacheable;
+    }
+
+    boolean isCacheable() {
+      return cacheable && !failed;
+    }
+
+    Map<String,List<String>> getDependencies() {
+      if( dependencies == null ) {
+        return Collections.emptyMap();
+      }
+      return dependencies;
+    }
+
+  }
+
+  private static class Entry {
+
+    private final Template output;
+    private final Map<String,List<String>> dependencies;
+
+    private Entry( Template output, Map<String,List<String>> dependencies ) {
+      this.output = output;
+      this.dependencies = dependencies;
+    }
+
+    private boolean isValid( Resolver resolver ) {
+      for( Map.Entry<String,List<String>> dependency : dependencies.entrySet() ) {
+        try {
+          if( !equal( resolver.resolve( dependency.getKey() ), dependency.getValue() ) ) {
+            return false;
+          }
+        } catch( RuntimeException e ) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+  private static boolean equal( Object a, Object b ) {
+    return a == null ? b == null : a.equals( b );
+  }
+
+}
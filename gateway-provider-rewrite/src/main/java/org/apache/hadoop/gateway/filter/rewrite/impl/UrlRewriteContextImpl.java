@@ -28,6 +28,8 @@ import org.apache.hadoop.gateway.util.urltemplate.Params;
 import org.apache.hadoop.gateway.util.urltemplate.Resolver;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +47,7 @@ public class UrlRewriteContextImpl implements UrlRewriteContext {
   private UrlRewriter.Direction direction;
   private Template originalUrl;
   private Template currentUrl;
+  private List<String> evaluatedFunctions;
 
   public UrlRewriteContextImpl(
       UrlRewriteEnvironment environment,
@@ -97,6 +100,14 @@ public class UrlRewriteContextImpl implements UrlRewriteContext {
     return evaluator;
   }
 
+  // The names of the functions evaluated so far, used to decide whether the result may be cached.
+  public List<String> getEvaluatedFunctions() {
+    if( evaluatedFunctions == null ) {
+      return Collections.emptyList();
+    }
+    return evaluatedFunctions;
+  }
+
   private class ContextParameters implements Params {
 
     Map<String,List<String>> map = new HashMap<>();
@@ -138,6 +149,10 @@ public class UrlRewriteContextImpl implements UrlRewriteContext {
       List<String> results = null;
       UrlRewriteFunctionProcessor processor = functions.get( function );
       if( processor != null ) {
+        if( evaluatedFunctions == null ) {
+          evaluatedFunctions = new ArrayList<>( 2 );
+        }
+        evaluatedFunctions.add( function );
         try {
           results = processor.resolve( UrlRewriteContextImpl.this, parameters );
         } catch( Exception e ) {
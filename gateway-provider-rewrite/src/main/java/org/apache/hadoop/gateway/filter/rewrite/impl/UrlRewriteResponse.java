@@ -69,9 +69,11 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
   // Testing with 16K made no appreciable difference.
   private static final int STREAM_BUFFER_SIZE = 8 * 1024;
 
+  private static final String CONTENT_LENGTH = "Content-Length";
+
   private static final Set<String> IGNORE_HEADER_NAMES = new HashSet<>();
   static {
-    IGNORE_HEADER_NAMES.add( "Content-Length" );
+    IGNORE_HEADER_NAMES.add( CONTENT_LENGTH );
   }
 
   private static final String REQUEST_PARAM_PREFIX = "request.";
@@ -91,6 +93,7 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
   private String xForwardedHostname;
   private String xForwardedPort;
   private String xForwardedScheme;
+  private String inboundContentLength;
 
   public UrlRewriteResponse( FilterConfig config, HttpServletRequest request, HttpServletResponse response )
       throws IOException {
@@ -127,6 +130,7 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
   // Ignore the Content-Length from the dispatch respond since the respond body may be rewritten.
   @Override
   public void setHeader( String name, String value ) {
+    rememberContentLength( name, value );
     if( !ignoreHeader( name) ) {
       value = rewriteValue( value, pickFirstRuleWithEqualsIgnoreCasePathMatch( headersFilterConfig, name ) );
       super.setHeader( name, value );
@@ -136,6 +140,7 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
   // Ignore the Content-Length from the dispatch respond since the respond body may be rewritten.
   @Override
   public void addHeader( String name, String value ) {
+    rememberContentLength( name, value );
     if( !ignoreHeader( name ) ) {
       String rule = pickFirstRuleWithEqualsIgnoreCasePathMatch( headersFilterConfig, name );
       value = rewriteValue( value, rule );
@@ -143,13 +148,63 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
     }
   }
 
+  // Kept in case the body is streamed unmodified, see streamResponse.
+  private void rememberContentLength( String name, String value ) {
+    if( CONTENT_LENGTH.equalsIgnoreCase( name ) ) {
+      inboundContentLength = value;
+    }
+  }
+
   @Override
   public OutputStream getRawOutputStream() throws IOException {
     return response.getOutputStream();
   }
 
+  @Override
+  public ServletOutputStream getPassThroughOutputStream() throws IOException {
+    MimeType mimeType = getMimeType();
+    UrlRewriteFilterContentDescriptor filterContentConfig =
+        getRewriteFilterConfig( rewriter.getConfig(), bodyFilterName, mimeType );
+    if ( !UrlRewriteStreamFilterFactory.isPassThrough( getBodyMimeType( mimeType, filterContentConfig ), null, filterContentConfig ) ) {
+      return null;
+    }
+    keepContentLength();
+    return response.getOutputStream();
+  }
+
+  private MimeType getBodyMimeType( MimeType mimeType, UrlRewriteFilterContentDescriptor filterContentConfig ) {
+    if (filterContentConfig != null) {
+      String asType = filterContentConfig.asType();
+      if ( asType != null && asType.trim().length() > 0 ) {
+        return MimeTypes.create(asType, getCharacterEncoding());
+      }
+    }
+    return mimeType;
+  }
+
+  // The body is unchanged so the Content-Length of the dispatch response is still valid.
+  private void keepContentLength() {
+    if ( inboundContentLength != null ) {
+      super.setHeader( CONTENT_LENGTH, inboundContentLength );
+    }
+  }
+
   @Override
   public void streamResponse( InputStream input, OutputStream output ) throws IOException {
+    MimeType mimeType = getMimeType();
+    UrlRewriteFilterContentDescriptor filterContentConfig =
+        getRewriteFilterConfig( rewriter.getConfig(), bodyFilterName, mimeType );
+    mimeType = getBodyMimeType( mimeType, filterContentConfig );
+
+    if ( UrlRewriteStreamFilterFactory.isPassThrough( mimeType, null, filterContentConfig ) ) {
+      // Nothing in the body will be rewritten so forward the original, possibly compressed, bytes.
+      keepContentLength();
+      IOUtils.copyLarge( input, output, new byte[STREAM_BUFFER_SIZE] );
+      //KNOX-685: output.flush();
+      output.close();
+      return;
+    }
+
     InputStream inStream;
     OutputStream outStream;
     boolean isGzip = false;
@@ -168,15 +223,6 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
       inStream = inBuffer;
     }
 
-    MimeType mimeType = getMimeType();
-    UrlRewriteFilterContentDescriptor filterContentConfig =
-        getRewriteFilterConfig( rewriter.getConfig(), bodyFilterName, mimeType );
-    if (filterContentConfig != null) {
-      String asType = filterContentConfig.asType();
-      if ( asType != null && asType.trim().length() > 0 ) {
-        mimeType = MimeTypes.create(asType, getCharacterEncoding());
-      }
-    }
     InputStream filteredInput = UrlRewriteStreamFilterFactory.create(
         mimeType, null, inStream, rewriter, this, UrlRewriter.Direction.OUT, filterContentConfig );
     outStream = (isGzip) ? new GZIPOutputStream(output) : output;
@@ -21,6 +21,10 @@ import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteEnvironment;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRuleDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.ext.ScopedMatcher;
+import org.apache.hadoop.gateway.filter.rewrite.ext.UrlRewriteActionRewriteProcessorExt;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteStepStatus;
+import org.apache.hadoop.gateway.util.urltemplate.Params;
 
 import java.util.List;
 
@@ -30,6 +34,9 @@ public class UrlRewriteRuleProcessorHolder extends UrlRewriteStepProcessorHolder
 
   private String scope;
 
+  // Set when the rule is nothing but a rewrite of the matched URL, see compileRewriteStep().
+  private UrlRewriteStepProcessorHolder rewriteStep;
+
   public void initialize( UrlRewriteEnvironment environment, UrlRewriteRuleDescriptor descriptor ) throws Exception {
     super.initialize( environment, descriptor );
     ruleName = descriptor.name();
@@ -53,6 +60,42 @@ public class UrlRewriteRuleProcessorHolder extends UrlRewriteStepProcessorHolder
         }
       }
     }
+    rewriteStep = compileRewriteStep();
+  }
+
+  // Most rules consist of a single rewrite action.  Whatever the flow, such a rule's only effect once its
+  // template has matched is to expand the rewrite template, so the flow doesn't need to be interpreted.
+  private UrlRewriteStepProcessorHolder compileRewriteStep() {
+    List<UrlRewriteStepProcessorHolder> steps = getChildProcessors();
+    if( steps.size() == 1 ) {
+      UrlRewriteStepProcessorHolder step = steps.get( 0 );
+      if( step.isAction() && step.getProcessor() instanceof UrlRewriteActionRewriteProcessorExt ) {
+        return step;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Processes the rule for a URL that has already been matched against the rule's template, for example
+   * by the rule selection in UrlRewriteProcessor.  The parameters of that match are used directly instead
+   * of matching the URL against the template a second time.  A rule that only rewrites the URL then
+   * expands its precompiled rewrite template directly.
+   */
+  public UrlRewriteStepStatus process( UrlRewriteContext context, Params matchParams ) throws Exception {
+    if( matchParams == null || getProcessor() == null ) {
+      return process( context );
+    }
+    context.addParameters( matchParams );
+    if( rewriteStep != null ) {
+      return rewriteStep.process( context );
+    }
+    return processChildren( context );
+  }
+
+  // For unit testing.
+  boolean isCompiledRewrite() {
+    return rewriteStep != null;
   }
 
   public String getRuleName() {
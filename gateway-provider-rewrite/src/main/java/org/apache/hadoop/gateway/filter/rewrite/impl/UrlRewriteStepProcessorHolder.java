@@ -36,6 +36,7 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
   private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
 
   private boolean isCondition;
+  private boolean isCacheable;
   private UrlRewriteStepDescriptor descriptor;
   private UrlRewriteStepProcessor processor;
   private List<UrlRewriteStepProcessorHolder> childProcessors;
@@ -53,6 +54,11 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
     return !isCondition;
   }
 
+  // True if this step and all of its children produce results that can be cached by UrlRewriteCache.
+  public boolean isCacheable() {
+    return isCacheable;
+  }
+
   @Override
   @SuppressWarnings( "unchecked" )
   public void initialize( UrlRewriteEnvironment environment, UrlRewriteStepDescriptor descriptor ) throws Exception {
@@ -67,6 +73,7 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
     this.descriptor = descriptor;
     this.processor = processor;
     this.isCondition = descriptor instanceof UrlRewriteFlowDescriptor;
+    this.isCacheable = processor != null && UrlRewriteCache.isCacheableStep( processor.getType() );
     this.childProcessors = new ArrayList<UrlRewriteStepProcessorHolder>();
     if( isCondition ) {
       UrlRewriteFlowDescriptor flowDescriptor = (UrlRewriteFlowDescriptor)descriptor;
@@ -78,6 +85,7 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
           UrlRewriteStepProcessorHolder stepProcessor = new UrlRewriteStepProcessorHolder();
           stepProcessor.initialize( environment, stepDescriptor );
           childProcessors.add( stepProcessor );
+          isCacheable = isCacheable && stepProcessor.isCacheable();
         }
       }
     }
@@ -93,33 +101,43 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
     return processor;
   }
 
+  List<UrlRewriteStepProcessorHolder> getChildProcessors() {
+    return childProcessors;
+  }
+
   @Override
   public UrlRewriteStepStatus process( UrlRewriteContext context ) throws Exception {
     UrlRewriteStepStatus status = UrlRewriteStepStatus.SUCCESS;
     // If initialization failed then fail processing
     if( processor != null ) {
       status = processor.process( context );
-      if( UrlRewriteStepStatus.SUCCESS == status &&
-          descriptor instanceof UrlRewriteFlowDescriptor &&
-          !childProcessors.isEmpty() ) {
-        UrlRewriteFlowDescriptor flowDescriptor = (UrlRewriteFlowDescriptor)descriptor;
-        UrlRewriteStepFlow flow = flowDescriptor.flow();
-        if( flow == null ) {
-          flow = UrlRewriteStepFlow.AND;
-        }
-        switch( flow ) {
-          case ALL:
-            return processAllFlow( context );
-          case AND:
-            return processAndFlow( context );
-          case OR:
-            return processOrFlow( context );
-        }
+      if( UrlRewriteStepStatus.SUCCESS == status ) {
+        status = processChildren( context );
       }
     }
     return status;
   }
 
+  // Processes the child steps according to the flow once this step's own processor has succeeded.
+  UrlRewriteStepStatus processChildren( UrlRewriteContext context ) throws Exception {
+    if( descriptor instanceof UrlRewriteFlowDescriptor && !childProcessors.isEmpty() ) {
+      UrlRewriteFlowDescriptor flowDescriptor = (UrlRewriteFlowDescriptor)descriptor;
+      UrlRewriteStepFlow flow = flowDescriptor.flow();
+      if( flow == null ) {
+        flow = UrlRewriteStepFlow.AND;
+      }
+      switch( flow ) {
+        case ALL:
+          return processAllFlow( context );
+        case AND:
+          return processAndFlow( context );
+        case OR:
+          return processOrFlow( context );
+      }
+    }
+    return UrlRewriteStepStatus.SUCCESS;
+  }
+
   private UrlRewriteStepStatus processAllFlow( UrlRewriteContext context ) throws Exception {
     UrlRewriteStepProcessorState state = new UrlRewriteStepProcessorState( childProcessors.iterator() );
     UrlRewriteStepStatus stepStatus = UrlRewriteStepStatus.SUCCESS;
@@ -61,4 +61,9 @@ public class JavaScriptUrlRewriteStreamFilter implements UrlRewriteStreamFilter
       return stream;
     }
   }
+
+  @Override
+  public boolean isPassThrough( UrlRewriteFilterContentDescriptor config ) {
+    return config == null;
+  }
 }
@@ -38,7 +38,7 @@ import org.apache.hadoop.gateway.util.JsonPath;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringWriter;
+import java.io.Writer;
 import java.util.List;
 import java.util.Stack;
 import java.util.regex.Pattern;
@@ -56,9 +56,7 @@ class JsonFilterReader extends Reader {
   private ObjectMapper mapper;
 
   private Reader reader;
-  private int offset;
-  private StringWriter writer;
-  private StringBuffer buffer;
+  private OutputBuffer buffer;
   private Stack<Level> stack;
   private Level bufferingLevel;
   private UrlRewriteFilterBufferDescriptor bufferingConfig;
@@ -70,10 +68,8 @@ class JsonFilterReader extends Reader {
     factory = new JsonFactory();
     mapper = new ObjectMapper();
     parser = factory.createParser( reader );
-    writer = new StringWriter();
-    buffer = writer.getBuffer();
-    offset = 0;
-    generator = factory.createGenerator( writer );
+    buffer = new OutputBuffer();
+    generator = factory.createGenerator( buffer );
     stack = new Stack<Level>();
     bufferingLevel = null;
     bufferingConfig = null;
@@ -83,26 +79,23 @@ class JsonFilterReader extends Reader {
   @Override
   public int read( char[] destBuffer, int destOffset, int destCount ) throws IOException {
     int count = 0;
-    int available = buffer.length() - offset;
+    int available = buffer.available();
 
-    if( available == 0 ) {
+    // Only pull the next token once the output of the previous one has been drained.
+    // This keeps the output buffer bounded by the size of a single token or buffered subtree.
+    while( available == 0 ) {
       JsonToken token = parser.nextToken();
       if( token == null ) {
         count = -1;
+        break;
       } else {
         processCurrentToken();
-        available = buffer.length() - offset;
+        available = buffer.available();
       }
     }
 
     if( available > 0 ) {
-      count = Math.min( destCount, available );
-      buffer.getChars( offset, offset+count, destBuffer, destOffset );
-      offset += count;
-      if( offset == buffer.length() ) {
-        offset = 0;
-        buffer.setLength( 0 );
-      }
+      count = buffer.read( destBuffer, destOffset, destCount );
     }
 
     return count;
@@ -147,14 +140,17 @@ class JsonFilterReader extends Reader {
   }
 
   private Level pushLevel( String field, JsonNode node, JsonNode scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
+    boolean applyOnly = false;
     if( !stack.isEmpty() ) {
       Level top = stack.peek();
       if( scopeNode == null ) {
         scopeNode = top.scopeNode;
         scopeConfig = top.scopeConfig;
+        applyOnly = top.applyOnly;
       }
     }
     Level level = new Level( field, node, scopeNode, scopeConfig );
+    level.applyOnly = applyOnly;
     stack.push( level );
     return level;
   }
@@ -483,9 +479,18 @@ class JsonFilterReader extends Reader {
         List<JsonPath.Match> matches = path.evaluate( node.scopeNode );
         if( matches != null && !matches.isEmpty() ) {
           if( selector instanceof UrlRewriteFilterBufferDescriptor ) {
-            bufferingLevel = node;
-            bufferingConfig = (UrlRewriteFilterBufferDescriptor)selector;
-            buffered = true;
+            UrlRewriteFilterBufferDescriptor buffer = (UrlRewriteFilterBufferDescriptor)selector;
+            if( isStreamable( buffer ) ) {
+              // Stream the subtree instead of buffering it.  The level becomes a new scope so the
+              // apply paths are evaluated relative to it, and only the current path is retained.
+              node.scopeNode = node.node;
+              node.scopeConfig = buffer;
+              node.applyOnly = true;
+            } else {
+              bufferingLevel = node;
+              bufferingConfig = buffer;
+              buffered = true;
+            }
           }
           break;
         }
@@ -494,7 +499,32 @@ class JsonFilterReader extends Reader {
     return buffered;
   }
 
+  // A buffer needs to hold its subtree when a detect selector must see sibling values before
+  // deciding what to rewrite.  It also does when an apply path selects array elements by index,
+  // because streaming only retains the current element and the index would no longer line up.
+  // Buffers whose apply paths are made of fields and wildcards only can be streamed.
+  private static boolean isStreamable( UrlRewriteFilterBufferDescriptor buffer ) {
+    for( UrlRewriteFilterPathDescriptor selector : buffer.getSelectors() ) {
+      if( !( selector instanceof UrlRewriteFilterApplyDescriptor ) ) {
+        return false;
+      }
+      JsonPath.Segment[] segments = ((JsonPath.Expression)selector.compiledPath( JPATH_COMPILER )).getSegments();
+      if( segments == null ) {
+        return false;
+      }
+      for( JsonPath.Segment segment : segments ) {
+        if( segment.getType() == JsonPath.Segment.Type.INDEX ) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
   protected String filterStreamValue( Level node ) {
+    if( node.applyOnly ) {
+      return filterAppliedValue( node );
+    }
     String value;
     if( node.isArray() ) {
       value = node.node.get( 0 ).asText();
@@ -533,6 +563,30 @@ class JsonFilterReader extends Reader {
     return value;
   }
 
+  // Streaming equivalent of filterBufferedNode for apply only buffers.  Values not targeted by
+  // any of the apply selectors are written unchanged, just as they would be when buffered.
+  private String filterAppliedValue( Level node ) {
+    String value;
+    if( node.isArray() ) {
+      value = node.node.get( 0 ).asText();
+    } else {
+      value = node.node.get( node.field ).asText();
+    }
+    for( UrlRewriteFilterPathDescriptor selector : node.scopeConfig.getSelectors() ) {
+      JsonPath.Expression path = (JsonPath.Expression)selector.compiledPath( JPATH_COMPILER );
+      List<JsonPath.Match> matches = path.evaluate( node.scopeNode );
+      if( matches != null && !matches.isEmpty() && matches.get( 0 ).getNode().isTextual() ) {
+        UrlRewriteFilterApplyDescriptor apply = (UrlRewriteFilterApplyDescriptor)selector;
+        try {
+          value = filterValueString( node.field, value, apply.rule() );
+        } catch( Exception e ) {
+          LOG.failedToFilterValue( value, apply.rule(), e );
+        }
+      }
+    }
+    return value;
+  }
+
   private void filterBufferedNode( Level node ) {
     for( UrlRewriteFilterPathDescriptor selector : bufferingConfig.getSelectors() ) {
       JsonPath.Expression path = (JsonPath.Expression)selector.compiledPath( JPATH_COMPILER );
@@ -596,7 +650,7 @@ class JsonFilterReader extends Reader {
   @Override
   public void close() throws IOException {
     generator.close();
-    writer.close();
+    buffer.close();
     parser.close();
     reader.close();
   }
@@ -606,6 +660,7 @@ class JsonFilterReader extends Reader {
     JsonNode node;
     JsonNode scopeNode;
     UrlRewriteFilterGroupDescriptor scopeConfig;
+    boolean applyOnly;
     private Level( String field, JsonNode node, JsonNode scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
       this.field = field;
       this.node = node;
@@ -617,6 +672,80 @@ class JsonFilterReader extends Reader {
     }
   }
 
+  // Reusable character buffer between the generator and the reader.  It is drained as it is
+  // read so it only needs to hold the output of the current token or of a buffered subtree.
+  private static class OutputBuffer extends Writer {
+
+    private static final int INITIAL_SIZE = 1024;
+    private static final int RETAINED_SIZE = 16 * 1024;
+
+    private char[] chars = new char[ INITIAL_SIZE ];
+    private int head = 0;
+    private int tail = 0;
+
+    int available() {
+      return tail - head;
+    }
+
+    int read( char[] dest, int destOffset, int destCount ) {
+      int count = Math.min( destCount, tail - head );
+      System.arraycopy( chars, head, dest, destOffset, count );
+      head += count;
+      if( head == tail ) {
+        head = 0;
+        tail = 0;
+        // Don't hang on to the space used by a large buffered subtree.
+        if( chars.length > RETAINED_SIZE ) {
+          chars = new char[ INITIAL_SIZE ];
+        }
+      }
+      return count;
+    }
+
+    @Override
+    public void write( char[] src, int srcOffset, int srcCount ) {
+      ensureCapacity( srcCount );
+      System.arraycopy( src, srcOffset, chars, tail, srcCount );
+      tail += srcCount;
+    }
+
+    @Override
+    public void write( String src, int srcOffset, int srcCount ) {
+      ensureCapacity( srcCount );
+      src.getChars( srcOffset, srcOffset + srcCount, chars, tail );
+      tail += srcCount;
+    }
+
+    @Override
+    public void write( int c ) {
+      ensureCapacity( 1 );
+      chars[ tail++ ] = (char)c;
+    }
+
+    private void ensureCapacity( int count ) {
+      if( tail + count > chars.length ) {
+        int size = tail - head;
+        char[] target = chars;
+        if( size + count > chars.length ) {
+          target = new char[ Math.max( chars.length * 2, size + count ) ];
+        }
+        System.arraycopy( chars, head, target, 0, size );
+        chars = target;
+        head = 0;
+        tail = size;
+      }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+  }
+
   private static class JsonPathCompiler implements UrlRewriteFilterPathDescriptor.Compiler<JsonPath.Expression> {
     @Override
     public JsonPath.Expression compile( String expression, JsonPath.Expression compiled ) {
@@ -52,4 +52,9 @@ public class NoOpUrlRewriteStreamFilter implements UrlRewriteStreamFilter {
     return stream;
   }
 
+  @Override
+  public boolean isPassThrough( UrlRewriteFilterContentDescriptor config ) {
+    return true;
+  }
+
 }
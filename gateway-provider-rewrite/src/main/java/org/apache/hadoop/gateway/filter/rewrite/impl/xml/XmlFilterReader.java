@@ -86,6 +86,7 @@ public abstract class XmlFilterReader extends Reader {
   private Document document;
   private Stack<Level> stack;
   private boolean isEmptyElement;
+  private boolean streaming;
 
   protected XmlFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException, XMLStreamException {
     this.reader = reader;
@@ -96,6 +97,7 @@ public abstract class XmlFilterReader extends Reader {
     document = null;
     stack = new Stack<Level>();
     isEmptyElement = false;
+    streaming = isStreamable( config );
     factory = XMLInputFactory.newFactory();
     //KNOX-620 factory.setProperty( XMLConstants.ACCESS_EXTERNAL_DTD, "false" );
     //KNOX-620 factory.setProperty( XMLConstants.ACCESS_EXTERNAL_SCHEMA, "false" );
@@ -188,7 +190,12 @@ public abstract class XmlFilterReader extends Reader {
     String s;
 
     document = XmlUtils.createDocument( false );
-    pushLevel( null, event, document, document, config );
+    if( streaming ) {
+      // The document is only used to hold buffered elements.
+      pushLevel( null, event, null, null, config );
+    } else {
+      pushLevel( null, event, document, document, config );
+    }
 
     writer.write( "<?xml" );
 
@@ -221,6 +228,10 @@ public abstract class XmlFilterReader extends Reader {
 
   private void processStartElement( StartElement event ) throws XPathExpressionException {
     //System.out.println( "SE=" + event );
+    if( streaming ) {
+      processStreamingStartElement( event );
+      return;
+    }
 
     // Create a new "empty" element and add it to the document.
     Element element = bufferElement( event );
@@ -260,6 +271,38 @@ public abstract class XmlFilterReader extends Reader {
     }
   }
 
+  // Same as processStartElement but only the element stack is tracked while streaming.
+  // DOM elements are only created for the content of buffer descriptors.
+  private void processStreamingStartElement( StartElement event ) throws XPathExpressionException {
+    Level parent = stack.peek();
+    if( parent.buffered ) {
+      Element element = bufferElement( event );
+      parent.node.appendChild( element );
+      pushLevel( parent, event, element, parent.scopeNode, parent.scopeConfig );
+      bufferAttributes( event, element );
+    } else {
+      Level level = pushLevel( parent, event, null, null, parent.scopeConfig );
+      UrlRewriteFilterPathDescriptor descriptor = pickFirstMatchingPath( level );
+      if( descriptor instanceof UrlRewriteFilterBufferDescriptor ) {
+        // The buffered element becomes the root of the otherwise empty document.
+        Element element = bufferElement( event );
+        document.appendChild( element );
+        level.node = element;
+        level.scopeNode = element;
+        level.scopeConfig = (UrlRewriteFilterBufferDescriptor)descriptor;
+        level.scopeDepth = stack.size() - 1;
+        level.buffered = true;
+        bufferAttributes( event, element );
+      } else {
+        if( descriptor instanceof UrlRewriteFilterScopeDescriptor ) {
+          level.scopeConfig = (UrlRewriteFilterScopeDescriptor)descriptor;
+          level.scopeDepth = stack.size() - 1;
+        }
+        streamElement( event, null );
+      }
+    }
+  }
+
   private void processEndElement( EndElement event ) throws XPathExpressionException, IOException {
     //System.out.println( "EE=" + event );
     boolean buffering = currentlyBuffering();
@@ -267,6 +310,9 @@ public abstract class XmlFilterReader extends Reader {
     if( buffering ) {
       if( child.node == child.scopeNode ) {
         processBufferedElement( child );
+        if( streaming ) {
+          document.removeChild( child.node );
+        }
       }
     } else {
       if( ! isEmptyElement ) {
@@ -280,7 +326,9 @@ public abstract class XmlFilterReader extends Reader {
         writer.write( n.getLocalPart() );
         writer.write( ">" );
       }
-      child.node.getParentNode().removeChild( child.node );
+      if( child.node != null ) {
+        child.node.getParentNode().removeChild( child.node );
+      }
     }
   }
 
@@ -459,32 +507,33 @@ public abstract class XmlFilterReader extends Reader {
   }
 
   private void streamAttribute( Element element, Attribute attribute ) throws XPathExpressionException {
-    Attr node;
+    Attr node = null;
     QName name = attribute.getName();
     String prefix = name.getPrefix();
     String uri = name.getNamespaceURI();
-    if( uri == null || uri.isEmpty() ) {
-      node = document.createAttribute( name.getLocalPart() );
-      element.setAttributeNode( node );
-    } else {
-      node = document.createAttributeNS( uri, name.getLocalPart() );
-      if( prefix != null && !prefix.isEmpty() ) {
-        node.setPrefix( prefix );
+    // The attribute only needs to be added to the DOM when the paths are evaluated with XPath.
+    if( element != null ) {
+      if( uri == null || uri.isEmpty() ) {
+        node = document.createAttribute( name.getLocalPart() );
+        element.setAttributeNode( node );
+      } else {
+        node = document.createAttributeNS( uri, name.getLocalPart() );
+        if( prefix != null && !prefix.isEmpty() ) {
+          node.setPrefix( prefix );
+        }
+        element.setAttributeNodeNS( node );
       }
-      element.setAttributeNodeNS( node );
     }
 
     String value = attribute.getValue();
     Level level = stack.peek();
     if( ( level.scopeConfig ) == null || ( level.scopeConfig.getSelectors().isEmpty() ) ) {
       value = filterAttribute( null, attribute.getName(), value, null );
-      node.setValue( value );
     } else {
-      UrlRewriteFilterPathDescriptor path = pickFirstMatchingPath( level );
+      UrlRewriteFilterPathDescriptor path = pickFirstMatchingPath( level, name );
       if( path instanceof UrlRewriteFilterApplyDescriptor ) {
         String rule = ((UrlRewriteFilterApplyDescriptor)path).rule();
         value = filterAttribute( null, attribute.getName(), value, rule );
-        node.setValue( value );
       }
     }
 
@@ -502,28 +551,34 @@ public abstract class XmlFilterReader extends Reader {
     writer.write( "=\"" );
     writer.write( value );
     writer.write( "\"" );
-    element.removeAttributeNode( node );
+    if( node != null ) {
+      element.removeAttributeNode( node );
+    }
   }
 
   private void processCharacters( Characters event ) throws XPathExpressionException {
     //System.out.println( "T[" + event.isCData() + "," + event.isWhiteSpace() + "," + event.isIgnorableWhiteSpace() + "]=" + event );
     Level level = stack.peek();
     Node node = stack.peek().node;
-    if( event.isCData() ) {
-      node.appendChild( document.createCDATASection( event.getData() ) );
-    } else {
-      node.appendChild( document.createTextNode( event.getData() ) );
+    if( node != null ) {
+      if( event.isCData() ) {
+        node.appendChild( document.createCDATASection( event.getData() ) );
+      } else {
+        node.appendChild( document.createTextNode( event.getData() ) );
+      }
     }
+    level.hasText = true;
     if( !currentlyBuffering() ) {
       String value = event.getData();
       if( !event.isWhiteSpace() ) {
+        QName name = ( node != null ) ? extractQName( node ) : level.name;
         if( level.scopeConfig == null || level.scopeConfig.getSelectors().isEmpty() ) {
-          value = filterText( extractQName( node ), value, null );
+          value = filterText( name, value, null );
         } else {
           UrlRewriteFilterPathDescriptor path = pickFirstMatchingPath( level );
           if( path instanceof UrlRewriteFilterApplyDescriptor ) {
             String rule = ((UrlRewriteFilterApplyDescriptor)path).rule();
-            value = filterText( extractQName( node ), value, rule );
+            value = filterText( name, value, rule );
           }
         }
       }
@@ -561,9 +616,20 @@ public abstract class XmlFilterReader extends Reader {
   }
 
   protected UrlRewriteFilterPathDescriptor pickFirstMatchingPath( Level level ) {
+    return pickFirstMatchingPath( level, null );
+  }
+
+  private UrlRewriteFilterPathDescriptor pickFirstMatchingPath( Level level, QName attribute ) {
     UrlRewriteFilterPathDescriptor match = null;
     if( level.scopeConfig != null ) {
       for( UrlRewriteFilterPathDescriptor selector : level.scopeConfig.getSelectors() ) {
+        if( streaming ) {
+          if( matchesStreamPath( XmlStreamPath.compile( selector.path() ), level, attribute ) ) {
+            match = selector;
+            break;
+          }
+          continue;
+        }
         try {
           XPathExpression path = (XPathExpression)selector.compiledPath( XPATH_COMPILER );
           Object node = path.evaluate( level.scopeNode, XPathConstants.NODE );
@@ -579,6 +645,72 @@ public abstract class XmlFilterReader extends Reader {
     return match;
   }
 
+  // Evaluates the path against the element stack the same way XPath would against a DOM holding
+  // only the open elements, their text and the attribute currently being streamed.
+  private boolean matchesStreamPath( XmlStreamPath path, Level level, QName attribute ) {
+    int depth = stack.size() - 1;
+    int context = path.isAbsolute() ? 0 : level.scopeDepth;
+    String[] steps = path.getSteps();
+    int target = context + steps.length;
+    if( target > depth ) {
+      return false;
+    }
+    for( int i = 0; i < steps.length; i++ ) {
+      if( !XmlStreamPath.matchesName( steps[ i ], stack.get( context + i + 1 ).name ) ) {
+        return false;
+      }
+    }
+    switch( path.getTarget() ) {
+      case ATTRIBUTE:
+        return target == depth && target > 0 && XmlStreamPath.matchesName( path.getAttribute(), attribute );
+      case TEXT:
+        return target > 0 && stack.get( target ).hasText;
+      default:
+        return true;
+    }
+  }
+
+  // Streaming requires every path outside of a buffer to be in the subset supported by XmlStreamPath.
+  // Buffered elements are evaluated on their own so the paths within a buffer must be relative.
+  private static boolean isStreamable( UrlRewriteFilterGroupDescriptor group ) {
+    if( group != null ) {
+      for( UrlRewriteFilterPathDescriptor selector : group.getSelectors() ) {
+        if( XmlStreamPath.compile( selector.path() ) == null ) {
+          return false;
+        }
+        if( selector instanceof UrlRewriteFilterBufferDescriptor ) {
+          if( !isRelative( (UrlRewriteFilterBufferDescriptor)selector ) ) {
+            return false;
+          }
+        } else if( selector instanceof UrlRewriteFilterScopeDescriptor ) {
+          if( !isStreamable( (UrlRewriteFilterScopeDescriptor)selector ) ) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isRelative( UrlRewriteFilterGroupDescriptor group ) {
+    for( UrlRewriteFilterPathDescriptor selector : group.getSelectors() ) {
+      String path = selector.path();
+      if( path == null ) {
+        return false;
+      }
+      path = path.trim();
+      if( path.startsWith( "/" ) || path.contains( ".." ) || path.contains( "::" ) ) {
+        return false;
+      }
+      if( selector instanceof UrlRewriteFilterGroupDescriptor ) {
+        if( !isRelative( (UrlRewriteFilterGroupDescriptor)selector ) ) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
   private boolean currentlyBuffering() {
     return stack.peek().buffered;
   }
@@ -596,6 +728,9 @@ public abstract class XmlFilterReader extends Reader {
     private UrlRewriteFilterGroupDescriptor scopeConfig;
     private Node scopeNode;
     private boolean buffered;
+    private QName name;
+    private int scopeDepth;
+    private boolean hasText;
 
     private Level( Level parent, XMLEvent event, Node node, Node scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
 //      this.parent = parent;
@@ -603,6 +738,8 @@ public abstract class XmlFilterReader extends Reader {
       this.node = node;
       this.scopeConfig = scopeConfig;
       this.scopeNode = scopeNode;
+      this.name = event.isStartElement() ? event.asStartElement().getName() : null;
+      this.scopeDepth = ( parent != null ) ? parent.scopeDepth : 0;
       this.buffered = ( ( parent != null ) && parent.buffered ) ||
                       ( ( scopeConfig != null ) && ( scopeConfig instanceof UrlRewriteFilterBufferDescriptor ) );
     }
@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.filter.rewrite.impl.xml;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The subset of XPath location paths that can be evaluated directly against the element stack
+ * of a streaming parser.  This is a sequence of child steps with a name or wildcard test,
+ * optionally ending with an attribute or text() step.
+ * For example /apps/app, property/value/text(), /root/@url or @href.
+ * Expressions outside of this subset compile to null and must be evaluated with XPath.
+ */
+class XmlStreamPath {
+
+  enum Target { ELEMENT, ATTRIBUTE, TEXT }
+
+  private static final String WILDCARD = "*";
+  private static final String TEXT_STEP = "text()";
+
+  private static final XmlStreamPath UNSUPPORTED = new XmlStreamPath( false, new String[ 0 ], Target.ELEMENT, null );
+  private static final ConcurrentMap<String, XmlStreamPath> CACHE = new ConcurrentHashMap<String, XmlStreamPath>();
+
+  private final boolean absolute;
+  private final String[] steps;
+  private final Target target;
+  private final String attribute;
+
+  private XmlStreamPath( boolean absolute, String[] steps, Target target, String attribute ) {
+    this.absolute = absolute;
+    this.steps = steps;
+    this.target = target;
+    this.attribute = attribute;
+  }
+
+  static XmlStreamPath compile( String expression ) {
+    if( expression == null ) {
+      return null;
+    }
+    XmlStreamPath path = CACHE.get( expression );
+    if( path == null ) {
+      path = parse( expression );
+      if( path == null ) {
+        path = UNSUPPORTED;
+      }
+      CACHE.putIfAbsent( expression, path );
+    }
+    return path == UNSUPPORTED ? null : path;
+  }
+
+  private static XmlStreamPath parse( String expression ) {
+    String path = expression.trim();
+    if( path.isEmpty() ) {
+      return null;
+    }
+    boolean absolute = path.startsWith( "/" );
+    if( absolute ) {
+      path = path.substring( 1 );
+    }
+    List<String> steps = new ArrayList<String>();
+    Target target = Target.ELEMENT;
+    String attribute = null;
+    if( !path.isEmpty() ) {
+      String[] parts = path.split( "/", -1 );
+      for( int i = 0; i < parts.length; i++ ) {
+        String part = parts[ i ];
+        boolean last = ( i == parts.length - 1 );
+        if( part.startsWith( "@" ) ) {
+          attribute = part.substring( 1 );
+          if( !last || !isNameTest( attribute ) ) {
+            return null;
+          }
+          target = Target.ATTRIBUTE;
+        } else if( TEXT_STEP.equals( part ) ) {
+          if( !last ) {
+            return null;
+          }
+          target = Target.TEXT;
+        } else if( isNameTest( part ) ) {
+          steps.add( part );
+        } else {
+          return null;
+        }
+      }
+    }
+    return new XmlStreamPath( absolute, steps.toArray( new String[ steps.size() ] ), target, attribute );
+  }
+
+  // Only unprefixed names are supported since the XPath expressions are compiled without a namespace context.
+  private static boolean isNameTest( String name ) {
+    if( WILDCARD.equals( name ) ) {
+      return true;
+    }
+    if( name.isEmpty() ) {
+      return false;
+    }
+    char c = name.charAt( 0 );
+    if( !Character.isLetter( c ) && c != '_' ) {
+      return false;
+    }
+    for( int i = 1; i < name.length(); i++ ) {
+      c = name.charAt( i );
+      if( !Character.isLetterOrDigit( c ) && c != '_' && c != '-' && c != '.' ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // As in XPath 1.0 an unprefixed name test only matches names without a namespace.
+  static boolean matchesName( String test, QName name ) {
+    if( name == null ) {
+      return false;
+    } else if( WILDCARD.equals( test ) ) {
+      return true;
+    } else {
+      String uri = name.getNamespaceURI();
+      return ( uri == null || uri.isEmpty() ) && test.equals( name.getLocalPart() );
+    }
+  }
+
+  boolean isAbsolute() {
+    return absolute;
+  }
+
+  String[] getSteps() {
+    return steps;
+  }
+
+  Target getTarget() {
+    return target;
+  }
+
+  String getAttribute() {
+    return attribute;
+  }
+
+}
@@ -42,4 +42,12 @@ public interface UrlRewriteStreamFilter {
       UrlRewriteFilterContentDescriptor config )
           throws IOException;
 
+  /**
+   * Indicates that {@link #filter} would return the stream unmodified for the given config.
+   * This allows callers to forward the original bytes without decoding them.
+   */
+  default boolean isPassThrough( UrlRewriteFilterContentDescriptor config ) {
+    return false;
+  }
+
 }
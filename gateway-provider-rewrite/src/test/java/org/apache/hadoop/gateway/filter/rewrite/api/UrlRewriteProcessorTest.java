@@ -32,15 +32,20 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.util.urltemplate.Expander;
 import org.apache.hadoop.gateway.util.urltemplate.Matcher;
 import org.apache.hadoop.gateway.util.urltemplate.Parser;
+import org.apache.hadoop.gateway.util.urltemplate.Resolver;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 import org.easymock.EasyMock;
 import org.junit.Test;
@@ -249,6 +254,94 @@ public class UrlRewriteProcessorTest {
     processor.destroy();
   }
 
+  @Test
+  public void testImplicitRuleMatchesExplicitRuleOutput() throws Exception {
+    UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
+    EasyMock.replay( environment );
+
+    UrlRewriteProcessor processor = new UrlRewriteProcessor();
+    UrlRewriteRulesDescriptor config = UrlRewriteRulesDescriptorFactory.load(
+        "xml", getTestResourceReader( "rewrite.xml", "UTF-8" ) );
+    processor.initialize( environment, config );
+
+    // The implicit rewrite reuses the parameters from selecting the rule instead of matching the rule again.
+    Template inputUrl = Parser.parseLiteral( "test-scheme://test-host:1/test-input-path" );
+    Template implicitUrl = processor.rewrite( null, inputUrl, UrlRewriter.Direction.IN, null );
+    Template explicitUrl = processor.rewrite( null, inputUrl, UrlRewriter.Direction.IN, "test-rule-1" );
+    assertThat( implicitUrl, notNullValue() );
+    assertThat( implicitUrl.toString(), is( explicitUrl.toString() ) );
+
+    inputUrl = Parser.parseLiteral( "other-scheme://other-host:42/test-input-path/one/two" );
+    implicitUrl = processor.rewrite( null, inputUrl, UrlRewriter.Direction.IN, null );
+    explicitUrl = processor.rewrite( null, inputUrl, UrlRewriter.Direction.IN, "test-rule-1" );
+    assertThat( implicitUrl.toString(), is( "other-scheme://other-host:42/test-output-path" ) );
+    assertThat( implicitUrl.toString(), is( explicitUrl.toString() ) );
+
+    processor.destroy();
+  }
+
+  @Test
+  public void testOutboundRewriteCache() throws Exception {
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( gatewayConfig.getUrlRewriteCacheSize() ).andReturn( 10 ).anyTimes();
+    EasyMock.expect( gatewayConfig.getGlobalRulesServices() ).andReturn( Collections.<String>emptyList() ).anyTimes();
+    UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
+    EasyMock.expect( environment.getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE ) ).andReturn( gatewayConfig ).anyTimes();
+    EasyMock.replay( gatewayConfig, environment );
+
+    UrlRewriteProcessor processor = new UrlRewriteProcessor();
+    UrlRewriteRulesDescriptor config = UrlRewriteRulesDescriptorFactory.load(
+        "xml", getTestResourceReader( "rewrite-with-cache.xml", "UTF-8" ) );
+    processor.initialize( environment, config );
+    assertThat( processor.cache, notNullValue() );
+
+    final Map<String,List<String>> params = new HashMap<>();
+    params.put( "gateway.url", Arrays.asList( "https://gateway-host-1:8443/gateway/sandbox" ) );
+    Resolver resolver = new Resolver() {
+      @Override
+      public List<String> resolve( String name ) {
+        return params.get( name );
+      }
+    };
+
+    Template inputUrl = Parser.parseLiteral( "http://backend-host:8088/app/one" );
+    Template outputUrl = processor.rewrite( resolver, inputUrl, UrlRewriter.Direction.OUT, null );
+    assertThat( outputUrl.toString(), is( "https://gateway-host-1:8443/gateway/sandbox/test-service/one" ) );
+    assertThat( processor.cache.getMissCount(), is( 1L ) );
+
+    outputUrl = processor.rewrite( resolver, Parser.parseLiteral( "http://backend-host:8088/app/one" ), UrlRewriter.Direction.OUT, null );
+    assertThat( outputUrl.toString(), is( "https://gateway-host-1:8443/gateway/sandbox/test-service/one" ) );
+    assertThat( processor.cache.getHitCount(), is( 1L ) );
+
+    // A request with a different frontend must not reuse the result computed for the first one.
+    params.put( "gateway.url", Arrays.asList( "https://gateway-host-2:8443/gateway/sandbox" ) );
+    outputUrl = processor.rewrite( resolver, inputUrl, UrlRewriter.Direction.OUT, null );
+    assertThat( outputUrl.toString(), is( "https://gateway-host-2:8443/gateway/sandbox/test-service/one" ) );
+    assertThat( processor.cache.getHitCount(), is( 1L ) );
+    assertThat( processor.cache.getMissCount(), is( 2L ) );
+
+    // URLs that don't match any rule are cached and returned unchanged.
+    inputUrl = Parser.parseLiteral( "http://backend-host:8088/other" );
+    outputUrl = processor.rewrite( resolver, inputUrl, UrlRewriter.Direction.OUT, null );
+    assertThat( outputUrl.toString(), is( "http://backend-host:8088/other" ) );
+    outputUrl = processor.rewrite( resolver, inputUrl, UrlRewriter.Direction.OUT, null );
+    assertThat( outputUrl.toString(), is( "http://backend-host:8088/other" ) );
+    assertThat( processor.cache.getHitCount(), is( 2L ) );
+    assertThat( processor.cache.size(), is( 2 ) );
+
+    // Inbound rewrites bypass the cache.
+    processor.rewrite( resolver, Parser.parseLiteral( "http://backend-host:8088/app/two" ), UrlRewriter.Direction.IN, null );
+    assertThat( processor.cache.size(), is( 2 ) );
+
+    for( int i = 0; i < 20; i++ ) {
+      processor.rewrite( resolver, Parser.parseLiteral( "http://backend-host:8088/app/" + i ), UrlRewriter.Direction.OUT, null );
+    }
+    assertThat( processor.cache.size(), is( 10 ) );
+    assertThat( processor.cache.getEvictionCount(), is( 12L ) );
+
+    processor.destroy();
+  }
+
   @Test
   public void testRewriteViaRuleWithWildcardTemplateAndOptionalQuery() throws Exception {
     UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
@@ -27,9 +27,12 @@ import org.junit.Test;
 import javax.activation.MimeTypeParseException;
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -41,6 +44,8 @@ import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsCollectionContaining.hasItems;
 
@@ -140,6 +145,72 @@ public class UrlRewriteResponseTest {
     testStreamResponseGzip ( content, rewriteResponse, true );
   }
 
+  @Test
+  public void testStreamResponsePassThroughKeepsCompressedBytes() throws IOException {
+    UrlRewriteProcessor rewriter = EasyMock.createNiceMock( UrlRewriteProcessor.class );
+    EasyMock.expect( rewriter.getConfig() ).andReturn( null ).anyTimes();
+
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    EasyMock.expect( context.getAttribute( UrlRewriteServletContextListener.PROCESSOR_ATTRIBUTE_NAME ) ).andReturn( rewriter ).anyTimes();
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.expect( config.getInitParameter( UrlRewriteServletFilter.RESPONSE_BODY_FILTER_PARAM ) ).andReturn( "test-filter" ).anyTimes();
+    EasyMock.expect( config.getServletContext() ).andReturn( context ).anyTimes();
+
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream( compressed );
+    gzip.write( "content that must not be recompressed".getBytes( "UTF-8" ) );
+    gzip.close();
+    byte[] body = compressed.toByteArray();
+
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.expect( response.getContentType() ).andReturn( "application/octet-stream" ).anyTimes();
+    response.setHeader( "Content-Length", Integer.toString( body.length ) );
+    EasyMock.expectLastCall().once();
+
+    EasyMock.replay( rewriter, context, config, request, response );
+
+    UrlRewriteResponse rewriteResponse = new UrlRewriteResponse( config, request, response );
+    rewriteResponse.addHeader( "Content-Length", Integer.toString( body.length ) );
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    rewriteResponse.streamResponse( new ByteArrayInputStream( body ), output );
+
+    assertThat( output.toByteArray(), is( body ) );
+    EasyMock.verify( response );
+  }
+
+  @Test
+  public void testPassThroughOutputStreamOnlyForUnmodifiedBodies() throws IOException {
+    UrlRewriteProcessor rewriter = EasyMock.createNiceMock( UrlRewriteProcessor.class );
+    EasyMock.expect( rewriter.getConfig() ).andReturn( null ).anyTimes();
+
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    EasyMock.expect( context.getAttribute( UrlRewriteServletContextListener.PROCESSOR_ATTRIBUTE_NAME ) ).andReturn( rewriter ).anyTimes();
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.expect( config.getServletContext() ).andReturn( context ).anyTimes();
+
+    ServletOutputStream stream = EasyMock.createNiceMock( ServletOutputStream.class );
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.expect( response.getContentType() ).andReturn( "application/octet-stream" ).once();
+    EasyMock.expect( response.getContentType() ).andReturn( "text/html" ).anyTimes();
+    EasyMock.expect( response.getOutputStream() ).andReturn( stream ).anyTimes();
+    response.setHeader( "Content-Length", "42" );
+    EasyMock.expectLastCall().once();
+
+    EasyMock.replay( rewriter, context, config, stream, request, response );
+
+    UrlRewriteResponse rewriteResponse = new UrlRewriteResponse( config, request, response );
+    rewriteResponse.addHeader( "Content-Length", "42" );
+
+    assertThat( rewriteResponse.getPassThroughOutputStream(), sameInstance( stream ) );
+    assertThat( rewriteResponse.getPassThroughOutputStream(), nullValue() );
+    EasyMock.verify( response );
+  }
+
   private void testStreamResponseGzip( String content, UrlRewriteResponse rewriteResponse , boolean isGzip ) throws IOException {
     File targetDir = new File( System.getProperty( "user.dir" ), "target" );
     File inputFile = new File( targetDir, "input.test" );
@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.filter.rewrite.impl;
+
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteEnvironment;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRuleDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteStepFlow;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
+import org.apache.hadoop.gateway.filter.rewrite.ext.UrlRewriteActionRewriteDescriptorExt;
+import org.apache.hadoop.gateway.filter.rewrite.ext.UrlRewriteMatchDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteStepStatus;
+import org.apache.hadoop.gateway.util.urltemplate.Matcher;
+import org.apache.hadoop.gateway.util.urltemplate.Parser;
+import org.apache.hadoop.gateway.util.urltemplate.Template;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class UrlRewriteRuleProcessorHolderTest {
+
+  @Test
+  public void testRewriteOnlyRuleIsCompiled() throws Exception {
+    UrlRewriteRulesDescriptor rules = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteRuleDescriptor rule = rules.addRule( "test-rule" ).pattern( "*://*:*/{path=**}?{**}" );
+    UrlRewriteActionRewriteDescriptorExt rewrite = rule.addStep( "rewrite" );
+    rewrite.parameter( "test-scheme://test-host:42/new/{path=**}?{**}" );
+    UrlRewriteRuleProcessorHolder holder = createHolder( rule );
+    assertThat( holder.isCompiledRewrite(), is( true ) );
+
+    Template input = Parser.parseLiteral( "http://host:80/one/two?op=OPEN&user.name=test" );
+    assertThat( processMatched( holder, rule, input ), is( processInterpreted( holder, input ) ) );
+    assertThat( processMatched( holder, rule, input ), is( "test-scheme://test-host:42/new/one/two?op=OPEN&user.name=test" ) );
+  }
+
+  @Test
+  public void testRewriteOnlyRuleIsCompiledForAnyFlow() throws Exception {
+    for( UrlRewriteStepFlow flow : UrlRewriteStepFlow.values() ) {
+      UrlRewriteRulesDescriptor rules = UrlRewriteRulesDescriptorFactory.create();
+      UrlRewriteRuleDescriptor rule = rules.addRule( "test-rule" ).pattern( "/{path=**}" );
+      rule.flow( flow );
+      UrlRewriteActionRewriteDescriptorExt rewrite = rule.addStep( "rewrite" );
+      rewrite.parameter( "/{path=**}/" );
+      UrlRewriteRuleProcessorHolder holder = createHolder( rule );
+      assertThat( holder.isCompiledRewrite(), is( true ) );
+
+      Template input = Parser.parseLiteral( "/a/b" );
+      assertThat( processMatched( holder, rule, input ), is( processInterpreted( holder, input ) ) );
+    }
+  }
+
+  @Test
+  public void testRuleWithConditionsIsInterpreted() throws Exception {
+    UrlRewriteRulesDescriptor rules = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteRuleDescriptor rule = rules.addRule( "test-rule" ).pattern( "/{path=**}" );
+    UrlRewriteMatchDescriptor match = rule.addStep( "match" );
+    match.template( Parser.parseTemplate( "/a/{path=**}" ) );
+    UrlRewriteActionRewriteDescriptorExt rewrite = rule.addStep( "rewrite" );
+    rewrite.parameter( "/matched/{path=**}" );
+    UrlRewriteRuleProcessorHolder holder = createHolder( rule );
+    assertThat( holder.isCompiledRewrite(), is( false ) );
+
+    Template input = Parser.parseLiteral( "/a/b" );
+    assertThat( processMatched( holder, rule, input ), is( processInterpreted( holder, input ) ) );
+    assertThat( processMatched( holder, rule, input ), is( "/matched/b" ) );
+  }
+
+  private static UrlRewriteRuleProcessorHolder createHolder( UrlRewriteRuleDescriptor rule ) throws Exception {
+    UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
+    EasyMock.replay( environment );
+    UrlRewriteRuleProcessorHolder holder = new UrlRewriteRuleProcessorHolder();
+    holder.initialize( environment, rule );
+    return holder;
+  }
+
+  private static UrlRewriteContextImpl createContext( Template input ) {
+    UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
+    EasyMock.replay( environment );
+    return new UrlRewriteContextImpl(
+        environment, null, new HashMap<String,UrlRewriteFunctionProcessor>(), UrlRewriter.Direction.IN, input );
+  }
+
+  // Processes the rule the way UrlRewriteProcessor does after selecting it by its template.
+  private static String processMatched( UrlRewriteRuleProcessorHolder holder, UrlRewriteRuleDescriptor rule, Template input )
+      throws Exception {
+    Matcher<Void> matcher = new Matcher<Void>();
+    matcher.add( rule.template(), null );
+    UrlRewriteContextImpl context = createContext( input );
+    assertThat( holder.process( context, matcher.match( input ).getParams() ), is( UrlRewriteStepStatus.SUCCESS ) );
+    return context.getCurrentUrl().toString();
+  }
+
+  private static String processInterpreted( UrlRewriteRuleProcessorHolder holder, Template input ) throws Exception {
+    UrlRewriteContextImpl context = createContext( input );
+    assertThat( holder.process( context ), is( UrlRewriteStepStatus.SUCCESS ) );
+    return context.getCurrentUrl().toString();
+  }
+
+}
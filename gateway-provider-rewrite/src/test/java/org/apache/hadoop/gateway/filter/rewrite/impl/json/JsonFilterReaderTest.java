@@ -29,8 +29,10 @@ import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFac
 import org.apache.hadoop.test.TestUtils;
 import org.junit.Test;
 
+import java.io.FilterReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.io.StringReader;
 import java.math.BigInteger;
 import java.nio.charset.Charset;
@@ -316,6 +318,113 @@ public class JsonFilterReaderTest {
     JsonAssert.with( output ).assertThat( "name<properties>[2].name<property>.name<property-value>", is( "value:test-rule<test-value-3>" ) );
   }
 
+  @Test
+  public void testBufferedApplyStreamsLargeDocument() throws IOException {
+    StringBuilder input = new StringBuilder( "{\"apps\":{\"app\":[" );
+    for( int i = 0; i < 20000; i++ ) {
+      if( i > 0 ) {
+        input.append( ',' );
+      }
+      input.append( "{\"id\":\"app-" ).append( i ).append( "\",\"url\":\"http://host:8088/app/" ).append( i ).append( "\"}" );
+    }
+    input.append( "]}}" );
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/json" );
+    UrlRewriteFilterBufferDescriptor bufferConfig = contentConfig.addBuffer( "$.name<apps>" );
+    bufferConfig.addApply( "$.name<app>[*].name<url>", "test-rule" );
+
+    final int[] consumed = new int[]{ 0 };
+    Reader inputReader = new FilterReader( new StringReader( input.toString() ) ) {
+      @Override
+      public int read( char[] buffer, int offset, int count ) throws IOException {
+        int read = super.read( buffer, offset, count );
+        if( read > 0 ) {
+          consumed[ 0 ] += read;
+        }
+        return read;
+      }
+    };
+
+    JsonFilterReader filter = new TestJsonFilterReader( inputReader, contentConfig );
+    char[] head = new char[ 256 ];
+    int count = filter.read( head, 0, head.length );
+    assertThat( count > 0, is( true ) );
+    // The start of the output must be available long before the whole document has been read.
+    assertThat( consumed[ 0 ] < input.length() / 10, is( true ) );
+
+    String output = new String( head, 0, count ) + IOUtils.toString( filter );
+    JsonAssert.with( output ).assertThat( "name<apps>.name<app>[0].name<id>", is( "app-0" ) );
+    JsonAssert.with( output ).assertThat( "name<apps>.name<app>[0].name<url>", is( "value:test-rule<http://host:8088/app/0>" ) );
+    JsonAssert.with( output ).assertThat( "name<apps>.name<app>[19999].name<id>", is( "app-19999" ) );
+    JsonAssert.with( output ).assertThat( "name<apps>.name<app>[19999].name<url>", is( "value:test-rule<http://host:8088/app/19999>" ) );
+  }
+
+  @Test
+  public void testBufferedApplyWithIndexPath() throws IOException {
+    String input = "{\"apps\":{\"app\":["
+        + "{\"id\":\"app-0\",\"url\":\"http://host:8088/app/0\"},"
+        + "{\"id\":\"app-1\",\"url\":\"http://host:8088/app/1\"},"
+        + "{\"id\":\"app-2\",\"url\":\"http://host:8088/app/2\"}]}}";
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/json" );
+    UrlRewriteFilterBufferDescriptor bufferConfig = contentConfig.addBuffer( "$.name<apps>" );
+    bufferConfig.addApply( "$.name<app>[1].name<url>", "test-rule" );
+    bufferConfig.addApply( "$.name<app>[*].name<id>", "id-rule" );
+
+    JsonFilterReader filter = new TestJsonFilterReader( new StringReader( input ), contentConfig );
+    String output = IOUtils.toString( filter );
+
+    // Only the element at the index is rewritten, as when the whole buffer is held in memory.
+    JsonAssert.with( output ).assertThat( "name<apps>.name<app>[0].name<url>", is( "http://host:8088/app/0" ) );
+    JsonAssert.with( output ).assertThat( "name<apps>.name<app>[1].name<url>", is( "value:test-rule<http://host:8088/app/1>" ) );
+    JsonAssert.with( output ).assertThat( "name<apps>.name<app>[2].name<url>", is( "http://host:8088/app/2" ) );
+    JsonAssert.with( output ).assertThat( "name<apps>.name<app>[0].name<id>", is( "value:id-rule<app-0>" ) );
+    JsonAssert.with( output ).assertThat( "name<apps>.name<app>[2].name<id>", is( "value:id-rule<app-2>" ) );
+  }
+
+  @Test
+  public void testBufferedApplyWithIndexPathOnBufferArray() throws IOException {
+    String input = "{\"app\":["
+        + "{\"url\":\"http://host:1/a\"},{\"url\":\"http://host:1/b\"},{\"url\":\"http://host:1/c\"}]}";
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/json" );
+    UrlRewriteFilterBufferDescriptor bufferConfig = contentConfig.addBuffer( "$.name<app>" );
+    bufferConfig.addApply( "$[1].name<url>", "test-rule" );
+
+    JsonFilterReader filter = new TestJsonFilterReader( new StringReader( input ), contentConfig );
+    String output = IOUtils.toString( filter );
+
+    JsonAssert.with( output ).assertThat( "name<app>[0].name<url>", is( "http://host:1/a" ) );
+    JsonAssert.with( output ).assertThat( "name<app>[1].name<url>", is( "value:test-rule<http://host:1/b>" ) );
+    JsonAssert.with( output ).assertThat( "name<app>[2].name<url>", is( "http://host:1/c" ) );
+  }
+
+  @Test
+  public void testBufferedApplyWithPredicatePathIsRejected() throws IOException {
+    String input = "{\"apps\":{\"app\":[{\"name\":\"x\",\"url\":\"http://host:8088/app/0\"}]}}";
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/json" );
+    UrlRewriteFilterBufferDescriptor bufferConfig = contentConfig.addBuffer( "$.name<apps>" );
+    bufferConfig.addApply( "$.name<app>[?(@.name=='x')].name<url>", "test-rule" );
+
+    // Predicates aren't supported by JsonPath, so they fail the same way whether the buffer is streamed or not.
+    try {
+      JsonFilterReader filter = new TestJsonFilterReader( new StringReader( input ), contentConfig );
+      IOUtils.toString( filter );
+      fail( "Should have thrown an IllegalArgumentException." );
+    } catch ( IllegalArgumentException e ) {
+      assertThat( e.getMessage(), containsString( "[?(@.name=='x')]" ) );
+    }
+  }
+
   @Test
   public void testInvalidConfigShouldThrowException() throws Exception {
     String input = "{\"test-name\":\"test-value\"}";
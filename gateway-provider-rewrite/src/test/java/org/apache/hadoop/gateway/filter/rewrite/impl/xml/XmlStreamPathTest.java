@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.filter.rewrite.impl.xml;
+
+import org.junit.Test;
+
+import javax.xml.namespace.QName;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.emptyArray;
+
+public class XmlStreamPathTest {
+
+  @Test
+  public void testCompileSupportedPaths() {
+    XmlStreamPath path = XmlStreamPath.compile( "/apps/app" );
+    assertThat( path, notNullValue() );
+    assertThat( path.isAbsolute(), is( true ) );
+    assertThat( path.getSteps(), arrayContaining( "apps", "app" ) );
+    assertThat( path.getTarget(), is( XmlStreamPath.Target.ELEMENT ) );
+
+    path = XmlStreamPath.compile( "property/value/text()" );
+    assertThat( path.isAbsolute(), is( false ) );
+    assertThat( path.getSteps(), arrayContaining( "property", "value" ) );
+    assertThat( path.getTarget(), is( XmlStreamPath.Target.TEXT ) );
+
+    path = XmlStreamPath.compile( "/root/*/@url" );
+    assertThat( path.getSteps(), arrayContaining( "root", "*" ) );
+    assertThat( path.getTarget(), is( XmlStreamPath.Target.ATTRIBUTE ) );
+    assertThat( path.getAttribute(), is( "url" ) );
+
+    path = XmlStreamPath.compile( "@value" );
+    assertThat( path.isAbsolute(), is( false ) );
+    assertThat( path.getSteps(), emptyArray() );
+    assertThat( path.getAttribute(), is( "value" ) );
+  }
+
+  @Test
+  public void testCompileUnsupportedPaths() {
+    assertThat( XmlStreamPath.compile( null ), nullValue() );
+    assertThat( XmlStreamPath.compile( "" ), nullValue() );
+    assertThat( XmlStreamPath.compile( "$.url" ), nullValue() );
+    assertThat( XmlStreamPath.compile( "//property" ), nullValue() );
+    assertThat( XmlStreamPath.compile( "/properties/property[1]" ), nullValue() );
+    assertThat( XmlStreamPath.compile( "/properties/@name/value" ), nullValue() );
+    assertThat( XmlStreamPath.compile( "/properties/ns:property" ), nullValue() );
+    assertThat( XmlStreamPath.compile( "../property" ), nullValue() );
+  }
+
+  @Test
+  public void testMatchesName() {
+    assertThat( XmlStreamPath.matchesName( "app", new QName( "app" ) ), is( true ) );
+    assertThat( XmlStreamPath.matchesName( "app", new QName( "apps" ) ), is( false ) );
+    assertThat( XmlStreamPath.matchesName( "app", new QName( "urn:test", "app" ) ), is( false ) );
+    assertThat( XmlStreamPath.matchesName( "*", new QName( "urn:test", "app" ) ), is( true ) );
+    assertThat( XmlStreamPath.matchesName( "*", null ), is( false ) );
+  }
+
+}
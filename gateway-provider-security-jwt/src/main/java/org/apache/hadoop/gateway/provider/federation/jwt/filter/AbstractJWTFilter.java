@@ -18,6 +18,7 @@
 package org.apache.hadoop.gateway.provider.federation.jwt.filter;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.Principal;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
@@ -49,15 +50,19 @@ import org.apache.hadoop.gateway.audit.api.AuditServiceFactory;
 import org.apache.hadoop.gateway.audit.api.Auditor;
 import org.apache.hadoop.gateway.audit.api.ResourceType;
 import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
+import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.filter.AbstractGatewayFilter;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.provider.federation.jwt.JWTMessages;
 import org.apache.hadoop.gateway.security.PrimaryPrincipal;
 import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.metrics.MetricsService;
 import org.apache.hadoop.gateway.services.security.token.JWTokenAuthority;
 import org.apache.hadoop.gateway.services.security.token.TokenServiceException;
 import org.apache.hadoop.gateway.services.security.token.impl.JWT;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.nimbusds.jose.JWSHeader;
 
 /**
@@ -73,11 +78,27 @@ public abstract class AbstractJWTFilter implements Filter {
 
   /**
    * If specified, this configuration property refers to the signature algorithm which a received
-   * token must match. Otherwise, the default value "RS256" is used
+   * token must match, or a comma separated list of accepted algorithms such as "RS256,ES256".
+   * Otherwise, the default value "RS256" is used
    */
   public static final String JWT_EXPECTED_SIGALG = "jwt.expected.sigalg";
   public static final String JWT_DEFAULT_SIGALG = "RS256";
 
+  /**
+   * If specified, this configuration property refers to the maximum number of tokens whose verified
+   * signature is cached. Otherwise, the default value of 1000 is used. A value of 0 disables the cache.
+   */
+  public static final String JWT_VERIFIED_TOKEN_CACHE_SIZE = "jwt.verified.token.cache.size";
+  public static final int JWT_DEFAULT_VERIFIED_TOKEN_CACHE_SIZE = 1000;
+
+  /**
+   * If specified, this configuration property refers to the maximum time in milliseconds a verified
+   * signature is cached for, tokens that expire earlier are dropped on expiry. Otherwise, the default
+   * value of 5 minutes is used
+   */
+  public static final String JWT_VERIFIED_TOKEN_CACHE_TTL = "jwt.verified.token.cache.ttl";
+  public static final long JWT_DEFAULT_VERIFIED_TOKEN_CACHE_TTL = 300000L;
+
   static JWTMessages log = MessagesFactory.get( JWTMessages.class );
   private static AuditService auditService = AuditServiceFactory.getAuditService();
   private static Auditor auditor = auditService.getAuditor(
@@ -88,7 +109,8 @@ public abstract class AbstractJWTFilter implements Filter {
   protected JWTokenAuthority authority;
   protected RSAPublicKey publicKey = null;
   private String expectedIssuer;
-  private String expectedSigAlg;
+  private Set<String> expectedSigAlgs;
+  private VerifiedTokenCache verifiedTokens;
 
   public abstract void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
       throws IOException, ServletException;
@@ -109,6 +131,50 @@ public abstract class AbstractJWTFilter implements Filter {
         authority = (JWTokenAuthority) services.getService(GatewayServices.TOKEN_SERVICE);
       }
     }
+    configureVerifiedTokenCache(filterConfig);
+  }
+
+  @Override
+  public void destroy() {
+    if (verifiedTokens != null) {
+      verifiedTokens.unregisterMetrics();
+    }
+  }
+
+  private void configureVerifiedTokenCache(FilterConfig filterConfig) throws ServletException {
+    int size = JWT_DEFAULT_VERIFIED_TOKEN_CACHE_SIZE;
+    long ttl = JWT_DEFAULT_VERIFIED_TOKEN_CACHE_TTL;
+    try {
+      String value = filterConfig.getInitParameter(JWT_VERIFIED_TOKEN_CACHE_SIZE);
+      if (value != null) {
+        size = Integer.parseInt(value.trim());
+      }
+      value = filterConfig.getInitParameter(JWT_VERIFIED_TOKEN_CACHE_TTL);
+      if (value != null) {
+        ttl = Long.parseLong(value.trim());
+      }
+    } catch (NumberFormatException e) {
+      throw new ServletException("Invalid verified token cache configuration.", e);
+    }
+    if (size <= 0 || ttl <= 0) {
+      verifiedTokens = null;
+      return;
+    }
+    verifiedTokens = new VerifiedTokenCache(size, ttl);
+
+    ServletContext context = filterConfig.getServletContext();
+    if (context != null) {
+      GatewayConfig config = (GatewayConfig) context.getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE);
+      GatewayServices services = (GatewayServices) context.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
+      if (config != null && config.isMetricsEnabled() && services != null) {
+        MetricsService metrics = services.getService(GatewayServices.METRICS_SERVICE);
+        if (metrics != null) {
+          String topology = (String) context.getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE);
+          verifiedTokens.registerMetrics(metrics,
+              MetricRegistry.name(VerifiedTokenCache.class, topology, filterConfig.getFilterName()));
+        }
+      }
+    }
   }
 
   protected void configureExpectedParameters(FilterConfig filterConfig) {
@@ -117,10 +183,14 @@ public abstract class AbstractJWTFilter implements Filter {
       expectedIssuer = JWT_DEFAULT_ISSUER;
     }
 
-    expectedSigAlg = filterConfig.getInitParameter(JWT_EXPECTED_SIGALG);
+    String expectedSigAlg = filterConfig.getInitParameter(JWT_EXPECTED_SIGALG);
     if (expectedSigAlg == null) {
       expectedSigAlg = JWT_DEFAULT_SIGALG;
     }
+    expectedSigAlgs = new HashSet<>();
+    for (String sigAlg : expectedSigAlg.split(",")) {
+      expectedSigAlgs.add(sigAlg.trim());
+    }
   }
 
   /**
@@ -243,22 +313,23 @@ public abstract class AbstractJWTFilter implements Filter {
       FilterChain chain, JWT token)
       throws IOException, ServletException {
     boolean verified = false;
-    try {
-      if (publicKey == null) {
-        verified = authority.verifyToken(token);
-      }
-      else {
-        verified = authority.verifyToken(token, publicKey);
+    ByteBuffer cacheKey = null;
+    if (verifiedTokens != null) {
+      cacheKey = verifiedTokens.key(token);
+      verified = verifiedTokens.isVerified(cacheKey);
+    }
+    if (!verified) {
+      verified = verifyTokenSignature(token);
+      if (verified && verifiedTokens != null) {
+        verifiedTokens.add(cacheKey, token);
       }
-    } catch (TokenServiceException e) {
-      log.unableToVerifyToken(e);
     }
 
     // Check received signature algorithm
     if (verified) {
       try {
         String receivedSigAlg = JWSHeader.parse(token.getHeader()).getAlgorithm().getName();
-        if (!receivedSigAlg.equals(expectedSigAlg)) {
+        if (!expectedSigAlgs.contains(receivedSigAlg)) {
           verified = false;
         }
       } catch (ParseException e) {
@@ -309,6 +380,26 @@ public abstract class AbstractJWTFilter implements Filter {
     return false;
   }
 
+  private boolean verifyTokenSignature(JWT token) {
+    boolean verified = false;
+    Timer.Context timerContext = verifiedTokens == null ? null : verifiedTokens.getVerificationTimer().time();
+    try {
+      if (publicKey == null) {
+        verified = authority.verifyToken(token);
+      }
+      else {
+        verified = authority.verifyToken(token, publicKey);
+      }
+    } catch (TokenServiceException e) {
+      log.unableToVerifyToken(e);
+    } finally {
+      if (timerContext != null) {
+        timerContext.stop();
+      }
+    }
+    return verified;
+  }
+
   protected abstract void handleValidationError(HttpServletRequest request, HttpServletResponse response, int status,
                                                 String error) throws IOException;
 
@@ -68,6 +68,7 @@ public class JWTFederationFilter extends AbstractJWTFilter {
   }
 
   public void destroy() {
+    super.destroy();
   }
 
   public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
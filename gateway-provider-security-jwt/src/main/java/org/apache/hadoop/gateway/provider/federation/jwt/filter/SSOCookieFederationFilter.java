@@ -83,6 +83,7 @@ public class SSOCookieFederationFilter extends AbstractJWTFilter {
   }
 
   public void destroy() {
+    super.destroy();
   }
 
   @Override
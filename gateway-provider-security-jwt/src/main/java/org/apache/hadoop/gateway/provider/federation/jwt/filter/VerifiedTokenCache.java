@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.provider.federation.jwt.filter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+
+import org.apache.hadoop.gateway.services.metrics.MetricsService;
+import org.apache.hadoop.gateway.services.security.token.impl.JWT;
+import org.apache.hadoop.gateway.util.BoundedCache;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+
+/**
+ * A size bounded cache of the tokens whose signature has been verified by a filter, keyed by the
+ * SHA-256 hash of the serialized token. An entry is kept until the token expires or the configured
+ * time to live has passed, whichever comes first, so a change of the verification key is picked up
+ * within that time. Only the signature verification is cached, the claims are still checked on every
+ * request. Entries are evicted in insertion order.
+ */
+public class VerifiedTokenCache {
+
+  private final long ttl;
+  private final BoundedCache<ByteBuffer, Long> entries;
+  private final Counter hits = new Counter();
+  private final Counter misses = new Counter();
+  private final Timer verifications = new Timer();
+  private final RatioGauge hitRatio = new RatioGauge() {
+    @Override
+    protected Ratio getRatio() {
+      long hitCount = hits.getCount();
+      return Ratio.of(hitCount, hitCount + misses.getCount());
+    }
+  };
+  private MetricsService metricsService;
+  private String metricsPrefix;
+
+  /**
+   * @param maxEntries the maximum number of verified tokens to keep
+   * @param ttl the maximum time in milliseconds a verification is reused for
+   */
+  public VerifiedTokenCache(int maxEntries, long ttl) {
+    this.entries = new BoundedCache<>(maxEntries);
+    this.ttl = ttl;
+  }
+
+  /**
+   * @param token the token to build the key for
+   * @return the key of the token, used for both lookup and insertion
+   */
+  public ByteBuffer key(JWT token) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return ByteBuffer.wrap(md.digest(token.toString().getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param key the key of the token
+   * @return true if the signature of the token has been verified and the entry has not expired
+   */
+  public boolean isVerified(ByteBuffer key) {
+    Long expires = entries.get(key);
+    if (expires != null) {
+      if (System.currentTimeMillis() < expires) {
+        hits.inc();
+        return true;
+      }
+      entries.remove(key, expires);
+    }
+    misses.inc();
+    return false;
+  }
+
+  /**
+   * Records a successful signature verification of the token.
+   * @param key the key of the token
+   * @param token the verified token
+   */
+  public void add(ByteBuffer key, JWT token) {
+    long now = System.currentTimeMillis();
+    long expires = now + ttl;
+    Date exp = token.getExpiresDate();
+    if (exp != null) {
+      expires = Math.min(expires, exp.getTime());
+    }
+    if (expires <= now) {
+      return;
+    }
+    entries.put(key, expires);
+  }
+
+  /**
+   * @return the timer used to measure the signature verifications done on a cache miss
+   */
+  public Timer getVerificationTimer() {
+    return verifications;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hits.getCount();
+  }
+
+  public long getMissCount() {
+    return misses.getCount();
+  }
+
+  public void registerMetrics(MetricsService metricsService, String prefix) {
+    this.metricsService = metricsService;
+    this.metricsPrefix = prefix;
+    metricsService.register(MetricRegistry.name(prefix, "hits"), hits);
+    metricsService.register(MetricRegistry.name(prefix, "misses"), misses);
+    metricsService.register(MetricRegistry.name(prefix, "hit-ratio"), hitRatio);
+    metricsService.register(MetricRegistry.name(prefix, "verifications"), verifications);
+  }
+
+  public void unregisterMetrics() {
+    if (metricsService != null) {
+      metricsService.remove(MetricRegistry.name(metricsPrefix, "hits"), hits);
+      metricsService.remove(MetricRegistry.name(metricsPrefix, "misses"), misses);
+      metricsService.remove(MetricRegistry.name(metricsPrefix, "hit-ratio"), hitRatio);
+      metricsService.remove(MetricRegistry.name(metricsPrefix, "verifications"), verifications);
+      metricsService = null;
+    }
+  }
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.provider.federation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Date;
+
+import org.apache.hadoop.gateway.provider.federation.jwt.filter.VerifiedTokenCache;
+import org.apache.hadoop.gateway.services.security.token.impl.JWT;
+import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+public class VerifiedTokenCacheTest {
+  private static RSAPrivateKey privateKey;
+
+  @BeforeClass
+  public static void generateKey() throws Exception {
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+    kpg.initialize(2048);
+    privateKey = (RSAPrivateKey) kpg.generateKeyPair().getPrivate();
+  }
+
+  @Test
+  public void testVerifiedTokenIsCachedUntilExpiry() throws Exception {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, 60000);
+    JWT token = getToken("alice", new Date(new Date().getTime() + 60000));
+    ByteBuffer key = cache.key(token);
+
+    assertFalse(cache.isVerified(key));
+    cache.add(key, token);
+    assertTrue(cache.isVerified(cache.key(new JWTToken(token.toString()))));
+    assertFalse(cache.isVerified(cache.key(getToken("bob", new Date(new Date().getTime() + 60000)))));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+
+    JWT expired = getToken("alice", new Date(new Date().getTime() - 1000));
+    ByteBuffer expiredKey = cache.key(expired);
+    cache.add(expiredKey, expired);
+    assertFalse(cache.isVerified(expiredKey));
+  }
+
+  @Test
+  public void testVerificationIsCappedByTimeToLive() throws Exception {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, 50);
+    JWT token = getToken("alice", null);
+    ByteBuffer key = cache.key(token);
+    cache.add(key, token);
+    assertTrue(cache.isVerified(key));
+    Thread.sleep(100);
+    assertFalse(cache.isVerified(key));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testOldestEntriesAreEvicted() throws Exception {
+    VerifiedTokenCache cache = new VerifiedTokenCache(2, 60000);
+    Date expires = new Date(new Date().getTime() + 60000);
+    JWT first = getToken("alice", expires);
+    cache.add(cache.key(first), first);
+    JWT second = getToken("bob", expires);
+    cache.add(cache.key(second), second);
+    JWT third = getToken("carol", expires);
+    cache.add(cache.key(third), third);
+
+    assertEquals(2, cache.size());
+    assertFalse(cache.isVerified(cache.key(first)));
+    assertTrue(cache.isVerified(cache.key(second)));
+    assertTrue(cache.isVerified(cache.key(third)));
+  }
+
+  private static JWT getToken(String sub, Date expires) throws Exception {
+    JWTClaimsSet claims = new JWTClaimsSet.Builder()
+        .issuer("KNOXSSO")
+        .subject(sub)
+        .expirationTime(expires)
+        .build();
+    SignedJWT signedJWT = new SignedJWT(new JWSHeader(JWSAlgorithm.RS256), claims);
+    signedJWT.sign(new RSASSASigner(privateKey));
+    return new JWTToken(signedJWT.serialize());
+  }
+}
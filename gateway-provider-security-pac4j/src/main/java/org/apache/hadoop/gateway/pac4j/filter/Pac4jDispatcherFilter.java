@@ -54,7 +54,8 @@ import java.util.Map;
  *     <li>to the {@link RequiresAuthenticationFilter} otherwise: it starts the authentication process (redirection to the identity provider) if the user is not authenticated</li>
  * </ul>
  * <p>It uses the {@link KnoxSessionStore} to manage session data. The generated cookies are defined on a domain name
- * which can be configured via the domain suffix parameter: <code>pac4j.cookie.domain.suffix</code>.</p>
+ * which can be configured via the domain suffix parameter: <code>pac4j.cookie.domain.suffix</code>. Large values are
+ * compressed before being encrypted unless <code>pac4j.cookie.compression</code> is set to <code>false</code>.</p>
  * <p>The callback url must be defined to the current protected url (KnoxSSO service for example) via the parameter: <code>pac4j.callbackUrl</code>.</p>
  *
  * @since 0.8.0
@@ -71,6 +72,8 @@ public class Pac4jDispatcherFilter implements Filter {
 
   private static final String PAC4J_COOKIE_DOMAIN_SUFFIX_PARAM = "pac4j.cookie.domain.suffix";
 
+  private static final String PAC4J_COOKIE_COMPRESSION_PARAM = "pac4j.cookie.compression";
+
   private CallbackFilter callbackFilter;
 
   private SecurityFilter securityFilter;
@@ -158,7 +161,9 @@ public class Pac4jDispatcherFilter implements Filter {
     securityFilter.setConfig(config);
 
     final String domainSuffix = filterConfig.getInitParameter(PAC4J_COOKIE_DOMAIN_SUFFIX_PARAM);
-    config.setSessionStore(new KnoxSessionStore(cryptoService, clusterName, domainSuffix));
+    final String compression = filterConfig.getInitParameter(PAC4J_COOKIE_COMPRESSION_PARAM);
+    final boolean compress = compression == null || Boolean.parseBoolean(compression);
+    config.setSessionStore(new KnoxSessionStore(cryptoService, clusterName, domainSuffix, compress));
     ConfigSingleton.setConfig(config);
   }
 
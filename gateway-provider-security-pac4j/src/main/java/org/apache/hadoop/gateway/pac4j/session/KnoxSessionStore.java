@@ -26,16 +26,16 @@ import org.pac4j.core.context.Cookie;
 import org.pac4j.core.context.WebContext;
 import org.pac4j.core.context.session.SessionStore;
 import org.pac4j.core.exception.TechnicalException;
-import org.pac4j.core.util.JavaSerializationHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
  * Specific session store where data are saved into cookies (and not in memory).
- * Each data is encrypted and base64 encoded before being saved as a cookie (for security reasons).
+ * Each data is encoded with a {@link SessionValueCodec}, encrypted and base64 encoded before being saved as a cookie
+ * (for security reasons). A value equal to the one the browser already holds is not written again.
  *
  * @since 0.8.0
  */
@@ -47,7 +47,12 @@ public class KnoxSessionStore implements SessionStore {
 
     public static final String PAC4J_SESSION_PREFIX = "pac4j.session.";
 
-    private final JavaSerializationHelper javaSerializationHelper;
+    /** Request attribute prefix under which the clear bytes of each session value are kept for the request. */
+    private static final String CLEAR_VALUE_ATTRIBUTE_PREFIX = "knox." + PAC4J_SESSION_PREFIX;
+
+    private static final byte[] NO_VALUE = new byte[0];
+
+    private final SessionValueCodec codec;
 
     private final CryptoService cryptoService;
 
@@ -56,7 +61,12 @@ public class KnoxSessionStore implements SessionStore {
     private final String domainSuffix;
 
     public KnoxSessionStore(final CryptoService cryptoService, final String clusterName, final String domainSuffix) {
-        javaSerializationHelper = new JavaSerializationHelper();
+        this(cryptoService, clusterName, domainSuffix, true);
+    }
+
+    public KnoxSessionStore(final CryptoService cryptoService, final String clusterName, final String domainSuffix,
+                            final boolean compress) {
+        this.codec = new SessionValueCodec(compress);
         this.cryptoService = cryptoService;
         this.clusterName = clusterName;
         this.domainSuffix = domainSuffix;
@@ -66,7 +76,7 @@ public class KnoxSessionStore implements SessionStore {
         return null;
     }
 
-    private Serializable decryptBase64(final String v) {
+    private byte[] decryptBase64(final String v) {
         if (v != null && v.length() > 0) {
             byte[] bytes = Base64.decodeBase64(v);
             EncryptionResult result = EncryptionResult.fromByteArray(bytes);
@@ -75,37 +85,65 @@ public class KnoxSessionStore implements SessionStore {
                     result.cipher,
                     result.iv,
                     result.salt);
-            if (clear != null) {
-                return javaSerializationHelper.unserializeFromBytes(clear);
-            }
+            return clear;
         }
         return null;
     }
 
-    public Object get(WebContext context, String key) {
-        final Cookie cookie = ContextHelper.getCookie(context, PAC4J_SESSION_PREFIX + key);
-        Object value = null;
-        if (cookie != null) {
-            value = decryptBase64(cookie.getValue());
+    /**
+     * Returns the clear bytes of the value the browser currently holds for the key, or of the value last saved
+     * during this request. The cookie is only decrypted once per request.
+     */
+    private byte[] getClearValue(final WebContext context, final String key) {
+        final String attribute = CLEAR_VALUE_ATTRIBUTE_PREFIX + key;
+        byte[] clear = (byte[]) context.getRequestAttribute(attribute);
+        if (clear == null) {
+            final Cookie cookie = ContextHelper.getCookie(context, PAC4J_SESSION_PREFIX + key);
+            if (cookie != null) {
+                clear = decryptBase64(cookie.getValue());
+            }
+            if (clear == null) {
+                clear = NO_VALUE;
+            }
+            context.setRequestAttribute(attribute, clear);
         }
+        return clear;
+    }
+
+    public Object get(WebContext context, String key) {
+        final Object value = codec.decode(getClearValue(context, key));
         logger.debug("Get from session: {} = {}", key, value);
         return value;
     }
 
-    private String encryptBase64(final Object o) {
-        if (o == null || o.equals("")
-            || (o instanceof Map<?,?> && ((Map<?,?>)o).isEmpty())) {
-            return null;
-        } else {
-            final byte[] bytes = javaSerializationHelper.serializeToBytes((Serializable) o);
-            EncryptionResult result = cryptoService.encryptForCluster(this.clusterName, PAC4J_PASSWORD, bytes);
-            return Base64.encodeBase64String(result.toByteAray());
-        }
+    private String encryptBase64(final byte[] clear) {
+        EncryptionResult result = cryptoService.encryptForCluster(this.clusterName, PAC4J_PASSWORD, clear);
+        return Base64.encodeBase64String(result.toByteAray());
+    }
+
+    private static boolean isEmpty(final Object o) {
+        return o == null || o.equals("")
+            || (o instanceof Map<?,?> && ((Map<?,?>)o).isEmpty());
     }
 
     public void set(WebContext context, String key, Object value) {
+        final byte[] clear;
+        final String cookieValue;
+        if (isEmpty(value)) {
+            // always sent, an empty cookie is how a value gets removed from the browser
+            clear = NO_VALUE;
+            cookieValue = null;
+        } else {
+            clear = codec.encode(value);
+            if (Arrays.equals(clear, getClearValue(context, key))) {
+                logger.debug("Session value unchanged, not saved: {}", key);
+                return;
+            }
+            cookieValue = encryptBase64(clear);
+        }
         logger.debug("Save in session: {} = {}", key, value);
-        final Cookie cookie = new Cookie(PAC4J_SESSION_PREFIX + key, encryptBase64(value));
+        context.setRequestAttribute(CLEAR_VALUE_ATTRIBUTE_PREFIX + key, clear);
+        final Cookie cookie = new Cookie(PAC4J_SESSION_PREFIX + key, cookieValue);
         try {
             String domain = Urls.getDomainName(context.getFullRequestURL(), this.domainSuffix);
             if (domain == null) {
@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.pac4j.session;
+
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.util.JavaSerializationHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary encoding of the values kept in the pac4j session cookies, applied before encryption.
+ *
+ * <p>An encoded value starts with a version byte followed by a type byte. Strings, which make up most of the
+ * pac4j state (requested url, state, nonce, attempted authentication flag), are stored as plain UTF-8 instead of
+ * a serialized <code>java.lang.String</code>. Any other value, such as the profiles map, is Java serialized.
+ * Payloads above {@link #COMPRESSION_THRESHOLD} bytes are deflated when that makes them smaller.</p>
+ *
+ * <p>Cookies written before this format existed hold a bare Java serialization stream and are still decoded.</p>
+ */
+final class SessionValueCodec {
+
+    static final byte VERSION = 1;
+
+    static final byte TYPE_STRING = 1;
+
+    static final byte TYPE_SERIALIZED = 2;
+
+    static final byte FLAG_DEFLATED = (byte) 0x80;
+
+    static final int COMPRESSION_THRESHOLD = 128;
+
+    /** Upper bound on an inflated payload, well above what fits into a browser cookie. */
+    static final int MAX_INFLATED_SIZE = 1024 * 1024;
+
+    /** First byte of a Java serialization stream (STREAM_MAGIC 0xACED). */
+    private static final byte LEGACY_MAGIC = (byte) 0xAC;
+
+    private final JavaSerializationHelper javaSerializationHelper = new JavaSerializationHelper();
+
+    private final boolean compress;
+
+    SessionValueCodec(final boolean compress) {
+        this.compress = compress;
+    }
+
+    byte[] encode(final Object value) {
+        final byte type;
+        byte[] payload;
+        if (value instanceof String) {
+            type = TYPE_STRING;
+            payload = ((String) value).getBytes(StandardCharsets.UTF_8);
+        } else {
+            type = TYPE_SERIALIZED;
+            payload = javaSerializationHelper.serializeToBytes((Serializable) value);
+        }
+        byte flags = type;
+        if (compress && payload.length > COMPRESSION_THRESHOLD) {
+            final byte[] deflated = deflate(payload);
+            if (deflated.length < payload.length) {
+                payload = deflated;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+        final byte[] encoded = new byte[payload.length + 2];
+        encoded[0] = VERSION;
+        encoded[1] = flags;
+        System.arraycopy(payload, 0, encoded, 2, payload.length);
+        return encoded;
+    }
+
+    /**
+     * @return the decoded value, or <code>null</code> if the bytes are in a format this codec does not know
+     */
+    Object decode(final byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return null;
+        }
+        if (encoded[0] == LEGACY_MAGIC) {
+            return javaSerializationHelper.unserializeFromBytes(encoded);
+        }
+        if (encoded[0] != VERSION || encoded.length < 2) {
+            return null;
+        }
+        final byte flags = encoded[1];
+        byte[] payload = new byte[encoded.length - 2];
+        System.arraycopy(encoded, 2, payload, 0, payload.length);
+        if ((flags & FLAG_DEFLATED) != 0) {
+            payload = inflate(payload);
+        }
+        switch (flags & ~FLAG_DEFLATED) {
+            case TYPE_STRING:
+                return new String(payload, StandardCharsets.UTF_8);
+            case TYPE_SERIALIZED:
+                return javaSerializationHelper.unserializeFromBytes(payload);
+            default:
+                return null;
+        }
+    }
+
+    private static byte[] deflate(final byte[] bytes) {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+            try (DeflaterOutputStream stream = new DeflaterOutputStream(out, deflater)) {
+                stream.write(bytes);
+            }
+            return out.toByteArray();
+        } catch (final IOException e) {
+            throw new TechnicalException(e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(final byte[] bytes) {
+        final Inflater inflater = new Inflater(true);
+        try (InputStream stream = new InflaterInputStream(new ByteArrayInputStream(bytes), inflater)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                if (out.size() + read > MAX_INFLATED_SIZE) {
+                    throw new TechnicalException("Inflated session value exceeds " + MAX_INFLATED_SIZE + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (final IOException e) {
+            throw new TechnicalException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.pac4j.session;
+
+import org.apache.hadoop.gateway.services.security.AliasService;
+import org.apache.hadoop.gateway.services.security.impl.DefaultCryptoService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pac4j.core.context.Cookie;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.util.JavaSerializationHelper;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class KnoxSessionStoreTest {
+
+    private static final String CLUSTER_NAME = "knox";
+    private static final String PAC4J_PASSWORD = "pwdfortest";
+    private static final String KEY = "requestedUrl";
+
+    private DefaultCryptoService cryptoService;
+
+    @Before
+    public void setUp() throws Exception {
+        final AliasService aliasService = mock(AliasService.class);
+        when(aliasService.getPasswordFromAliasForCluster(CLUSTER_NAME, KnoxSessionStore.PAC4J_PASSWORD)).thenReturn(PAC4J_PASSWORD.toCharArray());
+        cryptoService = new DefaultCryptoService();
+        cryptoService.setAliasService(aliasService);
+    }
+
+    @Test
+    public void testStringRoundTrip() {
+        final SessionValueCodec codec = new SessionValueCodec(true);
+        final String url = "https://localhost:8443/gateway/sandbox/webhdfs/v1/tmp?op=LISTSTATUS";
+        final byte[] encoded = codec.encode(url);
+        assertEquals(SessionValueCodec.VERSION, encoded[0]);
+        assertEquals(SessionValueCodec.TYPE_STRING, encoded[1]);
+        assertEquals(url.length() + 2, encoded.length);
+        assertEquals(url, codec.decode(encoded));
+    }
+
+    @Test
+    public void testLargeValueIsCompressed() {
+        final LinkedHashMap<String, String> profiles = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            profiles.put("attribute" + i, "value of the attribute number " + i);
+        }
+        final byte[] compressed = new SessionValueCodec(true).encode(profiles);
+        final byte[] plain = new SessionValueCodec(false).encode(profiles);
+        assertEquals(SessionValueCodec.TYPE_SERIALIZED | SessionValueCodec.FLAG_DEFLATED, compressed[1]);
+        assertEquals(SessionValueCodec.TYPE_SERIALIZED, plain[1]);
+        assertTrue(compressed.length < plain.length);
+        assertEquals(profiles, new SessionValueCodec(false).decode(compressed));
+        assertEquals(profiles, new SessionValueCodec(true).decode(plain));
+    }
+
+    @Test
+    public void testLegacyValueIsDecoded() {
+        final HashMap<String, String> value = new HashMap<>();
+        value.put("id", "guest");
+        final byte[] legacy = new JavaSerializationHelper().serializeToBytes(value);
+        assertEquals(value, new SessionValueCodec(true).decode(legacy));
+    }
+
+    @Test
+    public void testUnknownVersionIsIgnored() {
+        assertNull(new SessionValueCodec(true).decode(new byte[] { 42, SessionValueCodec.TYPE_STRING, 'a' }));
+    }
+
+    @Test
+    public void testUnchangedValueIsNotSavedAgain() {
+        final KnoxSessionStore store = new KnoxSessionStore(cryptoService, CLUSTER_NAME, null);
+
+        final WebContext first = mockContext(Collections.<Cookie>emptyList());
+        store.set(first, KEY, "https://localhost:8443/gateway/sandbox");
+        final Cookie cookie = getResponseCookie(first);
+        assertEquals(KnoxSessionStore.PAC4J_SESSION_PREFIX + KEY, cookie.getName());
+        // saving the same value again within the request is a no-op
+        store.set(first, KEY, "https://localhost:8443/gateway/sandbox");
+        verify(first, times(1)).addResponseCookie(any(Cookie.class));
+
+        final WebContext second = mockContext(Collections.singletonList(cookie));
+        assertEquals("https://localhost:8443/gateway/sandbox", store.get(second, KEY));
+        store.set(second, KEY, "https://localhost:8443/gateway/sandbox");
+        verify(second, never()).addResponseCookie(any(Cookie.class));
+        store.set(second, KEY, "https://localhost:8443/gateway/other");
+        verify(second, times(1)).addResponseCookie(any(Cookie.class));
+    }
+
+    @Test
+    public void testRemovedValueIsAlwaysSaved() {
+        final KnoxSessionStore store = new KnoxSessionStore(cryptoService, CLUSTER_NAME, null);
+        final WebContext context = mockContext(Collections.<Cookie>emptyList());
+        store.set(context, KEY, "");
+        final Cookie cookie = getResponseCookie(context);
+        assertNull(cookie.getValue());
+    }
+
+    private static Cookie getResponseCookie(final WebContext context) {
+        final ArgumentCaptor<Cookie> captor = ArgumentCaptor.forClass(Cookie.class);
+        verify(context, atLeastOnce()).addResponseCookie(captor.capture());
+        return captor.getValue();
+    }
+
+    private static WebContext mockContext(final List<Cookie> requestCookies) {
+        final WebContext context = mock(WebContext.class);
+        final Map<String, Object> attributes = new HashMap<>();
+        when(context.getRequestCookies()).thenReturn(requestCookies);
+        when(context.getFullRequestURL()).thenReturn("https://localhost:8443/gateway/idp/api/v1/websso");
+        when(context.getServerName()).thenReturn("localhost");
+        when(context.getScheme()).thenReturn("https");
+        when(context.getRequestAttribute(anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return attributes.get((String) invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                attributes.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(context).setRequestAttribute(anyString(), any());
+        return context;
+    }
+}
@@ -29,7 +29,22 @@ public class IPValidator implements PreAuthValidator {
   public static final String IP_ADDRESSES_PARAM = "preauth.ip.addresses";
   public static final String IP_VALIDATION_METHOD_VALUE = "preauth.ip.validation";
 
+  /**
+   * The address list of the filter this validator was created for, or null for the shared validator
+   */
+  private final IpAddressValidator ipValidator;
+
   public IPValidator() {
+    ipValidator = null;
+  }
+
+  /**
+   * Creates the validator of a single filter, the address list is parsed once when the filter is initialized.
+   *
+   * @param filterConfig
+   */
+  public IPValidator(FilterConfig filterConfig) {
+    ipValidator = new IpAddressValidator(filterConfig.getInitParameter(IP_ADDRESSES_PARAM));
   }
 
   /**
@@ -41,8 +56,10 @@ public class IPValidator implements PreAuthValidator {
   @Override
   public boolean validate(HttpServletRequest httpRequest, FilterConfig filterConfig)
       throws PreAuthValidationException {
-    String ipParam = filterConfig.getInitParameter(IP_ADDRESSES_PARAM);
-    IpAddressValidator ipv = new IpAddressValidator(ipParam);
+    IpAddressValidator ipv = ipValidator;
+    if (ipv == null) {
+      ipv = new IpAddressValidator(filterConfig.getInitParameter(IP_ADDRESSES_PARAM));
+    }
     return ipv.validateIpAddress(httpRequest.getRemoteAddr());
   }
 
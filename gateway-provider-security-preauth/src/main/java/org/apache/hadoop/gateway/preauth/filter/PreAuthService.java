@@ -78,8 +78,12 @@ public class PreAuthService {
     Set<String> vMethodSet = new LinkedHashSet<>();
     Collections.addAll(vMethodSet, validationMethods.trim().split("\\s*,\\s*"));
     for (String vName : vMethodSet) {
-      if (validatorMap.containsKey(vName)) {
-        vList.add(validatorMap.get(vName));
+      PreAuthValidator validator = validatorMap.get(vName);
+      if (validator instanceof IPValidator) {
+        // Each filter parses its own address list once instead of on every request.
+        vList.add(new IPValidator(filterConfig));
+      } else if (validator != null) {
+        vList.add(validator);
       } else {
         throw new ServletException(String.format("Unable to find validator with name '%s'", validationMethods));
       }
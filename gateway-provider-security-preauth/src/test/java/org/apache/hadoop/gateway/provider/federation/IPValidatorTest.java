@@ -56,5 +56,18 @@ public class IPValidatorTest extends org.junit.Assert {
     assertFalse(ipv.validate(request, filterConfig));
   }
 
+  @Test
+  public void testFilterAddressListIsParsedAtInit() throws PreAuthValidationException {
+    final FilterConfig filterConfig = mock(FilterConfig.class);
+    when(filterConfig.getInitParameter(IPValidator.IP_ADDRESSES_PARAM)).thenReturn("5.4.3.2,10.1.0.0/16");
+    IPValidator ipv = new IPValidator(filterConfig);
+    when(filterConfig.getInitParameter(IPValidator.IP_ADDRESSES_PARAM)).thenReturn("10.22.34.56");
+    final HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getRemoteAddr()).thenReturn("10.1.23.42");
+    assertTrue(ipv.validate(request, filterConfig));
+    when(request.getRemoteAddr()).thenReturn("10.22.34.56");
+    assertFalse(ipv.validate(request, filterConfig));
+  }
+
 
 }
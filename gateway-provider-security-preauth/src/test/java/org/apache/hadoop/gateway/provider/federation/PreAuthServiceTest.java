@@ -67,6 +67,7 @@ public class PreAuthServiceTest extends org.junit.Assert {
     List<PreAuthValidator> validators = PreAuthService.getValidators(filterConfig);
     assertEquals(validators.size(), 1);
     assertEquals(validators.get(0).getName(), IPValidator.IP_VALIDATION_METHOD_VALUE);
+    assertNotSame(PreAuthService.getValidatorMap().get(IPValidator.IP_VALIDATION_METHOD_VALUE), validators.get(0));
     assertTrue(PreAuthService.validate(request, filterConfig, validators));
     //Negative testing
     when(request.getRemoteAddr()).thenReturn("10.10.22.33");
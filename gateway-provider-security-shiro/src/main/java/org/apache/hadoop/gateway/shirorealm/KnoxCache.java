@@ -0,0 +1,307 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.metrics.MetricsService;
+import org.apache.hadoop.gateway.shirorealm.impl.i18n.KnoxShiroMessages;
+import org.apache.shiro.cache.Cache;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * A size bounded, least recently used Shiro {@link Cache} whose entries expire
+ * after a time to live. An entry read with a loader, see {@link #get(Object, Loader)}
+ * and {@link #refreshAhead(Object, Loader)}, is reloaded in the background once
+ * it is older than the refresh ahead part of its time to live, so frequently
+ * used entries are replaced before they expire and readers keep getting the
+ * current value while the reload runs. The loader is only kept until the
+ * reload has run, it may hold the credentials of the reader.
+ */
+class KnoxCache<K, V> implements Cache<K, V> {
+
+  private static final KnoxShiroMessages LOG = MessagesFactory.get( KnoxShiroMessages.class );
+
+  /**
+   * Loads the value of a missing entry and reloads the value of an entry that is
+   * about to expire. A null value removes the entry.
+   */
+  interface Loader<K, V> {
+
+    V load(K key) throws Exception;
+
+    V reload(K key, V oldValue) throws Exception;
+
+  }
+
+  private final String name;
+  private final long timeToLive;
+  private final long refreshAfter;
+  private final Executor refreshExecutor;
+  private final Map<K, Entry<V>> entries;
+  private final Counter hits = new Counter();
+  private final Counter misses = new Counter();
+  private final Timer loads = new Timer();
+  private MetricsService metricsService;
+  private String metricsPrefix;
+
+  /**
+   * @param name the cache name
+   * @param maxEntries the maximum number of entries
+   * @param timeToLive the time in milliseconds after which an entry expires
+   * @param refreshAhead the part of the time to live after which a read triggers a reload, 0 disables reloads
+   * @param refreshExecutor runs the reloads
+   */
+  KnoxCache(String name, final int maxEntries, long timeToLive, double refreshAhead, Executor refreshExecutor) {
+    this.name = name;
+    this.timeToLive = timeToLive;
+    this.refreshAfter = refreshAhead > 0 && refreshAhead < 1 ? (long) (timeToLive * refreshAhead) : Long.MAX_VALUE;
+    this.refreshExecutor = refreshExecutor;
+    this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  String getName() {
+    return name;
+  }
+
+  @Override
+  public V get(K key) {
+    Entry<V> entry = getEntry(key);
+    if (entry == null) {
+      misses.inc();
+      return null;
+    }
+    hits.inc();
+    return entry.value;
+  }
+
+  /**
+   * Returns the cached value, loading it with the loader on a miss or reloading
+   * it in the background if it is due for a reload.
+   */
+  V get(K key, Loader<K, V> loader) throws Exception {
+    Entry<V> entry = getEntry(key);
+    if (entry != null) {
+      hits.inc();
+      refreshIfDue(key, entry, loader);
+      return entry.value;
+    }
+    misses.inc();
+    V value;
+    Timer.Context load = loads.time();
+    try {
+      value = loader.load(key);
+    } finally {
+      load.stop();
+    }
+    if (value != null) {
+      put(key, value);
+    }
+    return value;
+  }
+
+  /**
+   * Reloads the entry with the loader in the background if it is due for a
+   * reload. Used by callers that can only reload an entry when it is read, e.g.
+   * because the reload needs the credentials presented with the read.
+   */
+  void refreshAhead(K key, Loader<K, V> loader) {
+    Entry<V> entry = getEntry(key);
+    if (entry != null) {
+      refreshIfDue(key, entry, loader);
+    }
+  }
+
+  @Override
+  public V put(K key, V value) {
+    Entry<V> previous;
+    synchronized (entries) {
+      previous = entries.put(key, new Entry<>(value));
+    }
+    return previous != null ? previous.value : null;
+  }
+
+  @Override
+  public V remove(K key) {
+    Entry<V> previous;
+    synchronized (entries) {
+      previous = entries.remove(key);
+    }
+    return previous != null ? previous.value : null;
+  }
+
+  @Override
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  @Override
+  public int size() {
+    synchronized (entries) {
+      expire();
+      return entries.size();
+    }
+  }
+
+  @Override
+  public Set<K> keys() {
+    synchronized (entries) {
+      expire();
+      return new HashSet<>(entries.keySet());
+    }
+  }
+
+  @Override
+  public Collection<V> values() {
+    synchronized (entries) {
+      expire();
+      Collection<V> values = new ArrayList<>(entries.size());
+      for (Entry<V> entry : entries.values()) {
+        values.add(entry.value);
+      }
+      return values;
+    }
+  }
+
+  long getHitCount() {
+    return hits.getCount();
+  }
+
+  long getMissCount() {
+    return misses.getCount();
+  }
+
+  /**
+   * @return the timer measuring the loads and reloads of entries
+   */
+  Timer getLoadTimer() {
+    return loads;
+  }
+
+  void registerMetrics(MetricsService metricsService, String prefix) {
+    this.metricsService = metricsService;
+    this.metricsPrefix = prefix;
+    metricsService.register(MetricRegistry.name(prefix, "hits"), hits);
+    metricsService.register(MetricRegistry.name(prefix, "misses"), misses);
+    metricsService.register(MetricRegistry.name(prefix, "loads"), loads);
+  }
+
+  void unregisterMetrics() {
+    if (metricsService != null) {
+      metricsService.remove(MetricRegistry.name(metricsPrefix, "hits"), hits);
+      metricsService.remove(MetricRegistry.name(metricsPrefix, "misses"), misses);
+      metricsService.remove(MetricRegistry.name(metricsPrefix, "loads"), loads);
+      metricsService = null;
+    }
+  }
+
+  private Entry<V> getEntry(K key) {
+    synchronized (entries) {
+      Entry<V> entry = entries.get(key);
+      if (entry != null && System.currentTimeMillis() - entry.created >= timeToLive) {
+        entries.remove(key);
+        entry = null;
+      }
+      return entry;
+    }
+  }
+
+  private void expire() {
+    long now = System.currentTimeMillis();
+    Iterator<Entry<V>> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      if (now - iterator.next().created >= timeToLive) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private void refreshIfDue(final K key, final Entry<V> entry, final Loader<K, V> loader) {
+    if (System.currentTimeMillis() - entry.created < refreshAfter
+        || !entry.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          reload(key, entry, loader);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      entry.refreshing.set(false);
+    }
+  }
+
+  private void reload(K key, Entry<V> entry, Loader<K, V> loader) {
+    V value;
+    Timer.Context load = loads.time();
+    try {
+      value = loader.reload(key, entry.value);
+    } catch (Exception e) {
+      // Keep serving the current value until it expires, the next miss loads it again.
+      LOG.failedToRefreshCacheEntry(name, e);
+      return;
+    } finally {
+      load.stop();
+    }
+    synchronized (entries) {
+      Entry<V> current = entries.get(key);
+      // Don't overwrite a value that was put or removed while reloading.
+      if (current != entry) {
+        return;
+      }
+      if (value != null) {
+        entries.put(key, new Entry<>(value));
+      } else {
+        entries.remove(key);
+      }
+    }
+  }
+
+  private static class Entry<V> {
+    private final V value;
+    private final long created = System.currentTimeMillis();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private Entry(V value) {
+      this.value = value;
+    }
+  }
+
+}
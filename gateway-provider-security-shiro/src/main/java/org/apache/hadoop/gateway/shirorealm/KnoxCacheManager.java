@@ -17,11 +17,307 @@
  */
 package org.apache.hadoop.gateway.shirorealm;
 
-import org.apache.shiro.cache.ehcache.EhCacheManager;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-public class KnoxCacheManager extends EhCacheManager {
+import org.apache.hadoop.gateway.GatewayServer;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.metrics.MetricsService;
+import org.apache.hadoop.gateway.shirorealm.impl.i18n.KnoxShiroMessages;
+import org.apache.hadoop.gateway.util.XmlUtils;
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+import org.apache.shiro.cache.CacheManager;
+import org.apache.shiro.io.ResourceUtils;
+import org.apache.shiro.util.Destroyable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 
-  public KnoxCacheManager() {
-    setCacheManager(net.sf.ehcache.CacheManager.create());
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * A Shiro {@link CacheManager} for the Knox realms. Its caches are size bounded,
+ * expire entries after a time to live and reload the authentication and
+ * authorization info of {@link KnoxLdapRealm} in the background before it
+ * expires, so users that keep sending requests don't wait for LDAP.
+ * {@link KnoxLdapRealm} also uses it to briefly remember failed binds.
+ * 
+ * <p>
+ * Sample config for <tt>shiro.ini</tt>:
+ * 
+ * [main]
+ * cacheManager=org.apache.hadoop.gateway.shirorealm.KnoxCacheManager
+ * cacheManager.timeToLive=300000
+ * cacheManager.maxEntries=10000
+ * cacheManager.refreshAhead=0.75
+ * cacheManager.negativeTimeToLive=5000
+ * # optional per cache settings, by cache name or the part of it after the last dot
+ * cacheManager.timeToLiveByCache=authenticationCache:600000, authorizationCache:300000
+ * cacheManager.maxEntriesByCache=authorizationCache:50000
+ * cacheManager.clusterName=sandbox
+ * securityManager.cacheManager=$cacheManager
+ *
+ * <p>
+ * Topologies written for the EhCache based cache manager can keep their
+ * <tt>cacheManager.cacheManagerConfigFile</tt>, see {@link #setCacheManagerConfigFile(String)}.
+ */
+public class KnoxCacheManager implements CacheManager, Destroyable {
+
+  private static KnoxShiroMessages LOG = MessagesFactory.get(KnoxShiroMessages.class);
+
+  static final String NEGATIVE_AUTHENTICATION_CACHE_SUFFIX = ".negativeAuthenticationCache";
+
+  private long timeToLive = 120000L;
+  private int maxEntries = 10000;
+  private double refreshAhead = 0.75;
+  private long negativeTimeToLive = 5000L;
+  private int refreshThreads = 2;
+  private String clusterName = "";
+  private String cacheManagerConfigFile;
+  private final Map<String, Long> timeToLiveByCache = new HashMap<>();
+  private final Map<String, Integer> maxEntriesByCache = new HashMap<>();
+
+  private final ConcurrentMap<String, KnoxCache<?, ?>> caches = new ConcurrentHashMap<>();
+  private ThreadPoolExecutor refreshExecutor;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <K, V> Cache<K, V> getCache(String name) throws CacheException {
+    if (name == null || name.trim().isEmpty()) {
+      throw new IllegalArgumentException("Cache name cannot be null or empty.");
+    }
+    KnoxCache<?, ?> cache = caches.get(name);
+    if (cache == null) {
+      synchronized (caches) {
+        cache = caches.get(name);
+        if (cache == null) {
+          cache = createCache(name);
+          caches.put(name, cache);
+        }
+      }
+    }
+    return (Cache<K, V>) cache;
+  }
+
+  /**
+   * @return the cache of failed binds for the realm, or null if negative caching is disabled
+   */
+  @SuppressWarnings("unchecked")
+  <K> KnoxCache<K, Boolean> getNegativeAuthenticationCache(String realmName) {
+    if (negativeTimeToLive <= 0) {
+      return null;
+    }
+    return (KnoxCache<K, Boolean>) this.<K, Boolean>getCache(realmName + NEGATIVE_AUTHENTICATION_CACHE_SUFFIX);
+  }
+
+  private KnoxCache<?, ?> createCache(String name) {
+    String shortName = name.substring(name.lastIndexOf('.') + 1);
+    Long ttl = lookup(timeToLiveByCache, name, shortName);
+    if (ttl == null) {
+      ttl = name.endsWith(NEGATIVE_AUTHENTICATION_CACHE_SUFFIX) ? negativeTimeToLive : timeToLive;
+    }
+    Integer max = lookup(maxEntriesByCache, name, shortName);
+    KnoxCache<?, ?> cache = new KnoxCache<>(name, max != null ? max : maxEntries, ttl, refreshAhead,
+        getRefreshExecutor());
+    GatewayServices services = GatewayServer.getGatewayServices();
+    if (services != null) {
+      MetricsService metricsService = services.getService(GatewayServices.METRICS_SERVICE);
+      if (metricsService != null) {
+        cache.registerMetrics(metricsService, MetricRegistry.name(KnoxCacheManager.class, clusterName, name));
+      }
+    }
+    return cache;
+  }
+
+  private static <T> T lookup(Map<String, T> values, String name, String shortName) {
+    T value = values.get(name);
+    return value != null ? value : values.get(shortName);
+  }
+
+  private synchronized ThreadPoolExecutor getRefreshExecutor() {
+    if (refreshExecutor == null) {
+      // Reloads that don't fit in the queue are skipped, the entry is loaded again once it expires.
+      refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60L, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<Runnable>(1000), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "shiro-cache-refresh");
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      refreshExecutor.allowCoreThreadTimeOut(true);
+    }
+    return refreshExecutor;
+  }
+
+  @Override
+  public synchronized void destroy() {
+    for (KnoxCache<?, ?> cache : caches.values()) {
+      cache.unregisterMetrics();
+      cache.clear();
+    }
+    caches.clear();
+    if (refreshExecutor != null) {
+      refreshExecutor.shutdownNow();
+      refreshExecutor = null;
+    }
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  /**
+   * @param timeToLive the default time in milliseconds after which an entry expires
+   */
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public void setMaxEntries(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  public double getRefreshAhead() {
+    return refreshAhead;
+  }
+
+  /**
+   * @param refreshAhead the part of the time to live after which a read reloads the entry, 0 disables reloads
+   */
+  public void setRefreshAhead(double refreshAhead) {
+    this.refreshAhead = refreshAhead;
+  }
+
+  public long getNegativeTimeToLive() {
+    return negativeTimeToLive;
+  }
+
+  /**
+   * @param negativeTimeToLive the time in milliseconds a failed bind is remembered, 0 disables negative caching
+   */
+  public void setNegativeTimeToLive(long negativeTimeToLive) {
+    this.negativeTimeToLive = negativeTimeToLive;
+  }
+
+  public int getRefreshThreads() {
+    return refreshThreads;
+  }
+
+  public void setRefreshThreads(int refreshThreads) {
+    this.refreshThreads = refreshThreads;
+  }
+
+  public void setTimeToLiveByCache(Map<String, String> timeToLiveByCache) {
+    for (Map.Entry<String, String> entry : timeToLiveByCache.entrySet()) {
+      this.timeToLiveByCache.put(entry.getKey().trim(), Long.parseLong(entry.getValue().trim()));
+    }
+  }
+
+  public void setMaxEntriesByCache(Map<String, String> maxEntriesByCache) {
+    for (Map.Entry<String, String> entry : maxEntriesByCache.entrySet()) {
+      this.maxEntriesByCache.put(entry.getKey().trim(), Integer.parseInt(entry.getValue().trim()));
+    }
+  }
+
+  public String getCacheManagerConfigFile() {
+    return cacheManagerConfigFile;
+  }
+
+  /**
+   * Takes the time to live and size of the caches from an EhCache configuration.
+   * The defaultCache sets the defaults and each named cache its own settings,
+   * cache settings configured explicitly take precedence. The other EhCache
+   * settings, e.g. time to idle or disk overflow, are not supported and ignored.
+   *
+   * @param path the EhCache configuration, a file path or a classpath:, file: or url: resource
+   */
+  public void setCacheManagerConfigFile(String path) {
+    Document document;
+    try (InputStream input = ResourceUtils.getInputStreamForPath(path)) {
+      document = XmlUtils.readXml(input);
+    } catch (Exception e) {
+      throw new CacheException("Unable to read cache manager configuration " + path, e);
+    }
+    NodeList defaults = document.getElementsByTagName("defaultCache");
+    if (defaults.getLength() > 0) {
+      Element element = (Element) defaults.item(0);
+      Long ttl = getEhCacheTimeToLive(element);
+      if (ttl != null) {
+        timeToLive = ttl;
+      }
+      Integer max = getEhCacheMaxEntries(element);
+      if (max != null) {
+        maxEntries = max;
+      }
+    }
+    NodeList caches = document.getElementsByTagName("cache");
+    for (int i = 0; i < caches.getLength(); i++) {
+      Element element = (Element) caches.item(i);
+      String name = element.getAttribute("name").trim();
+      if (name.isEmpty()) {
+        continue;
+      }
+      Long ttl = getEhCacheTimeToLive(element);
+      if (ttl != null && !timeToLiveByCache.containsKey(name)) {
+        timeToLiveByCache.put(name, ttl);
+      }
+      Integer max = getEhCacheMaxEntries(element);
+      if (max != null && !maxEntriesByCache.containsKey(name)) {
+        maxEntriesByCache.put(name, max);
+      }
+    }
+    cacheManagerConfigFile = path;
+    LOG.usingEhCacheConfiguration(path);
+  }
+
+  // EhCache entries without a time to live, or with only a time to idle, are eternal.
+  private static Long getEhCacheTimeToLive(Element element) {
+    if (Boolean.parseBoolean(element.getAttribute("eternal").trim())) {
+      return Long.MAX_VALUE;
+    }
+    String seconds = element.getAttribute("timeToLiveSeconds").trim();
+    if (seconds.isEmpty()) {
+      return null;
+    }
+    long ttl = Long.parseLong(seconds);
+    return ttl > 0 ? TimeUnit.SECONDS.toMillis(ttl) : Long.MAX_VALUE;
+  }
+
+  // A size of 0 means unbounded to EhCache.
+  private static Integer getEhCacheMaxEntries(Element element) {
+    String max = element.getAttribute("maxEntriesLocalHeap").trim();
+    if (max.isEmpty()) {
+      max = element.getAttribute("maxElementsInMemory").trim();
+    }
+    if (max.isEmpty()) {
+      return null;
+    }
+    int entries = Integer.parseInt(max);
+    return entries > 0 ? entries : Integer.MAX_VALUE;
+  }
+
+  public String getClusterName() {
+    return clusterName;
+  }
+
+  public void setClusterName(String clusterName) {
+    if (clusterName != null) {
+      this.clusterName = clusterName.trim();
+    }
   }
 }
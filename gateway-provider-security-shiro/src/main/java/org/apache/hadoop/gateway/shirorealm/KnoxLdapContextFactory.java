@@ -31,25 +31,49 @@ import org.apache.hadoop.gateway.config.impl.GatewayConfigImpl;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.security.AliasService;
+import org.apache.hadoop.gateway.services.metrics.MetricsService;
 import org.apache.hadoop.gateway.services.security.AliasServiceException;
 import org.apache.hadoop.gateway.util.KnoxCLI;
 import org.apache.shiro.realm.ldap.JndiLdapContextFactory;
+import org.apache.shiro.util.Destroyable;
+
+import com.codahale.metrics.MetricRegistry;
 
 /**
  * An extension of {@link JndiLdapContextFactory} that allows a different authentication mechanism
  * for system-level authentications (as used by authorization lookups, for example)
  * compared to regular authentication.
+ * <p>
+ * System contexts and user bind contexts can each be served from a pool of
+ * LDAP connections, see {@link #setSystemPoolMaxSize(int)} and
+ * {@link #setBindPoolMaxSize(int)}. A pooled bind connection is bound again
+ * as the next user that authenticates. Both pools are disabled by default.
  * 
  * <p>
  * See {@link IsisLdapRealm} for typical configuration within <tt>shiro.ini</tt>.
  */
-public class KnoxLdapContextFactory extends JndiLdapContextFactory {
+public class KnoxLdapContextFactory extends JndiLdapContextFactory implements Destroyable {
 
     private static GatewayMessages LOG = MessagesFactory.get( GatewayMessages.class );
+
+    private static final String SUN_CONNECTION_POOLING_PROPERTY = "com.sun.jndi.ldap.connect.pool";
+
+    private static final String[] BIND_PROPERTIES = {
+        Context.SECURITY_AUTHENTICATION, Context.SECURITY_PRINCIPAL, Context.SECURITY_CREDENTIALS };
   
     private String systemAuthenticationMechanism = "simple";
     private String clusterName = "";
 
+    private int systemPoolMinSize = 0;
+    private int systemPoolMaxSize = 0;
+    private int bindPoolMaxSize = 0;
+    private long poolMaxWait = 5000L;
+    private long poolIdleTimeout = 300000L;
+    private long poolValidationInterval = 30000L;
+
+    private LdapContextPool systemPool;
+    private LdapContextPool bindPool;
+
     public KnoxLdapContextFactory() {
       setAuthenticationMechanism("simple");
     }
@@ -57,10 +81,95 @@ public class KnoxLdapContextFactory extends JndiLdapContextFactory {
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Override
     protected LdapContext createLdapContext(Hashtable env) throws NamingException {
-        if(getSystemUsername() != null && getSystemUsername().equals(env.get(Context.SECURITY_PRINCIPAL))) {
+        boolean system = getSystemUsername() != null && getSystemUsername().equals(env.get(Context.SECURITY_PRINCIPAL));
+        if(system) {
             env.put(Context.SECURITY_AUTHENTICATION, getSystemAuthenticationMechanism());
         }
-        return super.createLdapContext(env);
+        LdapContextPool pool = null;
+        if (system) {
+          pool = getSystemPool();
+        } else if (env.get(Context.SECURITY_PRINCIPAL) != null) {
+          pool = getBindPool();
+        }
+        if (pool == null) {
+          return super.createLdapContext(env);
+        }
+        // The pool owns the connections, JNDI must not share them with other contexts.
+        env.remove(SUN_CONNECTION_POOLING_PROPERTY);
+        return pool.borrow(new PoolConnector(env, !system));
+    }
+
+    private synchronized LdapContextPool getSystemPool() {
+      if (systemPool == null && systemPoolMaxSize > 0) {
+        systemPool = createPool("system", systemPoolMinSize, systemPoolMaxSize);
+      }
+      return systemPool;
+    }
+
+    private synchronized LdapContextPool getBindPool() {
+      if (bindPool == null && bindPoolMaxSize > 0) {
+        bindPool = createPool("bind", 0, bindPoolMaxSize);
+      }
+      return bindPool;
+    }
+
+    private LdapContextPool createPool(String type, int minSize, int maxSize) {
+      LdapContextPool pool = new LdapContextPool(clusterName + "-" + type, minSize, maxSize,
+          poolMaxWait, poolIdleTimeout, poolValidationInterval);
+      GatewayServices services = GatewayServer.getGatewayServices();
+      if (services != null) {
+        MetricsService metricsService = services.getService(GatewayServices.METRICS_SERVICE);
+        if (metricsService != null) {
+          pool.registerMetrics(metricsService, MetricRegistry.name(KnoxLdapContextFactory.class, clusterName, type));
+        }
+      }
+      return pool;
+    }
+
+    @Override
+    public synchronized void destroy() {
+      if (systemPool != null) {
+        systemPool.unregisterMetrics();
+        systemPool.close();
+        systemPool = null;
+      }
+      if (bindPool != null) {
+        bindPool.unregisterMetrics();
+        bindPool.close();
+        bindPool = null;
+      }
+    }
+
+    private class PoolConnector implements LdapContextPool.Connector {
+      private final Hashtable<?, ?> env;
+      private final boolean rebind;
+
+      private PoolConnector(Hashtable<?, ?> env, boolean rebind) {
+        this.env = env;
+        this.rebind = rebind;
+      }
+
+      @Override
+      public LdapContext connect() throws NamingException {
+        return KnoxLdapContextFactory.super.createLdapContext(env);
+      }
+
+      @Override
+      public void reuse(LdapContext context) throws NamingException {
+        // Pooled system connections are already bound as the system user,
+        // bind connections are bound again as the authenticating user.
+        if (rebind) {
+          for (String property : BIND_PROPERTIES) {
+            Object value = env.get(property);
+            if (value != null) {
+              context.addToEnvironment(property, value);
+            } else {
+              context.removeFromEnvironment(property);
+            }
+          }
+          context.reconnect(null);
+        }
+      }
     }
 
     public String getSystemAuthenticationMechanism() {
@@ -115,6 +224,60 @@ public class KnoxLdapContextFactory extends JndiLdapContextFactory {
       }
     }
     
+    public int getSystemPoolMinSize() {
+      return systemPoolMinSize;
+    }
+
+    public void setSystemPoolMinSize(int systemPoolMinSize) {
+      this.systemPoolMinSize = systemPoolMinSize;
+    }
+
+    public int getSystemPoolMaxSize() {
+      return systemPoolMaxSize;
+    }
+
+    /**
+     * @param systemPoolMaxSize the maximum number of pooled system connections, 0 disables the pool
+     */
+    public void setSystemPoolMaxSize(int systemPoolMaxSize) {
+      this.systemPoolMaxSize = systemPoolMaxSize;
+    }
+
+    public int getBindPoolMaxSize() {
+      return bindPoolMaxSize;
+    }
+
+    /**
+     * @param bindPoolMaxSize the maximum number of pooled user bind connections, 0 disables the pool
+     */
+    public void setBindPoolMaxSize(int bindPoolMaxSize) {
+      this.bindPoolMaxSize = bindPoolMaxSize;
+    }
+
+    public long getPoolMaxWait() {
+      return poolMaxWait;
+    }
+
+    public void setPoolMaxWait(long poolMaxWait) {
+      this.poolMaxWait = poolMaxWait;
+    }
+
+    public long getPoolIdleTimeout() {
+      return poolIdleTimeout;
+    }
+
+    public void setPoolIdleTimeout(long poolIdleTimeout) {
+      this.poolIdleTimeout = poolIdleTimeout;
+    }
+
+    public long getPoolValidationInterval() {
+      return poolValidationInterval;
+    }
+
+    public void setPoolValidationInterval(long poolValidationInterval) {
+      this.poolValidationInterval = poolValidationInterval;
+    }
+
     public String getClusterName() {
       return clusterName;
     }
@@ -20,6 +20,10 @@
 package org.apache.hadoop.gateway.shirorealm;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -47,6 +51,7 @@ import javax.naming.ldap.LdapContext;
 import javax.naming.ldap.LdapName;
 import javax.naming.ldap.PagedResultsControl;
 import javax.naming.ldap.PagedResultsResponseControl;
+import javax.naming.ldap.Rdn;
 
 import org.apache.hadoop.gateway.GatewayMessages;
 import org.apache.hadoop.gateway.audit.api.Action;
@@ -63,6 +68,9 @@ import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.authc.SimpleAuthenticationInfo;
 import org.apache.shiro.authc.credential.HashedCredentialsMatcher;
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheManager;
+import org.apache.shiro.authz.AuthorizationException;
 import org.apache.shiro.authz.AuthorizationInfo;
 import org.apache.shiro.authz.SimpleAuthorizationInfo;
 import org.apache.shiro.crypto.hash.DefaultHashService;
@@ -106,6 +114,11 @@ import org.apache.shiro.util.StringUtils;
  * [urls]
  * **=authcBasic
  *
+ * # optional, ask the server for the user's groups only instead of reading
+ * # every group under the group search base: all (default), member, memberof
+ * # or inchain (Active Directory nested groups)
+ * ldapRealm.groupSearchMode=member
+ *
  * # optional mapping from physical groups to logical application roles
  * ldapRealm.rolesByGroup = \
  *    LDN_USERS: user_role,\
@@ -148,6 +161,16 @@ public class KnoxLdapRealm extends JndiLdapRealm {
 
     private static final String POSIX_GROUP = "posixGroup";
 
+    private static final String MEMBER_OF = "memberOf";
+
+    // Active Directory LDAP_MATCHING_RULE_IN_CHAIN, matches nested group membership.
+    private static final String MATCHING_RULE_IN_CHAIN = "1.2.840.113556.1.4.1941";
+
+    static final String GROUP_SEARCH_MODE_ALL = "all";
+    static final String GROUP_SEARCH_MODE_MEMBER = "member";
+    static final String GROUP_SEARCH_MODE_MEMBER_OF = "memberof";
+    static final String GROUP_SEARCH_MODE_IN_CHAIN = "inchain";
+
     private static final String HASHING_ALGORITHM = "SHA-256";
 
     static {
@@ -174,6 +197,8 @@ public class KnoxLdapRealm extends JndiLdapRealm {
     private String memberAttribute = "member";
 
     private String groupIdAttribute = "cn";
+
+    private String groupSearchMode = GROUP_SEARCH_MODE_ALL;
     
     private String memberAttributeValuePrefix = "uid={0}";
     private String memberAttributeValueSuffix = "";
@@ -196,9 +221,18 @@ public class KnoxLdapRealm extends JndiLdapRealm {
   @Override
   //KNOX-534 overriding this method to be able to audit authentication exceptions
   protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws org.apache.shiro.authc.AuthenticationException {
+    KnoxCache<ByteBuffer, Boolean> failedBinds = getFailedBindCache();
+    ByteBuffer failedBindKey = failedBinds != null ? failedBindKey(token) : null;
     try {
+      if (failedBindKey != null && failedBinds.get(failedBindKey) != null) {
+        throw new org.apache.shiro.authc.AuthenticationException("LDAP authentication recently failed with the same credentials");
+      }
       return super.doGetAuthenticationInfo(token);
     } catch ( org.apache.shiro.authc.AuthenticationException e ) {
+      // Only remember rejected credentials, not failures to reach the directory.
+      if (failedBindKey != null && e.getCause() instanceof AuthenticationException) {
+        failedBinds.put(failedBindKey, Boolean.TRUE);
+      }
       auditor.audit( Action.AUTHENTICATION , token.getPrincipal().toString(), ResourceType.PRINCIPAL, ActionOutcome.FAILURE, e.getMessage() );
       ShiroLog.failedLoginInfo(token);
       ShiroLog.failedLoginStackTrace(e);
@@ -208,6 +242,94 @@ public class KnoxLdapRealm extends JndiLdapRealm {
     }
   }
 
+  private KnoxCache<ByteBuffer, Boolean> getFailedBindCache() {
+    CacheManager cacheManager = getCacheManager();
+    if (cacheManager instanceof KnoxCacheManager) {
+      return ((KnoxCacheManager) cacheManager).getNegativeAuthenticationCache(getName());
+    }
+    return null;
+  }
+
+  private static ByteBuffer failedBindKey(AuthenticationToken token) {
+    Object credentials = token.getCredentials();
+    String secret = credentials instanceof char[] ? new String((char[]) credentials) : String.valueOf(credentials);
+    try {
+      MessageDigest md = MessageDigest.getInstance(HASHING_ALGORITHM);
+      md.update(String.valueOf(token.getPrincipal()).getBytes(StandardCharsets.UTF_8));
+      md.update((byte) 0);
+      return ByteBuffer.wrap(md.digest(secret.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Reloads the cached authentication info of users that keep authenticating
+   * before it expires, using the credentials they just presented. The reload
+   * removes the entry if the directory now rejects the credentials.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected void assertCredentialsMatch(final AuthenticationToken token, AuthenticationInfo info)
+      throws org.apache.shiro.authc.AuthenticationException {
+    super.assertCredentialsMatch(token, info);
+    Cache<Object, AuthenticationInfo> cache = getAuthenticationCache();
+    if (cache instanceof KnoxCache) {
+      ((KnoxCache<Object, AuthenticationInfo>) cache).refreshAhead(getAuthenticationCacheKey(token),
+          new KnoxCache.Loader<Object, AuthenticationInfo>() {
+            @Override
+            public AuthenticationInfo load(Object key) {
+              return doGetAuthenticationInfo(token);
+            }
+
+            @Override
+            public AuthenticationInfo reload(Object key, AuthenticationInfo oldValue) {
+              try {
+                return doGetAuthenticationInfo(token);
+              } catch (org.apache.shiro.authc.AuthenticationException e) {
+                if (e.getCause() instanceof AuthenticationException) {
+                  return null;
+                }
+                throw e;
+              }
+            }
+          });
+    }
+  }
+
+  /**
+   * Loads the authorization info through a {@link KnoxCache} when one is used,
+   * so that it is reloaded in the background before it expires.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected AuthorizationInfo getAuthorizationInfo(final PrincipalCollection principals) {
+    Cache<Object, AuthorizationInfo> cache = getAuthorizationCache();
+    if (principals == null || !(cache instanceof KnoxCache)) {
+      return super.getAuthorizationInfo(principals);
+    }
+    try {
+      return ((KnoxCache<Object, AuthorizationInfo>) cache).get(getAuthorizationCacheKey(principals),
+          new KnoxCache.Loader<Object, AuthorizationInfo>() {
+            @Override
+            public AuthorizationInfo load(Object key) {
+              return doGetAuthorizationInfo(principals);
+            }
+
+            @Override
+            public AuthorizationInfo reload(Object key, AuthorizationInfo oldValue) throws NamingException {
+              // The reload runs outside of the request, the subject was updated by the first load.
+              return queryForAuthorizationInfo(principals, getContextFactory(), false);
+            }
+          });
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new AuthorizationException(e);
+    }
+  }
+
   /**
      * Get groups from LDAP.
      * 
@@ -224,10 +346,15 @@ public class KnoxLdapRealm extends JndiLdapRealm {
     @Override
     protected AuthorizationInfo queryForAuthorizationInfo(final PrincipalCollection principals, 
         final LdapContextFactory ldapContextFactory) throws NamingException {
+      return queryForAuthorizationInfo(principals, ldapContextFactory, true);
+    }
+
+    private AuthorizationInfo queryForAuthorizationInfo(final PrincipalCollection principals,
+        final LdapContextFactory ldapContextFactory, final boolean updateSubject) throws NamingException {
       if (!isAuthorizationEnabled()) {
         return null;
       }
-      final Set<String> roleNames = getRoles(principals, ldapContextFactory);
+      final Set<String> roleNames = getRoles(principals, ldapContextFactory, updateSubject);
         SimpleAuthorizationInfo simpleAuthorizationInfo = new SimpleAuthorizationInfo(roleNames);
         Set<String> stringPermissions = permsFor(roleNames);
         simpleAuthorizationInfo.setStringPermissions(stringPermissions);
@@ -235,13 +362,13 @@ public class KnoxLdapRealm extends JndiLdapRealm {
     }
 
     private Set<String> getRoles(PrincipalCollection principals,
-        final LdapContextFactory ldapContextFactory) throws NamingException {
+        final LdapContextFactory ldapContextFactory, final boolean updateSubject) throws NamingException {
         final String username = (String) getAvailablePrincipal(principals);
 
         LdapContext systemLdapCtx = null;
         try {
             systemLdapCtx = ldapContextFactory.getSystemLdapContext();
-            return rolesFor(principals, username, systemLdapCtx, ldapContextFactory);
+            return rolesFor(principals, username, systemLdapCtx, ldapContextFactory, updateSubject);
         } catch (AuthenticationException e) {
           LOG.failedToGetSystemLdapConnection(e);
           return Collections.emptySet();
@@ -251,18 +378,49 @@ public class KnoxLdapRealm extends JndiLdapRealm {
     }
 
     private Set<String> rolesFor(PrincipalCollection principals, final String userName, final LdapContext ldapCtx,
-        final LdapContextFactory ldapContextFactory) throws NamingException {
+        final LdapContextFactory ldapContextFactory, final boolean updateSubject) throws NamingException {
       final Set<String> roleNames = new HashSet<>();
       final Set<String> groupNames = new HashSet<>();
 
       String userDn;
       if (userSearchAttributeName == null || userSearchAttributeName.isEmpty()) {
-        // memberAttributeValuePrefix and memberAttributeValueSuffix were computed from memberAttributeValueTemplate
-        userDn = memberAttributeValuePrefix + userName + memberAttributeValueSuffix;
+        userDn = getMemberDn(userName);
       } else {
         userDn = getUserDn(userName);
       }
 
+      if (GROUP_SEARCH_MODE_MEMBER_OF.equals(getEffectiveGroupSearchMode())) {
+        addRolesFromMemberOf(userDn, ldapCtx, roleNames, groupNames);
+      } else {
+        searchGroups(userName, userDn, ldapCtx, ldapContextFactory, roleNames, groupNames);
+      }
+
+      if (updateSubject) {
+        // save role names and group names in session so that they can be easily looked up outside of this object
+        SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_ROLES, roleNames);
+        SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_GROUPS, groupNames);
+        if (!groupNames.isEmpty() && (principals instanceof MutablePrincipalCollection)) {
+          ((MutablePrincipalCollection)principals).addAll(groupNames, getName());
+        }
+      }
+      LOG.lookedUpUserRoles(roleNames, userName);
+
+      return roleNames;
+    }
+
+    private void searchGroups(final String userName, final String userDn, final LdapContext ldapCtx,
+        final LdapContextFactory ldapContextFactory, final Set<String> roleNames,
+        final Set<String> groupNames) throws NamingException {
+      // With a member filter the server only returns the user's groups, so only their names are needed.
+      final boolean memberFiltered = !GROUP_SEARCH_MODE_ALL.equals(getEffectiveGroupSearchMode());
+      final String filter = getGroupSearchFilter();
+      final Object[] filterArgs = memberFiltered ? new Object[]{ getMemberFilterValue(userName, userDn) } : new Object[0];
+      final SearchControls searchControls = new SearchControls();
+      searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+      searchControls.setReturningAttributes(memberFiltered
+          ? new String[]{ getGroupIdAttribute() }
+          : new String[]{ getGroupIdAttribute(), memberAttribute });
+
       // Activate paged results
       int pageSize = 100;
       int numResults = 0;
@@ -280,13 +438,21 @@ public class KnoxLdapRealm extends JndiLdapRealm {
           try {
             searchResultEnum = ldapCtx.search(
                 getGroupSearchBase(),
-                "objectClass=" + groupObjectClass,
-                SUBTREE_SCOPE);
+                filter,
+                filterArgs,
+                searchControls);
 
             while (searchResultEnum != null && searchResultEnum.hasMore()) { // searchResults contains all the groups in search scope
               numResults++;
               final SearchResult group = searchResultEnum.next();
-              addRoleIfMember(userDn, group, roleNames, groupNames, ldapContextFactory);
+              if (memberFiltered) {
+                Attribute attribute = group.getAttributes().get(getGroupIdAttribute());
+                if (attribute != null) {
+                  addGroup(attribute.get().toString(), roleNames, groupNames);
+                }
+              } else {
+                addRoleIfMember(userDn, group, roleNames, groupNames, ldapContextFactory);
+              }
             }
           } catch (PartialResultException e) {
             LOG.ignoringPartialResultException();
@@ -317,16 +483,54 @@ public class KnoxLdapRealm extends JndiLdapRealm {
         LOG.unableToSetupPagedResults();
 //        System.out.println("Unabled to setup paged results");
       }
+    }
 
-      // save role names and group names in session so that they can be easily looked up outside of this object
-      SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_ROLES, roleNames);
-      SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_GROUPS, groupNames);
-      if (!groupNames.isEmpty() && (principals instanceof MutablePrincipalCollection)) {
-        ((MutablePrincipalCollection)principals).addAll(groupNames, getName());
+    private void addRolesFromMemberOf(final String userDn, final LdapContext ldapCtx,
+        final Set<String> roleNames, final Set<String> groupNames) throws NamingException {
+      LdapName groupBaseDn = new LdapName(getGroupSearchBase());
+      NamingEnumeration<?> e = null;
+      try {
+        Attribute memberOf = ldapCtx.getAttributes(userDn, new String[]{ MEMBER_OF }).get(MEMBER_OF);
+        if (memberOf == null) {
+          return;
+        }
+        e = memberOf.getAll();
+        while (e.hasMore()) {
+          LdapName groupDn = new LdapName(e.next().toString());
+          if (!groupDn.startsWith(groupBaseDn)) {
+            continue;
+          }
+          String groupName = groupNameFor(groupDn, ldapCtx);
+          if (groupName != null) {
+            addGroup(groupName, roleNames, groupNames);
+          }
+        }
+      } finally {
+        if (e != null) {
+          e.close();
+        }
       }
-      LOG.lookedUpUserRoles(roleNames, userName);
+    }
 
-      return roleNames;
+    private String groupNameFor(final LdapName groupDn, final LdapContext ldapCtx) throws NamingException {
+      // The group id is usually the RDN of the group, only read the group entry when it isn't.
+      Rdn rdn = groupDn.getRdn(groupDn.size() - 1);
+      if (getGroupIdAttribute().equalsIgnoreCase(rdn.getType())) {
+        return rdn.getValue().toString();
+      }
+      Attribute attribute = ldapCtx.getAttributes(groupDn, new String[]{ getGroupIdAttribute() })
+          .get(getGroupIdAttribute());
+      return attribute != null ? attribute.get().toString() : null;
+    }
+
+    private void addGroup(final String groupName, final Set<String> roleNames, final Set<String> groupNames) {
+      groupNames.add(groupName);
+      String roleName = roleNameFor(groupName);
+      if (roleName != null) {
+        roleNames.add(roleName);
+      } else {
+        roleNames.add(groupName);
+      }
     }
 
   private void addRoleIfMember(final String userDn, final SearchResult group,
@@ -355,26 +559,14 @@ public class KnoxLdapRealm extends JndiLdapRealm {
                 attrValue, // memberUrl value
                 ldapContextFactory);
             if (dynamicGroupMember) {
-              groupNames.add(groupName);
-              String roleName = roleNameFor(groupName);
-              if (roleName != null) {
-                roleNames.add(roleName);
-              } else {
-                roleNames.add(groupName);
-              }
+              addGroup(groupName, roleNames, groupNames);
             }
           } else {
             if (groupObjectClass.equalsIgnoreCase(POSIX_GROUP)){
-              attrValue = memberAttributeValuePrefix + attrValue + memberAttributeValueSuffix;
+              attrValue = getMemberDn(attrValue);
             }
             if (userLdapDn.equals(new LdapName(attrValue))) {
-              groupNames.add(groupName);
-              String roleName = roleNameFor(groupName);
-              if (roleName != null) {
-                roleNames.add(roleName);
-              } else {
-                roleNames.add(groupName);
-              }
+              addGroup(groupName, roleNames, groupNames);
               break;
             }
           }
@@ -461,6 +653,60 @@ public class KnoxLdapRealm extends JndiLdapRealm {
         this.groupIdAttribute = groupIdAttribute;
     }
     
+    public String getGroupSearchMode() {
+      return groupSearchMode;
+    }
+
+    public void setGroupSearchMode(String groupSearchMode) {
+      if (groupSearchMode == null || groupSearchMode.trim().isEmpty()) {
+        this.groupSearchMode = GROUP_SEARCH_MODE_ALL;
+        return;
+      }
+      String mode = groupSearchMode.trim().toLowerCase();
+      if (!GROUP_SEARCH_MODE_ALL.equals(mode) && !GROUP_SEARCH_MODE_MEMBER.equals(mode)
+          && !GROUP_SEARCH_MODE_MEMBER_OF.equals(mode) && !GROUP_SEARCH_MODE_IN_CHAIN.equals(mode)) {
+        throw new IllegalArgumentException("Unknown group search mode: " + groupSearchMode);
+      }
+      this.groupSearchMode = mode;
+    }
+
+    /**
+     * Dynamic groups list their members as LDAP URLs that have to be evaluated
+     * one by one, the server can't filter them so they are always fully searched.
+     */
+    String getEffectiveGroupSearchMode() {
+      return memberAttribute.equalsIgnoreCase(MEMBER_URL) ? GROUP_SEARCH_MODE_ALL : groupSearchMode;
+    }
+
+    /**
+     * Returns the group search filter, the user is passed as filter argument
+     * {0} so JNDI escapes it.
+     */
+    String getGroupSearchFilter() {
+      String mode = getEffectiveGroupSearchMode();
+      if (GROUP_SEARCH_MODE_MEMBER.equals(mode)) {
+        return String.format("(&(objectClass=%1$s)(%2$s={0}))", groupObjectClass, memberAttribute);
+      } else if (GROUP_SEARCH_MODE_IN_CHAIN.equals(mode)) {
+        return String.format("(&(objectClass=%1$s)(%2$s:%3$s:={0}))", groupObjectClass, memberAttribute,
+            MATCHING_RULE_IN_CHAIN);
+      }
+      return String.format("(objectClass=%1$s)", groupObjectClass);
+    }
+
+    /**
+     * Expands the member attribute value template for the user name, which is
+     * escaped as an RDN value before it replaces {0}.
+     */
+    private String getMemberDn(final String userName) {
+      // memberAttributeValuePrefix and memberAttributeValueSuffix were computed from memberAttributeValueTemplate
+      return memberAttributeValuePrefix + Rdn.escapeValue(userName) + memberAttributeValueSuffix;
+    }
+
+    private String getMemberFilterValue(final String userName, final String userDn) {
+      // posixGroup memberUid values hold the bare user name rather than a DN.
+      return groupObjectClass.equalsIgnoreCase(POSIX_GROUP) ? userName : userDn;
+    }
+
     public void setMemberAttributeValueTemplate(String template) {
         if (!StringUtils.hasText(template)) {
             String msg = "User DN template cannot be null or empty.";
@@ -0,0 +1,416 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.SearchControls;
+import javax.naming.ldap.LdapContext;
+
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.metrics.MetricsService;
+import org.apache.hadoop.gateway.shirorealm.impl.i18n.KnoxShiroMessages;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * A bounded pool of LDAP connections. At most maxSize connections are borrowed at
+ * a time, a caller waits up to maxWait milliseconds for one to be returned.
+ * Borrowed contexts go back to the pool when they are closed, after the request
+ * controls and environment changes made by the borrower have been undone.
+ * Connections idle for longer than the validation interval are checked with a
+ * root DSE read before they are handed out, and connections idle for longer
+ * than the idle timeout are closed in the background, keeping minSize of them.
+ */
+class LdapContextPool {
+
+  private static final KnoxShiroMessages LOG = MessagesFactory.get( KnoxShiroMessages.class );
+
+  private static final ScheduledExecutorService REAPER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "ldap-pool-reaper");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  private static final SearchControls VALIDATION_CONTROLS = new SearchControls(
+      SearchControls.OBJECT_SCOPE, 1, 0, new String[]{ "1.1" }, false, false);
+
+  /**
+   * Opens new connections and prepares idle ones for a borrower.
+   */
+  interface Connector {
+
+    LdapContext connect() throws NamingException;
+
+    /**
+     * Prepares an idle connection for reuse, e.g. by binding it as another user.
+     */
+    void reuse(LdapContext context) throws NamingException;
+
+  }
+
+  private final String name;
+  private final int minSize;
+  private final long maxWait;
+  private final long idleTimeout;
+  private final long validationInterval;
+  private final Semaphore permits;
+  private final ConcurrentLinkedDeque<Entry> idle = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger active = new AtomicInteger();
+  private final Timer waits = new Timer();
+  private final Gauge<Integer> activeGauge = new Gauge<Integer>() {
+    @Override
+    public Integer getValue() {
+      return active.get();
+    }
+  };
+  private final Gauge<Integer> idleGauge = new Gauge<Integer>() {
+    @Override
+    public Integer getValue() {
+      return idle.size();
+    }
+  };
+  private final ScheduledFuture<?> reaper;
+  private volatile boolean closed;
+  private MetricsService metricsService;
+  private String metricsPrefix;
+
+  /**
+   * @param name the pool name used in log messages
+   * @param minSize the number of idle connections kept open by the reaper
+   * @param maxSize the maximum number of open connections
+   * @param maxWait the maximum time in milliseconds to wait for a connection
+   * @param idleTimeout the time in milliseconds after which an idle connection is closed
+   * @param validationInterval the idle time in milliseconds after which a connection is checked before reuse
+   */
+  LdapContextPool(String name, int minSize, int maxSize, long maxWait, long idleTimeout, long validationInterval) {
+    this.name = name;
+    this.minSize = minSize;
+    this.maxWait = maxWait;
+    this.idleTimeout = idleTimeout;
+    this.validationInterval = validationInterval;
+    this.permits = new Semaphore(maxSize, true);
+    long period = Math.max(1000L, idleTimeout / 2);
+    this.reaper = REAPER.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        reap();
+      }
+    }, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns an idle connection prepared by the connector, or a new one if there is
+   * none. The returned context must be closed to give the connection back.
+   */
+  LdapContext borrow(Connector connector) throws NamingException {
+    if (closed) {
+      throw new ServiceUnavailableException("LDAP connection pool " + name + " is closed");
+    }
+    Timer.Context wait = waits.time();
+    try {
+      if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+        throw new ServiceUnavailableException(
+            "Timed out after " + maxWait + "ms waiting for a connection from LDAP pool " + name);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailableException("Interrupted waiting for a connection from LDAP pool " + name);
+    } finally {
+      wait.stop();
+    }
+    try {
+      LdapContext context = null;
+      Entry entry;
+      while (context == null && (entry = claimIdle()) != null) {
+        if (System.currentTimeMillis() - entry.checked > validationInterval && !isValid(entry.context)) {
+          destroy(entry.context);
+          continue;
+        }
+        try {
+          connector.reuse(entry.context);
+          context = entry.context;
+        } catch (NamingException e) {
+          destroy(entry.context);
+          throw e;
+        }
+      }
+      if (context == null) {
+        context = connector.connect();
+      }
+      active.incrementAndGet();
+      return wrap(context);
+    } catch (NamingException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Takes the most recently used idle connection that isn't being validated by the reaper.
+   */
+  private Entry claimIdle() {
+    for (Entry entry : idle) {
+      if (entry.claim()) {
+        idle.removeFirstOccurrence(entry);
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private void release(LdapContext context, boolean broken) {
+    active.decrementAndGet();
+    if (broken || closed) {
+      destroy(context);
+    } else {
+      idle.offerFirst(new Entry(context));
+    }
+    permits.release();
+  }
+
+  private static boolean isValid(LdapContext context) {
+    NamingEnumeration<?> results = null;
+    try {
+      results = context.search("", "(objectClass=*)", VALIDATION_CONTROLS);
+      return results.hasMore();
+    } catch (NamingException e) {
+      return false;
+    } finally {
+      if (results != null) {
+        try {
+          results.close();
+        } catch (NamingException e) {
+          // Ignore exception on close.
+        }
+      }
+    }
+  }
+
+  private void destroy(LdapContext context) {
+    try {
+      context.close();
+    } catch (NamingException e) {
+      LOG.failedToClosePooledLdapConnection(name, e);
+    }
+  }
+
+  void reap() {
+    long now = System.currentTimeMillis();
+    int keep = minSize;
+    // Idle connections are kept most recently used first, so the oldest are at the end.
+    // They are checked in place, claiming an entry keeps it from being borrowed meanwhile.
+    Iterator<Entry> entries = idle.iterator();
+    while (entries.hasNext()) {
+      Entry entry = entries.next();
+      if (!entry.claim()) {
+        // Borrowed since the iteration started.
+        continue;
+      }
+      long idleTime = now - entry.since;
+      if (closed || (idleTime > idleTimeout && keep <= 0)) {
+        idle.removeFirstOccurrence(entry);
+        destroy(entry.context);
+      } else {
+        keep--;
+        if (now - entry.checked > validationInterval) {
+          if (!isValid(entry.context)) {
+            idle.removeFirstOccurrence(entry);
+            destroy(entry.context);
+            continue;
+          }
+          entry.checked = System.currentTimeMillis();
+        }
+        entry.unclaim();
+        // The pool may have been closed while the entry was claimed.
+        if (closed && entry.claim()) {
+          idle.removeFirstOccurrence(entry);
+          destroy(entry.context);
+        }
+      }
+    }
+  }
+
+  /**
+   * Closes the idle connections, borrowed connections are closed when they are returned.
+   */
+  void close() {
+    closed = true;
+    reaper.cancel(false);
+    Entry entry;
+    while ((entry = idle.pollFirst()) != null) {
+      // An entry claimed by the reaper is closed by the reaper.
+      if (entry.claim()) {
+        destroy(entry.context);
+      }
+    }
+  }
+
+  int getActiveCount() {
+    return active.get();
+  }
+
+  int getIdleCount() {
+    return idle.size();
+  }
+
+  /**
+   * @return the timer measuring how long borrowers wait for a connection
+   */
+  Timer getWaitTimer() {
+    return waits;
+  }
+
+  void registerMetrics(MetricsService metricsService, String prefix) {
+    this.metricsService = metricsService;
+    this.metricsPrefix = prefix;
+    metricsService.register(MetricRegistry.name(prefix, "wait"), waits);
+    metricsService.register(MetricRegistry.name(prefix, "active"), activeGauge);
+    metricsService.register(MetricRegistry.name(prefix, "idle"), idleGauge);
+  }
+
+  void unregisterMetrics() {
+    if (metricsService != null) {
+      metricsService.remove(MetricRegistry.name(metricsPrefix, "wait"), waits);
+      metricsService.remove(MetricRegistry.name(metricsPrefix, "active"), activeGauge);
+      metricsService.remove(MetricRegistry.name(metricsPrefix, "idle"), idleGauge);
+      metricsService = null;
+    }
+  }
+
+  private LdapContext wrap(LdapContext context) {
+    return (LdapContext) Proxy.newProxyInstance(LdapContext.class.getClassLoader(),
+        new Class<?>[]{ LdapContext.class }, new PooledContextHandler(context));
+  }
+
+  private static class Entry {
+    private final LdapContext context;
+    private final long since = System.currentTimeMillis();
+    private volatile long checked = since;
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    private Entry(LdapContext context) {
+      this.context = context;
+    }
+
+    private boolean claim() {
+      return claimed.compareAndSet(false, true);
+    }
+
+    private void unclaim() {
+      claimed.set(false);
+    }
+  }
+
+  private class PooledContextHandler implements InvocationHandler {
+
+    private final LdapContext context;
+    // The original values of the environment properties changed by the borrower.
+    private final Map<String, Object> changedEnvironment = new HashMap<>();
+    private boolean controlsChanged;
+    private boolean broken;
+    private boolean released;
+
+    private PooledContextHandler(LdapContext context) {
+      this.context = context;
+    }
+
+    @Override
+    public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String methodName = method.getName();
+      if (method.getDeclaringClass() == Object.class) {
+        return method.invoke(context, args);
+      }
+      if ("close".equals(methodName)) {
+        if (!released) {
+          released = true;
+          release(context, !resetState());
+        }
+        return null;
+      }
+      if (released) {
+        throw new IllegalStateException("LDAP context was returned to pool " + name);
+      }
+      if (("addToEnvironment".equals(methodName) || "removeFromEnvironment".equals(methodName))
+          && !changedEnvironment.containsKey(args[0])) {
+        Hashtable<?, ?> environment = context.getEnvironment();
+        changedEnvironment.put((String) args[0], environment.get(args[0]));
+      } else if ("setRequestControls".equals(methodName)) {
+        controlsChanged = true;
+      }
+      try {
+        return method.invoke(context, args);
+      } catch (InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CommunicationException || cause instanceof ServiceUnavailableException) {
+          broken = true;
+        }
+        throw cause;
+      }
+    }
+
+    private boolean resetState() {
+      if (broken) {
+        return false;
+      }
+      try {
+        if (controlsChanged) {
+          context.setRequestControls(null);
+        }
+        for (Map.Entry<String, Object> entry : changedEnvironment.entrySet()) {
+          if (entry.getValue() == null) {
+            context.removeFromEnvironment(entry.getKey());
+          } else {
+            context.addToEnvironment(entry.getKey(), entry.getValue());
+          }
+        }
+        return true;
+      } catch (NamingException e) {
+        LOG.discardingPooledLdapConnection(name, e.toString());
+        return false;
+      }
+    }
+  }
+
+}
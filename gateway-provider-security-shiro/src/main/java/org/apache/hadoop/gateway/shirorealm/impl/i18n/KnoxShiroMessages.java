@@ -41,4 +41,16 @@ public interface KnoxShiroMessages {
   @Message(level = MessageLevel.INFO, text = "Successfully logged in: {0}, {1}")
   void successfulLoginAttempt(Subject subject, AuthenticationToken authToken);
 
+  @Message(level = MessageLevel.DEBUG, text = "Discarding connection of LDAP pool {0}: {1}")
+  void discardingPooledLdapConnection(String pool, String reason);
+
+  @Message(level = MessageLevel.WARN, text = "Failed to close connection of LDAP pool {0}: {1}")
+  void failedToClosePooledLdapConnection(String pool, @StackTrace( level = MessageLevel.DEBUG ) Exception e);
+
+  @Message(level = MessageLevel.WARN, text = "Failed to refresh an entry of cache {0}: {1}")
+  void failedToRefreshCacheEntry(String cache, @StackTrace( level = MessageLevel.DEBUG ) Exception e);
+
+  @Message(level = MessageLevel.INFO, text = "Using the time to live and size of the caches in EhCache configuration {0}, its other settings are ignored")
+  void usingEhCacheConfiguration(String path);
+
 }
@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KnoxCacheTest {
+
+  private static final Executor DIRECT = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  @Test
+  public void testEntriesExpire() throws Exception {
+    KnoxCache<String, String> cache = new KnoxCache<>("test", 10, 50, 0, DIRECT);
+    cache.put("guest", "value");
+    assertEquals("value", cache.get("guest"));
+    Thread.sleep(60);
+    assertNull(cache.get("guest"));
+    assertEquals(0, cache.size());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntryIsEvicted() {
+    KnoxCache<String, String> cache = new KnoxCache<>("test", 2, 60000, 0, DIRECT);
+    cache.put("a", "1");
+    cache.put("b", "2");
+    cache.get("a");
+    cache.put("c", "3");
+    assertEquals(2, cache.size());
+    assertNull(cache.get("b"));
+    assertEquals("1", cache.get("a"));
+    assertEquals("3", cache.get("c"));
+  }
+
+  @Test
+  public void testEntryIsReloadedAhead() throws Exception {
+    KnoxCache<String, String> cache = new KnoxCache<>("test", 10, 2000, 0.1, DIRECT);
+    CountingLoader loader = new CountingLoader();
+    assertEquals("load-1", cache.get("guest", loader));
+    assertEquals("load-1", cache.get("guest", loader));
+    assertEquals(0, loader.reloads.get());
+
+    Thread.sleep(250);
+    // The reader gets the current value while the reload replaces it.
+    assertEquals("load-1", cache.get("guest", loader));
+    assertEquals(1, loader.reloads.get());
+    assertEquals("reload-1", cache.get("guest", loader));
+    assertEquals(1, loader.loads.get());
+    assertEquals(2, cache.getLoadTimer().getCount());
+  }
+
+  @Test
+  public void testReloadToNullRemovesEntry() throws Exception {
+    KnoxCache<String, String> cache = new KnoxCache<>("test", 10, 2000, 0.1, DIRECT);
+    cache.put("guest", "value");
+    Thread.sleep(250);
+    cache.refreshAhead("guest", new CountingLoader() {
+      @Override
+      public String reload(String key, String oldValue) {
+        return null;
+      }
+    });
+    assertNull(cache.get("guest"));
+  }
+
+  @Test
+  public void testFailedReloadKeepsEntry() throws Exception {
+    KnoxCache<String, String> cache = new KnoxCache<>("test", 10, 2000, 0.1, DIRECT);
+    cache.put("guest", "value");
+    Thread.sleep(250);
+    cache.refreshAhead("guest", new CountingLoader() {
+      @Override
+      public String reload(String key, String oldValue) throws Exception {
+        throw new IllegalStateException("LDAP is down");
+      }
+    });
+    assertEquals("value", cache.get("guest"));
+  }
+
+  @Test
+  public void testCacheManagerSettings() {
+    KnoxCacheManager manager = new KnoxCacheManager();
+    manager.setTimeToLive(1000);
+    manager.setMaxEntries(1);
+    manager.setMaxEntriesByCache(Collections.singletonMap("authorizationCache", "2"));
+    try {
+      Cache<String, String> authorization = manager.getCache("ldapRealm.authorizationCache");
+      assertSame(authorization, manager.getCache("ldapRealm.authorizationCache"));
+      authorization.put("a", "1");
+      authorization.put("b", "2");
+      assertEquals(2, authorization.size());
+
+      Cache<String, String> authentication = manager.getCache("ldapRealm.authenticationCache");
+      authentication.put("a", "1");
+      authentication.put("b", "2");
+      assertEquals(1, authentication.size());
+
+      assertTrue(manager.getNegativeAuthenticationCache("ldapRealm") != null);
+      manager.setNegativeTimeToLive(0);
+      assertNull(manager.getNegativeAuthenticationCache("otherRealm"));
+    } finally {
+      manager.destroy();
+    }
+  }
+
+  @Test
+  public void testCacheManagerConfigFile() {
+    KnoxCacheManager manager = new KnoxCacheManager();
+    // Explicit cache settings win over those of the file.
+    manager.setMaxEntriesByCache(Collections.singletonMap("ldapRealm.authenticationCache", "2"));
+    manager.setCacheManagerConfigFile("classpath:org/apache/hadoop/gateway/shirorealm/KnoxCacheTest/ehcache.xml");
+    try {
+      assertEquals(120000L, manager.getTimeToLive());
+      assertEquals(1, manager.getMaxEntries());
+      assertEquals(3, fill(manager.<String, String>getCache("ldapRealm.authorizationCache"), 5));
+      assertEquals(2, fill(manager.<String, String>getCache("ldapRealm.authenticationCache"), 5));
+      assertEquals(1, fill(manager.<String, String>getCache("otherCache"), 5));
+    } finally {
+      manager.destroy();
+    }
+  }
+
+  @Test(expected = CacheException.class)
+  public void testMissingCacheManagerConfigFile() {
+    new KnoxCacheManager().setCacheManagerConfigFile("classpath:missing-ehcache.xml");
+  }
+
+  private static int fill(Cache<String, String> cache, int entries) {
+    for (int i = 0; i < entries; i++) {
+      cache.put("key-" + i, "value-" + i);
+    }
+    return cache.size();
+  }
+
+  private static class CountingLoader implements KnoxCache.Loader<String, String> {
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicInteger reloads = new AtomicInteger();
+
+    @Override
+    public String load(String key) {
+      return "load-" + loads.incrementAndGet();
+    }
+
+    @Override
+    public String reload(String key, String oldValue) throws Exception {
+      return "reload-" + reloads.incrementAndGet();
+    }
+  }
+
+}
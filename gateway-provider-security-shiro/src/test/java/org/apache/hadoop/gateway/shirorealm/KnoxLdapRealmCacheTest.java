@@ -0,0 +1,267 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.hadoop.gateway.shirorealm;
+
+import org.apache.directory.server.protocol.shared.transport.TcpTransport;
+import org.apache.hadoop.gateway.security.ldap.SimpleLdapDirectoryServer;
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.realm.ldap.JndiLdapContextFactory;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import javax.naming.directory.ModificationItem;
+import javax.naming.ldap.LdapContext;
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class KnoxLdapRealmCacheTest {
+
+  private static final String PEOPLE = ",ou=people,dc=hadoop,dc=apache,dc=org";
+  private static final String SCIENTIST = "cn=scientist,ou=groups,dc=hadoop,dc=apache,dc=org";
+
+  private static TcpTransport ldapTransport;
+  private static SimpleLdapDirectoryServer ldap;
+  private static String ldapUrl;
+
+  private KnoxCacheManager cacheManager;
+
+  @BeforeClass
+  public static void setupSuite() throws Exception {
+    File usersLdif = new File( KnoxLdapRealmCacheTest.class.getResource( "KnoxLdapRealmCacheTest/users.ldif" ).toURI() );
+    ldapTransport = new TcpTransport( 0 );
+    ldap = new SimpleLdapDirectoryServer( "dc=hadoop,dc=apache,dc=org", usersLdif, ldapTransport );
+    ldap.start();
+    ldapUrl = "ldap://localhost:" + ldapTransport.getAcceptor().getLocalAddress().getPort();
+  }
+
+  @AfterClass
+  public static void cleanupSuite() throws Exception {
+    if( ldap != null ) {
+      ldap.stop( true );
+    }
+  }
+
+  @After
+  public void tearDown() {
+    ThreadContext.unbindSubject();
+    ThreadContext.unbindSecurityManager();
+    if( cacheManager != null ) {
+      cacheManager.destroy();
+    }
+  }
+
+  @Test
+  public void testFailedBindIsNotRepeated() throws Exception {
+    CountingContextFactory contextFactory = new CountingContextFactory( ldapUrl );
+    KnoxLdapRealm realm = createRealm( contextFactory, 60000L, 0 );
+
+    assertLoginFails( realm, new UsernamePasswordToken( "sam", "wrong-password" ) );
+    assertEquals( 1, contextFactory.binds.get() );
+    // The same rejected credentials don't reach the directory again.
+    assertLoginFails( realm, new UsernamePasswordToken( "sam", "wrong-password" ) );
+    assertEquals( 1, contextFactory.binds.get() );
+    // Other credentials of the user are still checked.
+    assertNotNull( realm.getAuthenticationInfo( new UsernamePasswordToken( "sam", "sam-password" ) ) );
+    assertEquals( 2, contextFactory.binds.get() );
+  }
+
+  @Test
+  public void testUnreachableDirectoryIsNotRemembered() throws Exception {
+    CountingContextFactory contextFactory = new CountingContextFactory( "ldap://localhost:1" );
+    KnoxLdapRealm realm = createRealm( contextFactory, 60000L, 0 );
+
+    assertLoginFails( realm, new UsernamePasswordToken( "sam", "sam-password" ) );
+    assertLoginFails( realm, new UsernamePasswordToken( "sam", "sam-password" ) );
+    assertEquals( 2, contextFactory.binds.get() );
+  }
+
+  @Test
+  public void testCachedAuthenticationIsBoundAgainInBackground() throws Exception {
+    CountingContextFactory contextFactory = new CountingContextFactory( ldapUrl );
+    KnoxLdapRealm realm = createRealm( contextFactory, 2000L, 0.1 );
+    UsernamePasswordToken token = new UsernamePasswordToken( "tom", "tom-password" );
+
+    assertNotNull( realm.getAuthenticationInfo( token ) );
+    assertNotNull( realm.getAuthenticationInfo( token ) );
+    assertEquals( 1, contextFactory.binds.get() );
+
+    setPassword( "tom", "new-password" );
+    try {
+      Thread.sleep( 250 );
+      // Served from the cache, the directory is asked again in the background and now rejects the credentials.
+      assertNotNull( realm.getAuthenticationInfo( token ) );
+      awaitCondition( new Condition() {
+        @Override
+        public boolean isTrue() {
+          return contextFactory.binds.get() == 2;
+        }
+      } );
+      awaitCondition( new Condition() {
+        @Override
+        public boolean isTrue() {
+          return realm.getAuthenticationCache().get( "tom" ) == null;
+        }
+      } );
+      assertLoginFails( realm, token );
+      assertNotNull( realm.getAuthenticationInfo( new UsernamePasswordToken( "tom", "new-password" ) ) );
+    } finally {
+      setPassword( "tom", "tom-password" );
+    }
+  }
+
+  @Test
+  public void testAuthorizationIsReloadedWithoutSession() throws Exception {
+    KnoxLdapRealm realm = createRealm( new CountingContextFactory( ldapUrl ), 2000L, 0.1 );
+    realm.setAuthorizationEnabled( true );
+    realm.setSearchBase( "ou=groups,dc=hadoop,dc=apache,dc=org" );
+    realm.setMemberAttributeValueTemplate( "uid={0}" + PEOPLE );
+    final SimplePrincipalCollection principals = new SimplePrincipalCollection( "tom", realm.getName() );
+
+    // The first lookup is part of a request, it saves the groups in the session and adds them to the principals.
+    ThreadContext.bind( new DefaultSecurityManager() );
+    assertEquals( roles( "analyst" ), realm.getAuthorizationInfo( principals ).getRoles() );
+    assertTrue( principals.asList().contains( "analyst" ) );
+    ThreadContext.unbindSubject();
+    ThreadContext.unbindSecurityManager();
+
+    modifyGroup( DirContext.ADD_ATTRIBUTE, "tom" );
+    try {
+      Thread.sleep( 250 );
+      // The reload runs without a subject, it would fail if it touched the session.
+      assertEquals( roles( "analyst" ), realm.getAuthorizationInfo( principals ).getRoles() );
+      awaitCondition( new Condition() {
+        @Override
+        public boolean isTrue() {
+          AuthorizationInfo info = realm.getAuthorizationInfo( principals );
+          return info.getRoles().equals( roles( "analyst", "scientist" ) );
+        }
+      } );
+      assertFalse( principals.asList().contains( "scientist" ) );
+    } finally {
+      modifyGroup( DirContext.REMOVE_ATTRIBUTE, "tom" );
+    }
+  }
+
+  private KnoxLdapRealm createRealm( JndiLdapContextFactory contextFactory, long timeToLive, double refreshAhead ) {
+    cacheManager = new KnoxCacheManager();
+    cacheManager.setTimeToLive( timeToLive );
+    cacheManager.setRefreshAhead( refreshAhead );
+    cacheManager.setNegativeTimeToLive( 60000L );
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    realm.setContextFactory( contextFactory );
+    realm.setUserDnTemplate( "uid={0}" + PEOPLE );
+    realm.setAuthenticationCachingEnabled( true );
+    realm.setCacheManager( cacheManager );
+    realm.init();
+    return realm;
+  }
+
+  private static void assertLoginFails( KnoxLdapRealm realm, AuthenticationToken token ) {
+    try {
+      realm.getAuthenticationInfo( token );
+      fail( "Expected AuthenticationException" );
+    } catch( AuthenticationException e ) {
+      // Expected
+    }
+  }
+
+  private static HashSet<String> roles( String... roles ) {
+    return new HashSet<>( Arrays.asList( roles ) );
+  }
+
+  private static void setPassword( String user, String password ) throws NamingException {
+    modify( "uid=" + user + PEOPLE, DirContext.REPLACE_ATTRIBUTE, "userPassword", password );
+  }
+
+  private static void modifyGroup( int operation, String user ) throws NamingException {
+    modify( SCIENTIST, operation, "member", "uid=" + user + PEOPLE );
+  }
+
+  private static void modify( String dn, int operation, String attribute, String value ) throws NamingException {
+    Hashtable<String, String> env = new Hashtable<>();
+    env.put( Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory" );
+    env.put( Context.PROVIDER_URL, ldapUrl );
+    env.put( Context.SECURITY_PRINCIPAL, "uid=admin,ou=system" );
+    env.put( Context.SECURITY_CREDENTIALS, "secret" );
+    DirContext context = new InitialDirContext( env );
+    try {
+      context.modifyAttributes( dn, new ModificationItem[]{
+          new ModificationItem( operation, new BasicAttribute( attribute, value ) ) } );
+    } finally {
+      context.close();
+    }
+  }
+
+  private interface Condition {
+    boolean isTrue();
+  }
+
+  private static void awaitCondition( Condition condition ) throws InterruptedException {
+    long timeout = System.currentTimeMillis() + 10000L;
+    while( !condition.isTrue() ) {
+      assertTrue( "Timed out waiting for the background reload", System.currentTimeMillis() < timeout );
+      Thread.sleep( 20 );
+    }
+  }
+
+  private static class CountingContextFactory extends JndiLdapContextFactory {
+
+    private final AtomicInteger binds = new AtomicInteger();
+
+    private CountingContextFactory( String url ) {
+      setUrl( url );
+      setSystemUsername( "uid=guest" + PEOPLE );
+      setSystemPassword( "guest-password" );
+    }
+
+    @Override
+    public LdapContext getLdapContext( Object principal, Object credentials ) throws NamingException {
+      if( !getSystemUsername().equals( principal ) ) {
+        binds.incrementAndGet();
+      }
+      return super.getLdapContext( principal, credentials );
+    }
+
+  }
+
+}
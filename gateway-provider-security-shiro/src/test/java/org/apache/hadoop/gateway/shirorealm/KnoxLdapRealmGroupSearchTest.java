@@ -0,0 +1,157 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.hadoop.gateway.shirorealm;
+
+import org.apache.directory.server.protocol.shared.transport.TcpTransport;
+import org.apache.hadoop.gateway.security.ldap.SimpleLdapDirectoryServer;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.realm.ldap.JndiLdapContextFactory;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class KnoxLdapRealmGroupSearchTest {
+
+  private static TcpTransport ldapTransport;
+  private static SimpleLdapDirectoryServer ldap;
+  private static String ldapUrl;
+
+  @BeforeClass
+  public static void setupSuite() throws Exception {
+    File usersLdif = new File( KnoxLdapRealmGroupSearchTest.class.getResource( "KnoxLdapRealmGroupSearchTest/users.ldif" ).toURI() );
+    ldapTransport = new TcpTransport( 0 );
+    ldap = new SimpleLdapDirectoryServer( "dc=hadoop,dc=apache,dc=org", usersLdif, ldapTransport );
+    ldap.start();
+    ldapUrl = "ldap://localhost:" + ldapTransport.getAcceptor().getLocalAddress().getPort();
+  }
+
+  @AfterClass
+  public static void cleanupSuite() throws Exception {
+    if( ldap != null ) {
+      ldap.stop( true );
+    }
+  }
+
+  @Before
+  public void setUp() {
+    // The first authorization lookup of a request saves the groups in the session of the subject.
+    ThreadContext.bind( new DefaultSecurityManager() );
+  }
+
+  @After
+  public void tearDown() {
+    ThreadContext.unbindSubject();
+    ThreadContext.unbindSecurityManager();
+  }
+
+  @Test
+  public void testMemberModeFindsGroupsOfUser() throws Exception {
+    KnoxLdapRealm realm = createRealm( "groupOfNames", "member", "ou=groups,dc=hadoop,dc=apache,dc=org" );
+    realm.setGroupSearchMode( "member" );
+    assertEquals( roles( "analyst", "scientist" ), getRoles( realm, "sam" ) );
+    assertEquals( roles( "analyst" ), getRoles( realm, "tom" ) );
+    assertEquals( roles(), getRoles( realm, "guest" ) );
+  }
+
+  @Test
+  public void testMemberModeMatchesAllMode() throws Exception {
+    KnoxLdapRealm all = createRealm( "groupOfNames", "member", "dc=hadoop,dc=apache,dc=org" );
+    KnoxLdapRealm member = createRealm( "groupOfNames", "member", "dc=hadoop,dc=apache,dc=org" );
+    member.setGroupSearchMode( "member" );
+    for( String user : Arrays.asList( "sam", "tom", "guest" ) ) {
+      assertEquals( getRoles( all, user ), getRoles( member, user ) );
+    }
+  }
+
+  @Test
+  public void testMemberModeWithPosixGroups() throws Exception {
+    KnoxLdapRealm realm = createRealm( "posixGroup", "memberUid", "ou=posixgroups,dc=hadoop,dc=apache,dc=org" );
+    realm.setGroupSearchMode( "member" );
+    assertEquals( roles( "analyst", "scientist" ), getRoles( realm, "sam" ) );
+    assertEquals( roles( "analyst" ), getRoles( realm, "smith, j" ) );
+    // The user name is passed as a filter argument and can't widen the filter.
+    assertEquals( roles(), getRoles( realm, "s*" ) );
+  }
+
+  @Test
+  public void testAllModeWithPosixGroupsEscapesUserName() throws Exception {
+    KnoxLdapRealm realm = createRealm( "posixGroup", "memberUid", "ou=posixgroups,dc=hadoop,dc=apache,dc=org" );
+    assertEquals( roles( "analyst" ), getRoles( realm, "smith, j" ) );
+    assertEquals( roles( "analyst" ), getRoles( realm, "tom" ) );
+  }
+
+  @Test
+  public void testMemberOfModeReadsGroupsFromUserEntry() throws Exception {
+    KnoxLdapRealm realm = createRealm( "groupOfNames", "member", "ou=groups,dc=hadoop,dc=apache,dc=org" );
+    realm.setGroupSearchMode( "memberOf" );
+    // cn=admin is outside of the group search base, engineer is read from the group entry as its RDN is not cn.
+    assertEquals( roles( "analyst", "scientist", "engineer" ), getRoles( realm, "sam" ) );
+    assertEquals( roles(), getRoles( realm, "tom" ) );
+  }
+
+  @Test
+  public void testMemberOfModeMapsGroupsToRoles() throws Exception {
+    KnoxLdapRealm realm = createRealm( "groupOfNames", "member", "ou=groups,dc=hadoop,dc=apache,dc=org" );
+    realm.setGroupSearchMode( "memberOf" );
+    realm.setRolesByGroup( Collections.singletonMap( "analyst", "analysts" ) );
+    // Groups without a mapping keep their name as role.
+    assertEquals( roles( "analysts", "scientist", "engineer" ), getRoles( realm, "sam" ) );
+  }
+
+  private static KnoxLdapRealm createRealm( String groupObjectClass, String memberAttribute, String groupSearchBase ) {
+    JndiLdapContextFactory contextFactory = new JndiLdapContextFactory();
+    contextFactory.setUrl( ldapUrl );
+    contextFactory.setSystemUsername( "uid=guest,ou=people,dc=hadoop,dc=apache,dc=org" );
+    contextFactory.setSystemPassword( "guest-password" );
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    realm.setContextFactory( contextFactory );
+    realm.setAuthorizationEnabled( true );
+    realm.setSearchBase( groupSearchBase );
+    realm.setGroupObjectClass( groupObjectClass );
+    realm.setMemberAttribute( memberAttribute );
+    realm.setMemberAttributeValueTemplate( "uid={0},ou=people,dc=hadoop,dc=apache,dc=org" );
+    return realm;
+  }
+
+  private static Set<String> getRoles( KnoxLdapRealm realm, String user ) {
+    AuthorizationInfo info = realm.getAuthorizationInfo( new SimplePrincipalCollection( user, realm.getName() ) );
+    Collection<String> roles = info.getRoles();
+    return roles == null ? Collections.<String>emptySet() : new HashSet<>( roles );
+  }
+
+  private static Set<String> roles( String... roles ) {
+    return new HashSet<>( Arrays.asList( roles ) );
+  }
+
+}
@@ -101,4 +101,40 @@ public class KnoxLdapRealmTest {
     assertEquals(realm.getGroupSearchBase(), "dc=knox,dc=example,dc=com");
   }
   
+  @Test
+  public void verifyDefaultGroupSearchMode() {
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    assertEquals(realm.getGroupSearchMode(), "all");
+    assertEquals(realm.getGroupSearchFilter(), "(objectClass=groupOfNames)");
+  }
+
+  @Test
+  public void setGetGroupSearchMode() {
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    realm.setGroupObjectClass("group");
+    realm.setGroupSearchMode(" Member ");
+    assertEquals(realm.getGroupSearchMode(), "member");
+    assertEquals(realm.getGroupSearchFilter(), "(&(objectClass=group)(member={0}))");
+    realm.setGroupSearchMode("inChain");
+    assertEquals(realm.getGroupSearchFilter(), "(&(objectClass=group)(member:1.2.840.113556.1.4.1941:={0}))");
+    realm.setGroupSearchMode("memberOf");
+    assertEquals(realm.getGroupSearchMode(), "memberof");
+    realm.setGroupSearchMode(null);
+    assertEquals(realm.getGroupSearchMode(), "all");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void verifyUnknownGroupSearchMode() {
+    new KnoxLdapRealm().setGroupSearchMode("nested");
+  }
+
+  @Test
+  public void verifyDynamicGroupsAreAlwaysSearched() {
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    realm.setGroupObjectClass("groupOfUrls");
+    realm.setMemberAttribute("memberUrl");
+    realm.setGroupSearchMode("member");
+    assertEquals(realm.getGroupSearchFilter(), "(objectClass=groupOfUrls)");
+  }
+
 }
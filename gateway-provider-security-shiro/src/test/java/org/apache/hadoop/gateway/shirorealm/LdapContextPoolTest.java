@@ -0,0 +1,297 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LdapContextPoolTest {
+
+  private LdapContextPool pool;
+
+  @After
+  public void tearDown() {
+    if (pool != null) {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testConnectionIsReused() throws Exception {
+    pool = new LdapContextPool("test", 0, 2, 1000, 60000, 60000);
+    TestConnector connector = new TestConnector();
+    LdapContext context = pool.borrow(connector);
+    assertEquals(1, pool.getActiveCount());
+    context.close();
+    assertEquals(0, pool.getActiveCount());
+    assertEquals(1, pool.getIdleCount());
+
+    pool.borrow(connector).close();
+    assertEquals(1, connector.connections.size());
+    assertEquals(1, connector.reused);
+    assertFalse(connector.connections.get(0).closed);
+    assertEquals(2, pool.getWaitTimer().getCount());
+  }
+
+  @Test
+  public void testBorrowerChangesAreUndone() throws Exception {
+    pool = new LdapContextPool("test", 0, 1, 1000, 60000, 60000);
+    TestConnector connector = new TestConnector();
+    LdapContext context = pool.borrow(connector);
+    context.addToEnvironment(Context.REFERRAL, "ignore");
+    context.setRequestControls(new Control[0]);
+    context.close();
+
+    TestContext connection = connector.connections.get(0);
+    assertNull(connection.env.get(Context.REFERRAL));
+    assertNull(connection.requestControls);
+    try {
+      context.getEnvironment();
+      fail("Expected the returned context to be unusable");
+    } catch (IllegalStateException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testBorrowTimesOut() throws Exception {
+    pool = new LdapContextPool("test", 0, 1, 50, 60000, 60000);
+    TestConnector connector = new TestConnector();
+    LdapContext context = pool.borrow(connector);
+    try {
+      pool.borrow(connector);
+      fail("Expected the pool to be exhausted");
+    } catch (ServiceUnavailableException e) {
+      // Expected.
+    }
+    context.close();
+    pool.borrow(connector).close();
+    assertEquals(1, connector.connections.size());
+  }
+
+  @Test
+  public void testBrokenConnectionIsDiscarded() throws Exception {
+    pool = new LdapContextPool("test", 0, 1, 1000, 60000, 60000);
+    TestConnector connector = new TestConnector();
+    LdapContext context = pool.borrow(connector);
+    connector.connections.get(0).broken = true;
+    try {
+      context.search("", "(objectClass=*)", new SearchControls());
+      fail("Expected a communication failure");
+    } catch (CommunicationException e) {
+      // Expected.
+    }
+    context.close();
+    assertTrue(connector.connections.get(0).closed);
+    assertEquals(0, pool.getIdleCount());
+
+    pool.borrow(connector).close();
+    assertEquals(2, connector.connections.size());
+  }
+
+  @Test
+  public void testInvalidIdleConnectionIsReplaced() throws Exception {
+    pool = new LdapContextPool("test", 0, 1, 1000, 60000, 0);
+    TestConnector connector = new TestConnector();
+    pool.borrow(connector).close();
+    connector.connections.get(0).broken = true;
+    Thread.sleep(5);
+    pool.borrow(connector).close();
+    assertTrue(connector.connections.get(0).closed);
+    assertEquals(2, connector.connections.size());
+    assertEquals(0, connector.reused);
+  }
+
+  @Test
+  public void testFailedReuseDiscardsConnection() throws Exception {
+    pool = new LdapContextPool("test", 0, 1, 1000, 60000, 60000);
+    TestConnector connector = new TestConnector();
+    pool.borrow(connector).close();
+    connector.rejectReuse = true;
+    try {
+      pool.borrow(connector);
+      fail("Expected the reuse to fail");
+    } catch (NamingException e) {
+      // Expected.
+    }
+    assertTrue(connector.connections.get(0).closed);
+    connector.rejectReuse = false;
+    pool.borrow(connector).close();
+    assertEquals(2, connector.connections.size());
+  }
+
+  @Test
+  public void testIdleConnectionsAreReaped() throws Exception {
+    pool = new LdapContextPool("test", 1, 3, 1000, 0, 60000);
+    TestConnector connector = new TestConnector();
+    LdapContext first = pool.borrow(connector);
+    LdapContext second = pool.borrow(connector);
+    first.close();
+    second.close();
+    Thread.sleep(5);
+    pool.reap();
+    assertEquals(1, pool.getIdleCount());
+    assertTrue(connector.connections.get(0).closed);
+    assertFalse(connector.connections.get(1).closed);
+  }
+
+  @Test
+  public void testReapingKeepsMostRecentlyUsedFirst() throws Exception {
+    pool = new LdapContextPool("test", 0, 2, 1000, 60000, 400);
+    TestConnector connector = new TestConnector();
+    LdapContext first = pool.borrow(connector);
+    LdapContext second = pool.borrow(connector);
+    first.close();
+    Thread.sleep(200);
+    second.close();
+    Thread.sleep(300);
+    // Only the first connection is due for validation.
+    pool.reap();
+    Thread.sleep(200);
+    // Only the second connection is due for validation, it stays the most recently used.
+    pool.reap();
+    assertEquals(2, pool.getIdleCount());
+
+    pool.borrow(connector);
+    assertEquals(1, connector.lastReused);
+    pool.borrow(connector);
+    assertEquals(0, connector.lastReused);
+    assertEquals(2, connector.connections.size());
+  }
+
+  private static class TestConnector implements LdapContextPool.Connector {
+    private final List<TestContext> connections = new ArrayList<>();
+    private int reused;
+    // The index of the connection reused last.
+    private int lastReused = -1;
+    private boolean rejectReuse;
+
+    @Override
+    public LdapContext connect() {
+      TestContext connection = new TestContext();
+      connections.add(connection);
+      return connection.proxy;
+    }
+
+    @Override
+    public void reuse(LdapContext context) throws NamingException {
+      if (rejectReuse) {
+        throw new javax.naming.AuthenticationException("Invalid credentials");
+      }
+      reused++;
+      for (int i = 0; i < connections.size(); i++) {
+        if (connections.get(i).proxy == context) {
+          lastReused = i;
+        }
+      }
+    }
+  }
+
+  private static class TestContext implements InvocationHandler {
+    private final LdapContext proxy = (LdapContext) Proxy.newProxyInstance(
+        LdapContext.class.getClassLoader(), new Class<?>[]{ LdapContext.class }, this);
+    private final Hashtable<String, Object> env = new Hashtable<>();
+    private Control[] requestControls;
+    private boolean broken;
+    private boolean closed;
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "getEnvironment":
+          return env.clone();
+        case "addToEnvironment":
+          return env.put((String) args[0], args[1]);
+        case "removeFromEnvironment":
+          return env.remove(args[0]);
+        case "setRequestControls":
+          requestControls = (Control[]) args[0];
+          return null;
+        case "search":
+          if (broken) {
+            throw new CommunicationException("Connection reset");
+          }
+          return new RootDseResults();
+        case "close":
+          closed = true;
+          return null;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == args[0];
+        default:
+          return null;
+      }
+    }
+  }
+
+  private static class RootDseResults implements NamingEnumeration<SearchResult> {
+    private boolean more = true;
+
+    @Override
+    public SearchResult next() {
+      return nextElement();
+    }
+
+    @Override
+    public boolean hasMore() {
+      return more;
+    }
+
+    @Override
+    public void close() {
+      more = false;
+    }
+
+    @Override
+    public boolean hasMoreElements() {
+      return more;
+    }
+
+    @Override
+    public SearchResult nextElement() {
+      more = false;
+      return new SearchResult("", null, new BasicAttributes());
+    }
+  }
+
+}
@@ -32,6 +32,7 @@ import org.apache.hadoop.gateway.filter.AbstractGatewayFilter;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.i18n.resources.ResourcesFactory;
 import org.apache.hadoop.gateway.topology.Topology;
+import org.apache.hadoop.gateway.util.CorrelationIds;
 import org.apache.hadoop.gateway.util.urltemplate.Matcher;
 import org.apache.hadoop.gateway.util.urltemplate.Parser;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
@@ -56,7 +57,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
 
 /**
  *
@@ -106,8 +106,25 @@ public class GatewayFilter implements Filter {
     String servlet = httpRequest.getServletPath();
     String path = httpRequest.getPathInfo();
     String query = httpRequest.getQueryString();
-    String requestPath = ( servlet == null ? "" : servlet ) + ( path == null ? "" : path );
-    String requestPathWithQuery = requestPath + ( query == null ? "" : "?" + query );
+    String requestContextPath = httpRequest.getContextPath();
+    // Build the context, path and query once and slice the variants needed below out of it.
+    StringBuilder builder = new StringBuilder( 128 );
+    if( requestContextPath != null ) {
+      builder.append( requestContextPath );
+    }
+    int pathStart = builder.length();
+    if( servlet != null ) {
+      builder.append( servlet );
+    }
+    if( path != null ) {
+      builder.append( path );
+    }
+    String requestPath = builder.substring( pathStart );
+    if( query != null ) {
+      builder.append( '?' ).append( query );
+    }
+    String contextWithPathAndQuery = builder.toString();
+    String requestPathWithQuery = query == null ? requestPath : contextWithPathAndQuery.substring( pathStart );
 
     Template pathWithQueryTemplate;
     try {
@@ -115,7 +132,6 @@ public class GatewayFilter implements Filter {
     } catch( URISyntaxException e ) {
       throw new ServletException( e );
     }
-    String contextWithPathAndQuery = httpRequest.getContextPath() + requestPathWithQuery;
     LOG.receivedRequest( httpRequest.getMethod(), requestPath );
 
     servletRequest.setAttribute(
@@ -227,7 +243,7 @@ public class GatewayFilter implements Filter {
       chain.setResourceRole( holder.getResourceRole() );
       chains.add( holder.template, chain );
     }
-    chain.chain.add( holder );
+    chain.add( holder );
   }
 
   public void addFilter( String path, String name, Filter filter, Map<String,String> params, String resourceRole ) throws URISyntaxException {
@@ -253,37 +269,32 @@ public class GatewayFilter implements Filter {
     }
     String requestId = correlationContext.getRequestId();
     if( requestId == null ) {
-      correlationContext.setRequestId( UUID.randomUUID().toString() );
+      correlationContext.setRequestId( CorrelationIds.next() );
     }
   }
 
   private class Chain implements FilterChain {
 
     private List<Holder> chain;
-    private String resourceRole; 
+    private String resourceRole;
+    // Links are rebuilt whenever a filter is added so requests walk a fixed sequence without allocating.
+    private volatile FilterChain head = EMPTY_CHAIN;
 
     private Chain() {
       this.chain = new ArrayList<Holder>();
     }
 
-    private Chain( List<Holder> chain ) {
-      this.chain = chain;
-    }
-
-    public void doFilter( ServletRequest servletRequest, ServletResponse servletResponse ) throws IOException, ServletException {
-      if( chain != null && !chain.isEmpty() ) {
-        final Filter filter = chain.get( 0 );
-        final FilterChain chain = subChain();
-        filter.doFilter( servletRequest, servletResponse, chain );
+    private void add( Holder holder ) {
+      chain.add( holder );
+      FilterChain link = EMPTY_CHAIN;
+      for( int i = chain.size() - 1; i >= 0; i-- ) {
+        link = new Link( chain.get( i ), link );
       }
+      head = link;
     }
 
-    private FilterChain subChain() {
-      if( chain != null && chain.size() > 1 ) {
-        return new Chain( chain.subList( 1, chain.size() ) );
-      } else {
-        return EMPTY_CHAIN;
-      }
+    public void doFilter( ServletRequest servletRequest, ServletResponse servletResponse ) throws IOException, ServletException {
+      head.doFilter( servletRequest, servletResponse );
     }
 
     private String getResourceRole() {
@@ -296,6 +307,22 @@ public class GatewayFilter implements Filter {
 
   }
 
+  private static class Link implements FilterChain {
+
+    private final Filter filter;
+    private final FilterChain next;
+
+    private Link( Filter filter, FilterChain next ) {
+      this.filter = filter;
+      this.next = next;
+    }
+
+    public void doFilter( ServletRequest servletRequest, ServletResponse servletResponse ) throws IOException, ServletException {
+      filter.doFilter( servletRequest, servletResponse, next );
+    }
+
+  }
+
   private class Holder implements Filter, FilterConfig {
 //    private String path;
     private Template template;
@@ -588,4 +588,13 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.DEBUG, text = "Removed descriptor {0} reference to provider configuration {1}." )
   void removedProviderConfigurationReference(String descriptorName, String providerConfigurationName);
 
+  @Message( level = MessageLevel.INFO, text = "Created shared outbound connection pool {0} with max total {1} and max per route {2}." )
+  void createdConnectionPool(String profile, int maxTotal, int maxPerRoute);
+
+  @Message( level = MessageLevel.INFO, text = "Created shared outbound async connection pool {0} with max total {1} and max per route {2}." )
+  void createdAsyncConnectionPool(String profile, int maxTotal, int maxPerRoute);
+
+  @Message( level = MessageLevel.WARN, text = "Failed to close the async connection pool: {0}" )
+  void failedToCloseAsyncConnectionPool(@StackTrace( level = MessageLevel.DEBUG ) Exception e);
+
 }
@@ -22,6 +22,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URISyntaxException;
 import java.util.Enumeration;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -35,9 +37,12 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.hadoop.gateway.audit.api.Action;
 import org.apache.hadoop.gateway.audit.api.ActionOutcome;
+import org.apache.hadoop.gateway.audit.api.AuditContext;
 import org.apache.hadoop.gateway.audit.api.AuditService;
 import org.apache.hadoop.gateway.audit.api.AuditServiceFactory;
 import org.apache.hadoop.gateway.audit.api.Auditor;
+import org.apache.hadoop.gateway.audit.api.CorrelationContext;
+import org.apache.hadoop.gateway.audit.api.CorrelationServiceFactory;
 import org.apache.hadoop.gateway.audit.api.ResourceType;
 import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.hadoop.gateway.config.GatewayConfig;
@@ -152,9 +157,7 @@ public class GatewayServlet implements Servlet, Filter {
       } else {
         ((HttpServletResponse)servletResponse).setStatus( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
       }
-      String requestUri = (String)servletRequest.getAttribute( AbstractGatewayFilter.SOURCE_REQUEST_CONTEXT_URL_ATTRIBUTE_NAME );
-      int status = ((HttpServletResponse)servletResponse).getStatus();
-      auditor.audit( Action.ACCESS, requestUri, ResourceType.URI, ActionOutcome.SUCCESS, res.responseStatus( status ) );
+      auditAccess( servletRequest, servletResponse );
     } finally {
       auditService.detachContext();
     }
@@ -169,7 +172,9 @@ public class GatewayServlet implements Servlet, Filter {
         try {
           f.doFilter( servletRequest, servletResponse );
           //TODO: This should really happen naturally somehow as part of being a filter.  This way will cause problems eventually.
-          chain.doFilter( servletRequest, servletResponse );
+          if( !servletRequest.isAsyncStarted() ) {
+            chain.doFilter( servletRequest, servletResponse );
+          }
         } catch( IOException e ) {
           LOG.failedToExecuteFilter( e );
           throw e;
@@ -183,14 +188,24 @@ public class GatewayServlet implements Servlet, Filter {
       } else {
         ((HttpServletResponse)servletResponse).setStatus( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
       }
-      String requestUri = (String)servletRequest.getAttribute( AbstractGatewayFilter.SOURCE_REQUEST_CONTEXT_URL_ATTRIBUTE_NAME );
-      int status = ((HttpServletResponse)servletResponse).getStatus();
-      auditor.audit( Action.ACCESS, requestUri, ResourceType.URI, ActionOutcome.SUCCESS, res.responseStatus( status ) );
+      auditAccess( servletRequest, servletResponse );
     } finally {
       auditService.detachContext();
     }
   }
 
+  private static void auditAccess( ServletRequest servletRequest, ServletResponse servletResponse ) {
+    String requestUri = (String)servletRequest.getAttribute( AbstractGatewayFilter.SOURCE_REQUEST_CONTEXT_URL_ATTRIBUTE_NAME );
+    if( servletRequest.isAsyncStarted() ) {
+      // The response is completed later by an async dispatch so the outcome is audited then.
+      servletRequest.getAsyncContext().addListener( new AccessAuditListener(
+          requestUri, auditService.getContext(), CorrelationServiceFactory.getCorrelationService().getContext() ) );
+    } else {
+      int status = ((HttpServletResponse)servletResponse).getStatus();
+      auditor.audit( Action.ACCESS, requestUri, ResourceType.URI, ActionOutcome.SUCCESS, res.responseStatus( status ) );
+    }
+  }
+
   @Override
   public String getServletInfo() {
     return res.gatewayServletInfo();
@@ -266,6 +281,50 @@ public class GatewayServlet implements Servlet, Filter {
     return filter;
   }
 
+  private static class AccessAuditListener implements AsyncListener {
+
+    private final String requestUri;
+    private final AuditContext auditContext;
+    private final CorrelationContext correlationContext;
+
+    private AccessAuditListener( String requestUri, AuditContext auditContext, CorrelationContext correlationContext ) {
+      this.requestUri = requestUri;
+      this.auditContext = auditContext;
+      this.correlationContext = correlationContext;
+    }
+
+    @Override
+    public void onComplete( AsyncEvent event ) {
+      audit( event, ActionOutcome.SUCCESS );
+    }
+
+    @Override
+    public void onTimeout( AsyncEvent event ) {
+      audit( event, ActionOutcome.FAILURE );
+    }
+
+    @Override
+    public void onError( AsyncEvent event ) {
+      audit( event, ActionOutcome.FAILURE );
+    }
+
+    @Override
+    public void onStartAsync( AsyncEvent event ) {
+    }
+
+    private void audit( AsyncEvent event, String outcome ) {
+      auditService.attachContext( auditContext );
+      CorrelationServiceFactory.getCorrelationService().attachContext( correlationContext );
+      try {
+        int status = ((HttpServletResponse)event.getSuppliedResponse()).getStatus();
+        auditor.audit( Action.ACCESS, requestUri, ResourceType.URI, outcome, res.responseStatus( status ) );
+      } finally {
+        auditService.detachContext();
+        CorrelationServiceFactory.getCorrelationService().detachContext();
+      }
+    }
+  }
+
   private static class FilterConfigAdapter implements FilterConfig {
 
     private ServletConfig config;
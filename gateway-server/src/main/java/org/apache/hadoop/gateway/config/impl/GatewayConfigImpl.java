@@ -128,7 +128,11 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   private static final String HTTP_CLIENT_MAX_CONNECTION = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.maxConnections";
   private static final String HTTP_CLIENT_CONNECTION_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.connectionTimeout";
   private static final String HTTP_CLIENT_SOCKET_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.socketTimeout";
+  public static final String HTTP_CLIENT_POOL_MAX_TOTAL = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.pool.maxTotal";
+  public static final String HTTP_CLIENT_POOL_MAX_PER_ROUTE = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.pool.maxPerRoute";
+  public static final String HTTP_CLIENT_POOL_IDLE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.pool.idleTimeout";
   private static final String THREAD_POOL_MAX = GATEWAY_CONFIG_FILE_PREFIX + ".threadpool.max";
+  public static final String SERVLET_ASYNC_SUPPORTED = GATEWAY_CONFIG_FILE_PREFIX + ".servlet.async.supported";
   public static final String HTTP_SERVER_REQUEST_BUFFER = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.requestBuffer";
   public static final String HTTP_SERVER_REQUEST_HEADER_BUFFER = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.requestHeaderBuffer";
   public static final String HTTP_SERVER_RESPONSE_BUFFER = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.responseBuffer";
@@ -143,6 +147,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public static final String GRAPHITE_METRICS_REPORTING_FREQUENCY = GATEWAY_CONFIG_FILE_PREFIX + ".graphite.metrics.reporting.frequency";
   public static final String GATEWAY_IDLE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".idle.timeout";
   public static final String REMOTE_IP_HEADER_NAME = GATEWAY_CONFIG_FILE_PREFIX + ".remote.ip.header.name";
+  public static final String URL_REWRITE_CACHE_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".url.rewrite.cache.size";
 
   /* @since 0.10 Websocket config variables */
   public static final String WEBSOCKET_FEATURE_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.feature.enabled";
@@ -644,6 +649,30 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return t;
   }
 
+  @Override
+  public int getHttpClientPoolMaxTotal() {
+    return getInt( HTTP_CLIENT_POOL_MAX_TOTAL, 512 );
+  }
+
+  @Override
+  public int getHttpClientPoolMaxPerRoute() {
+    return getInt( HTTP_CLIENT_POOL_MAX_PER_ROUTE, getHttpClientMaxConnections() );
+  }
+
+  @Override
+  public long getHttpClientPoolIdleTimeout() {
+    long t = 60000L;
+    String s = get( HTTP_CLIENT_POOL_IDLE_TIMEOUT, null );
+    if ( s != null ) {
+      try {
+        t = parseNetworkTimeout( s );
+      } catch ( Exception e ) {
+        // Ignore it and use the default.
+      }
+    }
+    return t;
+  }
+
   /* (non-Javadoc)
    * @see org.apache.hadoop.gateway.config.GatewayConfig#getThreadPoolMax()
    */
@@ -657,6 +686,11 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return i;
   }
 
+  @Override
+  public boolean isAsyncSupported() {
+    return Boolean.parseBoolean(getVar(SERVLET_ASYNC_SUPPORTED, "false"));
+  }
+
   @Override
   public int getHttpServerRequestBuffer() {
     int i = getInt( HTTP_SERVER_REQUEST_BUFFER, 16 * 1024 );
@@ -731,6 +765,11 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return DEFAULT_GLOBAL_RULES_SERVICES;
   }
 
+  @Override
+  public int getUrlRewriteCacheSize() {
+    return getInt( URL_REWRITE_CACHE_SIZE, 10000 );
+  }
+
   @Override
   public boolean isMetricsEnabled() {
     String metricsEnabled = get( METRICS_ENABLED, "false" );
@@ -370,13 +370,15 @@ public abstract class DeploymentFactory {
       Map.Entry<String,ServiceDeploymentContributor> applications ) {
     WebAppDescriptor wad = context.getWebAppDescriptor();
     String topoName = context.getTopology().getName();
+    GatewayConfig gatewayConfig = context.getGatewayConfig();
+    boolean asyncSupported = gatewayConfig != null && gatewayConfig.isAsyncSupported();
     if( applications == null ) {
       String servletName = topoName + SERVLET_NAME_SUFFIX;
-      wad.createServlet().servletName( servletName ).servletClass( GatewayServlet.class.getName() );
+      wad.createServlet().servletName( servletName ).servletClass( GatewayServlet.class.getName() ).asyncSupported( asyncSupported );
       wad.createServletMapping().servletName( servletName ).urlPattern( "/*" );
     } else {
       String filterName = topoName + FILTER_NAME_SUFFIX;
-      wad.createFilter().filterName( filterName ).filterClass( GatewayServlet.class.getName() );
+      wad.createFilter().filterName( filterName ).filterClass( GatewayServlet.class.getName() ).asyncSupported( asyncSupported );
       wad.createFilterMapping().filterName( filterName ).urlPattern( "/*" );
     }
     if (gatewayServices != null) {
@@ -19,6 +19,7 @@ package org.apache.hadoop.gateway.filter;
 
 import org.apache.hadoop.gateway.audit.api.CorrelationContext;
 import org.apache.hadoop.gateway.audit.api.CorrelationServiceFactory;
+import org.apache.hadoop.gateway.util.CorrelationIds;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.HandlerWrapper;
 
@@ -26,7 +27,6 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.UUID;
 
 public class CorrelationHandler extends HandlerWrapper {
 
@@ -34,7 +34,7 @@ public class CorrelationHandler extends HandlerWrapper {
   public void handle( String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response )
       throws IOException, ServletException {
     CorrelationContext correlationContext = CorrelationServiceFactory.getCorrelationService().createContext();
-    correlationContext.setRequestId( UUID.randomUUID().toString() );
+    correlationContext.setRequestId( CorrelationIds.next() );
     try {
       super.handle( target, baseRequest, request, response );
     } finally {
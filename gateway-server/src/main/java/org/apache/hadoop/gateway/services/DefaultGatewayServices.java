@@ -25,6 +25,7 @@ import org.apache.hadoop.gateway.descriptor.ResourceDescriptor;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.service.config.remote.RemoteConfigurationRegistryClientServiceFactory;
 import org.apache.hadoop.gateway.services.config.client.RemoteConfigurationRegistryClientService;
+import org.apache.hadoop.gateway.services.httpclient.impl.DefaultConnectionPoolService;
 import org.apache.hadoop.gateway.services.registry.impl.DefaultServiceDefinitionRegistry;
 import org.apache.hadoop.gateway.services.metrics.impl.DefaultMetricsService;
 import org.apache.hadoop.gateway.services.topology.impl.DefaultTopologyService;
@@ -124,6 +125,13 @@ public class DefaultGatewayServices implements GatewayServices {
     DefaultMetricsService metricsService = new DefaultMetricsService();
     metricsService.init( config, options );
     services.put( METRICS_SERVICE, metricsService );
+
+    DefaultConnectionPoolService connectionPoolService = new DefaultConnectionPoolService();
+    connectionPoolService.setAliasService( alias );
+    connectionPoolService.setKeystoreService( ks );
+    connectionPoolService.setMasterService( ms );
+    connectionPoolService.init( config, options );
+    services.put( CONNECTION_POOL_SERVICE, connectionPoolService );
   }
 
   public void start() throws ServiceLifecycleException {
@@ -149,6 +157,9 @@ public class DefaultGatewayServices implements GatewayServices {
 
     DefaultMetricsService metricsService = (DefaultMetricsService) services.get(METRICS_SERVICE);
     metricsService.start();
+
+    DefaultConnectionPoolService connectionPoolService = (DefaultConnectionPoolService) services.get(CONNECTION_POOL_SERVICE);
+    connectionPoolService.start();
   }
 
   public void stop() throws ServiceLifecycleException {
@@ -171,6 +182,9 @@ public class DefaultGatewayServices implements GatewayServices {
     DefaultMetricsService metricsService = (DefaultMetricsService) services.get(METRICS_SERVICE);
     metricsService.stop();
 
+    DefaultConnectionPoolService connectionPoolService = (DefaultConnectionPoolService) services.get(CONNECTION_POOL_SERVICE);
+    connectionPoolService.stop();
+
   }
   
   /* (non-Javadoc)
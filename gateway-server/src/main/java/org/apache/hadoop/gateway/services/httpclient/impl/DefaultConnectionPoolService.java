@@ -0,0 +1,292 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.httpclient.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.hadoop.gateway.GatewayMessages;
+import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.dispatch.DefaultHttpClientFactory;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.ServiceLifecycleException;
+import org.apache.hadoop.gateway.services.httpclient.ConnectionPoolService;
+import org.apache.hadoop.gateway.services.metrics.impl.DefaultMetricsService;
+import org.apache.hadoop.gateway.services.security.AliasService;
+import org.apache.hadoop.gateway.services.security.KeystoreService;
+import org.apache.hadoop.gateway.services.security.MasterService;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NHttpClientConnectionManager;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class DefaultConnectionPoolService implements ConnectionPoolService {
+
+  private static GatewayMessages LOG = MessagesFactory.get( GatewayMessages.class );
+
+  private final ConcurrentHashMap<String, Pool> pools = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, AsyncPool> asyncPools = new ConcurrentHashMap<>();
+
+  private GatewayConfig config;
+  private AliasService aliasService;
+  private KeystoreService keystoreService;
+  private MasterService masterService;
+  private volatile boolean stopped;
+
+  public void setAliasService( AliasService aliasService ) {
+    this.aliasService = aliasService;
+  }
+
+  public void setKeystoreService( KeystoreService keystoreService ) {
+    this.keystoreService = keystoreService;
+  }
+
+  public void setMasterService( MasterService masterService ) {
+    this.masterService = masterService;
+  }
+
+  @Override
+  public void init( GatewayConfig config, Map<String, String> options ) throws ServiceLifecycleException {
+    this.config = config;
+  }
+
+  @Override
+  public void start() throws ServiceLifecycleException {
+    stopped = false;
+  }
+
+  @Override
+  public void stop() throws ServiceLifecycleException {
+    stopped = true;
+    for( Pool pool : pools.values() ) {
+      pool.close();
+    }
+    pools.clear();
+    for( AsyncPool pool : asyncPools.values() ) {
+      pool.close();
+    }
+    asyncPools.clear();
+  }
+
+  @Override
+  public HttpClientConnectionManager getConnectionManager( String profile ) {
+    Pool pool = pools.get( profile );
+    if( pool == null ) {
+      synchronized( pools ) {
+        pool = pools.get( profile );
+        if( pool == null ) {
+          if( stopped ) {
+            throw new IllegalStateException( "Connection pool service is stopped" );
+          }
+          pool = new Pool( profile, createSocketFactoryRegistry( profile ) );
+          pools.put( profile, pool );
+        }
+      }
+    }
+    return pool.manager;
+  }
+
+  @Override
+  public NHttpClientConnectionManager getAsyncConnectionManager( String profile ) {
+    AsyncPool pool = asyncPools.get( profile );
+    if( pool == null ) {
+      synchronized( asyncPools ) {
+        pool = asyncPools.get( profile );
+        if( pool == null ) {
+          if( stopped ) {
+            throw new IllegalStateException( "Connection pool service is stopped" );
+          }
+          pool = new AsyncPool( profile, createSessionStrategyRegistry( profile ) );
+          asyncPools.put( profile, pool );
+        }
+      }
+    }
+    return pool.manager;
+  }
+
+  @Override
+  public PoolStats getTotalStats( String profile ) {
+    Pool pool = pools.get( profile );
+    return pool == null ? null : pool.manager.getTotalStats();
+  }
+
+  @Override
+  public Map<String, PoolStats> getRouteStats( String profile ) {
+    Map<String, PoolStats> stats = new HashMap<>();
+    Pool pool = pools.get( profile );
+    if( pool != null ) {
+      for( HttpRoute route : pool.manager.getRoutes() ) {
+        stats.put( route.toString(), pool.manager.getStats( route ) );
+      }
+    }
+    return stats;
+  }
+
+  private Registry<ConnectionSocketFactory> createSocketFactoryRegistry( String profile ) {
+    SSLConnectionSocketFactory sslSocketFactory;
+    if( TWO_WAY_SSL_PROFILE.equals( profile ) ) {
+      sslSocketFactory = new SSLConnectionSocketFactory(
+          DefaultHttpClientFactory.createTwoWaySslContext( aliasService, keystoreService, masterService ) );
+    } else if( DEFAULT_PROFILE.equals( profile ) ) {
+      sslSocketFactory = SSLConnectionSocketFactory.getSocketFactory();
+    } else {
+      throw new IllegalArgumentException( "Unknown connection pool profile: " + profile );
+    }
+    return RegistryBuilder.<ConnectionSocketFactory>create()
+        .register( "http", PlainConnectionSocketFactory.getSocketFactory() )
+        .register( "https", sslSocketFactory )
+        .build();
+  }
+
+  private Registry<SchemeIOSessionStrategy> createSessionStrategyRegistry( String profile ) {
+    SchemeIOSessionStrategy sslStrategy;
+    if( TWO_WAY_SSL_PROFILE.equals( profile ) ) {
+      sslStrategy = new SSLIOSessionStrategy(
+          DefaultHttpClientFactory.createTwoWaySslContext( aliasService, keystoreService, masterService ) );
+    } else if( DEFAULT_PROFILE.equals( profile ) ) {
+      sslStrategy = SSLIOSessionStrategy.getDefaultStrategy();
+    } else {
+      throw new IllegalArgumentException( "Unknown connection pool profile: " + profile );
+    }
+    return RegistryBuilder.<SchemeIOSessionStrategy>create()
+        .register( "http", NoopIOSessionStrategy.INSTANCE )
+        .register( "https", sslStrategy )
+        .build();
+  }
+
+  private class Pool {
+
+    private final String profile;
+    private final PoolingHttpClientConnectionManager manager;
+    private final IdleConnectionEvictor evictor;
+
+    private Pool( String profile, Registry<ConnectionSocketFactory> socketFactoryRegistry ) {
+      this.profile = profile;
+      int maxTotal = config.getHttpClientPoolMaxTotal();
+      int maxPerRoute = config.getHttpClientPoolMaxPerRoute();
+      long idleTimeout = config.getHttpClientPoolIdleTimeout();
+      manager = new PoolingHttpClientConnectionManager( socketFactoryRegistry );
+      manager.setMaxTotal( maxTotal );
+      manager.setDefaultMaxPerRoute( maxPerRoute );
+      // Half-closed connections are detected before they are leased again rather than failing a request.
+      manager.setValidateAfterInactivity( (int)Math.min( idleTimeout, 2000L ) );
+      evictor = new IdleConnectionEvictor( manager, idleTimeout, TimeUnit.MILLISECONDS, idleTimeout, TimeUnit.MILLISECONDS );
+      evictor.start();
+      if( config.isMetricsEnabled() ) {
+        registerGauges();
+      }
+      LOG.createdConnectionPool( profile, maxTotal, maxPerRoute );
+    }
+
+    private void registerGauges() {
+      MetricRegistry registry = DefaultMetricsService.getMetricRegistry();
+      String prefix = MetricRegistry.name( ConnectionPoolService.class, profile );
+      registry.remove( MetricRegistry.name( prefix, "leased" ) );
+      registry.register( MetricRegistry.name( prefix, "leased" ), new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return manager.getTotalStats().getLeased();
+        }
+      } );
+      registry.remove( MetricRegistry.name( prefix, "available" ) );
+      registry.register( MetricRegistry.name( prefix, "available" ), new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return manager.getTotalStats().getAvailable();
+        }
+      } );
+      registry.remove( MetricRegistry.name( prefix, "pending" ) );
+      registry.register( MetricRegistry.name( prefix, "pending" ), new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return manager.getTotalStats().getPending();
+        }
+      } );
+      registry.remove( MetricRegistry.name( prefix, "routes" ) );
+      registry.register( MetricRegistry.name( prefix, "routes" ), new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return manager.getRoutes().size();
+        }
+      } );
+    }
+
+    private void close() {
+      evictor.shutdown();
+      manager.shutdown();
+    }
+  }
+
+  /**
+   * Blocking and non-blocking connections can't share a connection manager, so async dispatch
+   * leases from a pool of its own with the same limits.  The pool is owned by a client that runs
+   * its I/O reactor; the clients of the dispatches share the manager and don't start a reactor.
+   */
+  private class AsyncPool {
+
+    private final PoolingNHttpClientConnectionManager manager;
+    private final CloseableHttpAsyncClient owner;
+
+    private AsyncPool( String profile, Registry<SchemeIOSessionStrategy> sessionStrategyRegistry ) {
+      int maxTotal = config.getHttpClientPoolMaxTotal();
+      int maxPerRoute = config.getHttpClientPoolMaxPerRoute();
+      try {
+        manager = new PoolingNHttpClientConnectionManager(
+            new DefaultConnectingIOReactor( IOReactorConfig.DEFAULT ), sessionStrategyRegistry );
+      } catch( IOReactorException e ) {
+        throw new IllegalStateException( "Unable to create the I/O reactor of async connection pool " + profile, e );
+      }
+      manager.setMaxTotal( maxTotal );
+      manager.setDefaultMaxPerRoute( maxPerRoute );
+      owner = HttpAsyncClients.createMinimal( manager );
+      owner.start();
+      LOG.createdAsyncConnectionPool( profile, maxTotal, maxPerRoute );
+    }
+
+    private void close() {
+      try {
+        // Closing the owning client shuts down the reactor and the connection manager.
+        owner.close();
+      } catch( IOException e ) {
+        LOG.failedToCloseAsyncConnectionPool( e );
+      }
+    }
+  }
+
+}
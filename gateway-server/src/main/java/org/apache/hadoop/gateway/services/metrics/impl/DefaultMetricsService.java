@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.gateway.services.metrics.impl;
 
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 import org.apache.hadoop.gateway.GatewayMessages;
 import org.apache.hadoop.gateway.config.GatewayConfig;
@@ -137,6 +138,24 @@ public class DefaultMetricsService implements MetricsService {
     return instrumentationProvider.getInstrumented(context);
   }
 
+  @Override
+  public <T extends Metric> T register(String name, T metric) {
+    synchronized (metrics) {
+      metrics.remove(name);
+      return metrics.register(name, metric);
+    }
+  }
+
+  @Override
+  public boolean remove(String name, Metric metric) {
+    synchronized (metrics) {
+      if (metrics.getMetrics().get(name) == metric) {
+        return metrics.remove(name);
+      }
+      return false;
+    }
+  }
+
   public Map<Class<?>, InstrumentationProvider> getInstrumentationProviders() {
     return instrumentationProviders;
   }
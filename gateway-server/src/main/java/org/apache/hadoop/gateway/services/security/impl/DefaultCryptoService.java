@@ -24,8 +24,9 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.Signature;
 import java.security.SignatureException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.hadoop.gateway.GatewayMessages;
 import org.apache.hadoop.gateway.config.GatewayConfig;
@@ -43,8 +44,8 @@ public class DefaultCryptoService implements CryptoService {
 
   private AliasService as = null;
   private KeystoreService ks = null;
-  private HashMap<String,ConfigurableEncryptor> encryptorCache =
-		  new HashMap<String,ConfigurableEncryptor>();
+  private final ConcurrentMap<String,ConfigurableEncryptor> encryptorCache =
+		  new ConcurrentHashMap<String,ConfigurableEncryptor>();
   private GatewayConfig config = null;
 
   public void setKeystoreService(KeystoreService ks) {
@@ -97,7 +98,7 @@ public class DefaultCryptoService implements CryptoService {
     }
     if (password != null) {
       try {
-        return getEncryptor(clusterName,password).encrypt( clear );
+        return getEncryptor(clusterName,alias,password).encrypt( clear );
       } catch (NoSuchAlgorithmException e1) {
         LOG.failedToEncryptPasswordForCluster( clusterName, e1 );
       } catch (InvalidKeyException e) {
@@ -125,7 +126,7 @@ public class DefaultCryptoService implements CryptoService {
       final char[] password = as.getPasswordFromAliasForCluster(clusterName, alias);
       if (password != null) {
         try {
-          return getEncryptor(clusterName,password ).decrypt( salt, iv, cipherText);
+          return getEncryptor(clusterName,alias,password ).decrypt( salt, iv, cipherText);
         } catch (Exception e) {
           LOG.failedToDecryptPasswordForCluster( clusterName, e );
         }
@@ -189,18 +190,18 @@ public class DefaultCryptoService implements CryptoService {
     return null;
   }
 
-  // The assumption here is that lock contention will be less of a performance issue than the cost of object creation.
-  // We have seen via profiling that AESEncryptor instantiation is very expensive.
-  private final ConfigurableEncryptor getEncryptor( final String clusterName, final char[] password ) {
-    synchronized( encryptorCache ) {
-    	ConfigurableEncryptor encryptor = encryptorCache.get( clusterName );
-      if( encryptor == null ) {
-        encryptor = new ConfigurableEncryptor( String.valueOf( password ) );
-        encryptor.init(config);
-        encryptorCache.put( clusterName, encryptor );
-      }
-      return encryptor;
+  // We have seen via profiling that AESEncryptor instantiation is very expensive, the encryptors are
+  // shared by all callers. They are thread safe so no lock is held while using them.
+  private final ConfigurableEncryptor getEncryptor( final String clusterName, final String alias, final char[] password ) {
+    String key = clusterName + "/" + alias;
+    ConfigurableEncryptor encryptor = encryptorCache.get( key );
+    // A regenerated alias replaces the encryptor of its previous password.
+    if( encryptor == null || !encryptor.hasPassPhrase( password ) ) {
+      encryptor = new ConfigurableEncryptor( String.valueOf( password ) );
+      encryptor.init(config);
+      encryptorCache.put( key, encryptor );
     }
+    return encryptor;
   }
 
 }
@@ -118,6 +118,10 @@ public class DefaultKeystoreService extends BaseKeystoreService implements Keyst
 
   @Override
   public KeyStore getSigningKeystore() throws KeystoreServiceException {
+    return getKeystore(getSigningKeystoreFile(), "JKS");
+  }
+
+  private File getSigningKeystoreFile() throws KeystoreServiceException {
     File  keyStoreFile = null;
 
     if (signingKeystoreName == null) {
@@ -130,7 +134,7 @@ public class DefaultKeystoreService extends BaseKeystoreService implements Keyst
         throw new KeystoreServiceException("Configured signing keystore does not exist.");
       }
     }
-    return getKeystore(keyStoreFile, "JKS");
+    return keyStoreFile;
   }
 
   @Override
@@ -160,7 +164,7 @@ public class DefaultKeystoreService extends BaseKeystoreService implements Keyst
         cert = X509CertificateUtil.generateCertificate(dn, KPair, 365, "SHA1withRSA");
       }
 
-      KeyStore privateKS = getKeystoreForGateway();
+      KeyStore privateKS = loadKeystoreForUpdate(new File( keyStoreDir + GATEWAY_KEYSTORE  ), "JKS");
       privateKS.setKeyEntry(alias, KPair.getPrivate(),  
           passphrase,  
           new java.security.cert.Certificate[]{cert});  
@@ -223,44 +227,32 @@ public class DefaultKeystoreService extends BaseKeystoreService implements Keyst
 
   @Override
   public Key getKeyForGateway(String alias, char[] passphrase) throws KeystoreServiceException {
-    Key key = null;
-    KeyStore ks = getKeystoreForGateway();
     if (passphrase == null) {
       passphrase = masterService.getMasterSecret();
       LOG.assumingKeyPassphraseIsMaster();
     }
-    if (ks != null) {
-      try {
-        key = ks.getKey(alias, passphrase);
-      } catch (UnrecoverableKeyException e) {
-        LOG.failedToGetKeyForGateway( alias, e );
-      } catch (KeyStoreException e) {
-        LOG.failedToGetKeyForGateway( alias, e );
-      } catch (NoSuchAlgorithmException e) {
-        LOG.failedToGetKeyForGateway( alias, e );
-      }
-    }
-    return key;
+    return getKey(new File( keyStoreDir + GATEWAY_KEYSTORE  ), alias, passphrase);
   }  
 
   @Override
   public Key getSigningKey(String alias, char[] passphrase) throws KeystoreServiceException {
-    Key key = null;
-    KeyStore ks = getSigningKeystore();
     if (passphrase == null) {
       passphrase = masterService.getMasterSecret();
       LOG.assumingKeyPassphraseIsMaster();
     }
-    if (ks != null) {
-      try {
-        key = ks.getKey(alias, passphrase);
-      } catch (UnrecoverableKeyException e) {
-        LOG.failedToGetKeyForGateway( alias, e );
-      } catch (KeyStoreException e) {
-        LOG.failedToGetKeyForGateway( alias, e );
-      } catch (NoSuchAlgorithmException e) {
-        LOG.failedToGetKeyForGateway( alias, e );
-      }
+    return getKey(getSigningKeystoreFile(), alias, passphrase);
+  }
+
+  private Key getKey(File keyStoreFile, String alias, char[] passphrase) throws KeystoreServiceException {
+    Key key = null;
+    try {
+      key = getKey(keyStoreFile, "JKS", alias, passphrase);
+    } catch (UnrecoverableKeyException e) {
+      LOG.failedToGetKeyForGateway( alias, e );
+    } catch (KeyStoreException e) {
+      LOG.failedToGetKeyForGateway( alias, e );
+    } catch (NoSuchAlgorithmException e) {
+      LOG.failedToGetKeyForGateway( alias, e );
     }
     return key;
   }
@@ -273,9 +265,9 @@ public class DefaultKeystoreService extends BaseKeystoreService implements Keyst
 
   public void addCredentialForCluster(String clusterName, String alias, String value) 
       throws KeystoreServiceException {
-    KeyStore ks = getCredentialStoreForCluster(clusterName);
-    addCredential(alias, value, ks);
     final File  keyStoreFile = new File( keyStoreDir + clusterName + CREDENTIALS_SUFFIX  );
+    KeyStore ks = loadKeystoreForUpdate(keyStoreFile, "JCEKS");
+    addCredential(alias, value, ks);
     try {
       writeKeystoreToFile(ks, keyStoreFile);
     } catch (KeyStoreException e) {
@@ -293,23 +285,21 @@ public class DefaultKeystoreService extends BaseKeystoreService implements Keyst
   public char[] getCredentialForCluster(String clusterName, String alias) 
       throws KeystoreServiceException {
     char[] credential = null;
-    KeyStore ks = getCredentialStoreForCluster(clusterName);
-    if (ks != null) {
-      try {
-        char[] masterSecret = masterService.getMasterSecret();
-        Key credentialKey = ks.getKey( alias, masterSecret );
-        if (credentialKey != null) {
-          byte[] credentialBytes = credentialKey.getEncoded();
-          String credentialString = new String( credentialBytes );
-          credential = credentialString.toCharArray();
-        }
-      } catch (UnrecoverableKeyException e) {
-        LOG.failedToGetCredentialForCluster( clusterName, e );
-      } catch (KeyStoreException e) {
-        LOG.failedToGetCredentialForCluster( clusterName, e );
-      } catch (NoSuchAlgorithmException e) {
-        LOG.failedToGetCredentialForCluster( clusterName, e );
+    final File  keyStoreFile = new File( keyStoreDir + clusterName + CREDENTIALS_SUFFIX  );
+    try {
+      char[] masterSecret = masterService.getMasterSecret();
+      Key credentialKey = getKey( keyStoreFile, "JCEKS", alias, masterSecret );
+      if (credentialKey != null) {
+        byte[] credentialBytes = credentialKey.getEncoded();
+        String credentialString = new String( credentialBytes );
+        credential = credentialString.toCharArray();
       }
+    } catch (UnrecoverableKeyException e) {
+      LOG.failedToGetCredentialForCluster( clusterName, e );
+    } catch (KeyStoreException e) {
+      LOG.failedToGetCredentialForCluster( clusterName, e );
+    } catch (NoSuchAlgorithmException e) {
+      LOG.failedToGetCredentialForCluster( clusterName, e );
     }
     return credential;
   }
@@ -317,9 +307,9 @@ public class DefaultKeystoreService extends BaseKeystoreService implements Keyst
 
   @Override
   public void removeCredentialForCluster(String clusterName, String alias) throws KeystoreServiceException {
-    KeyStore ks = getCredentialStoreForCluster(clusterName);
-    removeCredential(alias, ks);
     final File  keyStoreFile = new File( keyStoreDir + clusterName + CREDENTIALS_SUFFIX  );
+    KeyStore ks = loadKeystoreForUpdate(keyStoreFile, "JCEKS");
+    removeCredential(alias, ks);
     try {
       writeKeystoreToFile(ks, keyStoreFile);
     } catch (KeyStoreException e) {
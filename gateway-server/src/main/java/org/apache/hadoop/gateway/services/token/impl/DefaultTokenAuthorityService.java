@@ -17,11 +17,17 @@
  */
 package org.apache.hadoop.gateway.services.token.impl;
 
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.security.KeyStoreException;
 import java.security.Principal;
 import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.text.ParseException;
 import java.util.Map;
 import java.util.Set;
 import java.util.List;
@@ -42,28 +48,48 @@ import org.apache.hadoop.gateway.services.security.token.TokenServiceException;
 import org.apache.hadoop.gateway.services.security.token.impl.JWT;
 import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
 
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jose.crypto.RSASSASigner;
 import com.nimbusds.jose.crypto.RSASSAVerifier;
 
 public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
 
   private static final String SIGNING_KEY_PASSPHRASE = "signing.key.passphrase";
+  // Shared secret for HMAC signed tokens, only meant for internal service to service tokens
+  private static final String SIGNING_HMAC_SECRET = "signing.hmac.secret";
+  private static final Set<String> RSA_SIG_ALGS = new HashSet<>();
+  private static final Set<String> EC_SIG_ALGS = new HashSet<>();
+  private static final Set<String> HMAC_SIG_ALGS = new HashSet<>();
   private static final Set<String> SUPPORTED_SIG_ALGS = new HashSet<>();
   private AliasService as = null;
   private KeystoreService ks = null;
   String signingKeyAlias = null;
 
   static {
-      // Only standard RSA signature algorithms are accepted
+      // Only standard signature algorithms are accepted
       // https://tools.ietf.org/html/rfc7518
-      SUPPORTED_SIG_ALGS.add("RS256");
-      SUPPORTED_SIG_ALGS.add("RS384");
-      SUPPORTED_SIG_ALGS.add("RS512");
-      SUPPORTED_SIG_ALGS.add("PS256");
-      SUPPORTED_SIG_ALGS.add("PS384");
-      SUPPORTED_SIG_ALGS.add("PS512");
+      RSA_SIG_ALGS.add("RS256");
+      RSA_SIG_ALGS.add("RS384");
+      RSA_SIG_ALGS.add("RS512");
+      RSA_SIG_ALGS.add("PS256");
+      RSA_SIG_ALGS.add("PS384");
+      RSA_SIG_ALGS.add("PS512");
+      // ECDSA requires an EC signing key on the matching curve (P-256 or P-384)
+      EC_SIG_ALGS.add("ES256");
+      EC_SIG_ALGS.add("ES384");
+      // HMAC requires the signing.hmac.secret alias with at least 256 bits
+      HMAC_SIG_ALGS.add("HS256");
+      SUPPORTED_SIG_ALGS.addAll(RSA_SIG_ALGS);
+      SUPPORTED_SIG_ALGS.addAll(EC_SIG_ALGS);
+      SUPPORTED_SIG_ALGS.addAll(HMAC_SIG_ALGS);
   }
 
   public void setKeystoreService(KeystoreService ks) {
@@ -135,21 +161,7 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
     JWT token = null;
     if (SUPPORTED_SIG_ALGS.contains(algorithm)) {
       token = new JWTToken(algorithm, claimArray, audiences);
-      RSAPrivateKey key;
-      char[] passphrase = null;
-      try {
-        passphrase = getSigningKeyPassphrase();
-      } catch (AliasServiceException e) {
-        throw new TokenServiceException(e);
-      }
-      try {
-        key = (RSAPrivateKey) ks.getSigningKey(getSigningKeyAlias(),
-            passphrase);
-        JWSSigner signer = new RSASSASigner(key);
-        token.sign(signer);
-      } catch (KeystoreServiceException e) {
-        throw new TokenServiceException(e);
-      }
+      token.sign(getSigner(algorithm));
     }
     else {
       throw new TokenServiceException("Cannot issue token - Unsupported algorithm");
@@ -158,6 +170,50 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
     return token;
   }
 
+  private JWSSigner getSigner(String algorithm) throws TokenServiceException {
+    JWSSigner signer;
+    try {
+      if (HMAC_SIG_ALGS.contains(algorithm)) {
+        byte[] secret = getHmacSecret();
+        if (secret == null) {
+          throw new TokenServiceException("Cannot issue token - HMAC signing secret is not provisioned");
+        }
+        signer = new MACSigner(secret);
+      }
+      else {
+        Key key = ks.getSigningKey(getSigningKeyAlias(), getSigningKeyPassphrase());
+        if (RSA_SIG_ALGS.contains(algorithm) && key instanceof RSAPrivateKey) {
+          signer = new RSASSASigner((RSAPrivateKey) key);
+        }
+        else if (EC_SIG_ALGS.contains(algorithm) && key instanceof ECPrivateKey) {
+          signer = new ECDSASigner((ECPrivateKey) key);
+        }
+        else {
+          throw new TokenServiceException("Cannot issue token - Signing key cannot be used with " + algorithm);
+        }
+      }
+    } catch (AliasServiceException e) {
+      throw new TokenServiceException(e);
+    } catch (KeystoreServiceException e) {
+      throw new TokenServiceException(e);
+    } catch (JOSEException e) {
+      throw new TokenServiceException(e);
+    }
+    // an EC key only signs with the algorithm of its curve
+    if (!signer.supportedJWSAlgorithms().contains(JWSAlgorithm.parse(algorithm))) {
+      throw new TokenServiceException("Cannot issue token - Signing key cannot be used with " + algorithm);
+    }
+    return signer;
+  }
+
+  private byte[] getHmacSecret() throws AliasServiceException {
+    char[] secret = as.getPasswordFromAliasForGateway(SIGNING_HMAC_SECRET);
+    if (secret == null) {
+      return null;
+    }
+    return new String(secret).getBytes(StandardCharsets.UTF_8);
+  }
+
   private char[] getSigningKeyPassphrase() throws AliasServiceException {
     char[] phrase = as.getPasswordFromAliasForGateway(SIGNING_KEY_PASSPHRASE);
     if (phrase == null) {
@@ -183,22 +239,55 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
   public boolean verifyToken(JWT token, RSAPublicKey publicKey)
       throws TokenServiceException {
     boolean rc = false;
-    PublicKey key;
+    String algorithm;
+    try {
+      algorithm = JWSHeader.parse(token.getHeader()).getAlgorithm().getName();
+    } catch (ParseException e) {
+      throw new TokenServiceException("Cannot verify token.", e);
+    }
+    // the algorithm is taken from the token so only accept those that can be
+    // verified with the key configured for it
+    if (!SUPPORTED_SIG_ALGS.contains(algorithm)) {
+      return false;
+    }
+    JWSVerifier verifier = null;
     try {
-      if (publicKey == null) {
-        key = ks.getSigningKeystore().getCertificate(getSigningKeyAlias()).getPublicKey();
+      if (HMAC_SIG_ALGS.contains(algorithm)) {
+        // a token from an external issuer is never verified with the shared secret
+        byte[] secret = publicKey == null ? getHmacSecret() : null;
+        if (secret != null) {
+          verifier = new MACVerifier(secret);
+        }
       }
       else {
-        key = publicKey;
+        PublicKey key;
+        if (publicKey == null) {
+          Certificate cert = ks.getSigningKeystore().getCertificate(getSigningKeyAlias());
+          key = cert == null ? null : cert.getPublicKey();
+        }
+        else {
+          key = publicKey;
+        }
+        if (RSA_SIG_ALGS.contains(algorithm) && key instanceof RSAPublicKey) {
+          verifier = new RSASSAVerifier((RSAPublicKey) key);
+        }
+        else if (EC_SIG_ALGS.contains(algorithm) && key instanceof ECPublicKey) {
+          verifier = new ECDSAVerifier((ECPublicKey) key);
+        }
       }
-      JWSVerifier verifier = new RSASSAVerifier((RSAPublicKey) key);
       // TODO: interrogate the token for issuer claim in order to determine the public key to use for verification
       // consider jwk for specifying the key too
-      rc = token.verify(verifier);
+      if (verifier != null) {
+        rc = token.verify(verifier);
+      }
     } catch (KeyStoreException e) {
       throw new TokenServiceException("Cannot verify token.", e);
     } catch (KeystoreServiceException e) {
       throw new TokenServiceException("Cannot verify token.", e);
+    } catch (AliasServiceException e) {
+      throw new TokenServiceException("Cannot verify token.", e);
+    } catch (JOSEException e) {
+      throw new TokenServiceException("Cannot verify token.", e);
     }
     return rc;
   }
@@ -212,12 +301,12 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
     signingKeyAlias = config.getSigningKeyAlias();
 
     @SuppressWarnings("unused")
-    RSAPrivateKey key;
+    Key key;
     char[] passphrase = null;
     try {
       passphrase = as.getPasswordFromAliasForGateway(SIGNING_KEY_PASSPHRASE);
       if (passphrase != null) {
-        key = (RSAPrivateKey) ks.getSigningKey(getSigningKeyAlias(),
+        key = ks.getSigningKey(getSigningKeyAlias(),
             passphrase);
         if (key == null) {
           throw new ServiceLifecycleException("Provisioned passphrase cannot be used to acquire signing key.");
@@ -0,0 +1,39 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates request correlation ids in the random UUID format without going through the shared
+ * SecureRandom behind UUID.randomUUID(). The ids only need to be unique, not unpredictable.
+ */
+public final class CorrelationIds {
+
+  private CorrelationIds() {
+  }
+
+  public static String next() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long msb = ( random.nextLong() & 0xffffffffffff0fffL ) | 0x0000000000004000L; // Version 4
+    long lsb = ( random.nextLong() & 0x3fffffffffffffffL ) | 0x8000000000000000L; // IETF variant
+    return new UUID( msb, lsb ).toString();
+  }
+
+}
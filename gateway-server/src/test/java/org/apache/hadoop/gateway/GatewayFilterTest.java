@@ -217,4 +217,77 @@ public class GatewayFilterTest {
     assertThat( (String)filter.url, is("http://host:8443/gateway/sandbox/test-role/test-path/test-resource"));
 
   }
+
+  @Test
+  public void testFilterChainOrderAndReentry() throws Exception {
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.replay( config );
+
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( request.getPathInfo() ).andReturn( "test-path/test-resource" ).anyTimes();
+    EasyMock.expect( request.getServletContext() ).andReturn( context ).anyTimes();
+    EasyMock.expect( context.getAttribute(
+        GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE)).andReturn(gatewayConfig).anyTimes();
+    EasyMock.expect(gatewayConfig.getHeaderNameForRemoteAddress()).andReturn(
+        "Custom-Forwarded-For").anyTimes();
+    EasyMock.replay( request );
+    EasyMock.replay( context );
+    EasyMock.replay( gatewayConfig );
+
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.replay( response );
+
+    final StringBuilder trace = new StringBuilder();
+    // The first filter invokes the rest of the chain twice, as a retrying filter would.
+    Filter first = new TraceFilter( trace, "1" ) {
+      @Override
+      public void doFilter( ServletRequest request, ServletResponse response, FilterChain chain ) throws IOException, ServletException {
+        super.doFilter( request, response, chain );
+        chain.doFilter( request, response );
+      }
+    };
+
+    GatewayFilter gateway = new GatewayFilter();
+    gateway.addFilter( "test-path/**", "test-filter-1", first, null, "test-role" );
+    gateway.addFilter( "test-path/**", "test-filter-2", new TraceFilter( trace, "2" ), null, "test-role" );
+    gateway.addFilter( "test-path/**", "test-filter-3", new TraceFilter( trace, "3" ), null, "test-role" );
+    gateway.init( config );
+    gateway.doFilter( request, response );
+    assertThat( trace.toString(), is( "12323" ) );
+
+    trace.setLength( 0 );
+    gateway.doFilter( request, response );
+    assertThat( trace.toString(), is( "12323" ) );
+    gateway.destroy();
+  }
+
+  private static class TraceFilter implements Filter {
+
+    private final StringBuilder trace;
+    private final String name;
+
+    private TraceFilter( StringBuilder trace, String name ) {
+      this.trace = trace;
+      this.name = name;
+    }
+
+    @Override
+    public void init( FilterConfig filterConfig ) throws ServletException {
+    }
+
+    @Override
+    public void doFilter( ServletRequest request, ServletResponse response, FilterChain chain ) throws IOException, ServletException {
+      trace.append( name );
+      chain.doFilter( request, response );
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+  }
+
 }
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.httpclient.impl;
+
+import org.apache.hadoop.gateway.config.impl.GatewayConfigImpl;
+import org.apache.hadoop.gateway.services.httpclient.ConnectionPoolService;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.nio.conn.NHttpClientConnectionManager;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+public class DefaultConnectionPoolServiceTest {
+
+  @Test
+  public void sharedPoolPerProfile() throws Exception {
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    config.set(GatewayConfigImpl.HTTP_CLIENT_POOL_MAX_TOTAL, "100");
+    config.set(GatewayConfigImpl.HTTP_CLIENT_POOL_MAX_PER_ROUTE, "10");
+    DefaultConnectionPoolService service = new DefaultConnectionPoolService();
+    service.init(config, null);
+    service.start();
+    try {
+      Assert.assertNull(service.getTotalStats(ConnectionPoolService.DEFAULT_PROFILE));
+
+      HttpClientConnectionManager manager = service.getConnectionManager(ConnectionPoolService.DEFAULT_PROFILE);
+      Assert.assertSame(manager, service.getConnectionManager(ConnectionPoolService.DEFAULT_PROFILE));
+
+      PoolingHttpClientConnectionManager pool = (PoolingHttpClientConnectionManager) manager;
+      Assert.assertEquals(100, pool.getMaxTotal());
+      Assert.assertEquals(10, pool.getDefaultMaxPerRoute());
+
+      Assert.assertEquals(100, service.getTotalStats(ConnectionPoolService.DEFAULT_PROFILE).getMax());
+      Assert.assertTrue(service.getRouteStats(ConnectionPoolService.DEFAULT_PROFILE).isEmpty());
+    } finally {
+      service.stop();
+    }
+  }
+
+  @Test
+  public void sharedAsyncPoolPerProfile() throws Exception {
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    config.set(GatewayConfigImpl.HTTP_CLIENT_POOL_MAX_TOTAL, "100");
+    config.set(GatewayConfigImpl.HTTP_CLIENT_POOL_MAX_PER_ROUTE, "10");
+    DefaultConnectionPoolService service = new DefaultConnectionPoolService();
+    service.init(config, null);
+    service.start();
+    Server backend = new Server(0);
+    backend.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) {
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        baseRequest.setHandled(true);
+      }
+    });
+    backend.start();
+    try {
+      NHttpClientConnectionManager manager = service.getAsyncConnectionManager(ConnectionPoolService.DEFAULT_PROFILE);
+      Assert.assertSame(manager, service.getAsyncConnectionManager(ConnectionPoolService.DEFAULT_PROFILE));
+
+      PoolingNHttpClientConnectionManager pool = (PoolingNHttpClientConnectionManager) manager;
+      Assert.assertEquals(100, pool.getMaxTotal());
+      Assert.assertEquals(10, pool.getDefaultMaxPerRoute());
+
+      // Clients sharing the manager rely on the reactor run by the service.
+      String url = "http://localhost:" + ((ServerConnector) backend.getConnectors()[0]).getLocalPort() + "/";
+      CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+          .setConnectionManager(manager)
+          .setConnectionManagerShared(true)
+          .build();
+      client.start();
+      Assert.assertEquals(204, client.execute(new HttpGet(url), null).get(10, TimeUnit.SECONDS).getStatusLine().getStatusCode());
+      client.close();
+      Assert.assertEquals(1, pool.getTotalStats().getAvailable());
+
+      service.stop();
+      Assert.assertEquals(0, pool.getTotalStats().getAvailable());
+    } finally {
+      service.stop();
+      backend.stop();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownAsyncProfile() throws Exception {
+    DefaultConnectionPoolService service = new DefaultConnectionPoolService();
+    service.init(new GatewayConfigImpl(), null);
+    service.getAsyncConnectionManager("unknown");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownProfile() throws Exception {
+    DefaultConnectionPoolService service = new DefaultConnectionPoolService();
+    service.init(new GatewayConfigImpl(), null);
+    service.getConnectionManager("unknown");
+  }
+
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.gateway.services.metrics.impl;
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
 import org.apache.hadoop.gateway.config.impl.GatewayConfigImpl;
 import org.apache.hadoop.gateway.services.metrics.InstrumentationProvider;
@@ -90,4 +91,17 @@ public class DefaultMetricsServiceTest {
     service.stop();
   }
 
+  @Test
+  public void registerReplacesAndRemoveChecksInstance() throws Exception {
+    DefaultMetricsService service = new DefaultMetricsService();
+    service.init(new GatewayConfigImpl(), null);
+    String name = MetricRegistry.name(DefaultMetricsServiceTest.class, "counter");
+    Counter first = service.register(name, new Counter());
+    Counter second = service.register(name, new Counter());
+    Assert.assertSame(second, DefaultMetricsService.getMetricRegistry().getCounters().get(name));
+    Assert.assertFalse(service.remove(name, first));
+    Assert.assertTrue(service.remove(name, second));
+    Assert.assertNull(DefaultMetricsService.getMetricRegistry().getCounters().get(name));
+  }
+
 }
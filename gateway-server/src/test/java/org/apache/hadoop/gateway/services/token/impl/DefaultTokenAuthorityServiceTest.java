@@ -19,6 +19,7 @@ package org.apache.hadoop.gateway.services.token.impl;
 
 import java.io.File;
 import java.security.Principal;
+import java.security.interfaces.RSAPublicKey;
 import java.util.HashMap;
 
 import org.apache.hadoop.gateway.config.GatewayConfig;
@@ -250,4 +251,112 @@ public class DefaultTokenAuthorityServiceTest extends org.junit.Assert {
     }
   }
 
+  @Test
+  public void testTokenCreationECSignatureAlgorithm() throws Exception {
+
+    Principal principal = EasyMock.createNiceMock(Principal.class);
+    EasyMock.expect(principal.getName()).andReturn("john.doe@example.com").anyTimes();
+
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    String basedir = System.getProperty("basedir");
+    if (basedir == null) {
+      basedir = new File(".").getCanonicalPath();
+    }
+
+    EasyMock.expect(config.getGatewaySecurityDir()).andReturn(basedir + "/target/test-classes");
+    EasyMock.expect(config.getSigningKeystoreName()).andReturn("server-ec-keystore.jks");
+    EasyMock.expect(config.getSigningKeyAlias()).andReturn("server").anyTimes();
+
+    MasterService ms = EasyMock.createNiceMock(MasterService.class);
+    EasyMock.expect(ms.getMasterSecret()).andReturn("horton".toCharArray()).anyTimes();
+
+    AliasService as = EasyMock.createNiceMock(AliasService.class);
+    EasyMock.expect(as.getGatewayIdentityPassphrase()).andReturn("horton".toCharArray()).anyTimes();
+
+    EasyMock.replay(principal, config, ms, as);
+
+    KeystoreService ks = new DefaultKeystoreService();
+    ((DefaultKeystoreService)ks).setMasterService(ms);
+
+    ((DefaultKeystoreService)ks).init(config, new HashMap<String, String>());
+
+    JWTokenAuthority ta = new DefaultTokenAuthorityService();
+    ((DefaultTokenAuthorityService)ta).setAliasService(as);
+    ((DefaultTokenAuthorityService)ta).setKeystoreService(ks);
+
+    ((DefaultTokenAuthorityService)ta).init(config, new HashMap<String, String>());
+
+    JWT token = ta.issueToken(principal, "ES256");
+    assertEquals("KNOXSSO", token.getIssuer());
+    assertEquals("john.doe@example.com", token.getSubject());
+    assertTrue(token.getHeader().contains("ES256"));
+
+    assertTrue(ta.verifyToken(token));
+
+    // the P-256 signing key cannot produce ES384 signatures
+    try {
+      ta.issueToken(principal, "ES384");
+      fail("Failure expected on a signature algorithm that does not match the key");
+    } catch (TokenServiceException ex) {
+        // expected
+    }
+
+    // the EC signing key cannot produce RSA signatures
+    try {
+      ta.issueToken(principal, "RS256");
+      fail("Failure expected on a signature algorithm that does not match the key");
+    } catch (TokenServiceException ex) {
+        // expected
+    }
+  }
+
+  @Test
+  public void testTokenCreationHMACSignatureAlgorithm() throws Exception {
+
+    Principal principal = EasyMock.createNiceMock(Principal.class);
+    EasyMock.expect(principal.getName()).andReturn("john.doe@example.com");
+
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    String basedir = System.getProperty("basedir");
+    if (basedir == null) {
+      basedir = new File(".").getCanonicalPath();
+    }
+
+    EasyMock.expect(config.getGatewaySecurityDir()).andReturn(basedir + "/target/test-classes");
+    EasyMock.expect(config.getSigningKeystoreName()).andReturn("server-keystore.jks");
+    EasyMock.expect(config.getSigningKeyAlias()).andReturn("server").anyTimes();
+
+    MasterService ms = EasyMock.createNiceMock(MasterService.class);
+    EasyMock.expect(ms.getMasterSecret()).andReturn("horton".toCharArray());
+
+    AliasService as = EasyMock.createNiceMock(AliasService.class);
+    EasyMock.expect(as.getGatewayIdentityPassphrase()).andReturn("horton".toCharArray());
+    EasyMock.expect(as.getPasswordFromAliasForGateway("signing.hmac.secret"))
+        .andReturn("0123456789abcdef0123456789abcdef".toCharArray()).anyTimes();
+
+    EasyMock.replay(principal, config, ms, as);
+
+    KeystoreService ks = new DefaultKeystoreService();
+    ((DefaultKeystoreService)ks).setMasterService(ms);
+
+    ((DefaultKeystoreService)ks).init(config, new HashMap<String, String>());
+
+    JWTokenAuthority ta = new DefaultTokenAuthorityService();
+    ((DefaultTokenAuthorityService)ta).setAliasService(as);
+    ((DefaultTokenAuthorityService)ta).setKeystoreService(ks);
+
+    ((DefaultTokenAuthorityService)ta).init(config, new HashMap<String, String>());
+
+    JWT token = ta.issueToken(principal, "HS256");
+    assertEquals("KNOXSSO", token.getIssuer());
+    assertEquals("john.doe@example.com", token.getSubject());
+    assertTrue(token.getHeader().contains("HS256"));
+
+    assertTrue(ta.verifyToken(token));
+
+    // the shared secret is never used for tokens verified against an external key
+    RSAPublicKey publicKey = (RSAPublicKey) ks.getSigningKeystore().getCertificate("server").getPublicKey();
+    assertFalse(ta.verifyToken(token, publicKey));
+  }
+
 }
@@ -18,17 +18,18 @@ package org.apache.hadoop.gateway.rm.dispatch;
  */
 import org.apache.hadoop.gateway.dispatch.DefaultDispatch;
 import org.apache.hadoop.gateway.filter.AbstractGatewayFilter;
+import org.apache.hadoop.gateway.ha.dispatch.FailoverScheduler;
+import org.apache.hadoop.gateway.ha.dispatch.ResponsePrefixReader;
 import org.apache.hadoop.gateway.ha.provider.HaProvider;
+import org.apache.hadoop.gateway.ha.provider.RequestTracker;
 import org.apache.hadoop.gateway.ha.provider.impl.HaServiceConfigConstants;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.rm.i18n.RMMessages;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.entity.BufferedHttpEntity;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -93,7 +94,7 @@ class  RMHaBaseDispatcher extends DefaultDispatch {
         HttpResponse inboundResponse = this.getInboundResponse();
         try {
            if( this.getInboundResponse() == null ) {
-             inboundResponse = executeOutboundRequest(outboundRequest);
+             inboundResponse = executeTrackedRequest(outboundRequest);
            }
            writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
         } catch (StandbyException e) {
@@ -108,6 +109,18 @@ class  RMHaBaseDispatcher extends DefaultDispatch {
         }
      }
 
+    /**
+     * Executes the outbound request, reporting it to the HA provider, see {@link RequestTracker}.
+     */
+    private HttpResponse executeTrackedRequest(HttpUriRequest outboundRequest) throws IOException {
+        return RequestTracker.execute(haProvider, this.resourceRole, outboundRequest, new RequestTracker.Execution() {
+            @Override
+            public HttpResponse execute(HttpUriRequest request) throws IOException {
+                return executeOutboundRequest(request);
+            }
+        });
+    }
+
     /**
      * Checks for specific outbound response codes/content to trigger a retry or failover
      */
@@ -115,22 +128,25 @@ class  RMHaBaseDispatcher extends DefaultDispatch {
     protected void writeOutboundResponse(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse) throws IOException {
        int status = inboundResponse.getStatusLine().getStatusCode();
        if ( status  == 403 || status == 307) {
-          BufferedHttpEntity entity = new BufferedHttpEntity(inboundResponse.getEntity());
-          inboundResponse.setEntity(entity);
-          ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-          inboundResponse.getEntity().writeTo(outputStream);
-          String body = new String(outputStream.toByteArray());
+          // The standby message is at the start of the body, so there is no need to buffer all of it
+          String body = ResponsePrefixReader.read(inboundResponse, ResponsePrefixReader.DEFAULT_LIMIT);
           if (body.contains("This is standby RM")) {
+             ResponsePrefixReader.discardRest(inboundResponse);
              throw new StandbyException();
           }
           if (body.contains("SafeModeException") || body.contains("RetriableException")) {
+             ResponsePrefixReader.discardRest(inboundResponse);
              throw new SafeModeException();
           }
        }
        super.writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
     }
 
-    private void failoverRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) throws IOException {
+    /**
+     * Fails the request over to the next ResourceManager after the failover sleep. The request is suspended
+     * during the sleep if it supports async processing, see {@link FailoverScheduler}.
+     */
+    private void failoverRequest(final HttpUriRequest outboundRequest, final HttpServletRequest inboundRequest, final HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) throws IOException {
        LOG.failingOverRequest(outboundRequest.getURI().toString());
        URI uri;
        String outboundURIs;
@@ -141,22 +157,33 @@ class  RMHaBaseDispatcher extends DefaultDispatch {
        inboundRequest.setAttribute(FAILOVER_COUNTER_ATTRIBUTE, counter);
         outboundURIs = outboundRequest.getURI().toString();
 
-       if (counter.incrementAndGet() <= maxFailoverAttempts) {
+       boolean withinAttempts = counter.incrementAndGet() <= maxFailoverAttempts;
+       if (withinAttempts && haProvider.tryRetry(this.resourceRole)) {
+          // No need to wait if a concurrent request has already failed over from this ResourceManager
+          long sleep = haProvider.markFailedURLIfActive(this.resourceRole, outboundURIs) ? failoverSleep : 0;
           //null out target url so that rewriters run again
           inboundRequest.setAttribute(AbstractGatewayFilter.TARGET_REQUEST_URL_ATTRIBUTE_NAME, null);
 
-           uri = getUriFromInbound(inboundRequest, inboundResponse, outboundURIs);
+           uri = getUriFromInbound(inboundRequest, inboundResponse, null);
            ((HttpRequestBase) outboundRequest).setURI(uri);
-          if (failoverSleep > 0) {
+          FailoverScheduler.Attempt attempt = newAttempt(outboundRequest, inboundRequest, outboundResponse);
+          if (FailoverScheduler.schedule(inboundRequest, outboundResponse, sleep, this.resourceRole, attempt)) {
+             return;
+          }
+          if (sleep > 0) {
              try {
-                Thread.sleep(failoverSleep);
+                Thread.sleep(sleep);
              } catch (InterruptedException e) {
                 LOG.failoverSleepFailed(this.resourceRole, e);
              }
           }
-          executeRequest(outboundRequest, inboundRequest, outboundResponse);
+          attempt.execute();
        } else {
-          LOG.maxFailoverAttemptsReached(maxFailoverAttempts, this.resourceRole);
+          if (withinAttempts) {
+             LOG.retryBudgetExhausted(this.resourceRole);
+          } else {
+             LOG.maxFailoverAttemptsReached(maxFailoverAttempts, this.resourceRole);
+          }
           if (inboundResponse != null) {
              writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
           } else {
@@ -192,14 +219,22 @@ class  RMHaBaseDispatcher extends DefaultDispatch {
         haProvider.markFailedURL(this.resourceRole, outboundURIs);
     }
 
-    private void retryRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) throws IOException {
+    /**
+     * Retries the request on the same ResourceManager after the retry sleep, suspending it like {@link #failoverRequest}.
+     */
+    private void retryRequest(final HttpUriRequest outboundRequest, final HttpServletRequest inboundRequest, final HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) throws IOException {
        LOG.retryingRequest(outboundRequest.getURI().toString());
        AtomicInteger counter = (AtomicInteger) inboundRequest.getAttribute(RETRY_COUNTER_ATTRIBUTE);
        if (counter == null) {
           counter = new AtomicInteger(0);
        }
        inboundRequest.setAttribute(RETRY_COUNTER_ATTRIBUTE, counter);
-       if (counter.incrementAndGet() <= maxRetryAttempts) {
+       boolean withinAttempts = counter.incrementAndGet() <= maxRetryAttempts;
+       if (withinAttempts && haProvider.tryRetry(this.resourceRole)) {
+          FailoverScheduler.Attempt attempt = newAttempt(outboundRequest, inboundRequest, outboundResponse);
+          if (FailoverScheduler.schedule(inboundRequest, outboundResponse, retrySleep, this.resourceRole, attempt)) {
+             return;
+          }
           if (retrySleep > 0) {
              try {
                 Thread.sleep(retrySleep);
@@ -207,9 +242,13 @@ class  RMHaBaseDispatcher extends DefaultDispatch {
                 LOG.retrySleepFailed(this.resourceRole, e);
              }
           }
-          executeRequest(outboundRequest, inboundRequest, outboundResponse);
+          attempt.execute();
        } else {
-          LOG.maxRetryAttemptsReached(maxRetryAttempts, this.resourceRole, outboundRequest.getURI().toString());
+          if (withinAttempts) {
+             LOG.retryBudgetExhausted(this.resourceRole);
+          } else {
+             LOG.maxRetryAttemptsReached(maxRetryAttempts, this.resourceRole, outboundRequest.getURI().toString());
+          }
           if (inboundResponse != null) {
              writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
           } else {
@@ -217,4 +256,13 @@ class  RMHaBaseDispatcher extends DefaultDispatch {
           }
        }
     }
+
+    private FailoverScheduler.Attempt newAttempt(final HttpUriRequest outboundRequest, final HttpServletRequest inboundRequest, final HttpServletResponse outboundResponse) {
+        return new FailoverScheduler.Attempt() {
+            @Override
+            public void execute() throws IOException {
+                executeRequest(outboundRequest, inboundRequest, outboundResponse);
+            }
+        };
+    }
 }
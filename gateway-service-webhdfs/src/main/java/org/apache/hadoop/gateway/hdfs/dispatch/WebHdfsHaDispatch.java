@@ -19,20 +19,21 @@ package org.apache.hadoop.gateway.hdfs.dispatch;
 
 import org.apache.hadoop.gateway.config.Configure;
 import org.apache.hadoop.gateway.filter.AbstractGatewayFilter;
+import org.apache.hadoop.gateway.ha.dispatch.FailoverScheduler;
+import org.apache.hadoop.gateway.ha.dispatch.ResponsePrefixReader;
 import org.apache.hadoop.gateway.ha.provider.HaProvider;
 import org.apache.hadoop.gateway.ha.provider.HaServiceConfig;
+import org.apache.hadoop.gateway.ha.provider.RequestTracker;
 import org.apache.hadoop.gateway.ha.provider.impl.HaServiceConfigConstants;
 import org.apache.hadoop.gateway.hdfs.i18n.WebHdfsMessages;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.entity.BufferedHttpEntity;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -89,7 +90,7 @@ public class WebHdfsHaDispatch extends HdfsHttpClientDispatch {
    protected void executeRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse) throws IOException {
       HttpResponse inboundResponse = null;
       try {
-         inboundResponse = executeOutboundRequest(outboundRequest);
+         inboundResponse = executeTrackedRequest(outboundRequest);
          writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
       } catch (StandbyException e) {
          LOG.errorReceivedFromStandbyNode(e);
@@ -103,50 +104,75 @@ public class WebHdfsHaDispatch extends HdfsHttpClientDispatch {
       }
    }
 
+   /**
+    * Executes the outbound request, reporting it to the HA provider, see {@link RequestTracker}.
+    */
+   private HttpResponse executeTrackedRequest(HttpUriRequest outboundRequest) throws IOException {
+      return RequestTracker.execute(haProvider, RESOURCE_ROLE, outboundRequest, new RequestTracker.Execution() {
+         @Override
+         public HttpResponse execute(HttpUriRequest request) throws IOException {
+            return executeOutboundRequest(request);
+         }
+      });
+   }
+
    /**
     * Checks for specific outbound response codes/content to trigger a retry or failover
     */
    @Override
    protected void writeOutboundResponse(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse) throws IOException {
       if (inboundResponse.getStatusLine().getStatusCode() == 403) {
-         BufferedHttpEntity entity = new BufferedHttpEntity(inboundResponse.getEntity());
-         inboundResponse.setEntity(entity);
-         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-         inboundResponse.getEntity().writeTo(outputStream);
-         String body = new String(outputStream.toByteArray());
+         // The exception name is at the start of the body, so there is no need to buffer all of it
+         String body = ResponsePrefixReader.read(inboundResponse, ResponsePrefixReader.DEFAULT_LIMIT);
          if (body.contains("StandbyException")) {
+            ResponsePrefixReader.discardRest(inboundResponse);
             throw new StandbyException();
          }
          if (body.contains("SafeModeException") || body.contains("RetriableException")) {
+            ResponsePrefixReader.discardRest(inboundResponse);
             throw new SafeModeException();
          }
       }
       super.writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
    }
 
-   private void failoverRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) throws IOException {
+   /**
+    * Fails the request over to the next NameNode after the failover sleep. The request is suspended
+    * during the sleep if it supports async processing, see {@link FailoverScheduler}.
+    */
+   private void failoverRequest(final HttpUriRequest outboundRequest, final HttpServletRequest inboundRequest, final HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) throws IOException {
       LOG.failingOverRequest(outboundRequest.getURI().toString());
       AtomicInteger counter = (AtomicInteger) inboundRequest.getAttribute(FAILOVER_COUNTER_ATTRIBUTE);
       if (counter == null) {
          counter = new AtomicInteger(0);
       }
       inboundRequest.setAttribute(FAILOVER_COUNTER_ATTRIBUTE, counter);
-      if (counter.incrementAndGet() <= maxFailoverAttempts) {
-         haProvider.markFailedURL(RESOURCE_ROLE, outboundRequest.getURI().toString());
+      boolean withinAttempts = counter.incrementAndGet() <= maxFailoverAttempts;
+      if (withinAttempts && haProvider.tryRetry(RESOURCE_ROLE)) {
+         // No need to wait if a concurrent request has already failed over from this NameNode
+         long sleep = haProvider.markFailedURLIfActive(RESOURCE_ROLE, outboundRequest.getURI().toString()) ? failoverSleep : 0;
          //null out target url so that rewriters run again
          inboundRequest.setAttribute(AbstractGatewayFilter.TARGET_REQUEST_URL_ATTRIBUTE_NAME, null);
          URI uri = getDispatchUrl(inboundRequest);
          ((HttpRequestBase) outboundRequest).setURI(uri);
-         if (failoverSleep > 0) {
+         FailoverScheduler.Attempt attempt = newAttempt(outboundRequest, inboundRequest, outboundResponse);
+         if (FailoverScheduler.schedule(inboundRequest, outboundResponse, sleep, RESOURCE_ROLE, attempt)) {
+            return;
+         }
+         if (sleep > 0) {
             try {
-               Thread.sleep(failoverSleep);
+               Thread.sleep(sleep);
             } catch (InterruptedException e) {
                LOG.failoverSleepFailed(RESOURCE_ROLE, e);
             }
          }
-         executeRequest(outboundRequest, inboundRequest, outboundResponse);
+         attempt.execute();
       } else {
-         LOG.maxFailoverAttemptsReached(maxFailoverAttempts, RESOURCE_ROLE);
+         if (withinAttempts) {
+            LOG.retryBudgetExhausted(RESOURCE_ROLE);
+         } else {
+            LOG.maxFailoverAttemptsReached(maxFailoverAttempts, RESOURCE_ROLE);
+         }
          if (inboundResponse != null) {
             writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
          } else {
@@ -155,14 +181,22 @@ public class WebHdfsHaDispatch extends HdfsHttpClientDispatch {
       }
    }
 
-   private void retryRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) throws IOException {
+   /**
+    * Retries the request on the same NameNode after the retry sleep, suspending it like {@link #failoverRequest}.
+    */
+   private void retryRequest(final HttpUriRequest outboundRequest, final HttpServletRequest inboundRequest, final HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) throws IOException {
       LOG.retryingRequest(outboundRequest.getURI().toString());
       AtomicInteger counter = (AtomicInteger) inboundRequest.getAttribute(RETRY_COUNTER_ATTRIBUTE);
       if (counter == null) {
          counter = new AtomicInteger(0);
       }
       inboundRequest.setAttribute(RETRY_COUNTER_ATTRIBUTE, counter);
-      if (counter.incrementAndGet() <= maxRetryAttempts) {
+      boolean withinAttempts = counter.incrementAndGet() <= maxRetryAttempts;
+      if (withinAttempts && haProvider.tryRetry(RESOURCE_ROLE)) {
+         FailoverScheduler.Attempt attempt = newAttempt(outboundRequest, inboundRequest, outboundResponse);
+         if (FailoverScheduler.schedule(inboundRequest, outboundResponse, retrySleep, RESOURCE_ROLE, attempt)) {
+            return;
+         }
          if (retrySleep > 0) {
             try {
                Thread.sleep(retrySleep);
@@ -170,9 +204,13 @@ public class WebHdfsHaDispatch extends HdfsHttpClientDispatch {
                LOG.retrySleepFailed(RESOURCE_ROLE, e);
             }
          }
-         executeRequest(outboundRequest, inboundRequest, outboundResponse);
+         attempt.execute();
       } else {
-         LOG.maxRetryAttemptsReached(maxRetryAttempts, RESOURCE_ROLE, outboundRequest.getURI().toString());
+         if (withinAttempts) {
+            LOG.retryBudgetExhausted(RESOURCE_ROLE);
+         } else {
+            LOG.maxRetryAttemptsReached(maxRetryAttempts, RESOURCE_ROLE, outboundRequest.getURI().toString());
+         }
          if (inboundResponse != null) {
             writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
          } else {
@@ -181,4 +219,13 @@ public class WebHdfsHaDispatch extends HdfsHttpClientDispatch {
       }
    }
 
+   private FailoverScheduler.Attempt newAttempt(final HttpUriRequest outboundRequest, final HttpServletRequest inboundRequest, final HttpServletResponse outboundResponse) {
+      return new FailoverScheduler.Attempt() {
+         @Override
+         public void execute() throws IOException {
+            executeRequest(outboundRequest, inboundRequest, outboundResponse);
+         }
+      };
+   }
+
 }
@@ -38,6 +38,9 @@ public interface SpiGatewayMessages {
   @Message( level = MessageLevel.WARN, text = "Connection exception dispatching request: {0} {1}" )
   void dispatchServiceConnectionException( URI uri, @StackTrace(level=MessageLevel.WARN) Exception e );
 
+  @Message( level = MessageLevel.WARN, text = "Async dispatch request timed out after {1}ms: {0}" )
+  void asyncDispatchTimeout( URI uri, long timeout );
+
   @Message( level = MessageLevel.DEBUG, text = "Dispatch response status: {0}" )
   void dispatchResponseStatusCode(int statusCode);
 
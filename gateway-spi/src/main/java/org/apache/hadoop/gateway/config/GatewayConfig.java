@@ -142,8 +142,37 @@ public interface GatewayConfig {
 
   int getHttpClientSocketTimeout();
 
+  /**
+   * Maximum number of outbound connections held by the shared connection pool
+   * across all backend routes of a TLS profile.
+   * @return the global connection limit
+   */
+  int getHttpClientPoolMaxTotal();
+
+  /**
+   * Maximum number of outbound connections the shared connection pool holds
+   * for a single backend route.
+   * @return the per-route connection limit
+   */
+  int getHttpClientPoolMaxPerRoute();
+
+  /**
+   * Time in milliseconds after which idle pooled connections are evicted.
+   * @return the idle timeout
+   */
+  long getHttpClientPoolIdleTimeout();
+
   int getThreadPoolMax();
 
+  /**
+   * Is Servlet 3.1 async request processing enabled for the gateway servlet.
+   * When enabled, dispatches configured for async mode release the container
+   * thread while waiting for the backend response.
+   * Default is false.
+   * @return true if async request processing is supported
+   */
+  boolean isAsyncSupported();
+
   int getHttpServerRequestBuffer();
 
   int getHttpServerRequestHeaderBuffer();
@@ -164,6 +193,12 @@ public interface GatewayConfig {
 
   List<String> getGlobalRulesServices();
 
+  /**
+   * Maximum number of outbound URL rewrite results each topology caches.
+   * @return the cache size, zero disables the cache
+   */
+  int getUrlRewriteCacheSize();
+
   /**
    * Returns true if websocket feature enabled else false.
    * Default is false.
@@ -21,6 +21,7 @@ import org.apache.hadoop.gateway.filter.GatewayResponse;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.nio.client.HttpAsyncClient;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -47,6 +48,10 @@ public abstract class AbstractGatewayDispatch implements Dispatch {
   
   protected  HttpClient client;
 
+  protected HttpAsyncClient asyncClient;
+
+  protected long asyncTimeout = -1;
+
   @Override
   public void init() {
   }
@@ -79,6 +84,28 @@ public abstract class AbstractGatewayDispatch implements Dispatch {
     this.client = client;
   }
 
+  /**
+   * @return The non-blocking client used for async dispatch or null if async dispatch is disabled.
+   */
+  public HttpAsyncClient getAsyncHttpClient() {
+    return asyncClient;
+  }
+
+  public void setAsyncHttpClient(HttpAsyncClient asyncClient) {
+    this.asyncClient = asyncClient;
+  }
+
+  /**
+   * @return The time in milliseconds an async dispatch may stay suspended or -1 to use the container default.
+   */
+  public long getAsyncTimeout() {
+    return asyncTimeout;
+  }
+
+  public void setAsyncTimeout(long asyncTimeout) {
+    this.asyncTimeout = asyncTimeout;
+  }
+
   @Override
   public URI getDispatchUrl(HttpServletRequest request) {
     StringBuffer str = request.getRequestURL();
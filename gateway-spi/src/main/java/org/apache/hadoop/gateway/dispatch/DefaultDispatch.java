@@ -21,18 +21,23 @@ import org.apache.hadoop.gateway.SpiGatewayMessages;
 import org.apache.hadoop.gateway.SpiGatewayResources;
 import org.apache.hadoop.gateway.audit.api.Action;
 import org.apache.hadoop.gateway.audit.api.ActionOutcome;
+import org.apache.hadoop.gateway.audit.api.AuditContext;
 import org.apache.hadoop.gateway.audit.api.AuditServiceFactory;
 import org.apache.hadoop.gateway.audit.api.Auditor;
+import org.apache.hadoop.gateway.audit.api.CorrelationContext;
+import org.apache.hadoop.gateway.audit.api.CorrelationServiceFactory;
 import org.apache.hadoop.gateway.audit.api.ResourceType;
 import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.hadoop.gateway.config.Configure;
 import org.apache.hadoop.gateway.config.Default;
 import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.filter.GatewayResponse;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.i18n.resources.ResourcesFactory;
 import org.apache.hadoop.gateway.util.MimeTypes;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
@@ -41,8 +46,14 @@ import org.apache.http.client.methods.HttpOptions;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.entity.ContentType;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.Closeable;
@@ -52,6 +63,8 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  *
@@ -68,9 +81,19 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
 
   private Set<String> outboundResponseExcludeHeaders;
 
+  // Bytes of backend response content buffered in memory during async dispatch.
+  private static final int ASYNC_RESPONSE_BUFFER_SIZE = 16 * 1024;
+
   //Buffer size in bytes
   private int replayBufferSize = -1;
 
+  // Async dispatch neither sends the request with executeOutboundRequest nor writes the response
+  // with writeOutboundResponse, so subclasses that override either of them are dispatched synchronously.
+  private final boolean asyncCapable =
+      !isOverridden( getClass(), "executeOutboundRequest", HttpUriRequest.class )
+      && !isOverridden( getClass(), "writeOutboundResponse",
+          HttpUriRequest.class, HttpServletRequest.class, HttpServletResponse.class, HttpResponse.class );
+
   @Override
   public void init() {
     super.init();
@@ -113,10 +136,60 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
          HttpServletRequest inboundRequest,
          HttpServletResponse outboundResponse)
          throws IOException {
-      HttpResponse inboundResponse = executeOutboundRequest(outboundRequest);
-      writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
+      if( isAsyncDispatch( outboundRequest, inboundRequest ) ) {
+        executeAsyncRequest( outboundRequest, inboundRequest, outboundResponse );
+      } else {
+        HttpResponse inboundResponse = executeOutboundRequest(outboundRequest);
+        writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
+      }
    }
 
+  /**
+   * Requests are only dispatched asynchronously when an async client is configured, the container
+   * allows async processing of the inbound request and there is no request body.  Request bodies
+   * are read from a blocking servlet stream so those requests remain synchronous.  Dispatches that
+   * override {@link #executeOutboundRequest} or {@link #writeOutboundResponse} are always synchronous.
+   */
+  protected boolean isAsyncDispatch( HttpUriRequest outboundRequest, HttpServletRequest inboundRequest ) {
+    return asyncClient != null
+        && asyncCapable
+        && inboundRequest.isAsyncSupported()
+        && !inboundRequest.isAsyncStarted()
+        && !( outboundRequest instanceof HttpEntityEnclosingRequest );
+  }
+
+  /**
+   * Sends the outbound request with the non-blocking client and suspends the inbound request
+   * instead of holding the container thread until the backend responds.  Once the response head
+   * is received it is written via {@link #writeOutboundResponseHead}.  A body that is passed on
+   * unmodified is then written to the servlet output without blocking as it arrives from the
+   * backend.  A body that is rewritten is read through a bounded buffer by
+   * {@link #writeResponse} on a container thread, since the rewrite filters read their input
+   * from a blocking stream.  The inbound request stays suspended for at most the async timeout,
+   * which is the socket timeout of the dispatch, or the container default if none is configured.
+   */
+  protected void executeAsyncRequest(
+      HttpUriRequest outboundRequest,
+      HttpServletRequest inboundRequest,
+      HttpServletResponse outboundResponse ) {
+    LOG.dispatchRequest( outboundRequest.getMethod(), outboundRequest.getURI() );
+    auditor.audit( Action.DISPATCH, outboundRequest.getURI().toString(), ResourceType.URI, ActionOutcome.UNAVAILABLE, RES.requestMethod( outboundRequest.getMethod() ) );
+    if( !"true".equals( System.getProperty( GatewayConfig.HADOOP_KERBEROS_SECURED ) ) ) {
+      // Hadoop cluster not Kerberos enabled
+      addCredentialsToRequest( outboundRequest );
+    }
+    AsyncContext asyncContext = inboundRequest.startAsync( inboundRequest, outboundResponse );
+    if( asyncTimeout > 0 ) {
+      asyncContext.setTimeout( asyncTimeout );
+    }
+    AsyncDispatchCallback callback = new AsyncDispatchCallback( asyncContext, outboundRequest, inboundRequest, outboundResponse );
+    asyncContext.addListener( callback );
+    callback.setExchange( asyncClient.execute(
+        HttpAsyncMethods.create( outboundRequest ),
+        new StreamingAsyncResponseConsumer( ASYNC_RESPONSE_BUFFER_SIZE, callback ),
+        callback ) );
+  }
+
   protected HttpResponse executeOutboundRequest( HttpUriRequest outboundRequest ) throws IOException {
     LOG.dispatchRequest( outboundRequest.getMethod(), outboundRequest.getURI() );
     HttpResponse inboundResponse;
@@ -128,19 +201,7 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
         addCredentialsToRequest( outboundRequest );
       }
       inboundResponse = client.execute( outboundRequest );
-
-      int statusCode = inboundResponse.getStatusLine().getStatusCode();
-      if( statusCode != 201 ) {
-        LOG.dispatchResponseStatusCode( statusCode );
-      } else {
-        Header location = inboundResponse.getFirstHeader( "Location" );
-        if( location == null ) {
-          LOG.dispatchResponseStatusCode( statusCode );
-        } else {
-          LOG.dispatchResponseCreatedStatusCode( statusCode, location.getValue() );
-        }
-      }
-      auditor.audit( Action.DISPATCH, outboundRequest.getURI().toString(), ResourceType.URI, ActionOutcome.SUCCESS, RES.responseStatus( statusCode ) );
+      auditResponseStatus( outboundRequest, inboundResponse );
     } catch( Exception e ) {
       // We do not want to expose back end host. port end points to clients, see JIRA KNOX-58
       auditor.audit( Action.DISPATCH, outboundRequest.getURI().toString(), ResourceType.URI, ActionOutcome.FAILURE );
@@ -150,7 +211,38 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
     return inboundResponse;
   }
 
+  private void auditResponseStatus( HttpUriRequest outboundRequest, HttpResponse inboundResponse ) {
+    int statusCode = inboundResponse.getStatusLine().getStatusCode();
+    if( statusCode != 201 ) {
+      LOG.dispatchResponseStatusCode( statusCode );
+    } else {
+      Header location = inboundResponse.getFirstHeader( "Location" );
+      if( location == null ) {
+        LOG.dispatchResponseStatusCode( statusCode );
+      } else {
+        LOG.dispatchResponseCreatedStatusCode( statusCode, location.getValue() );
+      }
+    }
+    auditor.audit( Action.DISPATCH, outboundRequest.getURI().toString(), ResourceType.URI, ActionOutcome.SUCCESS, RES.responseStatus( statusCode ) );
+  }
+
   protected void writeOutboundResponse(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse) throws IOException {
+    writeOutboundResponseHead(outboundResponse, inboundResponse);
+    HttpEntity entity = inboundResponse.getEntity();
+    if( entity != null ) {
+      InputStream stream = entity.getContent();
+      try {
+        writeResponse( inboundRequest, outboundResponse, stream );
+      } finally {
+        closeInboundResponse( inboundResponse, stream );
+      }
+    }
+  }
+
+  /**
+   * Copies the status, headers and content type of the backend response without writing the body.
+   */
+  protected void writeOutboundResponseHead(HttpServletResponse outboundResponse, HttpResponse inboundResponse) {
     // Copy the client respond header to the server respond.
     outboundResponse.setStatus(inboundResponse.getStatusLine().getStatusCode());
     Header[] headers = inboundResponse.getAllHeaders();
@@ -178,15 +270,19 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
       //        outboundResponse.setContentLength( (int)contentLength );
       //      }
       //]
-      InputStream stream = entity.getContent();
-      try {
-        writeResponse( inboundRequest, outboundResponse, stream );
-      } finally {
-        closeInboundResponse( inboundResponse, stream );
-      }
     }
   }
 
+  /**
+   * @return the stream the body can be written to without blocking, or null if it is rewritten
+   */
+  private static ServletOutputStream getPassThroughOutputStream( HttpServletResponse outboundResponse ) throws IOException {
+    if( outboundResponse instanceof GatewayResponse ) {
+      return ((GatewayResponse)outboundResponse).getPassThroughOutputStream();
+    }
+    return outboundResponse.getOutputStream();
+  }
+
   private String getInboundResponseContentType( final HttpEntity entity ) {
     String fullContentType = null;
     if( entity != null ) {
@@ -325,4 +421,206 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
     return outboundResponseExcludeHeaders;
   }
 
+  // For unit testing.
+  boolean isAsyncCapable() {
+    return asyncCapable;
+  }
+
+  private static boolean isOverridden( Class<?> type, String name, Class<?>... parameterTypes ) {
+    for( Class<?> c = type; c != null && c != DefaultDispatch.class; c = c.getSuperclass() ) {
+      try {
+        c.getDeclaredMethod( name, parameterTypes );
+        return true;
+      } catch( NoSuchMethodException e ) {
+        // Not declared by this class, check its superclass.
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Completes a suspended inbound request from the callbacks of the async client.  The response
+   * head is written from the I/O reactor as soon as it arrives, or when the exchange completes for
+   * responses without a body.  The audit and correlation contexts of the inbound request are
+   * attached to every thread that works on the response.  When the async timeout expires the
+   * exchange is cancelled and the inbound request is completed, with an error if nothing was written.
+   */
+  private class AsyncDispatchCallback
+      implements FutureCallback<HttpResponse>, StreamingAsyncResponseConsumer.ResponseHandler, AsyncListener {
+
+    private final AsyncContext asyncContext;
+    private final HttpUriRequest outboundRequest;
+    private final HttpServletRequest inboundRequest;
+    private final HttpServletResponse outboundResponse;
+    private final AuditContext auditContext;
+    private final CorrelationContext correlationContext;
+    private final AtomicBoolean handled = new AtomicBoolean( false );
+    private final AtomicBoolean completed = new AtomicBoolean( false );
+    private volatile Future<HttpResponse> exchange;
+
+    private AsyncDispatchCallback( AsyncContext asyncContext, HttpUriRequest outboundRequest,
+                                   HttpServletRequest inboundRequest, HttpServletResponse outboundResponse ) {
+      this.asyncContext = asyncContext;
+      this.outboundRequest = outboundRequest;
+      this.inboundRequest = inboundRequest;
+      this.outboundResponse = outboundResponse;
+      this.auditContext = AuditServiceFactory.getAuditService().getContext();
+      this.correlationContext = CorrelationServiceFactory.getCorrelationService().getContext();
+    }
+
+    private void setExchange( Future<HttpResponse> exchange ) {
+      this.exchange = exchange;
+    }
+
+    @Override
+    public ServletOutputStream responseReceived( final HttpResponse inboundResponse ) throws IOException {
+      handled.set( true );
+      attachContexts();
+      try {
+        auditResponseStatus( outboundRequest, inboundResponse );
+        writeOutboundResponseHead( outboundResponse, inboundResponse );
+        ServletOutputStream output = getPassThroughOutputStream( outboundResponse );
+        if( output == null ) {
+          asyncContext.start( new Runnable() {
+            @Override
+            public void run() {
+              attachContexts();
+              try {
+                InputStream stream = inboundResponse.getEntity().getContent();
+                try {
+                  writeResponse( inboundRequest, outboundResponse, stream );
+                } finally {
+                  closeInboundResponse( inboundResponse, stream );
+                }
+              } catch( Exception e ) {
+                LOG.dispatchServiceConnectionException( outboundRequest.getURI(), e );
+              } finally {
+                complete();
+                detachContexts();
+              }
+            }
+          } );
+        }
+        return output;
+      } finally {
+        detachContexts();
+      }
+    }
+
+    @Override
+    public void responseWritten( Exception failure ) {
+      attachContexts();
+      try {
+        if( failure != null ) {
+          LOG.dispatchServiceConnectionException( outboundRequest.getURI(), failure );
+          cancelExchange();
+        }
+      } finally {
+        complete();
+        detachContexts();
+      }
+    }
+
+    @Override
+    public void completed( final HttpResponse inboundResponse ) {
+      // Responses with a body were handled as soon as their head arrived.
+      if( handled.compareAndSet( false, true ) ) {
+        attachContexts();
+        try {
+          auditResponseStatus( outboundRequest, inboundResponse );
+          writeOutboundResponseHead( outboundResponse, inboundResponse );
+        } catch( Exception e ) {
+          LOG.dispatchServiceConnectionException( outboundRequest.getURI(), e );
+        } finally {
+          complete();
+          detachContexts();
+        }
+      }
+    }
+
+    @Override
+    public void failed( final Exception e ) {
+      // Failures while the body is transferred are reported to whoever writes the body.
+      if( handled.compareAndSet( false, true ) ) {
+        asyncContext.start( new Runnable() {
+          @Override
+          public void run() {
+            attachContexts();
+            try {
+              // We do not want to expose back end host. port end points to clients, see JIRA KNOX-58
+              auditor.audit( Action.DISPATCH, outboundRequest.getURI().toString(), ResourceType.URI, ActionOutcome.FAILURE );
+              LOG.dispatchServiceConnectionException( outboundRequest.getURI(), e );
+              outboundResponse.sendError( HttpServletResponse.SC_INTERNAL_SERVER_ERROR, RES.dispatchConnectionError() );
+            } catch( IOException ioe ) {
+              LOG.dispatchServiceConnectionException( outboundRequest.getURI(), ioe );
+            } finally {
+              complete();
+              detachContexts();
+            }
+          }
+        } );
+      }
+    }
+
+    @Override
+    public void cancelled() {
+      failed( new IOException( RES.dispatchConnectionError() ) );
+    }
+
+    @Override
+    public void onTimeout( AsyncEvent event ) throws IOException {
+      attachContexts();
+      try {
+        LOG.asyncDispatchTimeout( outboundRequest.getURI(), asyncContext.getTimeout() );
+        // Once the response head was written the response can only be cut short.
+        boolean respond = handled.compareAndSet( false, true );
+        cancelExchange();
+        if( respond ) {
+          auditor.audit( Action.DISPATCH, outboundRequest.getURI().toString(), ResourceType.URI, ActionOutcome.FAILURE );
+          outboundResponse.sendError( HttpServletResponse.SC_INTERNAL_SERVER_ERROR, RES.dispatchConnectionError() );
+        }
+      } finally {
+        complete();
+        detachContexts();
+      }
+    }
+
+    @Override
+    public void onComplete( AsyncEvent event ) {
+    }
+
+    @Override
+    public void onError( AsyncEvent event ) {
+    }
+
+    @Override
+    public void onStartAsync( AsyncEvent event ) {
+    }
+
+    private void cancelExchange() {
+      Future<HttpResponse> f = exchange;
+      if( f != null ) {
+        f.cancel( true );
+      }
+    }
+
+    // The exchange may still finish after a timeout completed the inbound request.
+    private void complete() {
+      if( completed.compareAndSet( false, true ) ) {
+        asyncContext.complete();
+      }
+    }
+
+    private void attachContexts() {
+      AuditServiceFactory.getAuditService().attachContext( auditContext );
+      CorrelationServiceFactory.getCorrelationService().attachContext( correlationContext );
+    }
+
+    private void detachContexts() {
+      AuditServiceFactory.getAuditService().detachContext();
+      CorrelationServiceFactory.getCorrelationService().detachContext();
+    }
+
+  }
+
 }
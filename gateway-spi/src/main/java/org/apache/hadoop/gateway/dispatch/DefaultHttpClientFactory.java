@@ -29,6 +29,7 @@ import javax.servlet.FilterConfig;
 
 import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.httpclient.ConnectionPoolService;
 import org.apache.hadoop.gateway.services.metrics.MetricsService;
 import org.apache.hadoop.gateway.services.security.AliasService;
 import org.apache.hadoop.gateway.services.security.AliasServiceException;
@@ -58,13 +59,17 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContexts;
 import org.joda.time.Period;
 import org.joda.time.format.PeriodFormatter;
 import org.joda.time.format.PeriodFormatterBuilder;
 
-public class DefaultHttpClientFactory implements HttpClientFactory {
+public class DefaultHttpClientFactory implements HttpClientFactory, AsyncHttpClientFactory {
 
   @Override
   public HttpClient createHttpClient(FilterConfig filterConfig) {
@@ -78,32 +83,19 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
     } else {
       builder = HttpClients.custom();
     }
-    if (Boolean.parseBoolean(filterConfig.getInitParameter("useTwoWaySsl"))) {
-      char[] keypass = null;
-      MasterService ms = services.getService("MasterService");
-      AliasService as = services.getService(GatewayServices.ALIAS_SERVICE);
-      try {
-        keypass = as.getGatewayIdentityPassphrase();
-      } catch (AliasServiceException e) {
-        // nop - default passphrase will be used
-      }
-      if (keypass == null) {
-        // there has been no alias created for the key - let's assume it is the same as the keystore password
-        keypass = ms.getMasterSecret();
-      }
-
-      KeystoreService ks = services.getService(GatewayServices.KEYSTORE_SERVICE);
-      final SSLContext sslcontext;
-      try {
-        KeyStore keystoreForGateway = ks.getKeystoreForGateway();
-        sslcontext = SSLContexts.custom()
-            .loadTrustMaterial(keystoreForGateway, new TrustSelfSignedStrategy())
-            .loadKeyMaterial(keystoreForGateway, keypass)
-            .build();
-      } catch (Exception e) {
-        throw new IllegalArgumentException("Unable to create SSLContext", e);
+    boolean useTwoWaySsl = Boolean.parseBoolean(filterConfig.getInitParameter("useTwoWaySsl"));
+    ConnectionPoolService connectionPoolService = getConnectionPoolService(filterConfig, services);
+    if (connectionPoolService != null) {
+      String profile = useTwoWaySsl ? ConnectionPoolService.TWO_WAY_SSL_PROFILE : ConnectionPoolService.DEFAULT_PROFILE;
+      builder.setConnectionManager(connectionPoolService.getConnectionManager(profile));
+      builder.setConnectionManagerShared(true);
+    } else {
+      if (useTwoWaySsl) {
+        builder.setSSLSocketFactory(new SSLConnectionSocketFactory(createTwoWaySslContext(services)));
       }
-      builder.setSSLSocketFactory(new SSLConnectionSocketFactory(sslcontext));
+      int maxConnections = getMaxConnections( filterConfig );
+      builder.setMaxConnTotal( maxConnections );
+      builder.setMaxConnPerRoute( maxConnections );
     }
     if ( "true".equals(System.getProperty(GatewayConfig.HADOOP_KERBEROS_SECURED)) ) {
       CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
@@ -125,16 +117,98 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
     builder.setRedirectStrategy( new NeverRedirectStrategy() );
     builder.setRetryHandler( new NeverRetryHandler() );
 
-    int maxConnections = getMaxConnections( filterConfig );
-    builder.setMaxConnTotal( maxConnections );
-    builder.setMaxConnPerRoute( maxConnections );
-
     builder.setDefaultRequestConfig( getRequestConfig( filterConfig ) );
 
     HttpClient client = builder.build();
     return client;
   }
 
+  /**
+   * Creates a non-blocking client configured like the blocking client returned by
+   * {@link #createHttpClient(FilterConfig)}, leasing its connections from the shared
+   * non-blocking pool of the same profile.  Async dispatch is not supported when
+   * the Hadoop cluster is Kerberos secured since SPNego negotiation relies on the
+   * blocking client, so null is returned in that case.
+   */
+  @Override
+  public HttpAsyncClient createAsyncHttpClient(FilterConfig filterConfig) {
+    if ( "true".equals(System.getProperty(GatewayConfig.HADOOP_KERBEROS_SECURED)) ) {
+      return null;
+    }
+    HttpAsyncClientBuilder builder = HttpAsyncClients.custom();
+    GatewayServices services = (GatewayServices) filterConfig.getServletContext()
+        .getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
+    boolean useTwoWaySsl = Boolean.parseBoolean(filterConfig.getInitParameter("useTwoWaySsl"));
+    ConnectionPoolService connectionPoolService = getConnectionPoolService(filterConfig, services);
+    if (connectionPoolService != null) {
+      String profile = useTwoWaySsl ? ConnectionPoolService.TWO_WAY_SSL_PROFILE : ConnectionPoolService.DEFAULT_PROFILE;
+      builder.setConnectionManager(connectionPoolService.getAsyncConnectionManager(profile));
+      builder.setConnectionManagerShared(true);
+    } else {
+      if (useTwoWaySsl) {
+        builder.setSSLContext(createTwoWaySslContext(services));
+      }
+      int maxConnections = getMaxConnections( filterConfig );
+      builder.setMaxConnTotal( maxConnections );
+      builder.setMaxConnPerRoute( maxConnections );
+    }
+    builder.setDefaultCookieStore( new NoCookieStore() );
+    builder.setKeepAliveStrategy( DefaultConnectionKeepAliveStrategy.INSTANCE );
+    builder.setConnectionReuseStrategy( DefaultConnectionReuseStrategy.INSTANCE );
+    builder.setRedirectStrategy( new NeverRedirectStrategy() );
+
+    builder.setDefaultRequestConfig( getRequestConfig( filterConfig ) );
+
+    CloseableHttpAsyncClient client = builder.build();
+    client.start();
+    return client;
+  }
+
+  /**
+   * Dispatches lease connections from the gateway wide pool unless the service explicitly
+   * configures its own connection limit, in which case a dedicated pool is kept.
+   */
+  private static ConnectionPoolService getConnectionPoolService( FilterConfig filterConfig, GatewayServices services ) {
+    if( services == null || filterConfig.getInitParameter( "httpclient.maxConnections" ) != null ) {
+      return null;
+    }
+    return services.getService( GatewayServices.CONNECTION_POOL_SERVICE );
+  }
+
+  private static SSLContext createTwoWaySslContext( GatewayServices services ) {
+    MasterService ms = services.getService("MasterService");
+    AliasService as = services.getService(GatewayServices.ALIAS_SERVICE);
+    KeystoreService ks = services.getService(GatewayServices.KEYSTORE_SERVICE);
+    return createTwoWaySslContext(as, ks, ms);
+  }
+
+  /**
+   * Creates the SSL context for two-way SSL to the backend services, presenting the gateway identity
+   * and trusting the certificates of the gateway keystore.
+   */
+  public static SSLContext createTwoWaySslContext( AliasService as, KeystoreService ks, MasterService ms ) {
+    char[] keypass = null;
+    try {
+      keypass = as.getGatewayIdentityPassphrase();
+    } catch (AliasServiceException e) {
+      // nop - default passphrase will be used
+    }
+    if (keypass == null) {
+      // there has been no alias created for the key - let's assume it is the same as the keystore password
+      keypass = ms.getMasterSecret();
+    }
+
+    try {
+      KeyStore keystoreForGateway = ks.getKeystoreForGateway();
+      return SSLContexts.custom()
+          .loadTrustMaterial(keystoreForGateway, new TrustSelfSignedStrategy())
+          .loadKeyMaterial(keystoreForGateway, keypass)
+          .build();
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Unable to create SSLContext", e);
+    }
+  }
+
   private static RequestConfig getRequestConfig( FilterConfig config ) {
     RequestConfig.Builder builder = RequestConfig.custom();
     int connectionTimeout = getConnectionTimeout( config );
@@ -240,7 +314,7 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
     return timeout;
   }
 
-  private static int getSocketTimeout( FilterConfig filterConfig ) {
+  static int getSocketTimeout( FilterConfig filterConfig ) {
     int timeout = -1;
     GatewayConfig globalConfig =
         (GatewayConfig)filterConfig.getServletContext().getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE );
@@ -18,16 +18,19 @@
 package org.apache.hadoop.gateway.dispatch;
 
 import org.apache.hadoop.gateway.SpiGatewayMessages;
+import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.filter.AbstractGatewayFilter;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.nio.client.HttpAsyncClient;
 
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -39,6 +42,12 @@ import static org.apache.hadoop.gateway.config.ConfigurationInjectorBuilder.conf
 
 public class GatewayDispatchFilter extends AbstractGatewayFilter {
 
+  /**
+   * Service param that opts a dispatch into async processing when the gateway
+   * servlet supports it, see {@link GatewayConfig#isAsyncSupported()}.
+   */
+  public static final String ASYNC_DISPATCH_PARAM = "asyncDispatch";
+
   private static Map<String, Adapter> METHOD_ADAPTERS = createMethodAdapters();
 
   protected static SpiGatewayMessages LOG = MessagesFactory.get(SpiGatewayMessages.class);
@@ -47,6 +56,8 @@ public class GatewayDispatchFilter extends AbstractGatewayFilter {
 
   private HttpClient httpClient;
 
+  private HttpAsyncClient asyncHttpClient;
+
   private static Map<String, Adapter> createMethodAdapters() {
     Map<String, Adapter> map = new HashMap<>();
     map.put("GET", new GetAdapter());
@@ -75,9 +86,27 @@ public class GatewayDispatchFilter extends AbstractGatewayFilter {
     }
     httpClient = httpClientFactory.createHttpClient(filterConfig);
     dispatch.setHttpClient(httpClient);
+    if (isAsyncDispatch(filterConfig) && dispatch instanceof AbstractGatewayDispatch) {
+      AsyncHttpClientFactory asyncHttpClientFactory;
+      if (httpClientFactory instanceof AsyncHttpClientFactory) {
+        asyncHttpClientFactory = (AsyncHttpClientFactory) httpClientFactory;
+      } else {
+        asyncHttpClientFactory = new DefaultHttpClientFactory();
+      }
+      asyncHttpClient = asyncHttpClientFactory.createAsyncHttpClient(filterConfig);
+      ((AbstractGatewayDispatch) dispatch).setAsyncHttpClient(asyncHttpClient);
+      ((AbstractGatewayDispatch) dispatch).setAsyncTimeout(DefaultHttpClientFactory.getSocketTimeout(filterConfig));
+    }
     dispatch.init();
   }
 
+  private static boolean isAsyncDispatch(FilterConfig filterConfig) {
+    GatewayConfig gatewayConfig = (GatewayConfig) filterConfig.getServletContext()
+        .getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE);
+    return gatewayConfig != null && gatewayConfig.isAsyncSupported()
+        && Boolean.parseBoolean(filterConfig.getInitParameter(ASYNC_DISPATCH_PARAM));
+  }
+
   @Override
   public void destroy() {
     dispatch.destroy();
@@ -85,6 +114,9 @@ public class GatewayDispatchFilter extends AbstractGatewayFilter {
       if (httpClient instanceof  CloseableHttpClient) {
         ((CloseableHttpClient) httpClient).close();
       }
+      if (asyncHttpClient instanceof Closeable) {
+        ((Closeable) asyncHttpClient).close();
+      }
     } catch ( IOException e ) {
       LOG.errorClosingHttpClient(e);
     }
@@ -0,0 +1,254 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.dispatch;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentInputStream;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Hands the head of an asynchronously received response to a {@link ResponseHandler} as soon as it
+ * arrives, and then passes the content on in one of two ways, both through a bounded buffer so that
+ * memory use is independent of the response size.
+ * <p>
+ * If the handler returns a servlet output stream the content is written to it without blocking as
+ * it arrives.  The I/O reactor suspends reading from the backend while the servlet output isn't
+ * ready and resumes once the container signals that it can be written again.
+ * <p>
+ * Otherwise the content is exposed as the blocking stream of the response entity, for a handler
+ * that has to read it on another thread, e.g. to rewrite it.  The I/O reactor suspends reading while
+ * the buffer is full and resumes once the reader drains it.
+ */
+class StreamingAsyncResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+  interface ResponseHandler {
+
+    /**
+     * Called from the I/O reactor once the response head and a streaming entity are available.
+     * Must not read the entity content on the calling thread.
+     *
+     * @return the stream to write the content to without blocking, or null if the content is read
+     *         from the entity instead
+     */
+    ServletOutputStream responseReceived( HttpResponse response ) throws IOException;
+
+    /**
+     * Called once when the content written to the stream returned by
+     * {@link #responseReceived(HttpResponse)} is complete, or can't be completed.  On failure the
+     * handler is expected to cancel the exchange.
+     *
+     * @param failure null if all of the content was written
+     */
+    void responseWritten( Exception failure );
+
+  }
+
+  private final int bufferSize;
+  private final ResponseHandler handler;
+  private volatile HttpResponse response;
+  private volatile SharedInputBuffer buffer;
+  private volatile ServletWriter writer;
+
+  /**
+   * @param bufferSize The maximum number of content bytes held in memory.
+   * @param handler Receives the response head and the content.
+   */
+  StreamingAsyncResponseConsumer( int bufferSize, ResponseHandler handler ) {
+    this.bufferSize = bufferSize;
+    this.handler = handler;
+  }
+
+  @Override
+  protected void onResponseReceived( HttpResponse response ) {
+    this.response = response;
+  }
+
+  @Override
+  protected void onEntityEnclosed( HttpEntity entity, ContentType contentType ) throws IOException {
+    buffer = new SharedInputBuffer( bufferSize, HeapByteBufferAllocator.INSTANCE );
+    BasicHttpEntity streamingEntity = new BasicHttpEntity();
+    streamingEntity.setContent( new ContentInputStream( buffer ) );
+    streamingEntity.setContentLength( entity.getContentLength() );
+    streamingEntity.setContentType( entity.getContentType() );
+    streamingEntity.setContentEncoding( entity.getContentEncoding() );
+    streamingEntity.setChunked( entity.isChunked() );
+    response.setEntity( streamingEntity );
+    ServletOutputStream output = handler.responseReceived( response );
+    if( output != null ) {
+      buffer = null;
+      writer = new ServletWriter( output );
+      output.setWriteListener( writer );
+    }
+  }
+
+  @Override
+  protected void onContentReceived( ContentDecoder decoder, IOControl ioctrl ) throws IOException {
+    ServletWriter w = writer;
+    if( w != null ) {
+      w.consumeContent( decoder, ioctrl );
+    } else {
+      buffer.consumeContent( decoder, ioctrl );
+    }
+  }
+
+  @Override
+  protected HttpResponse buildResult( HttpContext context ) {
+    return response;
+  }
+
+  @Override
+  protected void releaseResources() {
+    ServletWriter w = writer;
+    if( w != null ) {
+      if( getResult() == null ) {
+        Exception e = getException();
+        w.fail( e != null ? e : new IOException( "Response content incomplete" ) );
+      }
+      return;
+    }
+    SharedInputBuffer b = buffer;
+    if( b != null ) {
+      if( getResult() != null ) {
+        b.close();
+      } else {
+        // Failed or cancelled, wake up the reader with an error instead of a silently truncated body.
+        b.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Moves content from the I/O reactor to the servlet output.  Content is written from the reactor
+   * thread while the output is ready and otherwise from the container thread that reports it ready.
+   * Accessed under the lock of the writer from both threads.
+   */
+  private class ServletWriter implements WriteListener {
+
+    private final ServletOutputStream output;
+    private final ByteBuffer pending;
+    private IOControl ioctrl;
+    private boolean suspended;
+    private boolean contentCompleted;
+    private boolean done;
+    // Set until the container calls back after the output wasn't ready, writing before that isn't allowed.
+    private boolean awaitingWritePossible = true;
+
+    private ServletWriter( ServletOutputStream output ) {
+      this.output = output;
+      this.pending = ByteBuffer.allocate( bufferSize );
+    }
+
+    private void consumeContent( ContentDecoder decoder, IOControl ioctrl ) throws IOException {
+      synchronized( this ) {
+        this.ioctrl = ioctrl;
+        if( done ) {
+          // The content can't be delivered anymore, the exchange is being cancelled.
+          ioctrl.suspendInput();
+          return;
+        }
+        decoder.read( pending );
+        if( decoder.isCompleted() ) {
+          contentCompleted = true;
+        } else if( !pending.hasRemaining() ) {
+          ioctrl.suspendInput();
+          suspended = true;
+        }
+      }
+      write();
+    }
+
+    @Override
+    public void onWritePossible() {
+      synchronized( this ) {
+        awaitingWritePossible = false;
+      }
+      write();
+    }
+
+    @Override
+    public void onError( Throwable t ) {
+      fail( t instanceof Exception ? (Exception)t : new IOException( t ) );
+    }
+
+    private void write() {
+      boolean written = false;
+      IOException failure = null;
+      synchronized( this ) {
+        if( done || awaitingWritePossible ) {
+          return;
+        }
+        try {
+          pending.flip();
+          while( pending.hasRemaining() && isReady() ) {
+            // The container may still refer to the written bytes until it is ready again, so they are
+            // copied rather than written from the buffer that is filled from the backend.
+            byte[] chunk = new byte[ pending.remaining() ];
+            pending.get( chunk );
+            output.write( chunk );
+          }
+          pending.compact();
+        } catch( IOException e ) {
+          done = true;
+          written = true;
+          failure = e;
+        }
+        if( !done && suspended && pending.hasRemaining() ) {
+          suspended = false;
+          ioctrl.requestInput();
+        }
+        if( !done && contentCompleted && pending.position() == 0 && isReady() ) {
+          done = true;
+          written = true;
+        }
+      }
+      if( written ) {
+        handler.responseWritten( failure );
+      }
+    }
+
+    private boolean isReady() {
+      awaitingWritePossible = !output.isReady();
+      return !awaitingWritePossible;
+    }
+
+    private void fail( Exception e ) {
+      synchronized( this ) {
+        if( done ) {
+          return;
+        }
+        done = true;
+      }
+      handler.responseWritten( e );
+    }
+
+  }
+
+}
@@ -18,6 +18,7 @@
 package org.apache.hadoop.gateway.filter;
 
 import javax.activation.MimeType;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
@@ -31,4 +32,14 @@ public interface GatewayResponse extends HttpServletResponse, ResponseStreamer {
 
   void streamResponse( InputStream stream ) throws IOException;
 
+  /**
+   * Returns the stream the body can be written to unmodified, which lets the dispatch write it
+   * without blocking as it arrives from the backend.  Must only be called once the content type
+   * of the response is set.
+   *
+   * @return the stream to write the unmodified body to, or null if the body must be passed to
+   *         {@link #streamResponse(InputStream)}, e.g. because it is rewritten
+   */
+  ServletOutputStream getPassThroughOutputStream() throws IOException;
+
 }
@@ -21,6 +21,7 @@ import org.apache.hadoop.gateway.util.MimeTypes;
 import org.apache.hadoop.io.IOUtils;
 
 import javax.activation.MimeType;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
@@ -53,6 +54,11 @@ public abstract class GatewayResponseWrapper extends HttpServletResponseWrapper
   @Override
   public abstract OutputStream getRawOutputStream() throws IOException;
 
+  @Override
+  public ServletOutputStream getPassThroughOutputStream() throws IOException {
+    return null;
+  }
+
   @Override
   public void streamResponse( InputStream input ) throws IOException {
     streamResponse( input, getRawOutputStream() );
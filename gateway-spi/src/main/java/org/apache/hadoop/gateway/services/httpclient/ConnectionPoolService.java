@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.httpclient;
+
+import org.apache.hadoop.gateway.services.Service;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.nio.conn.NHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.util.Map;
+
+/**
+ * Owns the outbound connection pools shared by the dispatches of all deployed
+ * topologies.  There is one pool per TLS profile; within a pool connections are
+ * leased per backend route subject to a per-route and a global limit.
+ */
+public interface ConnectionPoolService extends Service {
+
+  /**
+   * Profile for connections that use the default JVM TLS configuration.
+   */
+  String DEFAULT_PROFILE = "default";
+
+  /**
+   * Profile for connections that present the gateway identity to the backend.
+   */
+  String TWO_WAY_SSL_PROFILE = "two-way-ssl";
+
+  /**
+   * Returns the shared connection manager for a TLS profile.  Clients built on
+   * it must be marked as sharing the connection manager so that closing the
+   * client does not shut the pool down.
+   *
+   * @param profile One of {@link #DEFAULT_PROFILE} or {@link #TWO_WAY_SSL_PROFILE}.
+   * @return The shared connection manager.
+   */
+  HttpClientConnectionManager getConnectionManager( String profile );
+
+  /**
+   * Returns the shared non-blocking connection manager for a TLS profile, used
+   * by async dispatch.  It has the same limits as the blocking pool of the
+   * profile and its I/O reactor is run by the service.  Clients built on it
+   * must be marked as sharing the connection manager.
+   *
+   * @param profile One of {@link #DEFAULT_PROFILE} or {@link #TWO_WAY_SSL_PROFILE}.
+   * @return The shared non-blocking connection manager.
+   */
+  NHttpClientConnectionManager getAsyncConnectionManager( String profile );
+
+  /**
+   * @param profile The TLS profile.
+   * @return The totals of the pool or null if the pool has not been created.
+   */
+  PoolStats getTotalStats( String profile );
+
+  /**
+   * @param profile The TLS profile.
+   * @return The statistics of each backend route in the pool keyed by route.
+   */
+  Map<String, PoolStats> getRouteStats( String profile );
+
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.gateway.services.metrics;
 
+import com.codahale.metrics.Metric;
 import org.apache.hadoop.gateway.services.Service;
 
 public interface MetricsService extends Service {
@@ -25,4 +26,21 @@ public interface MetricsService extends Service {
 
   <T> T getInstrumented(Class<T> clazz);
 
+  /**
+   * Registers a metric maintained by a component, replacing any metric already registered under the name
+   * so that a redeployed topology takes over the metrics of its previous deployment.
+   * @param name the metric name
+   * @param metric the metric to register
+   * @return the registered metric
+   */
+  <T extends Metric> T register(String name, T metric);
+
+  /**
+   * Removes the metric registered under the name if it is still the given metric.
+   * @param name the metric name
+   * @param metric the metric that was registered
+   * @return true if the metric was removed
+   */
+  boolean remove(String name, Metric metric);
+
 }
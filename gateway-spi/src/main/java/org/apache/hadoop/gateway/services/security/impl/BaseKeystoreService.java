@@ -29,15 +29,26 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.Key;
 import java.security.KeyPair;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class BaseKeystoreService {
   private static GatewaySpiMessages LOG = MessagesFactory.get( GatewaySpiMessages.class );
@@ -45,6 +56,12 @@ public class BaseKeystoreService {
   protected MasterService masterService;
   protected String keyStoreDir;
 
+  /**
+   * Loaded keystores keyed by absolute file path.  An entry is only used while the
+   * file's modification time, size and file key (inode) are unchanged.
+   */
+  private final ConcurrentMap<String, CachedKeyStore> keystoreCache = new ConcurrentHashMap<>();
+
   private static KeyStore loadKeyStore(final File keyStoreFile, final char[] masterPassword, String storeType)
       throws CertificateException, IOException, KeyStoreException,
       NoSuchAlgorithmException {     
@@ -95,6 +112,7 @@ public class BaseKeystoreService {
       ks.load( null, null );  
       ks.store( out, masterService.getMasterSecret() );
       out.close();
+      keystoreCache.remove( new File( filename ).getAbsolutePath() );
     } catch (KeyStoreException e) {
       LOG.failedToCreateKeystore( filename, keystoreType, e );
       throw new KeystoreServiceException(e);
@@ -146,7 +164,55 @@ public class BaseKeystoreService {
     return false;
   }
 
+  /**
+   * Returns the keystore for the file from the cache, reloading it only when the file
+   * has changed on disk.  The returned instance is shared between callers and must be
+   * treated as read only, use {@link #loadKeystoreForUpdate(File, String)} to modify it.
+   */
   protected KeyStore getKeystore(final File keyStoreFile, String storeType) throws KeystoreServiceException {
+    return getCachedKeystore( keyStoreFile, storeType ).keyStore;
+  }
+
+  /**
+   * Returns the key for the alias from the cached keystore.  Recovered keys are kept with
+   * the cached keystore so that they are dropped together when the file changes.
+   */
+  protected Key getKey(final File keyStoreFile, String storeType, String alias, char[] passphrase)
+      throws KeystoreServiceException, KeyStoreException, NoSuchAlgorithmException, UnrecoverableKeyException {
+    CachedKeyStore cached = getCachedKeystore( keyStoreFile, storeType );
+    byte[] digest = digest( passphrase );
+    CachedKey cachedKey = cached.keys.get( alias );
+    if( cachedKey != null && MessageDigest.isEqual( cachedKey.passphraseDigest, digest ) ) {
+      return cachedKey.key;
+    }
+    Key key = cached.keyStore.getKey( alias, passphrase );
+    if( key != null ) {
+      cached.keys.put( alias, new CachedKey( digest, key ) );
+    }
+    return key;
+  }
+
+  private CachedKeyStore getCachedKeystore(final File keyStoreFile, String storeType) throws KeystoreServiceException {
+    String path = keyStoreFile.getAbsolutePath();
+    // The stamp is taken before loading so a change racing with the load forces another reload.
+    FileStamp stamp = FileStamp.of( keyStoreFile );
+    CachedKeyStore cached = keystoreCache.get( path );
+    if( cached != null && stamp != null && cached.isCurrent( storeType, stamp ) ) {
+      return cached;
+    }
+    cached = new CachedKeyStore( storeType, stamp, loadKeystoreForUpdate( keyStoreFile, storeType ) );
+    if( stamp != null ) {
+      keystoreCache.put( path, cached );
+    }
+    return cached;
+  }
+
+  /**
+   * Loads a private copy of the keystore from disk, bypassing the cache.  Changes made to
+   * the copy become visible to other callers once written with
+   * {@link #writeKeystoreToFile(KeyStore, File)}.
+   */
+  protected KeyStore loadKeystoreForUpdate(final File keyStoreFile, String storeType) throws KeystoreServiceException {
     KeyStore credStore = null;
     try {
       credStore = loadKeyStore( keyStoreFile, masterService.getMasterSecret(), storeType);
@@ -220,12 +286,122 @@ public class BaseKeystoreService {
     }
   }
 
+  /**
+   * Writes the keystore to a temporary file next to the target and moves it into place so
+   * that readers never observe a partially written keystore.  The written instance then
+   * replaces any cached copy of the file.
+   */
   protected void writeKeystoreToFile(final KeyStore keyStore, final File file)
       throws KeyStoreException, IOException, NoSuchAlgorithmException, CertificateException {
-     // TODO: backup the keystore on disk before attempting a write and restore on failure
-     try( final FileOutputStream out = new FileOutputStream(file) ) {
-         keyStore.store( out, masterService.getMasterSecret() );
-     }
+    Path target = file.getAbsoluteFile().toPath();
+    Path temp = Files.createTempFile( target.getParent(), file.getName(), ".tmp" );
+    try {
+      if( Files.exists( target ) ) {
+        try {
+          Files.setPosixFilePermissions( temp, Files.getPosixFilePermissions( target ) );
+        } catch( UnsupportedOperationException e ) {
+          // Not a POSIX file system, keep the default permissions.
+        }
+      }
+      try( final FileOutputStream out = new FileOutputStream( temp.toFile() ) ) {
+        keyStore.store( out, masterService.getMasterSecret() );
+      }
+      try {
+        Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+      } catch( AtomicMoveNotSupportedException e ) {
+        Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING );
+      }
+    } finally {
+      Files.deleteIfExists( temp );
+    }
+    String path = target.toString();
+    FileStamp stamp = FileStamp.of( file );
+    if( stamp != null ) {
+      keystoreCache.put( path, new CachedKeyStore( keyStore.getType(), stamp, keyStore ) );
+    } else {
+      keystoreCache.remove( path );
+    }
+  }
+
+  private static byte[] digest( char[] passphrase ) throws NoSuchAlgorithmException {
+    MessageDigest md = MessageDigest.getInstance( "SHA-256" );
+    if( passphrase != null ) {
+      md.update( new String( passphrase ).getBytes( StandardCharsets.UTF_8 ) );
+    }
+    return md.digest();
+  }
+
+  private static class FileStamp {
+    private static final FileStamp MISSING = new FileStamp( -1, -1, null );
+
+    private final long lastModified;
+    private final long size;
+    private final Object fileKey;
+
+    private FileStamp( long lastModified, long size, Object fileKey ) {
+      this.lastModified = lastModified;
+      this.size = size;
+      this.fileKey = fileKey;
+    }
+
+    /**
+     * Returns null when the attributes cannot be read, in which case the keystore is not cached.
+     */
+    static FileStamp of( File file ) {
+      try {
+        BasicFileAttributes attrs = Files.readAttributes( file.toPath(), BasicFileAttributes.class );
+        return new FileStamp( attrs.lastModifiedTime().toMillis(), attrs.size(), attrs.fileKey() );
+      } catch( NoSuchFileException e ) {
+        return MISSING;
+      } catch( IOException e ) {
+        return null;
+      }
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if( this == o ) {
+        return true;
+      }
+      if( !( o instanceof FileStamp ) ) {
+        return false;
+      }
+      FileStamp that = (FileStamp)o;
+      return lastModified == that.lastModified && size == that.size
+          && ( fileKey == null ? that.fileKey == null : fileKey.equals( that.fileKey ) );
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode( new Object[]{ lastModified, size, fileKey } );
+    }
+  }
+
+  private static class CachedKeyStore {
+    private final String storeType;
+    private final FileStamp stamp;
+    private final KeyStore keyStore;
+    private final ConcurrentMap<String, CachedKey> keys = new ConcurrentHashMap<>();
+
+    CachedKeyStore( String storeType, FileStamp stamp, KeyStore keyStore ) {
+      this.storeType = storeType;
+      this.stamp = stamp;
+      this.keyStore = keyStore;
+    }
+
+    boolean isCurrent( String storeType, FileStamp stamp ) {
+      return this.storeType.equalsIgnoreCase( storeType ) && this.stamp.equals( stamp );
+    }
+  }
+
+  private static class CachedKey {
+    private final byte[] passphraseDigest;
+    private final Key key;
+
+    CachedKey( byte[] passphraseDigest, Key key ) {
+      this.passphraseDigest = passphraseDigest;
+      this.key = key;
+    }
   }
 
   public void setMasterService(MasterService ms) {
@@ -74,7 +74,7 @@ public class CMFKeystoreService extends BaseKeystoreService {
       KeyPair KPair = keyPairGenerator.generateKeyPair();
       X509Certificate cert = X509CertificateUtil.generateCertificate(TEST_CERT_DN, KPair, 365, "SHA1withRSA");
 
-      KeyStore privateKS = getKeystore();
+      KeyStore privateKS = loadKeystoreForUpdate(new File( keyStoreDir + serviceName  ), "JKS");
       if (privateKS != null) {
         privateKS.setKeyEntry(alias, KPair.getPrivate(),  
           passphrase,  
@@ -143,9 +143,9 @@ public class CMFKeystoreService extends BaseKeystoreService {
   }
 
   public void addCredential(String alias, String value) throws KeystoreServiceException {
-    KeyStore ks = getCredentialStore();
-    addCredential(alias, value, ks);
     final File  keyStoreFile = new File( keyStoreDir + serviceName + CREDENTIALS_SUFFIX  );
+    KeyStore ks = loadKeystoreForUpdate(keyStoreFile, "JCEKS");
+    addCredential(alias, value, ks);
     try {
       writeKeystoreToFile(ks, keyStoreFile);
     } catch (KeyStoreException e) {
@@ -17,18 +17,21 @@
  */
 package org.apache.hadoop.gateway.services.security.impl;
 
-import java.security.InvalidAlgorithmParameterException;
-import java.security.InvalidKeyException;
+import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.InvalidParameterSpecException;
 import java.security.spec.KeySpec;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -38,74 +41,61 @@ import org.apache.hadoop.gateway.i18n.GatewaySpiMessages;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.services.security.EncryptionResult;
 
+/**
+ * Encrypts with a key derived from a pass phrase and a random salt. The keys
+ * derived for the salts of decrypted ciphertexts are cached, and the ciphers
+ * are kept per thread, so an instance can be shared by concurrent callers.
+ * <p>
+ * With the AES/GCM/NoPadding transformation new ciphertexts are authenticated
+ * and get a 12 byte IV. Ciphertexts with another IV size are decrypted with
+ * the AES/CBC/PKCS5Padding transformation used before.
+ */
 public class ConfigurableEncryptor {
   private static final GatewaySpiMessages LOG = MessagesFactory.get( GatewaySpiMessages.class );
   
   private static final int ITERATION_COUNT = 65536;
   private static final int KEY_LENGTH = 128;
-  
-  private Cipher ecipher;
-  private Cipher dcipher;
-  private SecretKey secret;
+  private static final String DEFAULT_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+  static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+  private static final int GCM_IV_LENGTH = 12;
+  private static final int GCM_TAG_LENGTH = 128;
+  static final int MAX_CACHED_KEYS = 1024;
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  // Cipher instances aren't thread safe and are costly to look up, each thread keeps its own.
+  private static final ThreadLocal<Map<String, Cipher>> CIPHERS = new ThreadLocal<Map<String, Cipher>>() {
+    @Override
+    protected Map<String, Cipher> initialValue() {
+      return new HashMap<>();
+    }
+  };
+
+  private volatile SecretKey secret;
+  // Access ordered, so the least recently used key is dropped once the cache is full.
+  private final Map<ByteBuffer, SecretKey> keyCache = new LinkedHashMap<ByteBuffer, SecretKey>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<ByteBuffer, SecretKey> eldest) {
+      return size() > MAX_CACHED_KEYS;
+    }
+  };
   private byte[] salt = null;
   private char[] passPhrase = null;
   private String alg = "AES";
   private String pbeAlg = "PBKDF2WithHmacSHA1";
-  private String transformation = "AES/CBC/PKCS5Padding";
+  private String transformation = DEFAULT_TRANSFORMATION;
   private int saltSize = 8;
   private int iterationCount = ITERATION_COUNT;
   private int keyLength = KEY_LENGTH;
  
   public ConfigurableEncryptor(String passPhrase) {
-      try {
-        this.passPhrase = passPhrase.toCharArray();
-        salt = new byte[saltSize];
-        SecureRandom rnd = new SecureRandom();
-        rnd.nextBytes(salt);
-        
-        SecretKey tmp = getKeyFromPassword(passPhrase);
-        secret = new SecretKeySpec (tmp.getEncoded(), alg);
- 
-        ecipher = Cipher.getInstance(transformation);
-        ecipher.init(Cipher.ENCRYPT_MODE, secret);
-       
-        dcipher = Cipher.getInstance(transformation);
-        byte[] iv = ecipher.getParameters().getParameterSpec(IvParameterSpec.class).getIV();
-        dcipher.init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(iv));
-      } catch (NoSuchAlgorithmException e) {
-        LOG.failedToEncryptPassphrase( e );
-      } catch (NoSuchPaddingException e) {
-        LOG.failedToEncryptPassphrase( e );
-      } catch (InvalidKeyException e) {
-        LOG.failedToEncryptPassphrase( e );
-      } catch (InvalidParameterSpecException e) {
-        LOG.failedToEncryptPassphrase( e );
-      } catch (InvalidAlgorithmParameterException e) {
-        LOG.failedToEncryptPassphrase( e );
-      }
+    this.passPhrase = passPhrase.toCharArray();
+    salt = new byte[saltSize];
+    RANDOM.nextBytes(salt);
   }
   
   ConfigurableEncryptor(SecretKey secret) {
-    try {
-      this.secret = new SecretKeySpec (secret.getEncoded(), alg);
-
-      ecipher = Cipher.getInstance(transformation);
-      ecipher.init(Cipher.ENCRYPT_MODE, secret);
-     
-      dcipher = Cipher.getInstance(transformation);
-      byte[] iv = ecipher.getParameters().getParameterSpec(IvParameterSpec.class).getIV();
-      dcipher.init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(iv));
-    } catch (NoSuchAlgorithmException e) {
-      LOG.failedToEncryptPassphrase( e );
-    } catch (NoSuchPaddingException e) {
-      LOG.failedToEncryptPassphrase( e );
-    } catch (InvalidKeyException e) {
-      LOG.failedToEncryptPassphrase( e );
-    } catch (InvalidParameterSpecException e) {
-      LOG.failedToEncryptPassphrase( e );
-    } catch (InvalidAlgorithmParameterException e) {
-      LOG.failedToEncryptPassphrase( e );
-    }
+    this.secret = new SecretKeySpec (secret.getEncoded(), alg);
   }
 
   public void init(GatewayConfig config) {
@@ -134,9 +124,27 @@ public class ConfigurableEncryptor {
 	    if (keyLength != null) {
 		  this.keyLength = Integer.parseInt(keyLength);
 	    }
+	    if (passPhrase != null) {
+	      // Derive the keys with the configured parameters.
+	      if (salt.length != this.saltSize) {
+	        salt = new byte[this.saltSize];
+	        RANDOM.nextBytes(salt);
+	      }
+	      secret = null;
+	      synchronized (keyCache) {
+	        keyCache.clear();
+	      }
+	    }
     }
   }
 
+  /**
+   * @return true if the keys of this encryptor are derived from the pass phrase
+   */
+  public boolean hasPassPhrase(char[] passPhrase) {
+    return this.passPhrase != null && Arrays.equals(this.passPhrase, passPhrase);
+  }
+
   public SecretKey getKeyFromPassword(String passPhrase) {
     return getKeyFromPassword(passPhrase, salt);
   }
@@ -164,8 +172,22 @@ public class ConfigurableEncryptor {
   }
 
   public EncryptionResult encrypt(byte[] plain) throws Exception {
-    EncryptionResult atom = new EncryptionResult(salt, ecipher.getParameters().getParameterSpec(IvParameterSpec.class).getIV(), ecipher.doFinal(plain));
-    return atom;
+    SecretKey key = getSecret();
+    Cipher cipher = getCipher(transformation);
+    byte[] iv;
+    if (isGcm(transformation)) {
+      iv = new byte[GCM_IV_LENGTH];
+      RANDOM.nextBytes(iv);
+      cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+    } else {
+      // The provider picks a random IV, modes without an IV get an empty one.
+      cipher.init(Cipher.ENCRYPT_MODE, key, RANDOM);
+      iv = cipher.getIV();
+      if (iv == null) {
+        iv = new byte[0];
+      }
+    }
+    return new EncryptionResult(salt, iv, cipher.doFinal(plain));
   }
 
   public String decrypt(String salt, String iv, String cipher) throws Exception {
@@ -174,15 +196,83 @@ public class ConfigurableEncryptor {
   }
 
   public byte[] decrypt(byte[] salt, byte[] iv, byte[] encrypt) throws Exception {
-    SecretKey tmp = getKeyFromPassword(new String(passPhrase), salt);
-    secret = new SecretKeySpec(tmp.getEncoded(), alg);
-    
-    dcipher.init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(iv));
-    return dcipher.doFinal(encrypt);
+    SecretKey key = getKey(salt);
+    Cipher cipher;
+    if (iv.length == GCM_IV_LENGTH && "AES".equalsIgnoreCase(alg)) {
+      cipher = getCipher(GCM_TRANSFORMATION);
+      cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+    } else {
+      cipher = getCipher(isGcm(transformation) ? DEFAULT_TRANSFORMATION : transformation);
+      if (iv.length == 0) {
+        cipher.init(Cipher.DECRYPT_MODE, key);
+      } else {
+        cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(iv));
+      }
+    }
+    return cipher.doFinal(encrypt);
   }
   
   public byte[] decrypt(byte[] encrypt) throws Exception {
-    dcipher.init(Cipher.DECRYPT_MODE, secret);
-    return dcipher.doFinal(encrypt);
+    Cipher cipher = getCipher(transformation);
+    cipher.init(Cipher.DECRYPT_MODE, getSecret());
+    return cipher.doFinal(encrypt);
+  }
+
+  private SecretKey getSecret() {
+    SecretKey key = secret;
+    if (key == null) {
+      key = getKey(salt);
+      secret = key;
+    }
+    return key;
+  }
+
+  /**
+   * Returns the key for the salt, deriving it from the pass phrase is costly
+   * so the keys of the salts seen are cached.
+   */
+  private SecretKey getKey(byte[] salt) {
+    ByteBuffer cacheKey = ByteBuffer.wrap(salt.clone());
+    SecretKey key;
+    synchronized (keyCache) {
+      key = keyCache.get(cacheKey);
+    }
+    if (key == null) {
+      // The key is derived outside the lock, concurrent callers may derive the same key twice.
+      SecretKey tmp = getKeyFromPassword(new String(passPhrase), salt);
+      key = new SecretKeySpec(tmp.getEncoded(), alg);
+      synchronized (keyCache) {
+        keyCache.put(cacheKey, key);
+      }
+    }
+    return key;
+  }
+
+  // For unit testing.
+  int getCachedKeyCount() {
+    synchronized (keyCache) {
+      return keyCache.size();
+    }
+  }
+
+  // For unit testing.
+  boolean isKeyCached(byte[] salt) {
+    synchronized (keyCache) {
+      return keyCache.containsKey(ByteBuffer.wrap(salt));
+    }
+  }
+
+  private static boolean isGcm(String transformation) {
+    return transformation.toUpperCase().contains("/GCM/");
+  }
+
+  private static Cipher getCipher(String transformation) throws NoSuchAlgorithmException, NoSuchPaddingException {
+    Map<String, Cipher> ciphers = CIPHERS.get();
+    Cipher cipher = ciphers.get(transformation);
+    if (cipher == null) {
+      cipher = Cipher.getInstance(transformation);
+      ciphers.put(transformation, cipher);
+    }
+    return cipher;
   }
 }
@@ -0,0 +1,297 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.dispatch;
+
+import org.apache.hadoop.gateway.filter.GatewayResponseWrapper;
+import org.apache.hadoop.test.category.MediumTests;
+import org.apache.hadoop.test.category.UnitTests;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.util.EntityUtils;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Dispatches requests asynchronously through a servlet container to a backend and checks what
+ * the client of the gateway receives.
+ */
+@Category( { UnitTests.class, MediumTests.class } )
+public class AsyncDispatchTest {
+
+  private static final int BACKEND_TIMEOUT = 500;
+
+  private static final byte[] BODY = new byte[ 1024 * 1024 ];
+
+  static {
+    new Random( 42 ).nextBytes( BODY );
+  }
+
+  private Server backend;
+  private Server gateway;
+  private CloseableHttpAsyncClient asyncClient;
+  private CloseableHttpClient syncClient;
+  private DefaultDispatch dispatch;
+  private CloseableHttpClient client;
+  private String backendUrl;
+  private String gatewayUrl;
+  private final AtomicBoolean asyncStarted = new AtomicBoolean();
+  private final AtomicInteger streamedResponses = new AtomicInteger();
+
+  @Before
+  public void setUp() throws Exception {
+    backend = createServer( new BackendServlet() );
+    backendUrl = "http://localhost:" + getPort( backend );
+
+    asyncClient = HttpAsyncClients.custom()
+        .setDefaultRequestConfig( RequestConfig.custom().setSocketTimeout( BACKEND_TIMEOUT ).build() )
+        .build();
+    asyncClient.start();
+    syncClient = HttpClients.createDefault();
+    dispatch = createDispatch( new DefaultDispatch(), asyncClient );
+    gateway = createServer( new GatewayServlet() );
+    gatewayUrl = "http://localhost:" + getPort( gateway );
+
+    client = HttpClients.createDefault();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+    gateway.stop();
+    asyncClient.close();
+    syncClient.close();
+    backend.stop();
+  }
+
+  @Test
+  public void testUnmodifiedBodyIsWrittenAsItArrives() throws Exception {
+    HttpResponse response = client.execute( new HttpGet( gatewayUrl + "/data" ) );
+    assertThat( response.getStatusLine().getStatusCode(), is( 200 ) );
+    assertThat( response.getFirstHeader( "X-Backend" ).getValue(), is( "data" ) );
+    assertArrayEquals( BODY, EntityUtils.toByteArray( response.getEntity() ) );
+    assertThat( asyncStarted.get(), is( true ) );
+    assertThat( streamedResponses.get(), is( 0 ) );
+  }
+
+  @Test
+  public void testRewrittenBodyIsStreamedFromContainerThread() throws Exception {
+    HttpResponse response = client.execute( new HttpGet( gatewayUrl + "/data?wrap=true" ) );
+    assertThat( response.getStatusLine().getStatusCode(), is( 200 ) );
+    assertArrayEquals( BODY, EntityUtils.toByteArray( response.getEntity() ) );
+    assertThat( asyncStarted.get(), is( true ) );
+    assertThat( streamedResponses.get(), is( 1 ) );
+  }
+
+  @Test
+  public void testResponseWithoutBody() throws Exception {
+    HttpResponse response = client.execute( new HttpGet( gatewayUrl + "/empty" ) );
+    assertThat( response.getStatusLine().getStatusCode(), is( 204 ) );
+    assertThat( response.getFirstHeader( "X-Backend" ).getValue(), is( "empty" ) );
+    assertThat( response.getEntity(), nullValue() );
+  }
+
+  @Test
+  public void testUnreachableBackend() throws Exception {
+    backendUrl = "http://localhost:" + getFreePort();
+    HttpResponse response = client.execute( new HttpGet( gatewayUrl + "/data" ) );
+    assertThat( response.getStatusLine().getStatusCode(), is( 500 ) );
+    EntityUtils.consume( response.getEntity() );
+  }
+
+  @Test
+  public void testBackendTimeout() throws Exception {
+    long start = System.currentTimeMillis();
+    HttpResponse response = client.execute( new HttpGet( gatewayUrl + "/slow" ) );
+    assertThat( response.getStatusLine().getStatusCode(), is( 500 ) );
+    EntityUtils.consume( response.getEntity() );
+    assertThat( System.currentTimeMillis() - start, lessThan( 5L * BACKEND_TIMEOUT ) );
+  }
+
+  @Test
+  public void testAsyncTimeout() throws Exception {
+    try( CloseableHttpAsyncClient unboundedClient = HttpAsyncClients.createDefault() ) {
+      unboundedClient.start();
+      dispatch = createDispatch( new DefaultDispatch(), unboundedClient );
+      dispatch.setAsyncTimeout( BACKEND_TIMEOUT );
+      long start = System.currentTimeMillis();
+      HttpResponse response = client.execute( new HttpGet( gatewayUrl + "/slow" ) );
+      assertThat( response.getStatusLine().getStatusCode(), is( 500 ) );
+      EntityUtils.consume( response.getEntity() );
+      assertThat( System.currentTimeMillis() - start, lessThan( 4L * BACKEND_TIMEOUT ) );
+      assertThat( asyncStarted.get(), is( true ) );
+    }
+  }
+
+  @Test
+  public void testOverriddenWriteOutboundResponseIsSynchronous() throws Exception {
+    dispatch = createDispatch( new DefaultDispatch() {
+      @Override
+      protected void writeOutboundResponse( HttpUriRequest outboundRequest, HttpServletRequest inboundRequest,
+                                            HttpServletResponse outboundResponse, HttpResponse inboundResponse )
+          throws IOException {
+        outboundResponse.addHeader( "X-Overridden", "true" );
+        super.writeOutboundResponse( outboundRequest, inboundRequest, outboundResponse, inboundResponse );
+      }
+    }, asyncClient );
+    assertThat( dispatch.isAsyncCapable(), is( false ) );
+    HttpResponse response = client.execute( new HttpGet( gatewayUrl + "/data" ) );
+    assertThat( response.getStatusLine().getStatusCode(), is( 200 ) );
+    assertThat( response.getFirstHeader( "X-Overridden" ).getValue(), is( "true" ) );
+    assertArrayEquals( BODY, EntityUtils.toByteArray( response.getEntity() ) );
+    assertThat( asyncStarted.get(), is( false ) );
+  }
+
+  @Test
+  public void testOverriddenExecuteOutboundRequestIsSynchronous() throws Exception {
+    DefaultDispatch overriding = new DefaultDispatch() {
+      @Override
+      protected HttpResponse executeOutboundRequest( HttpUriRequest outboundRequest ) throws IOException {
+        return super.executeOutboundRequest( outboundRequest );
+      }
+    };
+    assertThat( overriding.isAsyncCapable(), is( false ) );
+    assertThat( new DefaultDispatch() { }.isAsyncCapable(), is( true ) );
+    assertThat( dispatch.isAsyncCapable(), is( true ) );
+  }
+
+  private DefaultDispatch createDispatch( DefaultDispatch dispatch, CloseableHttpAsyncClient asyncClient ) {
+    dispatch.setHttpClient( syncClient );
+    dispatch.setAsyncHttpClient( asyncClient );
+    dispatch.init();
+    return dispatch;
+  }
+
+  private static Server createServer( HttpServlet servlet ) throws Exception {
+    Server server = new Server( 0 );
+    ServletContextHandler context = new ServletContextHandler();
+    ServletHolder holder = new ServletHolder( servlet );
+    holder.setAsyncSupported( true );
+    context.addServlet( holder, "/*" );
+    server.setHandler( context );
+    server.start();
+    return server;
+  }
+
+  private static int getPort( Server server ) {
+    return ((ServerConnector)server.getConnectors()[ 0 ]).getLocalPort();
+  }
+
+  private static int getFreePort() throws IOException {
+    try( ServerSocket socket = new ServerSocket( 0 ) ) {
+      return socket.getLocalPort();
+    }
+  }
+
+  private class GatewayServlet extends HttpServlet {
+
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response ) throws IOException {
+      HttpServletResponse outboundResponse = response;
+      if( request.getParameter( "wrap" ) != null ) {
+        outboundResponse = new StreamedResponse( response );
+      }
+      try {
+        dispatch.doGet( URI.create( backendUrl + request.getPathInfo() ), request, outboundResponse );
+      } catch( Exception e ) {
+        throw new IOException( e );
+      }
+      asyncStarted.set( request.isAsyncStarted() );
+    }
+
+  }
+
+  // Stands in for a response whose body is rewritten, which is always read from a blocking stream.
+  private class StreamedResponse extends GatewayResponseWrapper {
+
+    private StreamedResponse( HttpServletResponse response ) {
+      super( response );
+    }
+
+    @Override
+    public OutputStream getRawOutputStream() throws IOException {
+      return getResponse().getOutputStream();
+    }
+
+    @Override
+    public void streamResponse( InputStream input, OutputStream output ) throws IOException {
+      streamedResponses.incrementAndGet();
+      super.streamResponse( input, output );
+    }
+
+  }
+
+  private static class BackendServlet extends HttpServlet {
+
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response ) throws IOException {
+      String path = request.getPathInfo();
+      response.setHeader( "X-Backend", path.substring( 1 ) );
+      if( "/data".equals( path ) ) {
+        response.setContentType( "application/octet-stream" );
+        OutputStream output = response.getOutputStream();
+        for( int i = 0; i < BODY.length; i += 8192 ) {
+          output.write( BODY, i, Math.min( 8192, BODY.length - i ) );
+          output.flush();
+        }
+      } else if( "/empty".equals( path ) ) {
+        response.setStatus( HttpServletResponse.SC_NO_CONTENT );
+      } else if( "/slow".equals( path ) ) {
+        try {
+          Thread.sleep( 4 * BACKEND_TIMEOUT );
+        } catch( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+        response.getOutputStream().write( BODY, 0, 16 );
+      } else {
+        response.sendError( HttpServletResponse.SC_NOT_FOUND );
+      }
+    }
+
+  }
+
+}
@@ -46,9 +46,12 @@ import org.apache.hadoop.test.category.UnitTests;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpVersion;
 import org.apache.http.RequestLine;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.apache.http.params.BasicHttpParams;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
@@ -241,4 +244,21 @@ public class DefaultDispatchTest {
 
   }
 
+  @Test
+  public void testAsyncDispatchOnlyForBodilessRequestsWithAsyncClient() {
+    DefaultDispatch dispatch = new DefaultDispatch();
+    HttpServletRequest inboundRequest = EasyMock.createNiceMock( HttpServletRequest.class );
+    EasyMock.expect( inboundRequest.isAsyncSupported() ).andReturn( true ).anyTimes();
+    EasyMock.expect( inboundRequest.isAsyncStarted() ).andReturn( false ).anyTimes();
+    EasyMock.replay( inboundRequest );
+
+    HttpGet get = new HttpGet( "http://localhost/" );
+    HttpPut put = new HttpPut( "http://localhost/" );
+    assertFalse( dispatch.isAsyncDispatch( get, inboundRequest ) );
+
+    dispatch.setAsyncHttpClient( EasyMock.createNiceMock( HttpAsyncClient.class ) );
+    assertTrue( dispatch.isAsyncDispatch( get, inboundRequest ) );
+    assertFalse( dispatch.isAsyncDispatch( put, inboundRequest ) );
+  }
+
 }
@@ -32,6 +32,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -158,4 +161,34 @@ public class CMFKeystoreServiceTest {
       certificateFile.deleteOnExit();
     }
   }
+
+  @Test
+  public void testCredentialStoreIsCachedUntilWritten() throws KeystoreServiceException {
+    try {
+      ks.createCredentialStore();
+      KeyStore credentialStore = ks.getCredentialStore();
+      assertSame("Credential Store was reloaded without a change", credentialStore, ks.getCredentialStore());
+      ks.addCredential(aliasName, secretValue);
+      assertNotSame("Credential Store was not replaced on write", credentialStore, ks.getCredentialStore());
+      assertEquals(secretValue, new String(ks.getCredential(aliasName)));
+    } finally {
+      credentialsStoreFile.deleteOnExit();
+    }
+  }
+
+  @Test
+  public void testCredentialStoreIsReloadedWhenFileChanges() throws Exception {
+    try {
+      ks.createCredentialStore();
+      ks.addCredential(aliasName, "secretValue");
+      assertEquals("secretValue", new String(ks.getCredential(aliasName)));
+      CMFKeystoreService other = new CMFKeystoreService(".", "ambari");
+      other.setMasterService(ks.masterService);
+      other.addCredential(aliasName, secretValue);
+      assertEquals("Change made through another service was not picked up",
+          secretValue, new String(ks.getCredential(aliasName)));
+    } finally {
+      credentialsStoreFile.deleteOnExit();
+    }
+  }
 }
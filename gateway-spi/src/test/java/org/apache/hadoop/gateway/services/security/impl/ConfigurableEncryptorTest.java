@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.security.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.services.security.EncryptionResult;
+import org.apache.hadoop.test.category.FastTests;
+import org.apache.hadoop.test.category.UnitTests;
+import org.easymock.EasyMock;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@Category( { UnitTests.class, FastTests.class } )
+public class ConfigurableEncryptorTest {
+
+  @Test
+  public void testEncryptionUsesFreshIVs() throws Exception {
+    ConfigurableEncryptor encryptor = new ConfigurableEncryptor("password");
+    EncryptionResult first = encryptor.encrypt("larry");
+    EncryptionResult second = encryptor.encrypt("larry");
+    assertEquals(16, first.iv.length);
+    assertFalse(Arrays.equals(first.iv, second.iv));
+
+    ConfigurableEncryptor other = new ConfigurableEncryptor("password");
+    assertEquals("larry", new String(other.decrypt(first.salt, first.iv, first.cipher), StandardCharsets.UTF_8));
+    assertEquals("larry", new String(other.decrypt(second.salt, second.iv, second.cipher), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testDecryptsPreviousFormat() throws Exception {
+    byte[] salt = "12345678".getBytes(StandardCharsets.UTF_8);
+    byte[] iv = "1234567890123456".getBytes(StandardCharsets.UTF_8);
+    SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+    byte[] key = factory.generateSecret(new PBEKeySpec("password".toCharArray(), salt, 65536, 128)).getEncoded();
+    Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+    byte[] encrypted = cipher.doFinal("larry".getBytes(StandardCharsets.UTF_8));
+
+    ConfigurableEncryptor encryptor = new ConfigurableEncryptor("password");
+    encryptor.init(createConfig(ConfigurableEncryptor.GCM_TRANSFORMATION));
+    assertEquals("larry", new String(encryptor.decrypt(salt, iv, encrypted), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testGcm() throws Exception {
+    ConfigurableEncryptor encryptor = new ConfigurableEncryptor("password");
+    encryptor.init(createConfig(ConfigurableEncryptor.GCM_TRANSFORMATION));
+    EncryptionResult result = encryptor.encrypt("larry");
+    assertEquals(12, result.iv.length);
+
+    ConfigurableEncryptor other = new ConfigurableEncryptor("password");
+    EncryptionResult copy = EncryptionResult.fromByteArray(result.toByteAray());
+    assertEquals("larry", new String(other.decrypt(copy.salt, copy.iv, copy.cipher), StandardCharsets.UTF_8));
+
+    result.cipher[0] ^= 1;
+    try {
+      other.decrypt(result.salt, result.iv, result.cipher);
+      fail("Expected a tampered ciphertext to be rejected");
+    } catch (javax.crypto.AEADBadTagException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testPassPhrase() {
+    ConfigurableEncryptor encryptor = new ConfigurableEncryptor("password");
+    assertTrue(encryptor.hasPassPhrase("password".toCharArray()));
+    assertFalse(encryptor.hasPassPhrase("other".toCharArray()));
+  }
+
+  @Test
+  public void testConcurrentUse() throws Exception {
+    final ConfigurableEncryptor encryptor = new ConfigurableEncryptor("password");
+    final ConfigurableEncryptor other = new ConfigurableEncryptor("password");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        final byte[] clear = ("value-" + i).getBytes(StandardCharsets.UTF_8);
+        results.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            for (int j = 0; j < 50; j++) {
+              EncryptionResult result = encryptor.encrypt(clear);
+              assertArrayEquals(clear, other.decrypt(result.salt, result.iv, result.cipher));
+            }
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testKeyCacheEvictsLeastRecentlyUsed() throws Exception {
+    // Keys are derived once per salt, a single iteration keeps the test fast.
+    GatewayConfig config = createConfig(null, "1");
+    List<EncryptionResult> results = new ArrayList<>();
+    for (int i = 0; i <= ConfigurableEncryptor.MAX_CACHED_KEYS; i++) {
+      ConfigurableEncryptor source = new ConfigurableEncryptor("password");
+      source.init(config);
+      results.add(source.encrypt("value-" + i));
+    }
+    ConfigurableEncryptor encryptor = new ConfigurableEncryptor("password");
+    encryptor.init(config);
+    for (int i = 0; i < ConfigurableEncryptor.MAX_CACHED_KEYS; i++) {
+      decrypt(encryptor, results.get(i));
+    }
+    assertEquals(ConfigurableEncryptor.MAX_CACHED_KEYS, encryptor.getCachedKeyCount());
+
+    // Using the oldest key again makes the second one the least recently used.
+    decrypt(encryptor, results.get(0));
+    decrypt(encryptor, results.get(ConfigurableEncryptor.MAX_CACHED_KEYS));
+    assertEquals(ConfigurableEncryptor.MAX_CACHED_KEYS, encryptor.getCachedKeyCount());
+    assertTrue(encryptor.isKeyCached(results.get(0).salt));
+    assertFalse(encryptor.isKeyCached(results.get(1).salt));
+    assertTrue(encryptor.isKeyCached(results.get(2).salt));
+    assertTrue(encryptor.isKeyCached(results.get(ConfigurableEncryptor.MAX_CACHED_KEYS).salt));
+  }
+
+  private static void decrypt(ConfigurableEncryptor encryptor, EncryptionResult result) throws Exception {
+    assertTrue(new String(encryptor.decrypt(result.salt, result.iv, result.cipher), StandardCharsets.UTF_8)
+        .startsWith("value-"));
+  }
+
+  private static GatewayConfig createConfig(String transformation) {
+    return createConfig(transformation, null);
+  }
+
+  private static GatewayConfig createConfig(String transformation, String iterationCount) {
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getTransformation()).andReturn(transformation).anyTimes();
+    EasyMock.expect(config.getIterationCount()).andReturn(iterationCount).anyTimes();
+    EasyMock.replay(config);
+    return config;
+  }
+
+}
@@ -444,6 +444,11 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return services;
   }
 
+  @Override
+  public int getUrlRewriteCacheSize() {
+    return 10000;
+  }
+
   /* (non-Javadoc)
    * @see org.apache.hadoop.gateway.config.GatewayConfig#isWebsocketEnabled()
    */
@@ -640,4 +645,24 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
   public String getRemoteConfigurationMonitorClientName() {
     return null;
   }
+
+  @Override
+  public boolean isAsyncSupported() {
+    return false;
+  }
+
+  @Override
+  public int getHttpClientPoolMaxTotal() {
+    return 512;
+  }
+
+  @Override
+  public int getHttpClientPoolMaxPerRoute() {
+    return 32;
+  }
+
+  @Override
+  public long getHttpClientPoolIdleTimeout() {
+    return 60000L;
+  }
 }
@@ -0,0 +1,562 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.audit.log4j.appender;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * A durable FIFO queue backed by a segmented, memory mapped, append only log.
+ * <p>
+ * Producers serialize their element on the calling thread and hand it to a single
+ * writer thread through a lock free queue. The writer appends everything that is
+ * pending to the current segment and forces it to disk once for the whole batch
+ * (group commit) before releasing the producers, so {@link #enqueue(Object)} still
+ * only returns once the element is durable. Consumers drain committed records in
+ * batches and persist their read position in a checkpoint file; segments are
+ * deleted once they have been fully consumed.
+ * <p>
+ * Each record is stored as its length, a CRC32 of the payload and the serialized
+ * element. On start up the last segment is scanned and anything after the last
+ * intact record is discarded, so a torn write never reaches a consumer.
+ */
+public class WalQueue<E> {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  static final String SEGMENT_SUFFIX = ".seg";
+  static final String CHECKPOINT_FILE = "checkpoint";
+
+  private static final int HEADER_SIZE = 8;
+  private static final int CHECKPOINT_SIZE = 16;
+  private static final int END_OF_SEGMENT = -1;
+  private static final long CLOSE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos( 100 );
+
+  private final File dir;
+  private final int segmentSize;
+  private final int batchSize;
+  private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+  private final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+  private final Object monitor = new Object();
+  private final Object readLock = new Object();
+  private final FileChannel checkpoint;
+  private final Writer writer;
+
+  // Owned by the writer thread once it has been started.
+  private Segment writeSegment;
+  private int writeOffset;
+
+  // Guarded by readLock.
+  private long readSegment;
+  private int readOffset;
+
+  private volatile Position committed;
+  private volatile boolean open;
+  private volatile boolean closed;
+
+  public WalQueue( File file ) throws IOException {
+    this( file, DEFAULT_SEGMENT_SIZE, DEFAULT_BATCH_SIZE );
+  }
+
+  public WalQueue( File file, int segmentSize, int batchSize ) throws IOException {
+    if( segmentSize <= HEADER_SIZE ) {
+      throw new IllegalArgumentException( "Invalid segment size " + segmentSize );
+    }
+    if( batchSize <= 0 ) {
+      throw new IllegalArgumentException( "Invalid batch size " + batchSize );
+    }
+    this.dir = new File( file.getAbsolutePath() + ".wal" );
+    this.segmentSize = segmentSize;
+    this.batchSize = batchSize;
+    if( !dir.isDirectory() && !dir.mkdirs() ) {
+      throw new IOException( "Failed to create queue directory " + dir );
+    }
+    checkpoint = FileChannel.open( new File( dir, CHECKPOINT_FILE ).toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+    try {
+      recover();
+    } catch( IOException | RuntimeException e ) {
+      closeSegments();
+      checkpoint.close();
+      throw e;
+    }
+    open = true;
+    writer = new Writer();
+    writer.setDaemon( true );
+    writer.start();
+  }
+
+  /**
+   * Appends an element to the queue. Returns once the element has been forced to
+   * disk together with whatever other producers enqueued concurrently.
+   */
+  public void enqueue( E e ) throws IOException {
+    if( closed ) {
+      throw new IOException( "Queue is closed: " + dir );
+    }
+    Pending p = new Pending( serialize( e ), Thread.currentThread() );
+    pending.offer( p );
+    LockSupport.unpark( writer );
+    boolean interrupted = false;
+    while( !p.done ) {
+      LockSupport.parkNanos( this, CLOSE_CHECK_NANOS );
+      if( Thread.interrupted() ) {
+        interrupted = true;
+      }
+      if( !p.done && !writer.isAlive() && pending.remove( p ) ) {
+        p.error = new IOException( "Queue is closed: " + dir );
+        break;
+      }
+    }
+    if( interrupted ) {
+      Thread.currentThread().interrupt();
+    }
+    if( p.error != null ) {
+      throw p.error;
+    }
+  }
+
+  /**
+   * Blocks until at least one element is available and returns it, or returns null
+   * once the queue has been stopped and nothing committed is left to consume.
+   */
+  public E dequeue() throws InterruptedException, IOException {
+    final List<E> holder = new ArrayList<>( 1 );
+    int count;
+    do {
+      count = drain( 1, new Consumer<E>() {
+        @Override
+        public boolean consume( E e ) {
+          holder.add( e );
+          return true;
+        }
+      } );
+    } while( count == 0 );
+    return count < 0 ? null : holder.get( 0 );
+  }
+
+  /**
+   * Hands up to max committed elements to the consumer in order, blocking until at
+   * least one is available. The read position is checkpointed once for the whole
+   * batch, after the last element the consumer accepted. An element the consumer
+   * rejects, or fails on, is delivered again by the next call.
+   *
+   * @return the number of elements consumed, or -1 once the queue has been stopped
+   *     and nothing committed is left to consume
+   */
+  public int drain( int max, Consumer<E> consumer ) throws InterruptedException, IOException {
+    synchronized( readLock ) {
+      Position limit = awaitRecords();
+      if( limit == null ) {
+        return -1;
+      }
+      long segmentId = readSegment;
+      int offset = readOffset;
+      int count = 0;
+      List<Segment> consumed = new ArrayList<>();
+      try {
+        while( count < max ) {
+          Segment segment = segments.get( segmentId );
+          if( segmentId == limit.segment ) {
+            if( offset >= limit.offset ) {
+              break;
+            }
+          } else if( offset + HEADER_SIZE > segment.capacity || segment.buffer.getInt( offset ) <= 0 ) {
+            consumed.add( segment );
+            segmentId++;
+            offset = 0;
+            continue;
+          }
+          int length = segment.buffer.getInt( offset );
+          E e = read( segment, offset, length );
+          if( !consumer.consume( e ) ) {
+            break;
+          }
+          offset += HEADER_SIZE + length;
+          count++;
+        }
+      } finally {
+        if( segmentId != readSegment || offset != readOffset ) {
+          writeCheckpoint( segmentId, offset );
+          readSegment = segmentId;
+          readOffset = offset;
+          deleteSegments( consumed );
+        }
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Wakes up blocked consumers. Consumers keep receiving committed elements until
+   * none are left and then see the end of the queue.
+   */
+  public void stop() {
+    synchronized( monitor ) {
+      open = false;
+      monitor.notifyAll();
+    }
+  }
+
+  public void close() throws IOException {
+    stop();
+    closed = true;
+    LockSupport.unpark( writer );
+    boolean interrupted = false;
+    while( writer.isAlive() ) {
+      try {
+        writer.join();
+      } catch( InterruptedException e ) {
+        interrupted = true;
+      }
+    }
+    synchronized( readLock ) {
+      closeSegments();
+      checkpoint.close();
+    }
+    if( interrupted ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void recover() throws IOException {
+    File[] files = dir.listFiles( new FileFilter() {
+      @Override
+      public boolean accept( File file ) {
+        return file.isFile() && file.getName().endsWith( SEGMENT_SUFFIX );
+      }
+    } );
+    if( files != null ) {
+      for( File file : files ) {
+        String name = file.getName();
+        long id;
+        try {
+          id = Long.parseLong( name.substring( 0, name.length() - SEGMENT_SUFFIX.length() ) );
+        } catch( NumberFormatException e ) {
+          continue;
+        }
+        segments.put( id, new Segment( id, file, 0 ) );
+      }
+    }
+    if( segments.isEmpty() ) {
+      openSegment( 1, segmentSize );
+    }
+
+    long[] position = readCheckpoint();
+    if( position == null || !segments.containsKey( position[ 0 ] ) ) {
+      position = new long[]{ segments.firstKey(), 0 };
+    }
+    readSegment = position[ 0 ];
+    readOffset = (int)position[ 1 ];
+    deleteSegments( new ArrayList<>( segments.headMap( readSegment ).values() ) );
+
+    writeSegment = segments.lastEntry().getValue();
+    writeOffset = scan( writeSegment );
+    if( writeSegment.id == readSegment && readOffset > writeOffset ) {
+      readOffset = writeOffset;
+    }
+    committed = new Position( writeSegment.id, writeOffset );
+  }
+
+  // Finds the end of the intact records in a segment and clears anything after it.
+  private static int scan( Segment segment ) throws IOException {
+    MappedByteBuffer buffer = segment.buffer;
+    int offset = 0;
+    while( offset + HEADER_SIZE <= segment.capacity ) {
+      int length = buffer.getInt( offset );
+      if( length <= 0 || length > segment.capacity - offset - HEADER_SIZE ) {
+        break;
+      }
+      byte[] data = new byte[ length ];
+      ByteBuffer view = buffer.duplicate();
+      view.position( offset + HEADER_SIZE );
+      view.get( data );
+      if( checksum( data ) != buffer.getInt( offset + 4 ) ) {
+        break;
+      }
+      offset += HEADER_SIZE + length;
+    }
+    boolean dirty = false;
+    for( int i = offset; i < segment.capacity; i++ ) {
+      if( buffer.get( i ) != 0 ) {
+        buffer.put( i, (byte)0 );
+        dirty = true;
+      }
+    }
+    if( dirty ) {
+      buffer.force();
+    }
+    return offset;
+  }
+
+  private Position awaitRecords() throws InterruptedException {
+    synchronized( monitor ) {
+      while( true ) {
+        Position limit = committed;
+        if( limit.segment != readSegment || limit.offset > readOffset ) {
+          return limit;
+        }
+        if( !open ) {
+          return null;
+        }
+        monitor.wait();
+      }
+    }
+  }
+
+  private E read( Segment segment, int offset, int length ) throws IOException {
+    byte[] data = new byte[ length ];
+    ByteBuffer view = segment.buffer.duplicate();
+    view.position( offset + HEADER_SIZE );
+    view.get( data );
+    if( checksum( data ) != segment.buffer.getInt( offset + 4 ) ) {
+      throw new IOException( "Corrupt record at offset " + offset + " of " + segment.file );
+    }
+    return deserialize( data );
+  }
+
+  private void append( Pending p ) throws IOException {
+    int required = HEADER_SIZE + p.data.length;
+    if( required > writeSegment.capacity - writeOffset ) {
+      if( writeOffset + 4 <= writeSegment.capacity ) {
+        writeSegment.buffer.putInt( writeOffset, END_OF_SEGMENT );
+      }
+      writeSegment.buffer.force();
+      writeSegment = openSegment( writeSegment.id + 1, Math.max( segmentSize, required ) );
+      writeOffset = 0;
+    }
+    writeSegment.writeView.position( writeOffset + HEADER_SIZE );
+    writeSegment.writeView.put( p.data );
+    writeSegment.buffer.putInt( writeOffset + 4, checksum( p.data ) );
+    writeSegment.buffer.putInt( writeOffset, p.data.length );
+    writeOffset += required;
+  }
+
+  private Segment openSegment( long id, int size ) throws IOException {
+    Segment segment = segments.get( id );
+    if( segment == null ) {
+      segment = new Segment( id, new File( dir, String.format( "%020d%s", id, SEGMENT_SUFFIX ) ), size );
+      segments.put( id, segment );
+    }
+    return segment;
+  }
+
+  private void deleteSegments( List<Segment> consumed ) {
+    for( Segment segment : consumed ) {
+      segments.remove( segment.id );
+      segment.close();
+      // A segment that can't be deleted yet is skipped during recovery because it
+      // is older than the checkpoint.
+      segment.file.delete();
+    }
+  }
+
+  private void closeSegments() {
+    for( Map.Entry<Long, Segment> entry : segments.entrySet() ) {
+      entry.getValue().close();
+    }
+  }
+
+  private long[] readCheckpoint() throws IOException {
+    if( checkpoint.size() < CHECKPOINT_SIZE ) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate( CHECKPOINT_SIZE );
+    while( buffer.hasRemaining() ) {
+      if( checkpoint.read( buffer, buffer.position() ) < 0 ) {
+        return null;
+      }
+    }
+    byte[] bytes = buffer.array();
+    if( checksum( Arrays.copyOf( bytes, 12 ) ) != buffer.getInt( 12 ) ) {
+      return null;
+    }
+    return new long[]{ buffer.getLong( 0 ), buffer.getInt( 8 ) };
+  }
+
+  private void writeCheckpoint( long segmentId, int offset ) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate( CHECKPOINT_SIZE );
+    buffer.putLong( segmentId );
+    buffer.putInt( offset );
+    buffer.putInt( checksum( Arrays.copyOf( buffer.array(), 12 ) ) );
+    buffer.flip();
+    while( buffer.hasRemaining() ) {
+      checkpoint.write( buffer, buffer.position() );
+    }
+    checkpoint.force( false );
+  }
+
+  private static int checksum( byte[] data ) {
+    CRC32 crc = new CRC32();
+    crc.update( data, 0, data.length );
+    return (int)crc.getValue();
+  }
+
+  private static byte[] serialize( Object o ) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try( ObjectOutputStream out = new ObjectOutputStream( bytes ) ) {
+      out.writeObject( o );
+    }
+    return bytes.toByteArray();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> E deserialize( byte[] data ) throws IOException {
+    try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( data ) ) ) {
+      return (E)in.readObject();
+    } catch( ClassNotFoundException e ) {
+      throw new IOException( e );
+    }
+  }
+
+  private class Writer extends Thread {
+
+    Writer() {
+      super( "WalQueue-writer-" + dir.getName() );
+    }
+
+    @Override
+    public void run() {
+      List<Pending> batch = new ArrayList<>( batchSize );
+      while( true ) {
+        Pending p = pending.poll();
+        if( p == null ) {
+          if( closed ) {
+            return;
+          }
+          LockSupport.park( this );
+          continue;
+        }
+        batch.clear();
+        IOException error = null;
+        try {
+          do {
+            batch.add( p );
+            append( p );
+          } while( batch.size() < batchSize && ( p = pending.poll() ) != null );
+          writeSegment.buffer.force();
+          synchronized( monitor ) {
+            committed = new Position( writeSegment.id, writeOffset );
+            monitor.notifyAll();
+          }
+        } catch( IOException e ) {
+          error = e;
+        } catch( RuntimeException e ) {
+          error = new IOException( e );
+        }
+        if( error != null ) {
+          // Nothing past the last commit was published, so overwrite it next time.
+          Position last = committed;
+          writeSegment = segments.get( last.segment );
+          writeOffset = last.offset;
+        }
+        for( Pending done : batch ) {
+          done.error = error;
+          done.done = true;
+          LockSupport.unpark( done.thread );
+        }
+      }
+    }
+  }
+
+  private static class Segment {
+
+    private final long id;
+    private final File file;
+    private final int capacity;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer writeView;
+
+    Segment( long id, File file, int size ) throws IOException {
+      this.id = id;
+      this.file = file;
+      raf = new RandomAccessFile( file, "rw" );
+      try {
+        if( raf.length() < size ) {
+          raf.setLength( size );
+        }
+        long length = raf.length();
+        if( length > Integer.MAX_VALUE ) {
+          throw new IOException( "Segment too large: " + file );
+        }
+        capacity = (int)length;
+        buffer = raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, capacity );
+        writeView = buffer.duplicate();
+      } catch( IOException | RuntimeException e ) {
+        raf.close();
+        throw e;
+      }
+    }
+
+    void close() {
+      try {
+        raf.close();
+      } catch( IOException e ) {
+        // The mapping stays valid until it is collected.
+      }
+    }
+  }
+
+  private static class Pending {
+    private final byte[] data;
+    private final Thread thread;
+    private volatile boolean done;
+    private volatile IOException error;
+
+    Pending( byte[] data, Thread thread ) {
+      this.data = data;
+      this.thread = thread;
+    }
+  }
+
+  private static class Position {
+    private final long segment;
+    private final int offset;
+
+    Position( long segment, int offset ) {
+      this.segment = segment;
+      this.offset = offset;
+    }
+  }
+
+  public interface Consumer<E> {
+    boolean consume( E e );
+  }
+
+}
@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.audit.log4j.appender;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.gateway.i18n.GatewayUtilCommonMessages;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Store and forward appender backed by a {@link WalQueue}. Events are durable when
+ * append returns but concurrent appends share a single disk sync, and the forwarder
+ * hands events to the "audit.forward" logger in batches. When forwarding fails the
+ * forwarder retries the same event, waiting retryInterval at first and doubling the
+ * wait up to maxRetryInterval.
+ */
+public class WalStoreAndForwardAppender extends AppenderSkeleton {
+
+  private static GatewayUtilCommonMessages LOG = MessagesFactory.get( GatewayUtilCommonMessages.class );
+
+  private File file;
+  private Thread forwarder;
+  private WalQueue<LoggingEvent> queue;
+  private Logger forward;
+  private boolean fetchLocationInfo = true;
+  private int segmentSize = WalQueue.DEFAULT_SEGMENT_SIZE;
+  private int batchSize = WalQueue.DEFAULT_BATCH_SIZE;
+  private long retryInterval = 100L;
+  private long maxRetryInterval = 30000L;
+  private final Object retryLock = new Object();
+  private volatile boolean closing;
+
+  @Override
+  public boolean requiresLayout() {
+    return false;
+  }
+
+  public void setFile( String file ) {
+    this.file = new File( file );
+  }
+
+  public void setFetchLocationInfo( boolean fetchLocationInfo ) {
+    this.fetchLocationInfo = fetchLocationInfo;
+  }
+
+  public boolean isFetchLocationInfo() {
+    return fetchLocationInfo;
+  }
+
+  public void setSegmentSize( int segmentSize ) {
+    this.segmentSize = segmentSize;
+  }
+
+  public int getSegmentSize() {
+    return segmentSize;
+  }
+
+  public void setBatchSize( int batchSize ) {
+    this.batchSize = batchSize;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @param retryInterval the time in milliseconds to wait before the first retry of a failed forward
+   */
+  public void setRetryInterval( long retryInterval ) {
+    this.retryInterval = retryInterval;
+  }
+
+  public long getRetryInterval() {
+    return retryInterval;
+  }
+
+  /**
+   * @param maxRetryInterval the longest time in milliseconds to wait between retries of a failed forward
+   */
+  public void setMaxRetryInterval( long maxRetryInterval ) {
+    this.maxRetryInterval = maxRetryInterval;
+  }
+
+  public long getMaxRetryInterval() {
+    return maxRetryInterval;
+  }
+
+  @Override
+  public void activateOptions() {
+    try {
+      queue = new WalQueue<LoggingEvent>( file, segmentSize, batchSize );
+    } catch ( IOException e ) {
+      throw new IllegalStateException( e );
+    }
+    forward = Logger.getLogger( "audit.forward" );
+    forward.setAdditivity( false );
+    forwarder = new Forwarder();
+    forwarder.setDaemon( true );
+    forwarder.start();
+  }
+
+  @Override
+  protected void append( LoggingEvent event ) {
+    try {
+      if( fetchLocationInfo ) {
+        event.getLocationInformation();
+      }
+      queue.enqueue( event );
+    } catch ( IOException e ) {
+      throw new RuntimeException( e );
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized( retryLock ) {
+      closing = true;
+      retryLock.notifyAll();
+    }
+    try {
+      queue.stop();
+      forwarder.join();
+      queue.close();
+    } catch( InterruptedException e ) {
+      throw new RuntimeException( e );
+    } catch( IOException e ) {
+      throw new RuntimeException( e );
+    }
+  }
+
+  private class Forwarder extends Thread {
+
+    private Exception failure;
+
+    public void run() {
+      WalQueue.Consumer<LoggingEvent> consumer = new WalQueue.Consumer<LoggingEvent>() {
+        @Override
+        public boolean consume( LoggingEvent event ) {
+          try {
+            forward.callAppenders( event );
+            return true;
+          } catch ( Exception e ) {
+            failure = e;
+            return false;
+          }
+        }
+      };
+      long delay = retryInterval;
+      while( true ) {
+        try {
+          failure = null;
+          int count = queue.drain( batchSize, consumer );
+          if( count < 0 ) {
+            return;
+          }
+          if( failure == null ) {
+            delay = retryInterval;
+            continue;
+          }
+          if( closing ) {
+            // The events are still in the log, they are forwarded once the appender is started again.
+            LOG.closingAuditStoreWithPendingEvents( file.getPath() );
+            return;
+          }
+          // Events forwarded before the failure are checkpointed, the failed one is delivered again.
+          LOG.failedToForwardAuditEvents( delay, failure );
+        } catch ( InterruptedException e ) {
+          return;
+        } catch ( ThreadDeath e ) {
+          throw e;
+        } catch ( Throwable t ) {
+          if( closing ) {
+            return;
+          }
+          LOG.failedToReadAuditEvents( file.getPath(), delay, t );
+        }
+        if( !awaitRetry( delay ) ) {
+          return;
+        }
+        delay = Math.min( delay * 2, maxRetryInterval );
+      }
+    }
+
+    private boolean awaitRetry( long delay ) {
+      synchronized( retryLock ) {
+        try {
+          if( !closing ) {
+            retryLock.wait( delay );
+          }
+        } catch ( InterruptedException e ) {
+          return false;
+        }
+        return true;
+      }
+    }
+  }
+
+}
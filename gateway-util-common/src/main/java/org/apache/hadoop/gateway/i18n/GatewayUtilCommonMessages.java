@@ -33,4 +33,13 @@ public interface GatewayUtilCommonMessages {
   @Message( level = MessageLevel.ERROR, text = "Failed to get map from Json string {0}: {1}" )
   void failedToGetMapFromJsonString( String json, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
 
+  @Message( level = MessageLevel.ERROR, text = "Failed to forward audit events, retrying in {0} ms: {1}" )
+  void failedToForwardAuditEvents( long delay, @StackTrace( level = MessageLevel.DEBUG ) Throwable t );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to read audit events from {0}, retrying in {1} ms: {2}" )
+  void failedToReadAuditEvents( String file, long delay, @StackTrace( level = MessageLevel.DEBUG ) Throwable t );
+
+  @Message( level = MessageLevel.WARN, text = "Closing audit store {0} with unforwarded events, they are forwarded after a restart" )
+  void closingAuditStoreWithPendingEvents( String file );
+
 }
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread safe map holding at most a fixed number of entries. When an insertion exceeds the limit
+ * the entries are evicted in insertion order, lookups don't change that order. Meant for caches
+ * where a recently inserted entry is as likely to be used as any other. Lookups don't lock, only
+ * insertions and removals do.
+ */
+public class BoundedCache<K,V> {
+
+  private final int maxEntries;
+  private final ConcurrentMap<K,V> entries = new ConcurrentHashMap<>();
+  // The keys of the entries in insertion order, guarded by itself.  Always holds the same keys as entries.
+  private final Set<K> order = new LinkedHashSet<>();
+
+  /**
+   * @param maxEntries the maximum number of entries to keep
+   */
+  public BoundedCache( int maxEntries ) {
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * @param key the key of the entry
+   * @return the value of the entry or null if there is none
+   */
+  public V get( K key ) {
+    return entries.get( key );
+  }
+
+  /**
+   * Adds or replaces the entry for the key, evicting the eldest entries if the cache is full.
+   * A replaced entry keeps its place in the eviction order.
+   * @param key the key of the entry
+   * @param value the value of the entry
+   * @return the number of entries evicted
+   */
+  public int put( K key, V value ) {
+    int evicted = 0;
+    synchronized( order ) {
+      if( entries.put( key, value ) == null ) {
+        order.add( key );
+        Iterator<K> eldest = order.iterator();
+        while( order.size() > maxEntries && eldest.hasNext() ) {
+          entries.remove( eldest.next() );
+          eldest.remove();
+          evicted++;
+        }
+      }
+    }
+    return evicted;
+  }
+
+  /**
+   * Removes the entry for the key if it still has the value.
+   * @param key the key of the entry
+   * @param value the expected value of the entry
+   * @return true if the entry was removed
+   */
+  public boolean remove( K key, V value ) {
+    synchronized( order ) {
+      if( entries.remove( key, value ) ) {
+        order.remove( key );
+        return true;
+      }
+      return false;
+    }
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  // For unit testing.
+  int getOrderSize() {
+    synchronized( order ) {
+      return order.size();
+    }
+  }
+
+}
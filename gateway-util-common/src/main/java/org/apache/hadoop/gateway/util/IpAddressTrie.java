@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.util;
+
+/**
+ * A path compressed binary trie of address prefixes of a fixed bit length, used to check whether an
+ * address falls into any of a set of ranges in time proportional to the address length, independent
+ * of the number of ranges.
+ */
+public class IpAddressTrie {
+
+  private final int bits;
+  private final Node root = new Node( null, 0 );
+
+  /**
+   * @param bits the length of the addresses in bits, 32 for IPv4 and 128 for IPv6
+   */
+  public IpAddressTrie( int bits ) {
+    this.bits = bits;
+  }
+
+  /**
+   * Adds the range of addresses that share the first prefixLength bits of the address.
+   * @param address the address in network byte order
+   * @param prefixLength the number of leading bits of the range
+   */
+  public void add( byte[] address, int prefixLength ) {
+    if( address.length * 8 != bits || prefixLength < 0 || prefixLength > bits ) {
+      throw new IllegalArgumentException();
+    }
+    byte[] key = mask( address, prefixLength );
+    Node node = root;
+    while( true ) {
+      if( node.terminal ) {
+        // already covered by a shorter prefix
+        return;
+      }
+      if( node.length == prefixLength ) {
+        node.terminal = true;
+        node.children = null;
+        return;
+      }
+      if( node.children == null ) {
+        node.children = new Node[ 2 ];
+      }
+      int bit = bit( key, node.length );
+      Node child = node.children[ bit ];
+      if( child == null ) {
+        node.children[ bit ] = new Node( key, prefixLength ).terminal();
+        return;
+      }
+      int common = commonLength( key, child.key, node.length, Math.min( prefixLength, child.length ) );
+      if( common == child.length ) {
+        node = child;
+        continue;
+      }
+      Node split = new Node( mask( key, common ), common );
+      node.children[ bit ] = split;
+      if( common == prefixLength ) {
+        // the new range covers the existing child
+        split.terminal = true;
+      } else {
+        split.children = new Node[ 2 ];
+        split.children[ bit( child.key, common ) ] = child;
+        split.children[ bit( key, common ) ] = new Node( key, prefixLength ).terminal();
+      }
+      return;
+    }
+  }
+
+  /**
+   * @param address the address in network byte order
+   * @return true if the address is within any of the added ranges
+   */
+  public boolean contains( byte[] address ) {
+    if( address.length * 8 != bits ) {
+      return false;
+    }
+    Node node = root;
+    int checked = 0;
+    while( node != null ) {
+      if( commonLength( address, node.key, checked, node.length ) != node.length ) {
+        return false;
+      }
+      if( node.terminal ) {
+        return true;
+      }
+      if( node.children == null || node.length == bits ) {
+        return false;
+      }
+      checked = node.length;
+      node = node.children[ bit( address, node.length ) ];
+    }
+    return false;
+  }
+
+  public boolean isEmpty() {
+    return !root.terminal && root.children == null;
+  }
+
+  private static int bit( byte[] address, int index ) {
+    return ( address[ index >> 3 ] >> ( 7 - ( index & 7 ) ) ) & 1;
+  }
+
+  /**
+   * Returns the length of the common prefix of the two addresses, assuming the first start bits are equal.
+   */
+  private static int commonLength( byte[] a, byte[] b, int start, int end ) {
+    int index = start;
+    while( index < end ) {
+      // compare a whole byte at a time when aligned
+      if( ( index & 7 ) == 0 && index + 8 <= end && a[ index >> 3 ] == b[ index >> 3 ] ) {
+        index += 8;
+      } else if( bit( a, index ) == bit( b, index ) ) {
+        index++;
+      } else {
+        break;
+      }
+    }
+    return index;
+  }
+
+  private static byte[] mask( byte[] address, int prefixLength ) {
+    byte[] masked = new byte[ address.length ];
+    int bytes = prefixLength >> 3;
+    System.arraycopy( address, 0, masked, 0, bytes );
+    int rest = prefixLength & 7;
+    if( rest != 0 ) {
+      masked[ bytes ] = (byte)( address[ bytes ] & ( 0xFF << ( 8 - rest ) ) );
+    }
+    return masked;
+  }
+
+  private static class Node {
+    private final byte[] key;
+    private final int length;
+    private boolean terminal;
+    private Node[] children;
+
+    private Node( byte[] key, int length ) {
+      this.key = key;
+      this.length = length;
+    }
+
+    private Node terminal() {
+      terminal = true;
+      return this;
+    }
+  }
+
+}
@@ -19,9 +19,14 @@ package org.apache.hadoop.gateway.util;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Validate a given IP Address against a list of comma separated list of addresses.
+ * Entries may be explicit addresses, wildcards such as 192.168.* or CIDR ranges such
+ * as 10.0.0.0/8 and 2001:db8::/32. Addresses and ranges are kept in binary tries so
+ * a lookup costs the same regardless of the number of entries.
  */
 public class IpAddressValidator {
   
@@ -29,11 +34,23 @@ public class IpAddressValidator {
    * The parsed list of ip addresses 
    */
   private ArrayList<String> ipaddr = new ArrayList<String>();
+
+  /**
+   * The entries of the ipaddr list that are not wildcards, matched as given
+   */
+  private Set<String> explicitIPs = new HashSet<String>();
   
   /**
-   * IP addresses from the ipaddr list that contain a wildcard character '*'
+   * Prefixes of the wildcard entries that do not end on an address part boundary
+   * (example: 19*), these are matched as text
    */
   private ArrayList<String> wildCardIPs = new ArrayList<String>();
+
+  /**
+   * Addresses, CIDR ranges and wildcards of the ipaddr list by address family
+   */
+  private IpAddressTrie ipv4Ranges = new IpAddressTrie( 32 );
+  private IpAddressTrie ipv6Ranges = new IpAddressTrie( 128 );
   
   /**
    * Optimization based on empty IP address list or an explicit '*' wildcard
@@ -62,14 +79,91 @@ public class IpAddressValidator {
     Collections.addAll(ipaddr, ips);
     if (!ipaddr.contains("*")) {
       anyIP = false;
-      // check whether there are any wildcarded ip's - example: 192.* or 192.168.* or 192.168.1.*
       for (String addr : ipaddr) {
         if (addr.contains("*")) {
-          wildCardIPs.add(addr.substring(0, addr.lastIndexOf('*')));
+          // wildcarded ip's - example: 192.* or 192.168.* or 192.168.1.*
+          String prefix = addr.substring(0, addr.lastIndexOf('*'));
+          if (!addWildcard(prefix)) {
+            wildCardIPs.add(prefix);
+          }
+        }
+        else if (addr.indexOf('/') > 0) {
+          addRange(addr);
+        }
+        else {
+          explicitIPs.add(addr);
+          byte[] address = parseAddress(addr);
+          if (address != null) {
+            trieFor(address).add(address, address.length * 8);
+          }
         }
       }
     }
   }
+
+  private IpAddressTrie trieFor(byte[] address) {
+    return address.length == 4 ? ipv4Ranges : ipv6Ranges;
+  }
+
+  /**
+   * Adds a CIDR range such as 192.168.0.0/16, invalid ranges never match.
+   */
+  private void addRange(String range) {
+    int slash = range.indexOf('/');
+    byte[] address = parseAddress(range.substring(0, slash));
+    if (address == null) {
+      return;
+    }
+    String length = range.substring(slash + 1);
+    if (length.isEmpty() || length.length() > 3 || !isDigits(length)) {
+      return;
+    }
+    int prefixLength = Integer.parseInt(length);
+    if (prefixLength <= address.length * 8) {
+      trieFor(address).add(address, prefixLength);
+    }
+  }
+
+  /**
+   * Adds a wildcard prefix that ends on an octet (IPv4) or group (IPv6) boundary.
+   * @return false if the prefix cannot be represented as a range
+   */
+  private boolean addWildcard(String prefix) {
+    if (prefix.endsWith(".")) {
+      String[] parts = prefix.substring(0, prefix.length() - 1).split("\\.", -1);
+      if (parts.length > 3) {
+        return false;
+      }
+      byte[] address = new byte[4];
+      for (int i = 0; i < parts.length; i++) {
+        int octet = parseOctet(parts[i]);
+        if (octet < 0) {
+          return false;
+        }
+        address[i] = (byte) octet;
+      }
+      ipv4Ranges.add(address, parts.length * 8);
+      return true;
+    }
+    else if (prefix.endsWith(":") && !prefix.contains("::")) {
+      String[] parts = prefix.substring(0, prefix.length() - 1).split(":", -1);
+      if (parts.length > 7) {
+        return false;
+      }
+      byte[] address = new byte[16];
+      for (int i = 0; i < parts.length; i++) {
+        int group = parseGroup(parts[i]);
+        if (group < 0) {
+          return false;
+        }
+        address[i * 2] = (byte) (group >> 8);
+        address[i * 2 + 1] = (byte) group;
+      }
+      ipv6Ranges.add(address, parts.length * 16);
+      return true;
+    }
+    return false;
+  }
   
   public boolean validateIpAddress(String addr) {
     boolean valid = false;
@@ -82,12 +176,21 @@ public class IpAddressValidator {
       valid = true;
     }
     else {
-      if (ipaddr.contains(addr)) {
+      if (explicitIPs.contains(addr)) {
         valid = true;
       }
       else {
-        // check for wildcards if there are wildcardIP acls configured
-        if (!wildCardIPs.isEmpty()) {
+        byte[] address = parseAddress(addr);
+        if (address != null) {
+          valid = trieFor(address).contains(address);
+          if (!valid && isMappedIPv4(address)) {
+            byte[] ipv4 = new byte[4];
+            System.arraycopy(address, 12, ipv4, 0, 4);
+            valid = ipv4Ranges.contains(ipv4);
+          }
+        }
+        // check for the remaining wildcards if there are wildcardIP acls configured
+        if (!valid && !wildCardIPs.isEmpty()) {
           for (String ip : wildCardIPs) {
             if (addr.startsWith(ip)) {
               valid = true;
@@ -113,4 +216,148 @@ public class IpAddressValidator {
   public ArrayList<String> getIPAddresses() {
     return ipaddr;
   }
+
+  /**
+   * Parses an IPv4 or IPv6 address literal without any name resolution.
+   * @return the address in network byte order or null if it is not an address literal
+   */
+  static byte[] parseAddress(String addr) {
+    if (addr.indexOf(':') >= 0) {
+      return parseIPv6(addr);
+    }
+    return parseIPv4(addr);
+  }
+
+  private static byte[] parseIPv4(String addr) {
+    byte[] address = new byte[4];
+    int start = 0;
+    for (int part = 0; part < 4; part++) {
+      int end = part < 3 ? addr.indexOf('.', start) : addr.length();
+      if (end < 0) {
+        return null;
+      }
+      int octet = parseOctet(addr.substring(start, end));
+      if (octet < 0) {
+        return null;
+      }
+      address[part] = (byte) octet;
+      start = end + 1;
+    }
+    return address;
+  }
+
+  private static byte[] parseIPv6(String addr) {
+    int zone = addr.indexOf('%');
+    if (zone >= 0) {
+      addr = addr.substring(0, zone);
+    }
+    if (addr.startsWith("[") && addr.endsWith("]")) {
+      addr = addr.substring(1, addr.length() - 1);
+    }
+    byte[] ipv4 = null;
+    int lastColon = addr.lastIndexOf(':');
+    if (addr.indexOf('.', lastColon) >= 0) {
+      // trailing dotted IPv4 part, example: ::ffff:192.168.1.1
+      ipv4 = parseIPv4(addr.substring(lastColon + 1));
+      if (ipv4 == null) {
+        return null;
+      }
+      addr = addr.substring(0, lastColon + 1) + "0:0";
+    }
+    int groups = 0;
+    int compressed = -1;
+    int[] values = new int[8];
+    int start = 0;
+    if (addr.startsWith("::")) {
+      compressed = 0;
+      start = 2;
+    }
+    while (start < addr.length()) {
+      int end = addr.indexOf(':', start);
+      if (end < 0) {
+        end = addr.length();
+      }
+      int group = parseGroup(addr.substring(start, end));
+      if (group < 0 || groups == 8) {
+        return null;
+      }
+      values[groups++] = group;
+      if (end == addr.length()) {
+        start = end;
+      }
+      else if (end + 1 < addr.length() && addr.charAt(end + 1) == ':') {
+        if (compressed >= 0) {
+          return null;
+        }
+        compressed = groups;
+        start = end + 2;
+      }
+      else if (end + 1 == addr.length()) {
+        // trailing single colon
+        return null;
+      }
+      else {
+        start = end + 1;
+      }
+    }
+    if (compressed < 0 ? groups != 8 : groups > 7) {
+      return null;
+    }
+    byte[] address = new byte[16];
+    int shift = 8 - groups;
+    for (int i = 0; i < groups; i++) {
+      int index = compressed >= 0 && i >= compressed ? i + shift : i;
+      address[index * 2] = (byte) (values[i] >> 8);
+      address[index * 2 + 1] = (byte) values[i];
+    }
+    if (ipv4 != null) {
+      System.arraycopy(ipv4, 0, address, 12, 4);
+    }
+    return address;
+  }
+
+  private static boolean isMappedIPv4(byte[] address) {
+    if (address.length != 16) {
+      return false;
+    }
+    for (int i = 0; i < 10; i++) {
+      if (address[i] != 0) {
+        return false;
+      }
+    }
+    return address[10] == (byte) 0xFF && address[11] == (byte) 0xFF;
+  }
+
+  private static int parseOctet(String part) {
+    if (part.isEmpty() || part.length() > 3 || !isDigits(part)) {
+      return -1;
+    }
+    int octet = Integer.parseInt(part);
+    return octet > 255 ? -1 : octet;
+  }
+
+  private static int parseGroup(String part) {
+    if (part.isEmpty() || part.length() > 4) {
+      return -1;
+    }
+    int group = 0;
+    for (int i = 0; i < part.length(); i++) {
+      int digit = Character.digit(part.charAt(i), 16);
+      if (digit < 0) {
+        return -1;
+      }
+      group = (group << 4) | digit;
+    }
+    return group;
+  }
+
+  private static boolean isDigits(String part) {
+    for (int i = 0; i < part.length(); i++) {
+      char c = part.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
 }
@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.audit;
+
+import org.apache.hadoop.gateway.audit.log4j.appender.WalQueue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+
+public class WalQueueTest {
+
+  private File file;
+  private File dir;
+  private WalQueue<String> queue;
+
+  @Before
+  public void setup() throws IOException {
+    file = new File( "target/WalQueueTest" );
+    dir = new File( file.getAbsolutePath() + ".wal" );
+    cleanup();
+    queue = new WalQueue<String>( file, 4096, 64 );
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    if( queue != null ) {
+      queue.close();
+      queue = null;
+    }
+    File[] files = dir.listFiles();
+    if( files != null ) {
+      for( File f : files ) {
+        assertThat( "Failed to delete queue file.", f.delete(), is( true ) );
+      }
+      assertThat( "Failed to delete queue dir.", dir.delete(), is( true ) );
+    }
+  }
+
+  @Test
+  public void testSimple() throws IOException, InterruptedException {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+    String one = UUID.randomUUID().toString();
+    String two = UUID.randomUUID().toString();
+    String three = UUID.randomUUID().toString();
+    queue.enqueue( one );
+    assertThat( queue.dequeue(), is( one ) );
+    queue.enqueue( two );
+    queue.enqueue( three );
+
+    final List<String> drained = new ArrayList<>();
+    int count = queue.drain( 10, new WalQueue.Consumer<String>() {
+      @Override
+      public boolean consume( String s ) {
+        drained.add( s );
+        return true;
+      }
+    } );
+    assertThat( count, is( 2 ) );
+    assertThat( drained.get( 0 ), is( two ) );
+    assertThat( drained.get( 1 ), is( three ) );
+
+    queue.stop();
+    assertThat( queue.dequeue(), nullValue() );
+  }
+
+  @Test
+  public void testRejectedElementIsRedelivered() throws IOException, InterruptedException {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+    queue.enqueue( "one" );
+    queue.enqueue( "two" );
+    int count = queue.drain( 10, new WalQueue.Consumer<String>() {
+      @Override
+      public boolean consume( String s ) {
+        return s.equals( "one" );
+      }
+    } );
+    assertThat( count, is( 1 ) );
+    assertThat( queue.dequeue(), is( "two" ) );
+  }
+
+  @Test
+  public void testRecovery() throws IOException, InterruptedException {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+    for( int i = 0; i < 200; i++ ) {
+      queue.enqueue( Integer.toString( i ) );
+    }
+    for( int i = 0; i < 50; i++ ) {
+      assertThat( queue.dequeue(), is( Integer.toString( i ) ) );
+    }
+    queue.close();
+
+    // Simulate a write that was torn by a crash after the last commit.
+    File[] segments = dir.listFiles( new FilenameFilter() {
+      @Override
+      public boolean accept( File dir, String name ) {
+        return name.endsWith( ".seg" );
+      }
+    } );
+    assertThat( "Consumed segments should have been deleted.", segments.length, lessThan( 5 ) );
+    List<String> names = new ArrayList<>();
+    for( File segment : segments ) {
+      names.add( segment.getName() );
+    }
+    Collections.sort( names );
+    try( RandomAccessFile raf = new RandomAccessFile( new File( dir, names.get( names.size() - 1 ) ), "rw" ) ) {
+      long offset = 0;
+      int length;
+      while( ( length = raf.readInt() ) > 0 ) {
+        offset += 8 + length;
+        raf.seek( offset );
+      }
+      raf.seek( offset );
+      raf.writeInt( 100 );
+      raf.writeInt( 42 );
+      raf.write( new byte[]{ 1, 2, 3 } );
+    }
+
+    queue = new WalQueue<String>( file, 4096, 64 );
+    queue.enqueue( "200" );
+    for( int i = 50; i <= 200; i++ ) {
+      assertThat( queue.dequeue(), is( Integer.toString( i ) ) );
+    }
+    queue.stop();
+    assertThat( queue.dequeue(), nullValue() );
+  }
+
+  @Test( timeout = 120000 )
+  public void testConcurrentConsumer() throws InterruptedException, IOException {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+
+    int iterations = 100;
+    Set<String> consumed = Collections.synchronizedSet( new HashSet<String>() );
+    Consumer consumer = new Consumer( consumed );
+    consumer.start();
+    List<Producer> producers = new ArrayList<>();
+    for( int i = 0; i < 8; i++ ) {
+      Producer producer = new Producer( iterations );
+      producer.start();
+      producers.add( producer );
+    }
+    for( Producer producer : producers ) {
+      producer.join();
+    }
+    while( consumed.size() < iterations * producers.size() ) {
+      Thread.sleep( 5 );
+    }
+    queue.stop();
+    consumer.join();
+    assertThat( consumed, hasSize( iterations * producers.size() ) );
+  }
+
+  public class Producer extends Thread {
+    public int iterations;
+    public Producer( int iterations ) {
+      this.iterations = iterations;
+    }
+    public void run() {
+      try {
+        for( int i = 0; i < iterations; i++ ) {
+          queue.enqueue( UUID.randomUUID().toString() );
+        }
+      } catch ( Throwable t ) {
+        t.printStackTrace();
+      }
+    }
+  }
+
+  public class Consumer extends Thread {
+    public Set<String> consumed;
+    public Consumer( Set<String> consumed ) {
+      this.consumed = consumed;
+    }
+    public void run() {
+      try {
+        WalQueue.Consumer<String> consumer = new WalQueue.Consumer<String>() {
+          @Override
+          public boolean consume( String s ) {
+            if( !consumed.add( s ) ) {
+              System.out.println( "DUPLICATE " + s );
+              System.exit( 1 );
+            }
+            return true;
+          }
+        };
+        while( queue.drain( 32, consumer ) >= 0 ) {
+        }
+      } catch ( Throwable t ) {
+        t.printStackTrace();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.audit;
+
+import org.apache.hadoop.test.log.CollectAppender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WalStoreAndForwardAppenderTest {
+
+  @Before
+  public void setup() throws IOException {
+    cleanup();
+    PropertyConfigurator.configure( ClassLoader.getSystemResourceAsStream( "audit-wal-log4j.properties" ) );
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    LogManager.shutdown();
+    CollectAppender.queue.clear();
+    File wal = new File( "target/audit-wal.wal" );
+    File[] files = wal.listFiles();
+    if( files != null ) {
+      for( File file : files ) {
+        assertThat( "Failed to delete audit store wal file.", file.delete(), is( true ) );
+      }
+      assertThat( "Failed to delete audit store wal dir.", wal.delete(), is( true ) );
+    }
+  }
+
+  @Test(timeout = 500000)
+  public void testAppender() throws Exception {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+
+    int iterations = 1000;
+    Logger logger = Logger.getLogger( "audit.store" );
+    for( int i = 1; i <= iterations; i++ ) {
+      logger.info( Integer.toString( i ) );
+    }
+    while( CollectAppender.queue.size() < iterations ) {
+      Thread.sleep( 20 );
+    }
+    assertThat( CollectAppender.queue.size(), is( iterations ) );
+  }
+
+  @Test(timeout = 50000)
+  public void testFailedForwardIsRetried() throws Exception {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+
+    FlakyAppender forward = new FlakyAppender( 3 );
+    Logger.getLogger( "audit.forward" ).removeAllAppenders();
+    Logger.getLogger( "audit.forward" ).addAppender( forward );
+
+    int iterations = 100;
+    Logger logger = Logger.getLogger( "audit.store" );
+    for( int i = 1; i <= iterations; i++ ) {
+      logger.info( Integer.toString( i ) );
+    }
+    while( forward.events.size() < iterations ) {
+      Thread.sleep( 20 );
+    }
+    // Each failure delays the next attempt instead of resending the event in a tight loop.
+    assertThat( forward.attempts.get(), is( iterations + 3 ) );
+    for( int i = 0; i < iterations; i++ ) {
+      assertThat( forward.events.get( i ), is( Integer.toString( i + 1 ) ) );
+    }
+  }
+
+  @Test(timeout = 50000)
+  public void testUnforwardedEventsSurviveClose() throws Exception {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+
+    FlakyAppender forward = new FlakyAppender( Integer.MAX_VALUE );
+    Logger.getLogger( "audit.forward" ).removeAllAppenders();
+    Logger.getLogger( "audit.forward" ).addAppender( forward );
+    Logger.getLogger( "audit.store" ).info( "pending" );
+    while( forward.attempts.get() == 0 ) {
+      Thread.sleep( 20 );
+    }
+    // Closing doesn't wait for the forward to succeed.
+    LogManager.shutdown();
+    assertThat( forward.events.size(), is( 0 ) );
+
+    PropertyConfigurator.configure( ClassLoader.getSystemResourceAsStream( "audit-wal-log4j.properties" ) );
+    while( CollectAppender.queue.isEmpty() ) {
+      Thread.sleep( 20 );
+    }
+    assertThat( CollectAppender.queue.poll().getRenderedMessage(), is( "pending" ) );
+  }
+
+  private static class FlakyAppender extends AppenderSkeleton {
+
+    private final int failures;
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    private FlakyAppender( int failures ) {
+      this.failures = failures;
+    }
+
+    @Override
+    protected void append( LoggingEvent event ) {
+      if( attempts.incrementAndGet() <= failures ) {
+        throw new IllegalStateException( "Audit sink is down" );
+      }
+      events.add( event.getRenderedMessage() );
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean requiresLayout() {
+      return false;
+    }
+
+  }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BoundedCacheTest {
+
+  @Test
+  public void testEvictsInInsertionOrder() {
+    BoundedCache<String,String> cache = new BoundedCache<>( 2 );
+    assertEquals( 0, cache.put( "a", "1" ) );
+    assertEquals( 0, cache.put( "b", "2" ) );
+    // Lookups don't affect the eviction order.
+    assertEquals( "1", cache.get( "a" ) );
+    assertEquals( 1, cache.put( "c", "3" ) );
+    assertNull( cache.get( "a" ) );
+    assertEquals( "2", cache.get( "b" ) );
+    assertEquals( "3", cache.get( "c" ) );
+    assertEquals( 2, cache.size() );
+  }
+
+  @Test
+  public void testReplaceDoesNotEvict() {
+    BoundedCache<String,String> cache = new BoundedCache<>( 2 );
+    cache.put( "a", "1" );
+    cache.put( "b", "2" );
+    assertEquals( 0, cache.put( "a", "3" ) );
+    assertEquals( "3", cache.get( "a" ) );
+    assertEquals( 2, cache.size() );
+  }
+
+  @Test
+  public void testRemove() {
+    BoundedCache<String,String> cache = new BoundedCache<>( 2 );
+    cache.put( "a", "1" );
+    assertFalse( cache.remove( "a", "2" ) );
+    assertTrue( cache.remove( "a", "1" ) );
+    assertNull( cache.get( "a" ) );
+    assertEquals( 0, cache.size() );
+  }
+
+  @Test
+  public void testRemoveAndReAddEvictsInInsertionOrder() {
+    BoundedCache<String,String> cache = new BoundedCache<>( 3 );
+    cache.put( "a", "1" );
+    cache.put( "b", "2" );
+    // Expire and re-add the same key repeatedly, like the verified token cache does.
+    for( int i = 0; i < 100; i++ ) {
+      assertTrue( cache.remove( "a", "1" ) );
+      assertEquals( 0, cache.put( "a", "1" ) );
+    }
+    assertEquals( 2, cache.size() );
+    assertEquals( 2, cache.getOrderSize() );
+
+    // "a" was re-added after "b" so "b" is the eldest entry.
+    assertEquals( 0, cache.put( "c", "3" ) );
+    assertEquals( 1, cache.put( "d", "4" ) );
+    assertNull( cache.get( "b" ) );
+    assertEquals( "1", cache.get( "a" ) );
+    assertEquals( 1, cache.put( "e", "5" ) );
+    assertNull( cache.get( "a" ) );
+    assertEquals( "3", cache.get( "c" ) );
+    assertEquals( "4", cache.get( "d" ) );
+    assertEquals( "5", cache.get( "e" ) );
+    assertEquals( 3, cache.size() );
+    assertEquals( 3, cache.getOrderSize() );
+  }
+
+}
@@ -74,4 +74,38 @@ public class IpAddressValidatorTest extends org.junit.Assert {
     assertTrue("Should have validated 293.168.1.1", ipv.validateIpAddress("293.168.1.1"));
   }
 
+  @Test
+  public void testCidrRanges() throws Exception {
+    IpAddressValidator ipv = new IpAddressValidator("10.0.0.0/8,192.168.1.128/25,2001:db8::/32,172.16.0.1");
+
+    assertTrue("Should have validated 10.1.2.3", ipv.validateIpAddress("10.1.2.3"));
+    assertFalse("Should not have validated 11.0.0.1", ipv.validateIpAddress("11.0.0.1"));
+    assertTrue("Should have validated 192.168.1.200", ipv.validateIpAddress("192.168.1.200"));
+    assertFalse("Should not have validated 192.168.1.100", ipv.validateIpAddress("192.168.1.100"));
+    assertTrue("Should have validated 2001:db8:0:0:0:0:0:1", ipv.validateIpAddress("2001:db8:0:0:0:0:0:1"));
+    assertTrue("Should have validated 2001:db8::1", ipv.validateIpAddress("2001:db8::1"));
+    assertFalse("Should not have validated 2001:db9:0:0:0:0:0:1", ipv.validateIpAddress("2001:db9:0:0:0:0:0:1"));
+    assertTrue("Should have validated IPv4 mapped 10.1.2.3", ipv.validateIpAddress("0:0:0:0:0:ffff:a01:203"));
+    assertTrue("Should have validated 172.16.0.1", ipv.validateIpAddress("172.16.0.1"));
+    assertFalse("Should not have validated 172.16.0.10", ipv.validateIpAddress("172.16.0.10"));
+    assertFalse("Should not have validated a host name", ipv.validateIpAddress("localhost"));
+  }
+
+  @Test
+  public void testManyRanges() throws Exception {
+    StringBuilder ranges = new StringBuilder();
+    for (int i = 0; i < 256; i++) {
+      for (int j = 0; j < 256; j += 4) {
+        ranges.append("10.").append(i).append('.').append(j).append(".0/24,");
+      }
+    }
+    ranges.append("0:0:0:0:0:0:0:1");
+    IpAddressValidator ipv = new IpAddressValidator(ranges.toString());
+
+    assertTrue("Should have validated 10.200.8.1", ipv.validateIpAddress("10.200.8.1"));
+    assertFalse("Should not have validated 10.200.9.1", ipv.validateIpAddress("10.200.9.1"));
+    assertTrue("Should have validated 0:0:0:0:0:0:0:1", ipv.validateIpAddress("0:0:0:0:0:0:0:1"));
+    assertFalse("Should not have validated 0:0:0:0:0:0:0:2", ipv.validateIpAddress("0:0:0:0:0:0:0:2"));
+  }
+
 }
@@ -0,0 +1,381 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.util.urltemplate;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A template compiled into the sequence of literal text and parameter lookups that {@link Expander}
+ * would perform for it.  The template is only walked once when the plan is compiled, expanding the
+ * plan appends the parts to a single StringBuilder.  The output is the same as
+ * {@link Expander#expandToString(Template, Params, Evaluator)} for the same template.
+ * Plans are immutable and may be shared between threads.
+ */
+public class ExpansionPlan {
+
+  private static final Params EMPTY_PARAMS = new EmptyParams();
+
+  private final Part[] parts;
+  private final int fragmentIndex;
+  private final Set<String> expandedNames;
+  private final boolean extraQuery;
+  private final int explicitQueryCount;
+  private final int capacity;
+
+  private ExpansionPlan( Compiler compiler ) {
+    this.parts = compiler.parts.toArray( new Part[ compiler.parts.size() ] );
+    this.fragmentIndex = compiler.fragmentIndex;
+    this.expandedNames = Collections.unmodifiableSet( compiler.names );
+    this.extraQuery = compiler.extraQuery;
+    this.explicitQueryCount = compiler.queryCount;
+    this.capacity = compiler.literalLength + 16 * parts.length;
+  }
+
+  public static ExpansionPlan compile( Template template ) {
+    return new ExpansionPlan( new Compiler( template ) );
+  }
+
+  public Template expandToTemplate( Params params, Evaluator evaluator ) throws URISyntaxException {
+    return Parser.parseLiteral( expandToString( params, evaluator ) );
+  }
+
+  public String expandToString( Params params, Evaluator evaluator ) {
+    if( params == null ) {
+      params = EMPTY_PARAMS;
+    }
+    StringBuilder builder = new StringBuilder( capacity );
+    for( int i = 0; i < fragmentIndex; i++ ) {
+      parts[ i ].expand( params, evaluator, builder );
+    }
+    if( extraQuery ) {
+      expandExtraQuery( params, builder );
+    }
+    // The fragment follows the query parameters, including the extra ones.
+    for( int i = fragmentIndex; i < parts.length; i++ ) {
+      parts[ i ].expand( params, evaluator, builder );
+    }
+    return builder.toString();
+  }
+
+  // The parameters that weren't used by the template are appended as query parameters.
+  private void expandExtraQuery( Params params, StringBuilder builder ) {
+    Set<String> names = new HashSet<>( params.getNames() );
+    names.removeAll( expandedNames );
+    int index = explicitQueryCount;
+    for( String name : names ) {
+      List<String> values = params.resolve( name );
+      if( values != null ) {
+        for( String value : values ) {
+          builder.append( ++index == 1 ? '?' : '&' );
+          appendQueryPart( name, builder );
+          if( value != null ) {
+            builder.append( '=' );
+            appendQueryPart( value, builder );
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean isParam( Segment.Value value ) {
+    switch( value.getType() ) {
+      case Segment.DEFAULT:
+      case Segment.STAR:
+      case Segment.GLOB:
+      case Segment.REGEX:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isMultiValued( Segment segment ) {
+    int type = segment.getFirstValue().getType();
+    return type == Segment.GLOB || type == Segment.DEFAULT;
+  }
+
+  private static void appendQueryPart( String part, StringBuilder builder ) {
+    try {
+      builder.append( URLEncoder.encode( part, "UTF-8" ) );
+    } catch( UnsupportedEncodingException e ) {
+      builder.append( part );
+    }
+  }
+
+  private static class Compiler {
+
+    private final List<Part> parts = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private final StringBuilder literal = new StringBuilder();
+    private boolean extraQuery;
+    private int fragmentIndex;
+    private int queryCount;
+    private int literalLength;
+
+    private Compiler( Template template ) {
+      compileScheme( template );
+      compileAuthority( template );
+      compilePath( template );
+      compileQuery( template );
+      flush();
+      fragmentIndex = parts.size();
+      compileFragment( template );
+      flush();
+    }
+
+    private void compileScheme( Template template ) {
+      Segment scheme = template.getScheme();
+      if( scheme != null ) {
+        compileSingleValue( scheme );
+        literal.append( ':' );
+      }
+    }
+
+    private void compileAuthority( Template template ) {
+      if( template.hasAuthority() ) {
+        if( !template.isAuthorityOnly() ) {
+          literal.append( "//" );
+        }
+        Segment username = template.getUsername();
+        Segment password = template.getPassword();
+        compileSingleValue( username );
+        if( password != null ) {
+          literal.append( ':' );
+          compileSingleValue( password );
+        }
+        if( username != null || password != null ) {
+          literal.append( '@' );
+        }
+        compileSingleValue( template.getHost() );
+        if( template.getPort() != null ) {
+          literal.append( ':' );
+          compileSingleValue( template.getPort() );
+        }
+      }
+    }
+
+    private void compilePath( Template template ) {
+      if( template.isAbsolute() ) {
+        literal.append( '/' );
+      }
+      List<Path> path = template.getPath();
+      for( int i = 0, n = path.size(); i < n; i++ ) {
+        if( i > 0 ) {
+          literal.append( '/' );
+        }
+        Path segment = path.get( i );
+        Function function = function( segment );
+        Segment.Value value = segment.getFirstValue();
+        if( value.getType() == Segment.STATIC ) {
+          literal.append( value.getOriginalPattern() );
+        } else if( isParam( value ) ) {
+          add( new PathPart( function, isMultiValued( segment ), value.getOriginalPattern() ) );
+        }
+      }
+      if( template.isDirectory() && !path.isEmpty() ) {
+        literal.append( '/' );
+      }
+    }
+
+    private void compileQuery( Template template ) {
+      for( Query segment : template.getQuery().values() ) {
+        literal.append( ++queryCount == 1 ? '?' : '&' );
+        String queryName = segment.getQueryName();
+        Function function = function( segment );
+        for( Segment.Value value : segment.getValues() ) {
+          if( value.getType() == Segment.STATIC ) {
+            literal.append( queryName );
+            String pattern = value.getOriginalPattern();
+            if( pattern != null ) {
+              literal.append( '=' ).append( pattern );
+            }
+          } else if( isParam( value ) ) {
+            add( new QueryPart( function, isMultiValued( segment ), queryName ) );
+          }
+        }
+      }
+      extraQuery = template.getExtra() != null;
+    }
+
+    private void compileFragment( Template template ) {
+      if( template.hasFragment() ) {
+        literal.append( '#' );
+        compileSingleValue( template.getFragment() );
+      }
+    }
+
+    private void compileSingleValue( Segment segment ) {
+      if( segment != null ) {
+        Function function = function( segment );
+        Segment.Value value = segment.getFirstValue();
+        if( isParam( value ) ) {
+          String fallback = function.getFunctionName() != null ? segment.getParamName() : value.getOriginalPattern();
+          add( new ValuePart( function, fallback ) );
+        } else {
+          literal.append( value.getOriginalPattern() );
+        }
+      }
+    }
+
+    private Function function( Segment segment ) {
+      Function function = new Function( segment.getParamName() );
+      names.add( function.getParameterName() );
+      return function;
+    }
+
+    private void add( Part part ) {
+      flush();
+      parts.add( part );
+    }
+
+    private void flush() {
+      if( literal.length() > 0 ) {
+        literalLength += literal.length();
+        parts.add( new LiteralPart( literal.toString() ) );
+        literal.setLength( 0 );
+      }
+    }
+
+  }
+
+  private interface Part {
+    void expand( Params params, Evaluator evaluator, StringBuilder builder );
+  }
+
+  private static class LiteralPart implements Part {
+
+    private final String text;
+
+    private LiteralPart( String text ) {
+      this.text = text;
+    }
+
+    @Override
+    public void expand( Params params, Evaluator evaluator, StringBuilder builder ) {
+      builder.append( text );
+    }
+
+  }
+
+  // A scheme, authority or fragment value, only the first value of the parameter is used.
+  private static class ValuePart implements Part {
+
+    private final Function function;
+    private final String fallback;
+
+    private ValuePart( Function function, String fallback ) {
+      this.function = function;
+      this.fallback = fallback;
+    }
+
+    @Override
+    public void expand( Params params, Evaluator evaluator, StringBuilder builder ) {
+      List<String> values = function.evaluate( params, evaluator );
+      builder.append( values != null && !values.isEmpty() ? values.get( 0 ) : fallback );
+    }
+
+  }
+
+  private static class PathPart implements Part {
+
+    private final Function function;
+    private final boolean multiValued;
+    private final String fallback;
+
+    private PathPart( Function function, boolean multiValued, String fallback ) {
+      this.function = function;
+      this.multiValued = multiValued;
+      this.fallback = fallback;
+    }
+
+    @Override
+    public void expand( Params params, Evaluator evaluator, StringBuilder builder ) {
+      List<String> values = function.evaluate( params, evaluator );
+      if( values == null || values.isEmpty() ) {
+        builder.append( fallback );
+      } else if( multiValued ) {
+        for( int i = 0, n = values.size(); i < n; i++ ) {
+          if( i > 0 ) {
+            builder.append( '/' );
+          }
+          builder.append( values.get( i ) );
+        }
+      } else {
+        builder.append( values.get( 0 ) );
+      }
+    }
+
+  }
+
+  private static class QueryPart implements Part {
+
+    private final Function function;
+    private final boolean multiValued;
+    private final String queryName;
+
+    private QueryPart( Function function, boolean multiValued, String queryName ) {
+      this.function = function;
+      this.multiValued = multiValued;
+      this.queryName = queryName;
+    }
+
+    @Override
+    public void expand( Params params, Evaluator evaluator, StringBuilder builder ) {
+      List<String> values = function.evaluate( params, evaluator );
+      if( values == null || values.isEmpty() ) {
+        builder.append( queryName );
+      } else {
+        int n = multiValued ? values.size() : 1;
+        for( int i = 0; i < n; i++ ) {
+          if( i > 0 ) {
+            builder.append( '&' );
+          }
+          appendQueryPart( queryName, builder );
+          String value = values.get( i );
+          if( value != null ) {
+            builder.append( '=' );
+            appendQueryPart( value, builder );
+          }
+        }
+      }
+    }
+
+  }
+
+  private static class EmptyParams implements Params {
+
+    @Override
+    public Set<String> getNames() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public List<String> resolve( String name ) {
+      return Collections.emptyList();
+    }
+
+  }
+
+}
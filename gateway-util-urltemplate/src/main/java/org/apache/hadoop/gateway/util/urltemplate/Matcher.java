@@ -119,7 +119,25 @@ public class Matcher<V> {
   }
 
   public Match match( Template input ) {
+    return match( input, new Status() );
+  }
+
+  /**
+   * Matches each input in turn, reusing the match state between them.
+   * @param inputs the templates to match
+   * @return the match for each input in the same order, null entries for inputs without a match
+   */
+  public List<Match> matchAll( List<Template> inputs ) {
+    List<Match> results = new ArrayList<Match>( inputs.size() );
     Status status = new Status();
+    for( Template input : inputs ) {
+      results.add( match( input, status ) );
+    }
+    return results;
+  }
+
+  private Match match( Template input, Status status ) {
+    status.reset();
     status.candidates.add( new MatchSegment( null, root, null, null ) );
     boolean matches = true;
     // Separate &= statements for debugability.
@@ -171,16 +189,10 @@ public class Matcher<V> {
   private void pickMatchingChildren( Segment segment, Status status ) {
     if( segment != null ) {
       for( MatchSegment parent : status.candidates ) {
-        if( parent.pathNode.hasGlob() ) {
+        if( parent.pathNode.glob ) {
           status.matches.add( new MatchSegment( parent, parent.pathNode, parent.pathNode.segment, segment ) );
         }
-        if( parent.pathNode.children != null ) {
-          for( PathNode node : parent.pathNode.children.values() ) {
-            if( node.matches( segment ) ) {
-              status.matches.add( new MatchSegment( parent, node, node.segment, segment ) );
-            }
-          }
-        }
+        parent.pathNode.pickMatchingChildren( parent, segment, status.matches );
       }
       status.swapMatchesToCandidates();
     }
@@ -191,15 +203,11 @@ public class Matcher<V> {
    */
   private void pickMatchingOptionalSegment( Segment segment, Status status ) {
     for( MatchSegment parent : status.candidates ) {
-      if( parent.pathNode.children != null ) {
+      if( segment != null ) {
+        parent.pathNode.pickMatchingChildren( parent, segment, status.matches );
+      } else if( parent.pathNode.children != null ) {
         for( PathNode node : parent.pathNode.children.values() ) {
-          if( segment != null ) {
-            if( node.matches( segment ) ) {
-              status.matches.add( new MatchSegment( parent, node, node.segment, segment ) );
-            }
-          } else {
-            status.matches.add( new MatchSegment( parent, node, node.segment, segment ) );
-          }
+          status.matches.add( new MatchSegment( parent, node, node.segment, segment ) );
         }
       }
     }
@@ -216,7 +224,7 @@ public class Matcher<V> {
       if( ( bestPath == null ) || // If we don't have anything at all pick the pathNode.
           ( pathNode.depth > bestPath.depth ) || // If the pathNode is deeper than the best pathNode, pick it.
           // If the pathNode is the same depth as current best but is static and the best isn't then pick it.
-          ( ( pathNode.depth == bestPath.depth ) && ( pathNode.getType() < bestPath.getType() ) ) ) {
+          ( ( pathNode.depth == bestPath.depth ) && ( pathNode.type < bestPath.type ) ) ) {
         // If the path node has a template then assume we will pick the path node.
         if( pathNode.template != null ) {
           bestPath = pathNode;
@@ -356,6 +364,11 @@ public class Matcher<V> {
     private boolean hasCandidates() {
       return !candidates.isEmpty();
     }
+
+    private void reset() {
+      candidates.clear();
+      matches.clear();
+    }
   }
 
   private class MatchSegment {
@@ -433,8 +446,15 @@ public class Matcher<V> {
   private class PathNode extends Node {
 
     int depth; // Zero based depth of the pathNode for "best pathNode" calculation.
+    int index; // The position of the pathNode among the children of its parent.
+    int type; // The most specific value type of the segment, see getType().
+    boolean glob; // True if the segment has a glob value and so also matches deeper input segments.
     Segment segment;
     Map<Segment,PathNode> children;
+    // The children indexed so an input segment only has to be compared with the children it can match.
+    // Children with a single static value are found by that value, all others are tested in order.
+    Map<String,List<PathNode>> staticChildren;
+    List<PathNode> patternChildren;
     Set<QueryNode> queries;
 
     private PathNode( PathNode parent, Segment segment ) {
@@ -443,17 +463,65 @@ public class Matcher<V> {
       this.segment = segment;
       this.children = null;
       this.queries = null;
+      this.type = getType();
+      this.glob = hasGlob();
     }
 
     private PathNode addPath( Segment path ) {
       if( children == null ) {
         children = new LinkedHashMap<Segment,PathNode>();
+        staticChildren = new HashMap<String,List<PathNode>>();
+        patternChildren = new ArrayList<PathNode>();
       }
       PathNode child = new PathNode( this, path );
+      child.index = children.size();
       children.put( path, child );
+      String literal = getStaticPattern( path );
+      if( literal != null ) {
+        List<PathNode> nodes = staticChildren.get( literal );
+        if( nodes == null ) {
+          nodes = new ArrayList<PathNode>( 1 );
+          staticChildren.put( literal, nodes );
+        }
+        nodes.add( child );
+      } else {
+        patternChildren.add( child );
+      }
       return child;
     }
 
+    // Adds the children matching the input segment to the matches in the order the children were added.
+    // The order matters to pickBestMatch so the static and pattern children are merged by their index.
+    private void pickMatchingChildren( MatchSegment parent, Segment input, List<MatchSegment> matches ) {
+      if( children == null ) {
+        return;
+      }
+      String literal = input.getValues().size() == 1 ? input.getFirstValue().getOriginalPattern() : null;
+      if( literal == null ) {
+        for( PathNode node : children.values() ) {
+          node.addIfMatches( parent, input, matches );
+        }
+        return;
+      }
+      List<PathNode> nodes = staticChildren.get( literal );
+      int next = 0;
+      for( PathNode node : patternChildren ) {
+        while( nodes != null && next < nodes.size() && nodes.get( next ).index < node.index ) {
+          nodes.get( next++ ).addIfMatches( parent, input, matches );
+        }
+        node.addIfMatches( parent, input, matches );
+      }
+      while( nodes != null && next < nodes.size() ) {
+        nodes.get( next++ ).addIfMatches( parent, input, matches );
+      }
+    }
+
+    private void addIfMatches( MatchSegment parent, Segment input, List<MatchSegment> matches ) {
+      if( matches( input ) ) {
+        matches.add( new MatchSegment( parent, this, segment, input ) );
+      }
+    }
+
     private QueryNode addQuery( Template template, V value ) {
       if( queries == null ) {
         queries = new LinkedHashSet<QueryNode>();
@@ -499,6 +567,16 @@ public class Matcher<V> {
 
   }
 
+  private static String getStaticPattern( Segment segment ) {
+    if( segment.getValues().size() == 1 ) {
+      Segment.Value value = segment.getFirstValue();
+      if( value.getType() == Segment.STATIC ) {
+        return value.getOriginalPattern();
+      }
+    }
+    return null;
+  }
+
   private class QueryNode extends Node {
 
     private QueryNode( Template template, V value ) {
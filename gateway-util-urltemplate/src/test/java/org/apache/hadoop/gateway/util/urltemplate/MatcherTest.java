@@ -25,6 +25,8 @@ import org.junit.experimental.categories.Category;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -1005,4 +1007,48 @@ public class MatcherTest {
     assertThat( expandedStr, containsString( "&" ) );
   }
 
+  @Test
+  public void testStaticAndPatternChildrenMatchTogether() throws Exception {
+    Matcher<String> matcher = new Matcher<String>();
+    addTemplate( matcher, "/a/{x=*}" );
+    addTemplate( matcher, "/a/b" );
+    addTemplate( matcher, "/a/b*/d" );
+    addTemplate( matcher, "/a/**" );
+
+    // The static child is preferred over the wildcard at the same depth regardless of insertion order.
+    assertValidMatch( matcher, "/a/b", "/a/b" );
+    assertValidMatch( matcher, "/a/x", "/a/{x=*}" );
+    assertValidMatch( matcher, "/a/bb/d", "/a/b*/d" );
+    assertValidMatch( matcher, "/a/b/d", "/a/b*/d" );
+    assertValidMatch( matcher, "/a/b/e", "/a/**" );
+    assertValidMatch( matcher, "/b/c", null );
+
+    // Static children with the same value but different parameter names are both candidates.
+    matcher = new Matcher<String>();
+    addTemplate( matcher, "/a/{x=b}/c" );
+    addTemplate( matcher, "/a/{y=b}/d" );
+    assertValidMatch( matcher, "/a/b/c", "/a/{x=b}/c" );
+    assertValidMatch( matcher, "/a/b/d", "/a/{y=b}/d" );
+  }
+
+  @Test
+  public void testMatchAll() throws Exception {
+    Matcher<String> matcher = new Matcher<String>();
+    addTemplate( matcher, "*://*:*/webhdfs/{version}/{path=**}?{**}" );
+    addTemplate( matcher, "*://*:*/oozie/{path=**}" );
+
+    List<Template> inputs = new ArrayList<Template>();
+    inputs.add( Parser.parseLiteral( "https://host:8443/webhdfs/v1/tmp?op=LISTSTATUS" ) );
+    inputs.add( Parser.parseLiteral( "https://host:8443/unknown/path" ) );
+    inputs.add( Parser.parseLiteral( "https://host:8443/oozie/v1/jobs" ) );
+
+    List<Matcher<String>.Match> matches = matcher.matchAll( inputs );
+    assertThat( matches.size(), is( 3 ) );
+    assertThat( matches.get( 0 ).getValue(), is( "*://*:*/webhdfs/{version}/{path=**}?{**}" ) );
+    assertThat( matches.get( 0 ).getParams().resolve( "path" ), hasItem( "tmp" ) );
+    assertThat( matches.get( 1 ), nullValue() );
+    assertThat( matches.get( 2 ).getValue(), is( "*://*:*/oozie/{path=**}" ) );
+    assertThat( matches.get( 2 ).getParams().resolve( "path" ), hasItems( "v1", "jobs" ) );
+  }
+
 }